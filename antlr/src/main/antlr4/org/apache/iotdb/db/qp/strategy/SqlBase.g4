@@ -111,7 +111,7 @@ selectElements
     ;
 
 functionCall
-    : functionName LR_BRACKET suffixPath RR_BRACKET
+    : functionName LR_BRACKET suffixPath (COMMA realLiteral)? RR_BRACKET
     ;
 
 functionName
@@ -124,6 +124,8 @@ functionName
     | FIRST_VALUE
     | SUM
     | LAST_VALUE
+    | PERCENTILE
+    | APPROX_COUNT_DISTINCT
     ;
 
 functionAsClause
@@ -191,7 +193,18 @@ whereClause
     ;
 
 showWhereClause
-    : WHERE (property | containsExpression)
+    : WHERE tagOrExpression
+    ;
+tagOrExpression
+    : tagAndExpression (OPERATOR_OR tagAndExpression)*
+    ;
+tagAndExpression
+    : tagPredicate (OPERATOR_AND tagPredicate)*
+    ;
+tagPredicate
+    : property
+    | containsExpression
+    | LR_BRACKET tagOrExpression RR_BRACKET
     ;
 containsExpression
     : name=ID OPERATOR_CONTAINS value=propertyValue
@@ -482,6 +495,8 @@ nodeName
     | FIRST_VALUE
     | SUM
     | LAST_VALUE
+    | PERCENTILE
+    | APPROX_COUNT_DISTINCT
     | LAST
     | DISABLE
     | ALIGN
@@ -592,6 +607,8 @@ nodeNameWithoutStar
     | FIRST_VALUE
     | SUM
     | LAST_VALUE
+    | PERCENTILE
+    | APPROX_COUNT_DISTINCT
     | LAST
     | DISABLE
     | ALIGN
@@ -1062,6 +1079,14 @@ LAST_VALUE
     : L A S T UNDERLINE V A L U E
     ;
 
+PERCENTILE
+    : P E R C E N T I L E
+    ;
+
+APPROX_COUNT_DISTINCT
+    : A P P R O X UNDERLINE C O U N T UNDERLINE D I S T I N C T
+    ;
+
 LAST
     : L A S T
     ;
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generators of the synthetic series shared by the benchmarks. The data imitates what sensors
+ * usually report: timestamps with a fixed sampling interval and rare gaps, and values that
+ * drift slowly instead of being uniformly random, so that the encoders see a realistic input.
+ */
+public class BenchmarkData {
+
+  private static final long SEED = 20200901L;
+  private static final long INTERVAL = 1000L;
+
+  private BenchmarkData() {
+    // util class
+  }
+
+  /**
+   * @return increasing timestamps with a fixed interval where about 1% of the points are missing
+   */
+  public static long[] timestamps(int size) {
+    Random random = new Random(SEED);
+    long[] times = new long[size];
+    long time = 1_600_000_000_000L;
+    for (int i = 0; i < size; i++) {
+      time += random.nextInt(100) == 0 ? 2 * INTERVAL : INTERVAL;
+      times[i] = time;
+    }
+    return times;
+  }
+
+  /**
+   * @return a random walk of longs with small steps
+   */
+  public static long[] longValues(int size) {
+    Random random = new Random(SEED);
+    long[] values = new long[size];
+    long value = 0;
+    for (int i = 0; i < size; i++) {
+      value += random.nextInt(21) - 10;
+      values[i] = value;
+    }
+    return values;
+  }
+
+  /**
+   * @return a random walk of doubles rounded to two decimal places
+   */
+  public static double[] doubleValues(int size) {
+    Random random = new Random(SEED);
+    double[] values = new double[size];
+    double value = 25.0;
+    for (int i = 0; i < size; i++) {
+      value += random.nextGaussian() * 0.1;
+      values[i] = Math.round(value * 100) / 100.0;
+    }
+    return values;
+  }
+
+  /**
+   * Move a fraction of the points of increasing timestamps to random positions.
+   *
+   * @param times sorted timestamps, shuffled in place
+   * @param outOfOrderRatio in [0, 1], the fraction of the points which are displaced
+   */
+  public static void disorder(long[] times, double outOfOrderRatio) {
+    Random random = new Random(SEED);
+    int swapNum = (int) (times.length * outOfOrderRatio / 2);
+    for (int i = 0; i < swapNum; i++) {
+      int a = random.nextInt(times.length);
+      int b = random.nextInt(times.length);
+      long tmp = times[a];
+      times[a] = times[b];
+      times[b] = tmp;
+    }
+  }
+}
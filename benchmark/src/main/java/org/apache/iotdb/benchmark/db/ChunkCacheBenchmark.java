@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.benchmark.BenchmarkData;
+import org.apache.iotdb.db.engine.cache.ChunkCache;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.Chunk;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.datapoint.LongDataPoint;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Concurrent queries reading chunks of one TsFile through the ChunkCache. After the warmup all
+ * chunks are cached, so this mostly measures the get path under contention; pass {@code -t} to
+ * change the number of threads and {@code -p clearEveryIteration=true} to include the loads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ChunkCacheBenchmark {
+
+  private static final String DEVICE = "root.sg.d0";
+
+  @Param({"64"})
+  int sensorNum;
+
+  @Param({"16"})
+  int chunkGroupNum;
+
+  @Param({"1000"})
+  int pointNumPerChunk;
+
+  @Param({"false"})
+  boolean clearEveryIteration;
+
+  private File tsFile;
+  private TsFileSequenceReader reader;
+  private ChunkMetadata[] chunkMetadata;
+
+  @Setup
+  public void setUp() throws IOException, WriteProcessException {
+    tsFile = Files.createTempFile("chunk-cache-benchmark", ".tsfile").toFile();
+    long[] times = BenchmarkData.timestamps(chunkGroupNum * pointNumPerChunk);
+    long[] values = BenchmarkData.longValues(chunkGroupNum * pointNumPerChunk);
+    try (TsFileWriter writer = new TsFileWriter(tsFile)) {
+      for (int s = 0; s < sensorNum; s++) {
+        writer.registerTimeseries(new Path(DEVICE, "s" + s),
+            new MeasurementSchema("s" + s, TSDataType.INT64, TSEncoding.TS_2DIFF));
+      }
+      for (int i = 0; i < times.length; i++) {
+        TSRecord record = new TSRecord(times[i], DEVICE);
+        for (int s = 0; s < sensorNum; s++) {
+          record.addTuple(new LongDataPoint("s" + s, values[i] + s));
+        }
+        writer.write(record);
+        if ((i + 1) % pointNumPerChunk == 0) {
+          writer.flushAllChunkGroups();
+        }
+      }
+    }
+
+    reader = new TsFileSequenceReader(tsFile.getPath());
+    List<ChunkMetadata> metadataList = new ArrayList<>();
+    for (int s = 0; s < sensorNum; s++) {
+      metadataList.addAll(reader.getChunkMetadataList(new Path(DEVICE, "s" + s)));
+    }
+    chunkMetadata = metadataList.toArray(new ChunkMetadata[0]);
+    ChunkCache.getInstance().clear();
+  }
+
+  @Setup(Level.Iteration)
+  public void clearCache() {
+    if (clearEveryIteration) {
+      ChunkCache.getInstance().clear();
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    ChunkCache.getInstance().clear();
+    reader.close();
+    Files.deleteIfExists(tsFile.toPath());
+  }
+
+  @Benchmark
+  public Chunk get() throws IOException {
+    ChunkMetadata metadata = chunkMetadata[ThreadLocalRandom.current()
+        .nextInt(chunkMetadata.length)];
+    return ChunkCache.getInstance().get(metadata, reader);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.adapter.ActiveTimeSeriesCounter;
+import org.apache.iotdb.db.engine.flush.FlushManager;
+import org.apache.iotdb.db.engine.flush.TsFileFlushPolicy.DirectFlushPolicy;
+import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor;
+import org.apache.iotdb.db.exception.BatchInsertionException;
+import org.apache.iotdb.db.exception.StartupException;
+import org.apache.iotdb.db.exception.StorageGroupProcessorException;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.writelog.manager.MultiFileLogNodeManager;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inserts tablets into a StorageGroupProcessor end to end: the WAL, the memtables and the flushes
+ * they trigger are all included. Each tablet is appended after the previous one, so only
+ * sequence data is written.
+ *
+ * <p>All files are written to a temporary directory, which is configured through IOTDB_CONF
+ * before any server class loads its configuration. That is why the benchmark must run in its
+ * own fork.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class InsertTabletBenchmark {
+
+  private static final String STORAGE_GROUP = "root.benchmark";
+  private static final String DEVICE = STORAGE_GROUP + ".d0";
+  private static final String CONFIG_NAME = "iotdb-engine.properties";
+
+  @Param({"100", "1000"})
+  int rowCount;
+
+  @Param({"true", "false"})
+  boolean enableWal;
+
+  private File baseDir;
+  private StorageGroupProcessor processor;
+  private MeasurementMNode[] measurementMNodes;
+  private InsertTabletPlan template;
+  private long timeSpan;
+  private long timeOffset;
+
+  @Setup
+  public void setUp() throws IOException, MetadataException, StartupException,
+      StorageGroupProcessorException {
+    baseDir = Files.createTempDirectory("insert-tablet-benchmark").toFile();
+    Properties properties = new Properties();
+    properties.setProperty("system_dir", new File(baseDir, "system").getPath());
+    properties.setProperty("data_dirs", new File(baseDir, "data").getPath());
+    properties.setProperty("wal_dir", new File(baseDir, "wal").getPath());
+    properties.setProperty("enable_wal", Boolean.toString(enableWal));
+    try (OutputStream outputStream = Files
+        .newOutputStream(new File(baseDir, CONFIG_NAME).toPath())) {
+      properties.store(outputStream, "generated by " + getClass().getSimpleName());
+    }
+    System.setProperty(IoTDBConstant.IOTDB_CONF, baseDir.getPath());
+
+    IoTDB.metaManager.init();
+    IoTDB.metaManager.setStorageGroup(new PartialPath(STORAGE_GROUP));
+    measurementMNodes = new MeasurementMNode[Tablets.MEASUREMENTS.length];
+    for (int i = 0; i < Tablets.MEASUREMENTS.length; i++) {
+      PartialPath path = new PartialPath(DEVICE + "." + Tablets.MEASUREMENTS[i]);
+      IoTDB.metaManager.createTimeseries(path, Tablets.DATA_TYPES[i], TSEncoding.PLAIN,
+          TSFileDescriptor.getInstance().getConfig().getCompressor(), Collections.emptyMap());
+      measurementMNodes[i] = (MeasurementMNode) IoTDB.metaManager.getNodeByPath(path);
+    }
+
+    FlushManager.getInstance().start();
+    MultiFileLogNodeManager.getInstance().start();
+    ActiveTimeSeriesCounter.getInstance().init(STORAGE_GROUP);
+    processor = new StorageGroupProcessor(new File(baseDir, "system").getPath(), STORAGE_GROUP,
+        new DirectFlushPolicy());
+
+    template = Tablets.create(DEVICE, rowCount, 0);
+    long[] times = template.getTimes();
+    timeSpan = times[rowCount - 1] - times[0] + 1000;
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    processor.syncCloseAllWorkingTsFileProcessors();
+    processor.syncDeleteDataFiles();
+    MultiFileLogNodeManager.getInstance().stop();
+    FlushManager.getInstance().stop();
+    IoTDB.metaManager.clear();
+    FileUtils.deleteDirectory(baseDir);
+  }
+
+  @Benchmark
+  public void insertTablet() throws BatchInsertionException {
+    long[] times = new long[rowCount];
+    long[] templateTimes = template.getTimes();
+    for (int i = 0; i < rowCount; i++) {
+      times[i] = templateTimes[i] + timeOffset;
+    }
+    timeOffset += timeSpan;
+
+    InsertTabletPlan plan = new InsertTabletPlan(template.getDeviceId(), Tablets.MEASUREMENTS
+        .clone());
+    plan.setDataTypes(template.getDataTypes());
+    plan.setMeasurementMNodes(measurementMNodes.clone());
+    plan.setTimes(times);
+    plan.setColumns(template.getColumns());
+    plan.setRowCount(rowCount);
+    processor.insertTablet(plan);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark.db;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes an InsertTabletPlan into a ByteBuffer, as the WAL does, and into a stream, and
+ * deserializes it back, as the WAL recovery does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertTabletPlanBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  int rowCount;
+
+  private InsertTabletPlan plan;
+  private ByteBuffer buffer;
+  private PublicBAOS outputStream;
+  private DataOutputStream dataOutputStream;
+  private ByteBuffer serialized;
+
+  @Setup
+  public void setUp() throws IOException, IllegalPathException {
+    plan = Tablets.create("root.sg.d0", rowCount, 0);
+    outputStream = new PublicBAOS();
+    dataOutputStream = new DataOutputStream(outputStream);
+    plan.serialize(dataOutputStream);
+    buffer = ByteBuffer.allocate(outputStream.size());
+
+    serializeToBuffer();
+    serialized = ByteBuffer.allocate(buffer.position());
+    buffer.flip();
+    serialized.put(buffer);
+    serialized.flip();
+  }
+
+  @Benchmark
+  public int serializeToBuffer() {
+    buffer.clear();
+    plan.serialize(buffer);
+    return buffer.position();
+  }
+
+  @Benchmark
+  public int serializeToStream() throws IOException {
+    outputStream.reset();
+    plan.serialize(dataOutputStream);
+    return outputStream.size();
+  }
+
+  @Benchmark
+  public PhysicalPlan deserialize() throws IOException, IllegalPathException {
+    return PhysicalPlan.Factory.create(serialized.duplicate());
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark.db;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.benchmark.BenchmarkData;
+import org.apache.iotdb.db.query.reader.universal.PriorityMergeReader;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.read.reader.IPointReader;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType.TsLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Merges overlapping sources the way sequence and unsequence data of one series are merged in a
+ * query. Each reader covers a window of timestamps which overlaps half of the previous reader's
+ * window, and the later reader has the higher priority.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriorityMergeReaderBenchmark {
+
+  @Param({"2", "8", "32"})
+  int readerNum;
+
+  @Param({"10000"})
+  int pointNumPerReader;
+
+  private long[] times;
+  private long[] values;
+
+  @Setup
+  public void setUp() {
+    int totalPointNum = (readerNum + 1) * pointNumPerReader / 2;
+    times = BenchmarkData.timestamps(totalPointNum);
+    values = BenchmarkData.longValues(totalPointNum);
+  }
+
+  @Benchmark
+  public void merge(Blackhole blackhole) throws IOException {
+    PriorityMergeReader mergeReader = new PriorityMergeReader();
+    for (int i = 0; i < readerNum; i++) {
+      mergeReader.addReader(
+          new ArrayPointReader(times, values, i * pointNumPerReader / 2, pointNumPerReader), i);
+    }
+    while (mergeReader.hasNextTimeValuePair()) {
+      blackhole.consume(mergeReader.nextTimeValuePair());
+    }
+    mergeReader.close();
+  }
+
+  /**
+   * A point reader over a slice of sorted arrays, which creates a TimeValuePair for every point
+   * like the real chunk readers do.
+   */
+  private static class ArrayPointReader implements IPointReader {
+
+    private final long[] times;
+    private final long[] values;
+    private final int end;
+    private int index;
+
+    ArrayPointReader(long[] times, long[] values, int start, int length) {
+      this.times = times;
+      this.values = values;
+      this.index = start;
+      this.end = Math.min(start + length, times.length);
+    }
+
+    @Override
+    public boolean hasNextTimeValuePair() {
+      return index < end;
+    }
+
+    @Override
+    public TimeValuePair nextTimeValuePair() {
+      TimeValuePair pair = currentTimeValuePair();
+      index++;
+      return pair;
+    }
+
+    @Override
+    public TimeValuePair currentTimeValuePair() {
+      return new TimeValuePair(times[index], new TsLong(values[index]));
+    }
+
+    @Override
+    public void close() {
+      // nothing to release
+    }
+  }
+}
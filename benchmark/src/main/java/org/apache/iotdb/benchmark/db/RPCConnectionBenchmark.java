@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.time.ZoneId;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.exception.StartupException;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.service.RPCService;
+import org.apache.iotdb.service.rpc.thrift.TSCloseSessionReq;
+import org.apache.iotdb.service.rpc.thrift.TSFetchMetadataReq;
+import org.apache.iotdb.service.rpc.thrift.TSIService;
+import org.apache.iotdb.service.rpc.thrift.TSOpenSessionReq;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TFastFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Serves small requests through the RPC service while many client sessions are connected, with
+ * the thread pool server (one thread for each connection) or the selector server (a bounded
+ * pool of worker threads). The benchmark threads send their requests round robin over all the
+ * sessions, so every connection is active now and then but most are idle at any moment, which is
+ * how thousands of devices holding one session each load a server.
+ *
+ * <p>The server and the clients run in the same JVM and each connection needs two file
+ * descriptors, so raise the open file limit before running 10000 connections. Like
+ * {@link InsertTabletBenchmark}, the configuration is written to a temporary directory before any
+ * server class loads it, so the benchmark must run in its own fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class RPCConnectionBenchmark {
+
+  private static final String CONFIG_NAME = "iotdb-engine.properties";
+  private static final String HOST = "127.0.0.1";
+
+  @Param({"100", "10000"})
+  int connectionNum;
+
+  @Param({"false", "true"})
+  boolean selectorServer;
+
+  private File baseDir;
+  private TTransport[] transports;
+  private TSIService.Client[] clients;
+  private long[] sessionIds;
+
+  @State(Scope.Thread)
+  public static class ClientCursor {
+
+    private static final AtomicInteger threadIndexes = new AtomicInteger();
+
+    // each benchmark thread uses its own subset of the clients, which are not thread-safe
+    private int next;
+    private int step;
+
+    @Setup
+    public void setUp(BenchmarkParams params) {
+      next = threadIndexes.getAndIncrement() % params.getThreads();
+      step = params.getThreads();
+    }
+
+    int next(int connectionNum) {
+      int current = next;
+      next = next + step < connectionNum ? next + step : current % step;
+      return current;
+    }
+  }
+
+  @Setup
+  public void setUp() throws IOException, StartupException, TException {
+    baseDir = Files.createTempDirectory("rpc-connection-benchmark").toFile();
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    Properties properties = new Properties();
+    properties.setProperty("system_dir", new File(baseDir, "system").getPath());
+    properties.setProperty("data_dirs", new File(baseDir, "data").getPath());
+    properties.setProperty("wal_dir", new File(baseDir, "wal").getPath());
+    properties.setProperty("rpc_address", HOST);
+    properties.setProperty("rpc_port", Integer.toString(port));
+    properties.setProperty("rpc_selector_server_enable", Boolean.toString(selectorServer));
+    try (OutputStream outputStream = Files
+        .newOutputStream(new File(baseDir, CONFIG_NAME).toPath())) {
+      properties.store(outputStream, "generated by " + getClass().getSimpleName());
+    }
+    System.setProperty(IoTDBConstant.IOTDB_CONF, baseDir.getPath());
+
+    IoTDB.metaManager.init();
+    RPCService.getInstance().start();
+
+    transports = new TTransport[connectionNum];
+    clients = new TSIService.Client[connectionNum];
+    sessionIds = new long[connectionNum];
+    for (int i = 0; i < connectionNum; i++) {
+      transports[i] = new TFastFramedTransport(new TSocket(HOST, port));
+      transports[i].open();
+      clients[i] = new TSIService.Client(new TBinaryProtocol(transports[i]));
+      TSOpenSessionReq req = new TSOpenSessionReq();
+      req.setUsername("root");
+      req.setPassword("root");
+      req.setZoneId(ZoneId.systemDefault().toString());
+      sessionIds[i] = clients[i].openSession(req).getSessionId();
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException, TException {
+    for (int i = 0; i < connectionNum; i++) {
+      clients[i].closeSession(new TSCloseSessionReq(sessionIds[i]));
+      transports[i].close();
+    }
+    RPCService.getInstance().stop();
+    IoTDB.metaManager.clear();
+    FileUtils.deleteDirectory(baseDir);
+  }
+
+  @Benchmark
+  public int fetchMetadata(ClientCursor cursor) throws TException {
+    int i = cursor.next(connectionNum);
+    return clients[i]
+        .fetchMetadata(new TSFetchMetadataReq(sessionIds[i], "METADATA_IN_JSON")).getStatus()
+        .getCode();
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.adapter.ActiveTimeSeriesCounter;
+import org.apache.iotdb.db.engine.flush.FlushManager;
+import org.apache.iotdb.db.engine.flush.TsFileFlushPolicy.DirectFlushPolicy;
+import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor;
+import org.apache.iotdb.db.exception.BatchInsertionException;
+import org.apache.iotdb.db.exception.StartupException;
+import org.apache.iotdb.db.exception.StorageGroupProcessorException;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.writelog.manager.MultiFileLogNodeManager;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Inserts tablets into the devices of one StorageGroupProcessor from 1, 2, 4 and 8 threads, with
+ * and without enable_striped_insert_lock, to compare how the ingestion throughput scales with the
+ * number of writer threads under the global and the striped insert lock. Each thread writes its
+ * own devices, so with striped locks the writers only contend on the shared memtable and flushes.
+ *
+ * <p>The WAL is disabled so the per-device locking, not the log, is measured. As in
+ * InsertTabletBenchmark, the configuration is written to a temporary directory before any server
+ * class loads it, so each set of parameters runs in its own fork.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StripedInsertLockBenchmark {
+
+  private static final String STORAGE_GROUP = "root.benchmark";
+  private static final String CONFIG_NAME = "iotdb-engine.properties";
+  private static final int ROW_COUNT = 100;
+
+  @State(Scope.Benchmark)
+  public static class StorageGroup {
+
+    @Param({"true", "false"})
+    boolean enableStripedInsertLock;
+
+    /**
+     * should be at least the number of threads, so that every thread has its own devices
+     */
+    @Param({"8", "64"})
+    int deviceNum;
+
+    private File baseDir;
+    private StorageGroupProcessor processor;
+    private MeasurementMNode[][] measurementMNodes;
+
+    @Setup
+    public void setUp() throws IOException, MetadataException, StartupException,
+        StorageGroupProcessorException {
+      baseDir = Files.createTempDirectory("striped-insert-lock-benchmark").toFile();
+      Properties properties = new Properties();
+      properties.setProperty("system_dir", new File(baseDir, "system").getPath());
+      properties.setProperty("data_dirs", new File(baseDir, "data").getPath());
+      properties.setProperty("wal_dir", new File(baseDir, "wal").getPath());
+      properties.setProperty("enable_wal", "false");
+      properties
+          .setProperty("enable_striped_insert_lock", Boolean.toString(enableStripedInsertLock));
+      try (OutputStream outputStream = Files
+          .newOutputStream(new File(baseDir, CONFIG_NAME).toPath())) {
+        properties.store(outputStream, "generated by " + getClass().getSimpleName());
+      }
+      System.setProperty(IoTDBConstant.IOTDB_CONF, baseDir.getPath());
+
+      IoTDB.metaManager.init();
+      IoTDB.metaManager.setStorageGroup(new PartialPath(STORAGE_GROUP));
+      measurementMNodes = new MeasurementMNode[deviceNum][Tablets.MEASUREMENTS.length];
+      for (int d = 0; d < deviceNum; d++) {
+        for (int i = 0; i < Tablets.MEASUREMENTS.length; i++) {
+          PartialPath path = new PartialPath(device(d) + "." + Tablets.MEASUREMENTS[i]);
+          IoTDB.metaManager.createTimeseries(path, Tablets.DATA_TYPES[i], TSEncoding.PLAIN,
+              TSFileDescriptor.getInstance().getConfig().getCompressor(), Collections.emptyMap());
+          measurementMNodes[d][i] = (MeasurementMNode) IoTDB.metaManager.getNodeByPath(path);
+        }
+      }
+
+      FlushManager.getInstance().start();
+      MultiFileLogNodeManager.getInstance().start();
+      ActiveTimeSeriesCounter.getInstance().init(STORAGE_GROUP);
+      processor = new StorageGroupProcessor(new File(baseDir, "system").getPath(), STORAGE_GROUP,
+          new DirectFlushPolicy());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+      processor.syncCloseAllWorkingTsFileProcessors();
+      processor.syncDeleteDataFiles();
+      MultiFileLogNodeManager.getInstance().stop();
+      FlushManager.getInstance().stop();
+      IoTDB.metaManager.clear();
+      FileUtils.deleteDirectory(baseDir);
+    }
+
+    private static String device(int index) {
+      return STORAGE_GROUP + ".d" + index;
+    }
+  }
+
+  /**
+   * The devices of a writer thread, which are written round robin.
+   */
+  @State(Scope.Thread)
+  public static class Writer {
+
+    private final List<Integer> devices = new ArrayList<>();
+    private final List<InsertTabletPlan> templates = new ArrayList<>();
+    private long timeSpan;
+    private long[] timeOffsets;
+    private int next;
+
+    @Setup
+    public void setUp(StorageGroup storageGroup, ThreadParams threadParams)
+        throws MetadataException {
+      for (int d = threadParams.getThreadIndex(); d < storageGroup.deviceNum;
+          d += threadParams.getThreadCount()) {
+        devices.add(d);
+        templates.add(Tablets.create(StorageGroup.device(d), ROW_COUNT, 0));
+      }
+      if (devices.isEmpty()) {
+        throw new IllegalStateException(String.format("%d devices are fewer than %d threads",
+            storageGroup.deviceNum, threadParams.getThreadCount()));
+      }
+      long[] times = templates.get(0).getTimes();
+      timeSpan = times[ROW_COUNT - 1] - times[0] + 1000;
+      timeOffsets = new long[devices.size()];
+    }
+
+    private void insertTablet(StorageGroup storageGroup) throws BatchInsertionException {
+      int index = next;
+      next = (next + 1) % devices.size();
+      InsertTabletPlan template = templates.get(index);
+      long[] times = new long[ROW_COUNT];
+      long[] templateTimes = template.getTimes();
+      for (int i = 0; i < ROW_COUNT; i++) {
+        times[i] = templateTimes[i] + timeOffsets[index];
+      }
+      timeOffsets[index] += timeSpan;
+
+      InsertTabletPlan plan = new InsertTabletPlan(template.getDeviceId(), Tablets.MEASUREMENTS
+          .clone());
+      plan.setDataTypes(template.getDataTypes());
+      plan.setMeasurementMNodes(storageGroup.measurementMNodes[devices.get(index)].clone());
+      plan.setTimes(times);
+      plan.setColumns(template.getColumns());
+      plan.setRowCount(ROW_COUNT);
+      storageGroup.processor.insertTablet(plan);
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void insertTablet1Thread(StorageGroup storageGroup, Writer writer)
+      throws BatchInsertionException {
+    writer.insertTablet(storageGroup);
+  }
+
+  @Benchmark
+  @Threads(2)
+  public void insertTablet2Threads(StorageGroup storageGroup, Writer writer)
+      throws BatchInsertionException {
+    writer.insertTablet(storageGroup);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void insertTablet4Threads(StorageGroup storageGroup, Writer writer)
+      throws BatchInsertionException {
+    writer.insertTablet(storageGroup);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void insertTablet8Threads(StorageGroup storageGroup, Writer writer)
+      throws BatchInsertionException {
+    writer.insertTablet(storageGroup);
+  }
+}
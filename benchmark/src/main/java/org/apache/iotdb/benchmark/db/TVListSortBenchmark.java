@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark.db;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.benchmark.BenchmarkData;
+import org.apache.iotdb.db.utils.datastructure.TVList;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorts the TVList of one series as the flush does. An outOfOrderRatio of 0 is the in-order
+ * workload, where the list only has to be scanned, and larger ratios move that fraction of the
+ * points to random positions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TVListSortBenchmark {
+
+  @Param({"0", "0.01", "0.1", "1"})
+  double outOfOrderRatio;
+
+  @Param({"100000"})
+  int pointNum;
+
+  private long[] times;
+  private long[] values;
+  private TVList list;
+
+  @Setup(Level.Trial)
+  public void prepareData() {
+    times = BenchmarkData.timestamps(pointNum);
+    BenchmarkData.disorder(times, outOfOrderRatio);
+    values = BenchmarkData.longValues(pointNum);
+  }
+
+  /**
+   * sorting is in place, so every invocation gets a fresh list. Sorting 100k points takes
+   * milliseconds, which makes the cost of an invocation level fixture negligible.
+   */
+  @Setup(Level.Invocation)
+  public void fillList() {
+    list = TVList.newList(TSDataType.INT64);
+    for (int i = 0; i < pointNum; i++) {
+      list.putLong(times[i], values[i]);
+    }
+  }
+
+  @TearDown(Level.Invocation)
+  public void clearList() {
+    list.clear();
+  }
+
+  @Benchmark
+  public TVList sort() {
+    list.sort();
+    return list;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.benchmark.BenchmarkData;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+/**
+ * Builds InsertTabletPlans with one column of every data type.
+ */
+class Tablets {
+
+  static final String[] MEASUREMENTS = {"s0", "s1", "s2", "s3", "s4", "s5"};
+  static final TSDataType[] DATA_TYPES = {TSDataType.BOOLEAN, TSDataType.INT32,
+      TSDataType.INT64, TSDataType.FLOAT, TSDataType.DOUBLE, TSDataType.TEXT};
+
+  private Tablets() {
+    // util class
+  }
+
+  /**
+   * @param timeOffset added to all timestamps, so that consecutive tablets do not overlap
+   */
+  static InsertTabletPlan create(String deviceId, int rowCount, long timeOffset)
+      throws IllegalPathException {
+    List<Integer> dataTypes = new ArrayList<>();
+    for (TSDataType dataType : DATA_TYPES) {
+      dataTypes.add(dataType.ordinal());
+    }
+    InsertTabletPlan plan = new InsertTabletPlan(new PartialPath(deviceId), MEASUREMENTS.clone(),
+        dataTypes);
+
+    long[] times = BenchmarkData.timestamps(rowCount);
+    long[] longValues = BenchmarkData.longValues(rowCount);
+    double[] doubleValues = BenchmarkData.doubleValues(rowCount);
+    boolean[] booleans = new boolean[rowCount];
+    int[] ints = new int[rowCount];
+    float[] floats = new float[rowCount];
+    Binary[] texts = new Binary[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      times[i] += timeOffset;
+      booleans[i] = longValues[i] % 2 == 0;
+      ints[i] = (int) longValues[i];
+      floats[i] = (float) doubleValues[i];
+      texts[i] = new Binary("text" + longValues[i]);
+    }
+
+    plan.setTimes(times);
+    plan.setColumns(new Object[]{booleans, ints, longValues, floats, doubleValues, texts});
+    plan.setRowCount(rowCount);
+    plan.setStart(0);
+    plan.setEnd(rowCount);
+    return plan;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark.tsfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.benchmark.BenchmarkData;
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.write.page.PageWriter;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compresses and uncompresses an encoded page, which is the input the compressors get when
+ * chunks are flushed and read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+  @Param({"SNAPPY", "LZ4"})
+  CompressionType compressionType;
+
+  @Param({"65536"})
+  int pointNum;
+
+  private ICompressor compressor;
+  private IUnCompressor unCompressor;
+
+  private byte[] page;
+  private byte[] compressedPage;
+  private int compressedLength;
+  private byte[] compressBuffer;
+  private byte[] uncompressBuffer;
+
+  @Setup
+  public void setUp() throws IOException {
+    compressor = ICompressor.getCompressor(compressionType);
+    unCompressor = IUnCompressor.getUnCompressor(compressionType);
+
+    PageWriter pageWriter = new PageWriter(
+        new MeasurementSchema("s0", TSDataType.DOUBLE, TSEncoding.GORILLA));
+    long[] times = BenchmarkData.timestamps(pointNum);
+    double[] values = BenchmarkData.doubleValues(pointNum);
+    pageWriter.write(times, values, pointNum);
+    ByteBuffer uncompressedBytes = pageWriter.getUncompressedBytes();
+    page = new byte[uncompressedBytes.remaining()];
+    uncompressedBytes.get(page);
+
+    compressBuffer = new byte[compressor.getMaxBytesForCompression(page.length)];
+    compressedLength = compressor.compress(page, 0, page.length, compressBuffer);
+    compressedPage = new byte[compressedLength];
+    System.arraycopy(compressBuffer, 0, compressedPage, 0, compressedLength);
+    uncompressBuffer = new byte[page.length];
+  }
+
+  @Benchmark
+  public int compress() throws IOException {
+    return compressor.compress(page, 0, page.length, compressBuffer);
+  }
+
+  @Benchmark
+  public int uncompress() throws IOException {
+    return unCompressor.uncompress(compressedPage, 0, compressedLength, uncompressBuffer, 0);
+  }
+}
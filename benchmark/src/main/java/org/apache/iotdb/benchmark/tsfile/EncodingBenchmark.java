@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark.tsfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.benchmark.BenchmarkData;
+import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
+import org.apache.iotdb.tsfile.encoding.encoder.Encoder;
+import org.apache.iotdb.tsfile.encoding.encoder.TSEncodingBuilder;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encodes and decodes one page worth of points. GORILLA only supports floating points, so it is
+ * measured on DOUBLE values and the others are measured on INT64 timestamps, which is what they
+ * are mostly used for.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodingBenchmark {
+
+  @Param({"TS_2DIFF", "RLE", "GORILLA", "REGULAR"})
+  TSEncoding encoding;
+
+  @Param({"65536"})
+  int pointNum;
+
+  private TSDataType dataType;
+  private long[] longValues;
+  private double[] doubleValues;
+  private PublicBAOS out;
+  private ByteBuffer encoded;
+
+  @Setup
+  public void setUp() throws IOException {
+    dataType = encoding == TSEncoding.GORILLA ? TSDataType.DOUBLE : TSDataType.INT64;
+    if (dataType == TSDataType.DOUBLE) {
+      doubleValues = BenchmarkData.doubleValues(pointNum);
+    } else {
+      longValues = BenchmarkData.timestamps(pointNum);
+    }
+    out = new PublicBAOS();
+    encode();
+    encoded = ByteBuffer.wrap(out.toByteArray());
+  }
+
+  @Benchmark
+  public int encode() throws IOException {
+    out.reset();
+    Encoder encoder = TSEncodingBuilder.getEncodingBuilder(encoding).getEncoder(dataType);
+    if (dataType == TSDataType.DOUBLE) {
+      for (double value : doubleValues) {
+        encoder.encode(value, out);
+      }
+    } else {
+      for (long value : longValues) {
+        encoder.encode(value, out);
+      }
+    }
+    encoder.flush(out);
+    return out.size();
+  }
+
+  @Benchmark
+  public void decode(Blackhole blackhole) throws IOException {
+    Decoder decoder = Decoder.getDecoderByType(encoding, dataType);
+    ByteBuffer buffer = encoded.duplicate();
+    if (dataType == TSDataType.DOUBLE) {
+      while (decoder.hasNext(buffer)) {
+        blackhole.consume(decoder.readDouble(buffer));
+      }
+    } else {
+      while (decoder.hasNext(buffer)) {
+        blackhole.consume(decoder.readLong(buffer));
+      }
+    }
+  }
+}
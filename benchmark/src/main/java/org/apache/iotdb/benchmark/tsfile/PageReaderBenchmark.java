@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.benchmark.tsfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.benchmark.BenchmarkData;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.filter.ValueFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.reader.page.PageReader;
+import org.apache.iotdb.tsfile.write.page.PageWriter;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decodes a whole uncompressed page into a BatchData, with and without a value filter which
+ * keeps about half of the points.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageReaderBenchmark {
+
+  @Param({"INT64", "DOUBLE"})
+  TSDataType dataType;
+
+  @Param({"false", "true"})
+  boolean withValueFilter;
+
+  @Param({"65536"})
+  int pointNum;
+
+  private TSEncoding timeEncoding;
+  private TSEncoding valueEncoding;
+  private ByteBuffer page;
+  private Filter filter;
+
+  @Setup
+  public void setUp() throws IOException {
+    timeEncoding = TSEncoding
+        .valueOf(TSFileDescriptor.getInstance().getConfig().getTimeEncoder());
+    valueEncoding = dataType == TSDataType.DOUBLE ? TSEncoding.GORILLA : TSEncoding.TS_2DIFF;
+    PageWriter pageWriter = new PageWriter(new MeasurementSchema("s0", dataType, valueEncoding));
+    long[] times = BenchmarkData.timestamps(pointNum);
+    if (dataType == TSDataType.DOUBLE) {
+      double[] values = BenchmarkData.doubleValues(pointNum);
+      pageWriter.write(times, values, pointNum);
+      filter = withValueFilter ? ValueFilter.gt(values[pointNum / 2]) : null;
+    } else {
+      long[] values = BenchmarkData.longValues(pointNum);
+      pageWriter.write(times, values, pointNum);
+      filter = withValueFilter ? ValueFilter.gt(values[pointNum / 2]) : null;
+    }
+    page = pageWriter.getUncompressedBytes();
+  }
+
+  @Benchmark
+  public int read() throws IOException {
+    PageReader pageReader = new PageReader(page.duplicate(), dataType,
+        Decoder.getDecoderByType(valueEncoding, dataType),
+        Decoder.getDecoderByType(timeEncoding, TSDataType.INT64), filter);
+    BatchData batchData = pageReader.getAllSatisfiedPageData(true);
+    return batchData.length();
+  }
+}
@@ -146,18 +146,56 @@ public class BasicDaoImpl implements BasicDao {
       } else if (hours > 30 * 24) {
         interval = "1d";
       }
+      // align the intervals to their length, so that the intervals of successive refreshes are
+      // the same and the unchanged ones are served from the result cache of the server
+      long intervalStart = from * timestampRadioX;
+      long intervalLength = intervalToMillis(interval) * timestampRadioX;
+      if (intervalLength > 0) {
+        intervalStart -= Math.floorMod(intervalStart, intervalLength);
+      }
       sql = String.format(
           "SELECT " + function
               + "(%s) FROM root.%s WHERE time > %d and time < %d group by ([%d, %d),%s)",
           s.substring(s.lastIndexOf('.') + 1), s.substring(0, s.lastIndexOf('.')),
           from * timestampRadioX, to * timestampRadioX,
-          from * timestampRadioX, to * timestampRadioX, interval);
+          intervalStart, to * timestampRadioX, interval);
       columnName = function + "(root." + s + ")";
     }
     logger.info(sql);
     return jdbcTemplate.query(sql, new TimeValuesRowMapper(columnName));
   }
 
+  /**
+   * @return the length of an interval like 30s, 1m or 1h in milliseconds, or -1 if it cannot be
+   * parsed
+   */
+  static long intervalToMillis(String interval) {
+    int unitIndex = 0;
+    while (unitIndex < interval.length() && Character.isDigit(interval.charAt(unitIndex))) {
+      unitIndex++;
+    }
+    if (unitIndex == 0) {
+      return -1;
+    }
+    long value = Long.parseLong(interval.substring(0, unitIndex));
+    switch (interval.substring(unitIndex).trim()) {
+      case "ms":
+        return value;
+      case "s":
+        return value * 1000;
+      case "m":
+        return value * 60_000;
+      case "h":
+        return value * 3_600_000;
+      case "d":
+        return value * 86_400_000;
+      case "w":
+        return value * 604_800_000;
+      default:
+        return -1;
+    }
+  }
+
   private Long zonedCovertToLong(ZonedDateTime time) {
     return time.toInstant().toEpochMilli();
   }
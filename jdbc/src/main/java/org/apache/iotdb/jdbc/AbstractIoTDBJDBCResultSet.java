@@ -63,6 +63,10 @@ public abstract class AbstractIoTDBJDBCResultSet implements ResultSet {
     this.ioTDBRpcDataSet = new IoTDBRpcDataSet(sql, columnNameList, columnTypeList,
         columnNameIndex, ignoreTimeStamp, queryId, client, sessionId, null,
         statement.getFetchSize());
+    if (statement.getConnection() instanceof IoTDBConnection) {
+      ioTDBRpcDataSet.resultCodec = ((IoTDBConnection) statement.getConnection())
+          .getResultCodec();
+    }
     this.statement = statement;
     this.columnTypeList = columnTypeList;
   }
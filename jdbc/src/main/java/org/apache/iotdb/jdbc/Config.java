@@ -44,6 +44,13 @@ public class Config {
   static final String AUTH_PASSWORD = "password";
   static final String DEFALUT_PASSWORD = "password";
 
+  /**
+   * Whether to ask the server for encoded and compressed query results, and by which compressor:
+   * UNCOMPRESSED, SNAPPY or LZ4.
+   */
+  static final String ENCODE_QUERY_RESULT = "encode_query_result";
+  static final String QUERY_RESULT_COMPRESSOR = "query_result_compressor";
+
   static final int RETRY_NUM = 3;
   static final long RETRY_INTERVAL = 1000;
 
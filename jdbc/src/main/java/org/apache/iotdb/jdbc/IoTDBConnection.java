@@ -38,6 +38,7 @@ import java.time.ZoneId;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
+import org.apache.iotdb.rpc.QueryDataSetCodec;
 import org.apache.iotdb.rpc.RpcUtils;
 import org.apache.iotdb.rpc.StatementExecutionException;
 import org.apache.iotdb.service.rpc.thrift.*;
@@ -64,6 +65,8 @@ public class IoTDBConnection implements Connection {
   private TTransport transport;
   private ZoneId zoneId;
   private boolean autoCommit;
+  // the codec agreed on with the server, null if the query results are plain
+  private QueryDataSetCodec resultCodec;
 
   public IoTDBConnection() {
     // allowed to create an instance without parameter input.
@@ -400,6 +403,13 @@ public class IoTDBConnection implements Connection {
     return sessionId;
   }
 
+  /**
+   * @return the codec of the query results, or null if they are plain
+   */
+  QueryDataSetCodec getResultCodec() {
+    return resultCodec;
+  }
+
   public void setClient(TSIService.Iface client) {
     this.client = client;
   }
@@ -417,11 +427,16 @@ public class IoTDBConnection implements Connection {
 
     openReq.setUsername(params.getUsername());
     openReq.setPassword(params.getPassword());
+    if (params.getQueryResultCompressionType() != null) {
+      openReq.setConfiguration(
+          new QueryDataSetCodec(params.getQueryResultCompressionType()).toConfiguration());
+    }
 
     TSOpenSessionResp openResp = null;
     try {
       openResp = client.openSession(openReq);
       sessionId = openResp.getSessionId();
+      resultCodec = QueryDataSetCodec.fromConfiguration(openResp.getConfiguration());
       // validate connection
       RpcUtils.verifySuccess(openResp.getStatus());
 
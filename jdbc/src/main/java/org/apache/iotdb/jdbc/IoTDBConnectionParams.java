@@ -18,6 +18,8 @@
  */
 package org.apache.iotdb.jdbc;
 
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+
 public class IoTDBConnectionParams {
 
   private String host = Config.IOTDB_DEFAULT_HOST;
@@ -26,6 +28,8 @@ public class IoTDBConnectionParams {
   private String seriesName = Config.DEFAULT_SERIES_NAME;
   private String username = Config.DEFAULT_USER;
   private String password = Config.DEFALUT_PASSWORD;
+  // the compressor of the encoded query results, null for plain results
+  private CompressionType queryResultCompressionType;
 
   public IoTDBConnectionParams(String url) {
     this.jdbcUriString = url;
@@ -79,4 +83,12 @@ public class IoTDBConnectionParams {
     this.password = password;
   }
 
+  public CompressionType getQueryResultCompressionType() {
+    return queryResultCompressionType;
+  }
+
+  public void setQueryResultCompressionType(CompressionType queryResultCompressionType) {
+    this.queryResultCompressionType = queryResultCompressionType;
+  }
+
 }
@@ -21,6 +21,7 @@ package org.apache.iotdb.jdbc;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 
 /**
  * Utils to convert between thrift format and TsFile format.
@@ -60,6 +61,16 @@ public class Utils {
     if (info.containsKey(Config.AUTH_PASSWORD)) {
       params.setPassword(info.getProperty(Config.AUTH_PASSWORD));
     }
+    if (Boolean.parseBoolean(info.getProperty(Config.ENCODE_QUERY_RESULT))) {
+      String compressor = info.getProperty(Config.QUERY_RESULT_COMPRESSOR,
+          CompressionType.UNCOMPRESSED.name());
+      try {
+        params.setQueryResultCompressionType(CompressionType.valueOf(compressor.trim()));
+      } catch (IllegalArgumentException e) {
+        throw new IoTDBURLException(
+            String.format("Unknown %s: %s", Config.QUERY_RESULT_COMPRESSOR, compressor));
+      }
+    }
 
     return params;
   }
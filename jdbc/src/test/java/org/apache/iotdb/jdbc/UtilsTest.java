@@ -22,6 +22,7 @@ import org.apache.iotdb.rpc.RpcUtils;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -29,6 +30,7 @@ import org.junit.Test;
 import java.util.Properties;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 public class UtilsTest {
@@ -65,6 +67,29 @@ public class UtilsTest {
     assertEquals(params.getPassword(), userPwd);
   }
 
+  @Test
+  public void testParseQueryResultEncoding() throws IoTDBURLException {
+    String url = Config.IOTDB_URL_PREFIX + "localhost:6667/";
+    Properties properties = new Properties();
+    assertNull(Utils.parseUrl(url, properties).getQueryResultCompressionType());
+
+    properties.setProperty(Config.ENCODE_QUERY_RESULT, "true");
+    assertEquals(CompressionType.UNCOMPRESSED,
+        Utils.parseUrl(url, properties).getQueryResultCompressionType());
+
+    properties.setProperty(Config.QUERY_RESULT_COMPRESSOR, "SNAPPY");
+    assertEquals(CompressionType.SNAPPY,
+        Utils.parseUrl(url, properties).getQueryResultCompressionType());
+  }
+
+  @Test(expected = IoTDBURLException.class)
+  public void testParseUnknownQueryResultCompressor() throws IoTDBURLException {
+    Properties properties = new Properties();
+    properties.setProperty(Config.ENCODE_QUERY_RESULT, "true");
+    properties.setProperty(Config.QUERY_RESULT_COMPRESSOR, "ZIP");
+    Utils.parseUrl(Config.IOTDB_URL_PREFIX + "localhost:6667/", properties);
+  }
+
   @Test(expected = IoTDBURLException.class)
   public void testParseWrongUrl1() throws IoTDBURLException {
     Properties properties = new Properties();
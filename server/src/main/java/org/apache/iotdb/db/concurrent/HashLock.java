@@ -33,7 +33,11 @@ public class HashLock {
   private int lockSize;
 
   public HashLock() {
-    this.lockSize = DEFAULT_LOCK_NUM;
+    this(DEFAULT_LOCK_NUM);
+  }
+
+  public HashLock(int lockSize) {
+    this.lockSize = lockSize;
     init();
   }
 
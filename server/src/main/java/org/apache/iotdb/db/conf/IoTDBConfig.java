@@ -123,6 +123,23 @@ public class IoTDBConfig {
    */
   private int rpcMaxConcurrentClientNum = 65535;
 
+  /**
+   * Whether to serve the clients by a selector server, whose selector threads handle the IO of all
+   * connections and whose worker threads process the requests, instead of by one thread for each
+   * connection.
+   */
+  private boolean rpcSelectorServerEnable = false;
+
+  /**
+   * How many selector threads handle the IO of the connections in the selector server.
+   */
+  private int rpcSelectorThreadNum = 2;
+
+  /**
+   * How many worker threads process the requests in the selector server.
+   */
+  private int rpcSelectorWorkerThreadNum = Runtime.getRuntime().availableProcessors() * 2;
+
   /**
    * Memory allocated for the read process
    */
@@ -164,6 +181,24 @@ public class IoTDBConfig {
    */
   private long forceWalPeriodInMs = 100;
 
+  /**
+   * If true, concurrent writes to a WAL node are committed in groups: each write returns once the
+   * batch containing its log is written (and forced if force_wal_period_in_ms = 0), and one writer
+   * at a time writes the whole batch on behalf of the others.
+   */
+  private boolean enableWalGroupCommit = false;
+
+  /**
+   * If true, WAL files are preallocated in segments of walSegmentSize bytes filled with zeros and
+   * each log batch is framed with a CRC32C check sum, so appending logs does not grow the file.
+   */
+  private boolean enablePreallocatedWal = false;
+
+  /**
+   * Size of each preallocated segment of a WAL file(in byte).
+   */
+  private long walSegmentSize = 16 * 1024 * 1024L;
+
   /**
    * Size of log buffer in each log node(in byte). If WAL is enabled and the size of a insert plan
    * is smaller than this parameter, then the insert plan will be rejected by WAL.
@@ -232,11 +267,47 @@ public class IoTDBConfig {
    */
   private int concurrentFlushThread = Runtime.getRuntime().availableProcessors();
 
+  /**
+   * How many threads sort and encode the series of the flushing memtables in parallel, shared by
+   * all concurrent flushes. When <= 0, use CPU core number.
+   */
+  private int flushEncodingThreadNum = Runtime.getRuntime().availableProcessors();
+
   /**
    * How many threads can concurrently query. When <= 0, use CPU core number.
    */
   private int concurrentQueryThread = Runtime.getRuntime().availableProcessors();
 
+  /**
+   * How many series of one query can be read in parallel, e.g., when aggregating each series. When
+   * <= 0, use concurrentQueryThread. 1 means the series are read one by one.
+   */
+  private int maxQuerySeriesParallelism = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Memory (in byte) for reading the series of one query in parallel, assuming each series being
+   * read holds a chunk of avgSeriesPointNumberThreshold points. When <= 0, use 1/10 of
+   * allocateMemoryForRead.
+   */
+  private long parallelSeriesReadMemoryInByte = allocateMemoryForRead / 10;
+
+  /**
+   * Whether to prefetch the next blocks of a query result on the query threads while the previous
+   * block is being transferred to the client.
+   */
+  private boolean enableQueryResultPrefetch = true;
+
+  /**
+   * How many serialized blocks of one query result can be prefetched.
+   */
+  private int queryResultPrefetchBlockNum = 2;
+
+  /**
+   * Memory (in byte) for the prefetched blocks of all query results. When <= 0, use 1/20 of
+   * allocateMemoryForRead.
+   */
+  private long queryResultPrefetchMemoryInByte = allocateMemoryForRead / 20;
+
   private ZoneId zoneID = ZoneId.systemDefault();
 
   /**
@@ -276,6 +347,18 @@ public class IoTDBConfig {
    */
   private int maxLevelNum = 2;
 
+  /**
+   * The bucket lengths of the rollups maintained for the sequence files, e.g., "1m,1h,1d" for all
+   * storage groups or "root.sg1:1m,1h;root.sg2:1d" for each storage group. Empty means no rollup.
+   */
+  private String rollupLevels = "";
+
+  /**
+   * When the estimated memory of the rollups of an unsealed sequence file reaches this, the file
+   * is sealed, so that its rollups are written and released. In byte.
+   */
+  private long rollupBufferSizeThreshold = 16 * 1024 * 1024L;
+
   /**
    * whether to cache meta data(ChunkMetaData and TsFileMetaData) or not.
    */
@@ -296,6 +379,24 @@ public class IoTDBConfig {
    */
   private long allocateMemoryForChunkCache = allocateMemoryForRead / 10;
 
+  /**
+   * Memory (in byte) for keeping the bloom filters of closed TsFiles resident, the least recently
+   * used ones are dropped beyond it. When <= 0, use 1/50 of allocateMemoryForRead.
+   */
+  private long residentBloomFilterMemoryInByte = allocateMemoryForRead / 50;
+
+  /**
+   * whether to cache the group by results of the intervals no later than the latest flushed time,
+   * so that repeated group by queries only calculate the newest intervals
+   */
+  private boolean enableGroupByResultCache = true;
+
+  /**
+   * Memory (in byte) for the cached group by results. When <= 0, use 1/50 of
+   * allocateMemoryForRead.
+   */
+  private long groupByResultCacheMemoryInByte = allocateMemoryForRead / 50;
+
   /**
    * The statMonitor writes statistics info into IoTDB every backLoopPeriodSec secs. The default
    * value is 5s.
@@ -611,16 +712,75 @@ public class IoTDBConfig {
    */
   private int primitiveArraySize = 128;
 
+  /**
+   * The max number of released primitive arrays of each data type that the array pool keeps for
+   * reuse, the arrays released beyond it are left to GC.
+   */
+  private int primitiveArrayPoolCapacity = 65536;
+
+  /**
+   * The max number of primitive arrays of each data type that each thread caches locally before
+   * returning them to the shared array pool.
+   */
+  private int primitiveArrayMagazineSize = 32;
+
+  /**
+   * If true, the timestamps and values of non-text series in memtables are stored in pooled
+   * direct memory instead of primitive arrays on heap.
+   */
+  private boolean enableOffHeapTVList = false;
+
+  /**
+   * The max bytes of direct memory held by the off-heap TVLists, in use or pooled. Pages beyond it
+   * are allocated on heap.
+   */
+  private long offHeapPagePoolMaxBytes = allocateMemoryForWrite;
+
   /**
    * whether enable data partition. If disabled, all data belongs to partition 0
    */
   private boolean enablePartition = false;
 
   /**
-   * Interval line number of mlog.txt when creating a checkpoint and saving snapshot of mtree
+   * Interval number of metadata log entries when creating a checkpoint and saving snapshot of mtree
    */
   private int mtreeSnapshotInterval = 100000;
 
+  /**
+   * The metadata log is forced to the disk once in this period. If it is 0, each metadata operation
+   * is forced before it returns. Unit: millisecond
+   */
+  private long syncMlogPeriodInMs = 100;
+
+  /**
+   * Size of the buffer into which one metadata log entry is serialized. Unit: byte
+   */
+  private int mlogBufferSize = 1024 * 1024;
+
+  /**
+   * How many threads replay the timeseries of different storage groups in the metadata log in
+   * parallel when the system starts.
+   */
+  private int mlogReplayThreadNum = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Whether MTree nodes use the compact representation: children in arrays instead of
+   * LinkedHashMaps, shared measurement schemas, no cached full paths and striped locks instead of
+   * a lock per node.
+   */
+  private boolean enableCompactMTree = false;
+
+  /**
+   * Whether the measurement schemas of MTree may be paged out to disk, so that fewer of them are
+   * on the heap. The nodes of MTree are always in memory.
+   */
+  private boolean enableDiskMTree = false;
+
+  /**
+   * How many measurement schemas are kept in memory at most when the disk-backed MTree is enabled.
+   */
+  private int diskMTreeCachedMeasurementNum = 1_000_000;
+
   /**
    * Threshold interval time of MTree modification. If the last modification time is less than this
    * threshold, MTree snapshot will not be created. Unit: second. Default: 1 hour(3600 seconds)
@@ -645,6 +805,14 @@ public class IoTDBConfig {
   // if enable partial insert, one measurement failure will not impact other measurements
   private boolean enablePartialInsert = true;
 
+  // whether insertions into different devices of one storage group can run in parallel. If
+  // enabled, an insertion only holds the storage group lock in shared mode plus a striped lock of
+  // its device, and the exclusive storage group lock is only needed for flush, close and deletion
+  private boolean enableStripedInsertLock = false;
+
+  // the number of striped device locks in each storage group when enableStripedInsertLock is true
+  private int insertLockStripeNum = 1024;
+
   // Open ID Secret
   private String openIdProviderUrl = null;
 
@@ -698,6 +866,54 @@ public class IoTDBConfig {
     this.mtreeSnapshotThresholdTime = mtreeSnapshotThresholdTime;
   }
 
+  public long getSyncMlogPeriodInMs() {
+    return syncMlogPeriodInMs;
+  }
+
+  public void setSyncMlogPeriodInMs(long syncMlogPeriodInMs) {
+    this.syncMlogPeriodInMs = syncMlogPeriodInMs;
+  }
+
+  public int getMlogBufferSize() {
+    return mlogBufferSize;
+  }
+
+  public void setMlogBufferSize(int mlogBufferSize) {
+    this.mlogBufferSize = mlogBufferSize;
+  }
+
+  public int getMlogReplayThreadNum() {
+    return mlogReplayThreadNum;
+  }
+
+  public void setMlogReplayThreadNum(int mlogReplayThreadNum) {
+    this.mlogReplayThreadNum = mlogReplayThreadNum;
+  }
+
+  public boolean isEnableCompactMTree() {
+    return enableCompactMTree;
+  }
+
+  public void setEnableCompactMTree(boolean enableCompactMTree) {
+    this.enableCompactMTree = enableCompactMTree;
+  }
+
+  public boolean isEnableDiskMTree() {
+    return enableDiskMTree;
+  }
+
+  public void setEnableDiskMTree(boolean enableDiskMTree) {
+    this.enableDiskMTree = enableDiskMTree;
+  }
+
+  public int getDiskMTreeCachedMeasurementNum() {
+    return diskMTreeCachedMeasurementNum;
+  }
+
+  public void setDiskMTreeCachedMeasurementNum(int diskMTreeCachedMeasurementNum) {
+    this.diskMTreeCachedMeasurementNum = diskMTreeCachedMeasurementNum;
+  }
+
   public long getPartitionInterval() {
     return partitionInterval;
   }
@@ -884,6 +1100,30 @@ public class IoTDBConfig {
     this.forceWalPeriodInMs = forceWalPeriodInMs;
   }
 
+  public boolean isEnableWalGroupCommit() {
+    return enableWalGroupCommit;
+  }
+
+  public void setEnableWalGroupCommit(boolean enableWalGroupCommit) {
+    this.enableWalGroupCommit = enableWalGroupCommit;
+  }
+
+  public boolean isEnablePreallocatedWal() {
+    return enablePreallocatedWal;
+  }
+
+  public void setEnablePreallocatedWal(boolean enablePreallocatedWal) {
+    this.enablePreallocatedWal = enablePreallocatedWal;
+  }
+
+  public long getWalSegmentSize() {
+    return walSegmentSize;
+  }
+
+  public void setWalSegmentSize(long walSegmentSize) {
+    this.walSegmentSize = walSegmentSize;
+  }
+
   public String getSystemDir() {
     return systemDir;
   }
@@ -964,14 +1204,62 @@ public class IoTDBConfig {
     this.concurrentFlushThread = concurrentFlushThread;
   }
 
+  public int getFlushEncodingThreadNum() {
+    return flushEncodingThreadNum;
+  }
+
+  public void setFlushEncodingThreadNum(int flushEncodingThreadNum) {
+    this.flushEncodingThreadNum = flushEncodingThreadNum;
+  }
+
   public int getConcurrentQueryThread() {
     return concurrentQueryThread;
   }
 
-  void setConcurrentQueryThread(int concurrentQueryThread) {
+  public void setConcurrentQueryThread(int concurrentQueryThread) {
     this.concurrentQueryThread = concurrentQueryThread;
   }
 
+  public int getMaxQuerySeriesParallelism() {
+    return maxQuerySeriesParallelism;
+  }
+
+  public void setMaxQuerySeriesParallelism(int maxQuerySeriesParallelism) {
+    this.maxQuerySeriesParallelism = maxQuerySeriesParallelism;
+  }
+
+  public long getParallelSeriesReadMemoryInByte() {
+    return parallelSeriesReadMemoryInByte;
+  }
+
+  public void setParallelSeriesReadMemoryInByte(long parallelSeriesReadMemoryInByte) {
+    this.parallelSeriesReadMemoryInByte = parallelSeriesReadMemoryInByte;
+  }
+
+  public boolean isEnableQueryResultPrefetch() {
+    return enableQueryResultPrefetch;
+  }
+
+  public void setEnableQueryResultPrefetch(boolean enableQueryResultPrefetch) {
+    this.enableQueryResultPrefetch = enableQueryResultPrefetch;
+  }
+
+  public int getQueryResultPrefetchBlockNum() {
+    return queryResultPrefetchBlockNum;
+  }
+
+  public void setQueryResultPrefetchBlockNum(int queryResultPrefetchBlockNum) {
+    this.queryResultPrefetchBlockNum = queryResultPrefetchBlockNum;
+  }
+
+  public long getQueryResultPrefetchMemoryInByte() {
+    return queryResultPrefetchMemoryInByte;
+  }
+
+  public void setQueryResultPrefetchMemoryInByte(long queryResultPrefetchMemoryInByte) {
+    this.queryResultPrefetchMemoryInByte = queryResultPrefetchMemoryInByte;
+  }
+
   public long getTsFileSizeThreshold() {
     return tsFileSizeThreshold;
   }
@@ -1004,6 +1292,30 @@ public class IoTDBConfig {
     this.rpcMaxConcurrentClientNum = rpcMaxConcurrentClientNum;
   }
 
+  public boolean isRpcSelectorServerEnable() {
+    return rpcSelectorServerEnable;
+  }
+
+  void setRpcSelectorServerEnable(boolean rpcSelectorServerEnable) {
+    this.rpcSelectorServerEnable = rpcSelectorServerEnable;
+  }
+
+  public int getRpcSelectorThreadNum() {
+    return rpcSelectorThreadNum;
+  }
+
+  void setRpcSelectorThreadNum(int rpcSelectorThreadNum) {
+    this.rpcSelectorThreadNum = rpcSelectorThreadNum;
+  }
+
+  public int getRpcSelectorWorkerThreadNum() {
+    return rpcSelectorWorkerThreadNum;
+  }
+
+  void setRpcSelectorWorkerThreadNum(int rpcSelectorWorkerThreadNum) {
+    this.rpcSelectorWorkerThreadNum = rpcSelectorWorkerThreadNum;
+  }
+
   public int getStatMonitorDetectFreqSec() {
     return statMonitorDetectFreqSec;
   }
@@ -1220,6 +1532,22 @@ public class IoTDBConfig {
     this.enablePartialInsert = enablePartialInsert;
   }
 
+  public boolean isEnableStripedInsertLock() {
+    return enableStripedInsertLock;
+  }
+
+  public void setEnableStripedInsertLock(boolean enableStripedInsertLock) {
+    this.enableStripedInsertLock = enableStripedInsertLock;
+  }
+
+  public int getInsertLockStripeNum() {
+    return insertLockStripeNum;
+  }
+
+  public void setInsertLockStripeNum(int insertLockStripeNum) {
+    this.insertLockStripeNum = insertLockStripeNum;
+  }
+
   public boolean isForceFullMerge() {
     return forceFullMerge;
   }
@@ -1303,6 +1631,22 @@ public class IoTDBConfig {
     this.maxLevelNum = maxLevelNum;
   }
 
+  public String getRollupLevels() {
+    return rollupLevels;
+  }
+
+  public void setRollupLevels(String rollupLevels) {
+    this.rollupLevels = rollupLevels;
+  }
+
+  public long getRollupBufferSizeThreshold() {
+    return rollupBufferSizeThreshold;
+  }
+
+  public void setRollupBufferSizeThreshold(long rollupBufferSizeThreshold) {
+    this.rollupBufferSizeThreshold = rollupBufferSizeThreshold;
+  }
+
   public int getMergeChunkSubThreadNum() {
     return mergeChunkSubThreadNum;
   }
@@ -1360,6 +1704,30 @@ public class IoTDBConfig {
     this.allocateMemoryForChunkCache = allocateMemoryForChunkCache;
   }
 
+  public long getResidentBloomFilterMemoryInByte() {
+    return residentBloomFilterMemoryInByte;
+  }
+
+  public void setResidentBloomFilterMemoryInByte(long residentBloomFilterMemoryInByte) {
+    this.residentBloomFilterMemoryInByte = residentBloomFilterMemoryInByte;
+  }
+
+  public boolean isEnableGroupByResultCache() {
+    return enableGroupByResultCache;
+  }
+
+  public void setEnableGroupByResultCache(boolean enableGroupByResultCache) {
+    this.enableGroupByResultCache = enableGroupByResultCache;
+  }
+
+  public long getGroupByResultCacheMemoryInByte() {
+    return groupByResultCacheMemoryInByte;
+  }
+
+  public void setGroupByResultCacheMemoryInByte(long groupByResultCacheMemoryInByte) {
+    this.groupByResultCacheMemoryInByte = groupByResultCacheMemoryInByte;
+  }
+
   public boolean isEnableWatermark() {
     return enableWatermark;
   }
@@ -1760,6 +2128,38 @@ public class IoTDBConfig {
     this.primitiveArraySize = primitiveArraySize;
   }
 
+  public int getPrimitiveArrayPoolCapacity() {
+    return primitiveArrayPoolCapacity;
+  }
+
+  public void setPrimitiveArrayPoolCapacity(int primitiveArrayPoolCapacity) {
+    this.primitiveArrayPoolCapacity = primitiveArrayPoolCapacity;
+  }
+
+  public int getPrimitiveArrayMagazineSize() {
+    return primitiveArrayMagazineSize;
+  }
+
+  public void setPrimitiveArrayMagazineSize(int primitiveArrayMagazineSize) {
+    this.primitiveArrayMagazineSize = primitiveArrayMagazineSize;
+  }
+
+  public boolean isEnableOffHeapTVList() {
+    return enableOffHeapTVList;
+  }
+
+  public void setEnableOffHeapTVList(boolean enableOffHeapTVList) {
+    this.enableOffHeapTVList = enableOffHeapTVList;
+  }
+
+  public long getOffHeapPagePoolMaxBytes() {
+    return offHeapPagePoolMaxBytes;
+  }
+
+  public void setOffHeapPagePoolMaxBytes(long offHeapPagePoolMaxBytes) {
+    this.offHeapPagePoolMaxBytes = offHeapPagePoolMaxBytes;
+  }
+
   public String getOpenIdProviderUrl() {
     return openIdProviderUrl;
   }
@@ -284,6 +284,12 @@ public class IoTDBDescriptor {
           .getProperty("max_file_num_in_each_level",
               Integer.toString(conf.getMaxFileNumInEachLevel()))));
 
+      conf.setRollupLevels(properties.getProperty("rollup_levels", conf.getRollupLevels())
+          .trim());
+      conf.setRollupBufferSizeThreshold(Long.parseLong(properties
+          .getProperty("rollup_buffer_size_threshold",
+              Long.toString(conf.getRollupBufferSizeThreshold())).trim()));
+
       conf.setSyncEnable(Boolean
           .parseBoolean(properties.getProperty("is_sync_enable",
               Boolean.toString(conf.isSyncEnable()))));
@@ -302,6 +308,14 @@ public class IoTDBDescriptor {
         conf.setConcurrentFlushThread(Runtime.getRuntime().availableProcessors());
       }
 
+      conf.setFlushEncodingThreadNum(Integer
+          .parseInt(properties.getProperty("flush_encoding_thread_num",
+              Integer.toString(conf.getFlushEncodingThreadNum()))));
+
+      if (conf.getFlushEncodingThreadNum() <= 0) {
+        conf.setFlushEncodingThreadNum(Runtime.getRuntime().availableProcessors());
+      }
+
       conf.setConcurrentQueryThread(Integer
           .parseInt(properties.getProperty("concurrent_query_thread",
               Integer.toString(conf.getConcurrentQueryThread()))));
@@ -310,6 +324,58 @@ public class IoTDBDescriptor {
         conf.setConcurrentQueryThread(Runtime.getRuntime().availableProcessors());
       }
 
+      conf.setMaxQuerySeriesParallelism(Integer
+          .parseInt(properties.getProperty("max_query_series_parallelism",
+              Integer.toString(conf.getMaxQuerySeriesParallelism())).trim()));
+
+      if (conf.getMaxQuerySeriesParallelism() <= 0) {
+        conf.setMaxQuerySeriesParallelism(conf.getConcurrentQueryThread());
+      }
+
+      conf.setParallelSeriesReadMemoryInByte(Long
+          .parseLong(properties.getProperty("parallel_series_read_memory_in_byte",
+              Long.toString(conf.getParallelSeriesReadMemoryInByte())).trim()));
+
+      if (conf.getParallelSeriesReadMemoryInByte() <= 0) {
+        conf.setParallelSeriesReadMemoryInByte(conf.getAllocateMemoryForRead() / 10);
+      }
+
+      conf.setEnableQueryResultPrefetch(Boolean
+          .parseBoolean(properties.getProperty("enable_query_result_prefetch",
+              Boolean.toString(conf.isEnableQueryResultPrefetch())).trim()));
+
+      conf.setQueryResultPrefetchBlockNum(Integer
+          .parseInt(properties.getProperty("query_result_prefetch_block_num",
+              Integer.toString(conf.getQueryResultPrefetchBlockNum())).trim()));
+
+      conf.setQueryResultPrefetchMemoryInByte(Long
+          .parseLong(properties.getProperty("query_result_prefetch_memory_in_byte",
+              Long.toString(conf.getQueryResultPrefetchMemoryInByte())).trim()));
+
+      if (conf.getQueryResultPrefetchMemoryInByte() <= 0) {
+        conf.setQueryResultPrefetchMemoryInByte(conf.getAllocateMemoryForRead() / 20);
+      }
+
+      conf.setResidentBloomFilterMemoryInByte(Long
+          .parseLong(properties.getProperty("resident_bloom_filter_memory_in_byte",
+              Long.toString(conf.getResidentBloomFilterMemoryInByte())).trim()));
+
+      if (conf.getResidentBloomFilterMemoryInByte() <= 0) {
+        conf.setResidentBloomFilterMemoryInByte(conf.getAllocateMemoryForRead() / 50);
+      }
+
+      conf.setEnableGroupByResultCache(Boolean
+          .parseBoolean(properties.getProperty("enable_group_by_result_cache",
+              Boolean.toString(conf.isEnableGroupByResultCache())).trim()));
+
+      conf.setGroupByResultCacheMemoryInByte(Long
+          .parseLong(properties.getProperty("group_by_result_cache_memory_in_byte",
+              Long.toString(conf.getGroupByResultCacheMemoryInByte())).trim()));
+
+      if (conf.getGroupByResultCacheMemoryInByte() <= 0) {
+        conf.setGroupByResultCacheMemoryInByte(conf.getAllocateMemoryForRead() / 50);
+      }
+
       conf.setmManagerCacheSize(Integer
           .parseInt(properties.getProperty("metadata_node_cache_size",
               Integer.toString(conf.getmManagerCacheSize())).trim()));
@@ -359,11 +425,37 @@ public class IoTDBDescriptor {
           Boolean.parseBoolean(properties.getProperty("enable_partial_insert",
               String.valueOf(conf.isEnablePartialInsert()))));
 
+      conf.setEnableStripedInsertLock(
+          Boolean.parseBoolean(properties.getProperty("enable_striped_insert_lock",
+              String.valueOf(conf.isEnableStripedInsertLock()))));
+
+      int insertLockStripeNum = Integer.parseInt(properties.getProperty("insert_lock_stripe_num",
+          Integer.toString(conf.getInsertLockStripeNum())));
+      if (insertLockStripeNum > 0) {
+        conf.setInsertLockStripeNum(insertLockStripeNum);
+      }
+
       conf.setMtreeSnapshotInterval(Integer.parseInt(properties.getProperty(
           "mtree_snapshot_interval", Integer.toString(conf.getMtreeSnapshotInterval()))));
       conf.setMtreeSnapshotThresholdTime(Integer.parseInt(properties.getProperty(
           "mtree_snapshot_threshold_time",
           Integer.toString(conf.getMtreeSnapshotThresholdTime()))));
+      conf.setSyncMlogPeriodInMs(Long.parseLong(properties.getProperty(
+          "sync_mlog_period_in_ms", Long.toString(conf.getSyncMlogPeriodInMs())).trim()));
+      conf.setMlogBufferSize(Integer.parseInt(properties.getProperty(
+          "mlog_buffer_size", Integer.toString(conf.getMlogBufferSize())).trim()));
+      conf.setMlogReplayThreadNum(Integer.parseInt(properties.getProperty(
+          "mlog_replay_thread_num", Integer.toString(conf.getMlogReplayThreadNum())).trim()));
+      if (conf.getMlogReplayThreadNum() <= 0) {
+        conf.setMlogReplayThreadNum(Runtime.getRuntime().availableProcessors());
+      }
+      conf.setEnableCompactMTree(Boolean.parseBoolean(properties.getProperty(
+          "enable_compact_mtree", Boolean.toString(conf.isEnableCompactMTree())).trim()));
+      conf.setEnableDiskMTree(Boolean.parseBoolean(properties.getProperty(
+          "enable_disk_mtree", Boolean.toString(conf.isEnableDiskMTree())).trim()));
+      conf.setDiskMTreeCachedMeasurementNum(Integer.parseInt(properties.getProperty(
+          "disk_mtree_cached_measurement_num",
+          Integer.toString(conf.getDiskMTreeCachedMeasurementNum())).trim()));
 
       conf.setEnablePerformanceStat(Boolean
           .parseBoolean(properties.getProperty("enable_performance_stat",
@@ -387,6 +479,19 @@ public class IoTDBDescriptor {
         maxConcurrentClientNum = 65535;
       }
 
+      conf.setRpcSelectorServerEnable(Boolean.parseBoolean(properties.getProperty(
+          "rpc_selector_server_enable", Boolean.toString(conf.isRpcSelectorServerEnable())).trim()));
+      int selectorThreadNum = Integer.parseInt(properties.getProperty("rpc_selector_thread_num",
+          Integer.toString(conf.getRpcSelectorThreadNum())).trim());
+      if (selectorThreadNum > 0) {
+        conf.setRpcSelectorThreadNum(selectorThreadNum);
+      }
+      int selectorWorkerThreadNum = Integer.parseInt(properties.getProperty(
+          "rpc_selector_worker_thread_num",
+          Integer.toString(conf.getRpcSelectorWorkerThreadNum())).trim());
+      conf.setRpcSelectorWorkerThreadNum(selectorWorkerThreadNum > 0 ? selectorWorkerThreadNum
+          : Runtime.getRuntime().availableProcessors() * 2);
+
       conf.setEnableWatermark(Boolean.parseBoolean(properties.getProperty("watermark_module_opened",
           Boolean.toString(conf.isEnableWatermark()).trim())));
       conf.setWatermarkSecretKey(
@@ -453,6 +558,26 @@ public class IoTDBDescriptor {
           properties.getProperty(
               "primitive_array_size", String.valueOf(conf.getPrimitiveArraySize())))));
 
+      int primitiveArrayPoolCapacity = Integer.parseInt(properties.getProperty(
+          "primitive_array_pool_capacity", String.valueOf(conf.getPrimitiveArrayPoolCapacity())));
+      if (primitiveArrayPoolCapacity >= 0) {
+        conf.setPrimitiveArrayPoolCapacity(primitiveArrayPoolCapacity);
+      }
+
+      int primitiveArrayMagazineSize = Integer.parseInt(properties.getProperty(
+          "primitive_array_magazine_size", String.valueOf(conf.getPrimitiveArrayMagazineSize())));
+      if (primitiveArrayMagazineSize >= 0) {
+        conf.setPrimitiveArrayMagazineSize(primitiveArrayMagazineSize);
+      }
+
+      conf.setEnableOffHeapTVList(Boolean.parseBoolean(properties.getProperty(
+          "enable_off_heap_tvlist", String.valueOf(conf.isEnableOffHeapTVList()))));
+
+      long offHeapPagePoolMaxBytes = Long.parseLong(properties.getProperty(
+          "off_heap_page_pool_max_bytes", "0").trim());
+      conf.setOffHeapPagePoolMaxBytes(offHeapPagePoolMaxBytes > 0 ? offHeapPagePoolMaxBytes
+          : conf.getAllocateMemoryForWrite());
+
       // mqtt
       if (properties.getProperty(IoTDBConstant.MQTT_HOST_NAME) != null) {
         conf.setMqttHost(properties.getProperty(IoTDBConstant.MQTT_HOST_NAME));
@@ -540,6 +665,18 @@ public class IoTDBDescriptor {
         .parseLong(properties.getProperty("force_wal_period_in_ms",
             Long.toString(conf.getForceWalPeriodInMs()))));
 
+    conf.setEnableWalGroupCommit(Boolean.parseBoolean(properties.getProperty(
+        "enable_wal_group_commit", Boolean.toString(conf.isEnableWalGroupCommit()))));
+
+    conf.setEnablePreallocatedWal(Boolean.parseBoolean(properties.getProperty(
+        "enable_preallocated_wal", Boolean.toString(conf.isEnablePreallocatedWal()))));
+
+    long walSegmentSize = Long.parseLong(properties.getProperty("wal_segment_size",
+        Long.toString(conf.getWalSegmentSize())));
+    if (walSegmentSize > 0) {
+      conf.setWalSegmentSize(walSegmentSize);
+    }
+
     conf.setEnableDiscardOutOfOrderData(Boolean.parseBoolean(
         properties.getProperty("enable_discard_out_of_order_data",
         Boolean.toString(conf.isEnableDiscardOutOfOrderData()))));
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.query.control.FileReaderManager;
+import org.apache.iotdb.db.utils.TestOnly;
+import org.apache.iotdb.tsfile.utils.BloomFilter;
+import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class keeps the bloom filters of closed TsFiles resident on their TsFileResources, so that
+ * a query of a series absent from a file is answered without reading the file metadata. The
+ * memory of the resident filters is bounded, beyond which the least recently used ones, chosen
+ * approximately by the CLOCK algorithm, are dropped and reloaded from the file on their next use.
+ * A lookup of a resident filter only sets a flag, so concurrent queries do not contend on the
+ * lock of the cache, which is only taken to load, evict or remove filters.
+ */
+public class BloomFilterCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(BloomFilterCache.class);
+  private static final int MAP_ENTRY_SIZE = 40;
+
+  private final long maxMemory;
+  // guarded by this
+  private long usedMemory;
+
+  /**
+   * resources with a resident filter -> the filter, changed only with the lock of this held
+   */
+  private final Map<TsFileResource, ResidentFilter> residentFilters = new ConcurrentHashMap<>();
+
+  /**
+   * the resident filters in the order they are checked for eviction, which may also contain
+   * removed ones until they are polled or purged, guarded by this
+   */
+  private final Deque<ResidentFilter> clock = new ArrayDeque<>();
+
+  /**
+   * increased by every invalidation, a filter loaded across an invalidation may be stale and is
+   * not kept.
+   */
+  private long invalidationNum;
+
+  private final AtomicLong requestNum = new AtomicLong();
+  private final AtomicLong residentHitNum = new AtomicLong();
+  private final AtomicLong negativeLookupNum = new AtomicLong();
+
+  BloomFilterCache(long maxMemory) {
+    this.maxMemory = maxMemory;
+  }
+
+  public static BloomFilterCache getInstance() {
+    return BloomFilterCacheHolder.INSTANCE;
+  }
+
+  /**
+   * @return false only if the bloom filter of the closed file proves that the series is absent,
+   * loading the filter when it is not resident
+   */
+  public boolean mayContain(TsFileResource resource, String seriesPath) throws IOException {
+    requestNum.incrementAndGet();
+    BloomFilter filter = resource.getResidentBloomFilter();
+    if (filter != null) {
+      residentHitNum.incrementAndGet();
+      touch(resource);
+    } else {
+      filter = load(resource);
+      if (filter == null) {
+        return true;
+      }
+    }
+    return check(filter, seriesPath);
+  }
+
+  /**
+   * Never reads the file, so it can be called while holding the locks of a storage group.
+   *
+   * @return true only if a resident bloom filter of the file proves that the series is absent
+   */
+  public boolean isAbsent(TsFileResource resource, String seriesPath) {
+    BloomFilter filter = resource.getResidentBloomFilter();
+    if (filter == null) {
+      return false;
+    }
+    requestNum.incrementAndGet();
+    residentHitNum.incrementAndGet();
+    touch(resource);
+    return !check(filter, seriesPath);
+  }
+
+  private boolean check(BloomFilter filter, String seriesPath) {
+    if (filter.contains(seriesPath)) {
+      return true;
+    }
+    negativeLookupNum.incrementAndGet();
+    return false;
+  }
+
+  private void touch(TsFileResource resource) {
+    ResidentFilter residentFilter = residentFilters.get(resource);
+    if (residentFilter != null && !residentFilter.referenced) {
+      residentFilter.referenced = true;
+    }
+  }
+
+  private BloomFilter load(TsFileResource resource) throws IOException {
+    long invalidationNumBeforeLoad;
+    synchronized (this) {
+      invalidationNumBeforeLoad = invalidationNum;
+    }
+    BloomFilter filter = FileReaderManager.getInstance().get(resource.getTsFilePath(), true)
+        .readBloomFilter();
+    if (filter == null) {
+      // files of old versions have no bloom filter
+      return null;
+    }
+    synchronized (this) {
+      if (invalidationNum != invalidationNumBeforeLoad) {
+        // the file may have been rewritten while loading
+        return null;
+      }
+      if (resource.getResidentBloomFilter() == null) {
+        ResidentFilter residentFilter = new ResidentFilter(resource, calFilterSize(filter));
+        resource.setResidentBloomFilter(filter);
+        ResidentFilter old = residentFilters.put(resource, residentFilter);
+        if (old != null) {
+          // another instance of the same file
+          old.resource.setResidentBloomFilter(null);
+          usedMemory -= old.size;
+        }
+        clock.add(residentFilter);
+        usedMemory += residentFilter.size;
+        evict();
+      }
+    }
+    return filter;
+  }
+
+  private void evict() {
+    while (usedMemory > maxMemory) {
+      ResidentFilter residentFilter = clock.poll();
+      if (residentFilter == null) {
+        break;
+      }
+      if (residentFilters.get(residentFilter.resource) != residentFilter) {
+        // already removed
+        continue;
+      }
+      if (residentFilter.referenced) {
+        // give it a second chance
+        residentFilter.referenced = false;
+        clock.add(residentFilter);
+        continue;
+      }
+      residentFilters.remove(residentFilter.resource);
+      residentFilter.resource.setResidentBloomFilter(null);
+      usedMemory -= residentFilter.size;
+    }
+    if (logger.isDebugEnabled()) {
+      logger.debug("{} bloom filters are resident, using {} bytes", residentFilters.size(),
+          usedMemory);
+    }
+  }
+
+  private static long calFilterSize(BloomFilter filter) {
+    return RamUsageEstimator.shallowSizeOf(filter) + filter.getSize() / Byte.SIZE
+        + RamUsageEstimator.NUM_BYTES_OBJECT_REF * (long) filter.getHashFunctionSize()
+        + MAP_ENTRY_SIZE;
+  }
+
+  /**
+   * Drop the resident filter of a file that is removed or rewritten.
+   */
+  public synchronized void remove(TsFileResource resource) {
+    invalidationNum++;
+    // the resource in the map may be another instance of the same file, they are equal
+    ResidentFilter residentFilter = residentFilters.remove(resource);
+    if (residentFilter != null) {
+      residentFilter.resource.setResidentBloomFilter(null);
+      usedMemory -= residentFilter.size;
+      if (clock.size() > 2 * residentFilters.size() + 16) {
+        // purge the removed filters, amortized over the removals
+        clock.removeIf(filter -> residentFilters.get(filter.resource) != filter);
+      }
+    }
+    resource.setResidentBloomFilter(null);
+  }
+
+  public double calculateResidentHitRatio() {
+    if (requestNum.get() != 0) {
+      return residentHitNum.get() * 1.0 / requestNum.get();
+    } else {
+      return 0;
+    }
+  }
+
+  public long getNegativeLookupNum() {
+    return negativeLookupNum.get();
+  }
+
+  public synchronized long getUsedMemory() {
+    return usedMemory;
+  }
+
+  public long getMaxMemory() {
+    return maxMemory;
+  }
+
+  @TestOnly
+  int getResidentNum() {
+    return residentFilters.size();
+  }
+
+  /**
+   * clear all resident filters.
+   */
+  public synchronized void clear() {
+    invalidationNum++;
+    for (ResidentFilter residentFilter : residentFilters.values()) {
+      residentFilter.resource.setResidentBloomFilter(null);
+    }
+    residentFilters.clear();
+    clock.clear();
+    usedMemory = 0;
+    requestNum.set(0);
+    residentHitNum.set(0);
+    negativeLookupNum.set(0);
+  }
+
+  private static class ResidentFilter {
+
+    // the instance holding the filter, which may not be the one a lookup is made with
+    private final TsFileResource resource;
+    private final long size;
+    // CLOCK state, set by lookups without the lock
+    private volatile boolean referenced = false;
+
+    private ResidentFilter(TsFileResource resource, long size) {
+      this.resource = resource;
+      this.size = size;
+    }
+  }
+
+  private static class BloomFilterCacheHolder {
+
+    private BloomFilterCacheHolder() {
+    }
+
+    private static final BloomFilterCache INSTANCE = new BloomFilterCache(
+        IoTDBDescriptor.getInstance().getConfig().getResidentBloomFilterMemoryInByte());
+  }
+}
@@ -127,6 +127,26 @@ public class CacheHitRatioMonitor implements CacheHitRatioMonitorMXBean, IServic
     return TimeSeriesMetadataCache.getInstance().getAverageSize();
   }
 
+  @Override
+  public double getBloomFilterResidentHitRatio() {
+    return BloomFilterCache.getInstance().calculateResidentHitRatio();
+  }
+
+  @Override
+  public long getBloomFilterNegativeLookupNum() {
+    return BloomFilterCache.getInstance().getNegativeLookupNum();
+  }
+
+  @Override
+  public long getBloomFilterResidentUsedMemory() {
+    return BloomFilterCache.getInstance().getUsedMemory();
+  }
+
+  @Override
+  public long getBloomFilterResidentMaxMemory() {
+    return BloomFilterCache.getInstance().getMaxMemory();
+  }
+
   public static CacheHitRatioMonitor getInstance() {
     return instance;
   }
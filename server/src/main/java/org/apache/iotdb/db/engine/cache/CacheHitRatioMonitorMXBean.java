@@ -52,4 +52,16 @@ public interface CacheHitRatioMonitorMXBean {
 
   long getTimeSeriesMetaDataCacheAverageSize();
 
+
+  double getBloomFilterResidentHitRatio();
+
+  /**
+   * @return the number of lookups for which a bloom filter proved the series absent from a file
+   */
+  long getBloomFilterNegativeLookupNum();
+
+  long getBloomFilterResidentUsedMemory();
+
+  long getBloomFilterResidentMaxMemory();
+
 }
@@ -21,8 +21,6 @@ package org.apache.iotdb.db.engine.cache;
 
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.utils.TestOnly;
@@ -35,7 +33,7 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This class is used to cache <code>Chunk</code> of <code>ChunkMetaData</code> in IoTDB. The
- * caching strategy is LRU.
+ * caching strategy is W-TinyLFU, see WTinyLFUCache.
  */
 public class ChunkCache {
 
@@ -45,35 +43,21 @@ public class ChunkCache {
       .getAllocateMemoryForChunkCache();
   private static final boolean CACHE_ENABLE = config.isMetaDataCacheEnable();
 
-  private final LRULinkedHashMap<ChunkMetadata, Chunk> lruCache;
+  private final WTinyLFUCache<ChunkMetadata, Chunk> lruCache;
 
   private final AtomicLong cacheHitNum = new AtomicLong();
   private final AtomicLong cacheRequestNum = new AtomicLong();
 
-  private final ReadWriteLock lock = new ReentrantReadWriteLock();
-
 
   private ChunkCache() {
     if (CACHE_ENABLE) {
       logger.info("ChunkCache size = " + MEMORY_THRESHOLD_IN_CHUNK_CACHE);
     }
-    lruCache = new LRULinkedHashMap<ChunkMetadata, Chunk>(MEMORY_THRESHOLD_IN_CHUNK_CACHE) {
+    lruCache = new WTinyLFUCache<ChunkMetadata, Chunk>(MEMORY_THRESHOLD_IN_CHUNK_CACHE) {
 
       @Override
       protected long calEntrySize(ChunkMetadata key, Chunk value) {
-        long currentSize;
-        if (count < 10) {
-          currentSize = RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.sizeOf(value);
-          averageSize = ((averageSize * count) + currentSize) / (++count);
-        } else if (count < 100000) {
-          count++;
-          currentSize = averageSize;
-        } else {
-          averageSize = RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.sizeOf(value);
-          count = 1;
-          currentSize = averageSize;
-        }
-        return currentSize;
+        return RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.sizeOf(value);
       }
     };
   }
@@ -90,30 +74,21 @@ public class ChunkCache {
 
     cacheRequestNum.incrementAndGet();
 
-    Chunk chunk;
-    lock.readLock().lock();
-    try {
-      chunk = lruCache.get(chunkMetaData);
-    } finally {
-      lock.readLock().unlock();
-    }
+    Chunk chunk = lruCache.get(chunkMetaData);
     if (chunk != null) {
       cacheHitNum.incrementAndGet();
       printCacheLog(true);
     } else {
       printCacheLog(false);
-      try {
-        chunk = reader.readMemChunk(chunkMetaData);
-      } catch (IOException e) {
-        logger.error("something wrong happened while reading {}", reader.getFileName());
-        throw e;
-      }
-      lock.writeLock().lock();
-      try {
-        lruCache.put(chunkMetaData, chunk);
-      } finally {
-        lock.writeLock().unlock();
-      }
+      // concurrent queries of the same chunk share one read
+      chunk = lruCache.get(chunkMetaData, key -> {
+        try {
+          return reader.readMemChunk(key);
+        } catch (IOException e) {
+          logger.error("something wrong happened while reading {}", reader.getFileName());
+          throw e;
+        }
+      });
     }
     return new Chunk(chunk.getHeader(), chunk.getData().duplicate(), chunk.getDeleteIntervalList());
 
@@ -158,19 +133,13 @@ public class ChunkCache {
    * clear LRUCache.
    */
   public void clear() {
-    lock.writeLock().lock();
     if (lruCache != null) {
       lruCache.clear();
     }
-    lock.writeLock().unlock();
   }
 
   public void remove(ChunkMetadata chunkMetaData) {
-    lock.writeLock().lock();
-    if (chunkMetaData != null) {
-      lruCache.remove(chunkMetaData);
-    }
-    lock.writeLock().unlock();
+    lruCache.remove(chunkMetaData);
   }
 
   @TestOnly
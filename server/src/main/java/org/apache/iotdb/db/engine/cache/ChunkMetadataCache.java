@@ -33,9 +33,7 @@ import org.apache.iotdb.db.query.control.FileReaderManager;
 import org.apache.iotdb.db.utils.FileLoaderUtils;
 import org.apache.iotdb.db.utils.TestOnly;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
-import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Path;
-import org.apache.iotdb.tsfile.utils.BloomFilter;
 import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -105,14 +103,15 @@ public class ChunkMetadataCache {
 
   /**
    * get {@link ChunkMetadata}. THREAD SAFE.
+   *
+   * @param resource a closed TsFile, whose bloom filter is got from {@link BloomFilterCache}
    */
-  public List<ChunkMetadata> get(String filePath, Path seriesPath)
+  public List<ChunkMetadata> get(TsFileResource resource, Path seriesPath)
       throws IOException {
+    String filePath = resource.getTsFilePath();
     if (!CACHE_ENABLE) {
       // bloom filter part
-      TsFileSequenceReader tsFileReader = FileReaderManager.getInstance().get(filePath, true);
-      BloomFilter bloomFilter = tsFileReader.readBloomFilter();
-      if (bloomFilter != null && !bloomFilter.contains(seriesPath.getFullPath())) {
+      if (!BloomFilterCache.getInstance().mayContain(resource, seriesPath.getFullPath())) {
         if (logger.isDebugEnabled()) {
           logger.debug(String
               .format("path not found by bloom filter, file is: %s, path is: %s", filePath,
@@ -121,7 +120,8 @@ public class ChunkMetadataCache {
         return new ArrayList<>();
       }
       // If timeseries isn't included in the tsfile, empty list is returned.
-      return tsFileReader.getChunkMetadataList(seriesPath);
+      return FileReaderManager.getInstance().get(filePath, true)
+          .getChunkMetadataList(seriesPath);
     }
 
     AccountableString key = new AccountableString(filePath + IoTDBConstant.PATH_SEPARATOR
@@ -144,9 +144,7 @@ public class ChunkMetadataCache {
     } else {
       printCacheLog(false);
       // bloom filter part
-      TsFileSequenceReader tsFileReader = FileReaderManager.getInstance().get(filePath, true);
-      BloomFilter bloomFilter = tsFileReader.readBloomFilter();
-      if (bloomFilter != null && !bloomFilter.contains(seriesPath.getFullPath())) {
+      if (!BloomFilterCache.getInstance().mayContain(resource, seriesPath.getFullPath())) {
         return new ArrayList<>();
       }
       chunkMetadataList = FileLoaderUtils.getChunkMetadataList(seriesPath, filePath);
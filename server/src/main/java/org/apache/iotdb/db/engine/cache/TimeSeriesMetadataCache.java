@@ -24,10 +24,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.iotdb.db.conf.IoTDBConfig;
-import org.apache.iotdb.db.conf.IoTDBConstant;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.query.control.FileReaderManager;
 import org.apache.iotdb.db.utils.TestOnly;
@@ -35,14 +32,13 @@ import org.apache.iotdb.tsfile.common.cache.Accountable;
 import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Path;
-import org.apache.iotdb.tsfile.utils.BloomFilter;
 import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This class is used to cache <code>TimeSeriesMetadata</code> in IoTDB. The caching strategy is
- * LRU.
+ * W-TinyLFU, see WTinyLFUCache.
  */
 public class TimeSeriesMetadataCache {
 
@@ -52,43 +48,26 @@ public class TimeSeriesMetadataCache {
       .getAllocateMemoryForTimeSeriesMetaDataCache();
   private static final boolean CACHE_ENABLE = config.isMetaDataCacheEnable();
 
-  private final LRULinkedHashMap<TimeSeriesMetadataCacheKey, TimeseriesMetadata> lruCache;
+  private final WTinyLFUCache<TimeSeriesMetadataCacheKey, TimeseriesMetadata> lruCache;
 
   private final AtomicLong cacheHitNum = new AtomicLong();
   private final AtomicLong cacheRequestNum = new AtomicLong();
 
-  private final ReadWriteLock lock = new ReentrantReadWriteLock();
-
 
   private TimeSeriesMetadataCache() {
     if (CACHE_ENABLE) {
       logger
           .info("TimeseriesMetadataCache size = " + MEMORY_THRESHOLD_IN_TIME_SERIES_METADATA_CACHE);
     }
-    lruCache = new LRULinkedHashMap<TimeSeriesMetadataCacheKey, TimeseriesMetadata>(
+    lruCache = new WTinyLFUCache<TimeSeriesMetadataCacheKey, TimeseriesMetadata>(
         MEMORY_THRESHOLD_IN_TIME_SERIES_METADATA_CACHE) {
 
       @Override
       protected long calEntrySize(TimeSeriesMetadataCacheKey key, TimeseriesMetadata value) {
-        long currentSize;
-        if (count < 10) {
-          currentSize = RamUsageEstimator.shallowSizeOf(key) + RamUsageEstimator.sizeOf(key.device)
-              + RamUsageEstimator.sizeOf(key.measurement) + RamUsageEstimator.shallowSizeOf(value)
-              + RamUsageEstimator.sizeOf(value.getMeasurementId()) + RamUsageEstimator
-              .shallowSizeOf(value.getStatistics());
-          averageSize = ((averageSize * count) + currentSize) / (++count);
-        } else if (count < 100000) {
-          count++;
-          currentSize = averageSize;
-        } else {
-          averageSize = RamUsageEstimator.shallowSizeOf(key) + RamUsageEstimator.sizeOf(key.device)
-              + RamUsageEstimator.sizeOf(key.measurement) + RamUsageEstimator.shallowSizeOf(value)
-              + RamUsageEstimator.sizeOf(value.getMeasurementId()) + RamUsageEstimator
-              .shallowSizeOf(value.getStatistics());
-          count = 1;
-          currentSize = averageSize;
-        }
-        return currentSize;
+        return RamUsageEstimator.shallowSizeOf(key) + RamUsageEstimator.sizeOf(key.device)
+            + RamUsageEstimator.sizeOf(key.measurement) + RamUsageEstimator.shallowSizeOf(value)
+            + RamUsageEstimator.sizeOf(value.getMeasurementId()) + RamUsageEstimator
+            .shallowSizeOf(value.getStatistics());
       }
     };
   }
@@ -97,68 +76,44 @@ public class TimeSeriesMetadataCache {
     return TimeSeriesMetadataCache.TimeSeriesMetadataCacheHolder.INSTANCE;
   }
 
+  /**
+   * The caller should have checked the bloom filter of the file with BloomFilterCache, as the
+   * series is looked up in the file without it.
+   */
   public TimeseriesMetadata get(TimeSeriesMetadataCacheKey key, Set<String> allSensors)
       throws IOException {
     if (!CACHE_ENABLE) {
-      // bloom filter part
       TsFileSequenceReader reader = FileReaderManager.getInstance().get(key.filePath, true);
-      BloomFilter bloomFilter = reader.readBloomFilter();
-      if (bloomFilter != null && !bloomFilter
-          .contains(key.device + IoTDBConstant.PATH_SEPARATOR + key.measurement)) {
-        return null;
-      }
       return reader.readTimeseriesMetadata(new Path(key.device, key.measurement));
     }
 
     cacheRequestNum.incrementAndGet();
 
-    TimeseriesMetadata timeseriesMetadata;
-    lock.readLock().lock();
-    try {
-      timeseriesMetadata = lruCache.get(key);
-    } finally {
-      lock.readLock().unlock();
-    }
+    TimeseriesMetadata timeseriesMetadata = lruCache.get(key);
 
     if (timeseriesMetadata != null) {
       cacheHitNum.incrementAndGet();
       printCacheLog(true);
     } else {
-      // allow for the parallelism of different devices
-      synchronized (key.device.intern()) {
-        // double check
-        lock.readLock().lock();
-        try {
-          timeseriesMetadata = lruCache.get(key);
-        } finally {
-          lock.readLock().unlock();
-        }
-        if (timeseriesMetadata != null) {
-          cacheHitNum.incrementAndGet();
-          printCacheLog(true);
-        } else {
-          printCacheLog(false);
-          // bloom filter part
-          TsFileSequenceReader reader = FileReaderManager.getInstance().get(key.filePath, true);
-          BloomFilter bloomFilter = reader.readBloomFilter();
-          if (bloomFilter != null && !bloomFilter
-              .contains(key.device + IoTDBConstant.PATH_SEPARATOR + key.measurement)) {
-            return null;
-          }
-          List<TimeseriesMetadata> timeSeriesMetadataList = reader
-              .readTimeseriesMetadata(key.device, allSensors);
-          // put TimeSeriesMetadata of all sensors used in this query into cache
-          lock.writeLock().lock();
-          try {
-            timeSeriesMetadataList.forEach(metadata ->
-                lruCache.put(new TimeSeriesMetadataCacheKey(key.filePath, key.device,
-                    metadata.getMeasurementId()), metadata));
-            timeseriesMetadata = lruCache.get(key);
-          } finally {
-            lock.writeLock().unlock();
+      printCacheLog(false);
+      // concurrent queries of the same series share one read
+      timeseriesMetadata = lruCache.get(key, k -> {
+        TsFileSequenceReader reader = FileReaderManager.getInstance().get(k.filePath, true);
+        List<TimeseriesMetadata> timeSeriesMetadataList = reader
+            .readTimeseriesMetadata(k.device, allSensors);
+        // put TimeSeriesMetadata of all sensors used in this query into cache
+        TimeseriesMetadata result = null;
+        for (TimeseriesMetadata metadata : timeSeriesMetadataList) {
+          if (metadata.getMeasurementId().equals(k.measurement)) {
+            // cached by the loader itself
+            result = metadata;
+          } else {
+            lruCache.put(new TimeSeriesMetadataCacheKey(k.filePath, k.device,
+                metadata.getMeasurementId()), metadata);
           }
         }
-      }
+        return result;
+      });
     }
     if (timeseriesMetadata == null) {
       return null;
@@ -206,19 +161,13 @@ public class TimeSeriesMetadataCache {
    * clear LRUCache.
    */
   public void clear() {
-    lock.writeLock().lock();
     if (lruCache != null) {
       lruCache.clear();
     }
-    lock.writeLock().unlock();
   }
 
   public void remove(TimeSeriesMetadataCacheKey key) {
-    lock.writeLock().lock();
-    if (key != null) {
-      lruCache.remove(key);
-    }
-    lock.writeLock().unlock();
+    lruCache.remove(key);
   }
 
   @TestOnly
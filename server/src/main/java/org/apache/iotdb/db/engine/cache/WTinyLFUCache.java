@@ -0,0 +1,471 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.iotdb.tsfile.common.cache.Accountable;
+
+/**
+ * This class is a concurrent cache bounded by the estimated memory of its entries, using the
+ * W-TinyLFU policy so that a large scan does not evict the frequently used entries.
+ *
+ * The entries are split into segments by the hash of their keys, and each segment keeps three LRU
+ * queues: a small window (1% of its memory) that every new entry enters, and a probation and a
+ * protected queue (80% of the rest) for the main part. An entry evicted from the window only
+ * replaces the LRU entry of the main part if a FrequencySketch says it has been accessed more
+ * often recently, and an entry accessed again in probation is promoted to protected.
+ *
+ * Lookups read a ConcurrentHashMap without locking, and record the access only if the segment lock
+ * is free, so a busy segment loses some accesses instead of blocking the readers. Concurrent loads
+ * of a missing key are coalesced, so the key is only read from disk once.
+ */
+public abstract class WTinyLFUCache<K extends Accountable, V> {
+
+  private static final int MAP_ENTRY_SIZE = 40;
+  private static final float WINDOW_PERCENT = 0.01f;
+  private static final float PROTECTED_PERCENT = 0.8f;
+  // each segment should be able to hold many entries, so a small cache has fewer segments
+  private static final long MIN_SEGMENT_MEMORY = 4 * 1024 * 1024L;
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+  private static final int REMOVED = 3;
+
+  private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<K, CompletableFuture<V>> loadingFutures =
+      new ConcurrentHashMap<>();
+  private final Segment[] segments;
+
+  private final long maxMemory;
+  private final AtomicLong usedMemory = new AtomicLong();
+
+  @SuppressWarnings("unchecked")
+  public WTinyLFUCache(long maxMemory) {
+    this.maxMemory = maxMemory;
+    int segmentNum = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2);
+    while (segmentNum > 1 && maxMemory / segmentNum < MIN_SEGMENT_MEMORY) {
+      segmentNum >>= 1;
+    }
+    segments = new WTinyLFUCache.Segment[segmentNum];
+    for (int i = 0; i < segmentNum; i++) {
+      segments[i] = new Segment(maxMemory / segmentNum);
+    }
+  }
+
+  /**
+   * @return the cached value of the key, or null if it is not cached
+   */
+  public V get(K key) {
+    Node<K, V> node = data.get(key);
+    if (node == null) {
+      return null;
+    }
+    Segment segment = segmentOf(key);
+    if (segment.lock.tryLock()) {
+      try {
+        segment.onAccess(node);
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    return node.value;
+  }
+
+  /**
+   * Get the cached value of the key, or load and cache it if it is not cached. If other threads are
+   * loading the same key, wait for their result instead of loading it again.
+   *
+   * @return the value, or null if the loader returns null, which is not cached
+   */
+  public V get(K key, CacheLoader<K, V> loader) throws IOException {
+    V value = get(key);
+    if (value != null) {
+      return value;
+    }
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> loadingFuture = loadingFutures.putIfAbsent(key, future);
+    if (loadingFuture != null) {
+      return waitForLoading(loadingFuture);
+    }
+    try {
+      // double check, the key may be cached by a load that has just finished
+      value = get(key);
+      if (value == null) {
+        value = loader.load(key);
+        if (value != null) {
+          put(key, value);
+        }
+      }
+      future.complete(value);
+      return value;
+    } catch (IOException | RuntimeException e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loadingFutures.remove(key, future);
+    }
+  }
+
+  private V waitForLoading(CompletableFuture<V> loadingFuture) throws IOException {
+    try {
+      return loadingFuture.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the cache to load", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw new IOException(cause.getMessage(), cause);
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  public void put(K key, V value) {
+    Segment segment = segmentOf(key);
+    segment.lock.lock();
+    try {
+      Node<K, V> node = new Node<>(key, value, segment.estimateEntrySize(key, value));
+      Node<K, V> oldNode = data.put(key, node);
+      if (oldNode != null) {
+        segment.evict(oldNode);
+      }
+      segment.add(node);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  public V remove(K key) {
+    if (key == null) {
+      return null;
+    }
+    Segment segment = segmentOf(key);
+    segment.lock.lock();
+    try {
+      Node<K, V> node = data.get(key);
+      if (node == null) {
+        return null;
+      }
+      segment.evict(node);
+      return node.value;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.lock.lock();
+    }
+    try {
+      data.clear();
+      usedMemory.set(0);
+      for (Segment segment : segments) {
+        segment.clear();
+      }
+    } finally {
+      for (Segment segment : segments) {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * approximately estimate the additional size of key and value.
+   */
+  protected abstract long calEntrySize(K key, V value);
+
+  /**
+   * calculate the proportion of used memory.
+   */
+  public double getUsedMemoryProportion() {
+    return usedMemory.get() * 1.0 / maxMemory;
+  }
+
+  public long getUsedMemory() {
+    return usedMemory.get();
+  }
+
+  public long getMaxMemory() {
+    return maxMemory;
+  }
+
+  public long getAverageSize() {
+    long totalSize = 0;
+    int sampledSegmentNum = 0;
+    for (Segment segment : segments) {
+      long averageSize = segment.averageSize;
+      if (averageSize > 0) {
+        totalSize += averageSize;
+        sampledSegmentNum++;
+      }
+    }
+    return sampledSegmentNum == 0 ? 0 : totalSize / sampledSegmentNum;
+  }
+
+  public boolean isEmpty() {
+    return data.isEmpty();
+  }
+
+  public int size() {
+    return data.size();
+  }
+
+  private Segment segmentOf(K key) {
+    int hash = key.hashCode();
+    hash ^= hash >>> 16;
+    return segments[hash & (segments.length - 1)];
+  }
+
+  @FunctionalInterface
+  public interface CacheLoader<K, V> {
+
+    V load(K key) throws IOException;
+  }
+
+  private static class Node<K, V> {
+
+    private final K key;
+    private final V value;
+    private final long weight;
+    private int queueType;
+    private Node<K, V> prev;
+    private Node<K, V> next;
+
+    private Node(K key, V value, long weight) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * A doubly linked list of nodes from the least recently used to the most recently used one.
+   */
+  private static class AccessQueue<K, V> {
+
+    private final int queueType;
+    private Node<K, V> head;
+    private Node<K, V> tail;
+    private long weight;
+
+    private AccessQueue(int queueType) {
+      this.queueType = queueType;
+    }
+
+    private void addLast(Node<K, V> node) {
+      node.queueType = queueType;
+      node.prev = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      weight += node.weight;
+    }
+
+    private void remove(Node<K, V> node) {
+      if (node.prev == null) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      weight -= node.weight;
+    }
+
+    private void moveToLast(Node<K, V> node) {
+      if (node != tail) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    private void clear() {
+      head = null;
+      tail = null;
+      weight = 0;
+    }
+  }
+
+  /**
+   * The eviction policy of a part of the keys, all methods except the lock must be called with the
+   * lock held.
+   */
+  private class Segment {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final long windowMaxMemory;
+    private final long mainMaxMemory;
+    private final long protectedMaxMemory;
+
+    private final AccessQueue<K, V> window = new AccessQueue<>(WINDOW);
+    private final AccessQueue<K, V> probation = new AccessQueue<>(PROBATION);
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>(PROTECTED);
+    private final FrequencySketch sketch = new FrequencySketch(64);
+    private int entryNum;
+
+    private int count = 0;
+    private volatile long averageSize = 0;
+
+    private Segment(long maxMemory) {
+      this.windowMaxMemory = Math.max(1, (long) (maxMemory * WINDOW_PERCENT));
+      this.mainMaxMemory = maxMemory - windowMaxMemory;
+      this.protectedMaxMemory = (long) (mainMaxMemory * PROTECTED_PERCENT);
+    }
+
+    /**
+     * Calculate the size of the first entries and then reuse their average, as calculating it is
+     * expensive, and recalculate it after every 100000 entries.
+     */
+    private long estimateEntrySize(K key, V value) {
+      long currentSize;
+      if (count < 10) {
+        currentSize = calEntrySize(key, value);
+        averageSize = ((averageSize * count) + currentSize) / (++count);
+      } else if (count < 100000) {
+        count++;
+        currentSize = averageSize;
+      } else {
+        averageSize = calEntrySize(key, value);
+        count = 1;
+        currentSize = averageSize;
+      }
+      currentSize += MAP_ENTRY_SIZE;
+      key.setRamSize(currentSize);
+      return currentSize;
+    }
+
+    private void onAccess(Node<K, V> node) {
+      sketch.increment(node.key);
+      switch (node.queueType) {
+        case WINDOW:
+          window.moveToLast(node);
+          break;
+        case PROBATION:
+          probation.remove(node);
+          protectedQueue.addLast(node);
+          // demote the least recently used protected entries to make room
+          while (protectedQueue.weight > protectedMaxMemory && protectedQueue.head != node) {
+            Node<K, V> demoted = protectedQueue.head;
+            protectedQueue.remove(demoted);
+            probation.addLast(demoted);
+          }
+          break;
+        case PROTECTED:
+          protectedQueue.moveToLast(node);
+          break;
+        default:
+          // removed concurrently
+          break;
+      }
+    }
+
+    private void add(Node<K, V> node) {
+      entryNum++;
+      if (entryNum > sketch.tableSize()) {
+        sketch.ensureCapacity(entryNum * 2);
+      }
+      sketch.increment(node.key);
+      usedMemory.addAndGet(node.weight);
+      window.addLast(node);
+      while (window.weight > windowMaxMemory) {
+        Node<K, V> candidate = window.head;
+        window.remove(candidate);
+        admit(candidate);
+      }
+    }
+
+    /**
+     * Move the candidate from the window to probation if it is accessed more often than the entries
+     * it would replace, otherwise evict it.
+     */
+    private void admit(Node<K, V> candidate) {
+      if (candidate.weight > mainMaxMemory) {
+        evictUnlinked(candidate);
+        return;
+      }
+      int candidateFrequency = sketch.frequency(candidate.key);
+      while (probation.weight + protectedQueue.weight + candidate.weight > mainMaxMemory) {
+        Node<K, V> victim = probation.head != null ? probation.head : protectedQueue.head;
+        if (candidateFrequency <= sketch.frequency(victim.key)) {
+          evictUnlinked(candidate);
+          return;
+        }
+        evict(victim);
+      }
+      probation.addLast(candidate);
+    }
+
+    private void evict(Node<K, V> node) {
+      unlink(node);
+      evictUnlinked(node);
+    }
+
+    private void evictUnlinked(Node<K, V> node) {
+      node.queueType = REMOVED;
+      entryNum--;
+      data.remove(node.key, node);
+      usedMemory.addAndGet(-node.weight);
+    }
+
+    private void unlink(Node<K, V> node) {
+      switch (node.queueType) {
+        case WINDOW:
+          window.remove(node);
+          break;
+        case PROBATION:
+          probation.remove(node);
+          break;
+        case PROTECTED:
+          protectedQueue.remove(node);
+          break;
+        default:
+          break;
+      }
+    }
+
+    private void clear() {
+      window.clear();
+      probation.clear();
+      protectedQueue.clear();
+      entryNum = 0;
+      count = 0;
+      averageSize = 0;
+    }
+  }
+}
@@ -19,19 +19,26 @@
 package org.apache.iotdb.db.engine.flush;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.conf.adapter.ActiveTimeSeriesCounter;
 import org.apache.iotdb.db.engine.flush.pool.FlushSubTaskPoolManager;
 import org.apache.iotdb.db.engine.memtable.IMemTable;
 import org.apache.iotdb.db.engine.memtable.IWritableMemChunk;
+import org.apache.iotdb.db.engine.rollup.RollupBuilder;
+import org.apache.iotdb.db.engine.rollup.SeriesRollup;
 import org.apache.iotdb.db.exception.runtime.FlushRunTimeException;
 import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
-import org.apache.iotdb.tsfile.utils.Pair;
 import org.apache.iotdb.tsfile.write.chunk.ChunkWriterImpl;
 import org.apache.iotdb.tsfile.write.chunk.IChunkWriter;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
@@ -39,221 +46,319 @@ import org.apache.iotdb.tsfile.write.writer.RestorableTsFileIOWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * MemTableFlushTask flushes a memtable through a pipeline: the flushing thread walks the series in
+ * device/measurement order, several encoding tasks sort and encode different
+ * series in parallel, and one io task writes the encoded chunks in the same order as they were
+ * walked. Both queues are bounded, so the flushing thread waits when the encoding or the io falls
+ * behind, and at most a bounded number of encoded chunks are held in memory.
+ *
+ * The encoding tasks of all concurrent flushes share flush_encoding_thread_num permits. A flush
+ * runs one encoding task per permit it gets without waiting, and one task without a permit if it
+ * gets none, so concurrent flushes neither multiply the encoding threads nor wait for each other.
+ */
 public class MemTableFlushTask {
 
   private static final Logger logger = LoggerFactory.getLogger(MemTableFlushTask.class);
   private static final FlushSubTaskPoolManager subTaskPoolManager = FlushSubTaskPoolManager
       .getInstance();
-  private final Future<?> encodingTaskFuture;
+
+  private static final int ENCODING_QUEUE_SIZE_PER_THREAD = 4;
+  private static final int IO_QUEUE_SIZE_PER_THREAD = 16;
+  private static final int WAIT_TIME_IN_MS = 10;
+
+  private final List<Future<?>> encodingTaskFutures = new ArrayList<>();
+  private final Semaphore encodingPermits;
+  private final int acquiredPermitNum;
   private final Future<?> ioTaskFuture;
   private RestorableTsFileIOWriter writer;
 
-  private final ConcurrentLinkedQueue<Object> ioTaskQueue = new ConcurrentLinkedQueue<>();
-  private final ConcurrentLinkedQueue<Object> encodingTaskQueue = new ConcurrentLinkedQueue<>();
+  /**
+   * series waiting to be sorted and encoded, in no particular order
+   */
+  private BlockingQueue<EncodingTask> encodingTaskQueue;
+  /**
+   * StartFlushGroupIOTask, EncodingTask and EndChunkGroupIoTask in the order of writing
+   */
+  private BlockingQueue<Object> ioTaskQueue;
+  private final EncodingTask noMoreEncodingTask = new EncodingTask(null, null);
+  private final Object noMoreIOTask = new Object();
+
   private String storageGroup;
 
   private IMemTable memTable;
 
-  private volatile boolean noMoreEncodingTask = false;
-  private volatile boolean noMoreIOTask = false;
+  /**
+   * the rollups of the flushed series, null if no rollup is built
+   */
+  private RollupBuilder rollupBuilder;
+
+  private final AtomicLong sortTime = new AtomicLong();
+  private final AtomicLong memSerializeTime = new AtomicLong();
 
   /**
    * @param memTable the memTable to flush
    * @param writer the writer where memTable will be flushed to (current tsfile writer or vm writer)
    * @param storageGroup current storage group
    */
-
   public MemTableFlushTask(IMemTable memTable, RestorableTsFileIOWriter writer, String storageGroup) {
+    this(memTable, writer, storageGroup, new long[0]);
+  }
+
+  /**
+   * @param rollupLevels the levels of the rollups built from the sorted series, empty if no rollup
+   * is needed
+   */
+  public MemTableFlushTask(IMemTable memTable, RestorableTsFileIOWriter writer, String storageGroup,
+      long[] rollupLevels) {
     this.memTable = memTable;
     this.writer = writer;
     this.storageGroup = storageGroup;
-    this.encodingTaskFuture = subTaskPoolManager.submit(encodingTask);
+    if (rollupLevels.length > 0) {
+      this.rollupBuilder = new RollupBuilder(rollupLevels);
+    }
+    this.encodingPermits = subTaskPoolManager.getEncodingPermits();
+    this.acquiredPermitNum = acquireEncodingPermits(encodingPermits);
+    int encodingThreadNum = Math.max(1, acquiredPermitNum);
+    this.encodingTaskQueue = new ArrayBlockingQueue<>(
+        encodingThreadNum * ENCODING_QUEUE_SIZE_PER_THREAD);
+    this.ioTaskQueue = new ArrayBlockingQueue<>(encodingThreadNum * IO_QUEUE_SIZE_PER_THREAD);
+    for (int i = 0; i < encodingThreadNum; i++) {
+      encodingTaskFutures.add(subTaskPoolManager.submit(encodingTask));
+    }
     this.ioTaskFuture = subTaskPoolManager.submit(ioTask);
     logger.debug("flush task of Storage group {} memtable {} is created ",
         storageGroup, memTable.getVersion());
   }
 
+  /**
+   * @return the number of encoding permits got without waiting, at most flush_encoding_thread_num
+   */
+  private static int acquireEncodingPermits(Semaphore encodingPermits) {
+    int permitNum = encodingPermits.availablePermits();
+    while (permitNum > 0 && !encodingPermits.tryAcquire(permitNum)) {
+      permitNum = Math.min(permitNum - 1, encodingPermits.availablePermits());
+    }
+    return Math.max(0, permitNum);
+  }
+
   /**
    * the function for flushing memtable.
    */
   public void syncFlushMemTable()
       throws ExecutionException, InterruptedException, IOException {
     long start = System.currentTimeMillis();
-    long sortTime = 0;
 
-    for (String deviceId : memTable.getMemTableMap().keySet()) {
-      encodingTaskQueue.add(new StartFlushGroupIOTask(deviceId));
-      for (String measurementId : memTable.getMemTableMap().get(deviceId).keySet()) {
-        long startTime = System.currentTimeMillis();
-        IWritableMemChunk series = memTable.getMemTableMap().get(deviceId).get(measurementId);
-        MeasurementSchema desc = series.getSchema();
-        TVList tvList = series.getSortedTVList();
-        sortTime += System.currentTimeMillis() - startTime;
-        encodingTaskQueue.add(new Pair<>(tvList, desc));
-        // register active time series to the ActiveTimeSeriesCounter
-        if (IoTDBDescriptor.getInstance().getConfig().isEnableParameterAdapter()) {
-          ActiveTimeSeriesCounter.getInstance().offer(storageGroup, deviceId, measurementId);
+    try {
+      for (String deviceId : memTable.getMemTableMap().keySet()) {
+        putTask(ioTaskQueue, new StartFlushGroupIOTask(deviceId));
+        for (String measurementId : memTable.getMemTableMap().get(deviceId).keySet()) {
+          EncodingTask task = new EncodingTask(deviceId,
+              memTable.getMemTableMap().get(deviceId).get(measurementId));
+          // enqueue for io first, so that the io task always waits for an enqueued series
+          putTask(ioTaskQueue, task);
+          putTask(encodingTaskQueue, task);
+          // register active time series to the ActiveTimeSeriesCounter
+          if (IoTDBDescriptor.getInstance().getConfig().isEnableParameterAdapter()) {
+            ActiveTimeSeriesCounter.getInstance().offer(storageGroup, deviceId, measurementId);
+          }
         }
+        putTask(ioTaskQueue, new EndChunkGroupIoTask());
+      }
+      if (IoTDBDescriptor.getInstance().getConfig().isEnableParameterAdapter()) {
+        ActiveTimeSeriesCounter.getInstance().updateActiveRatio(storageGroup);
+      }
+      putTask(ioTaskQueue, noMoreIOTask);
+      for (int i = 0; i < encodingTaskFutures.size(); i++) {
+        putTask(encodingTaskQueue, noMoreEncodingTask);
+      }
+      ioTaskFuture.get();
+      // the encoding tasks exit soon after the io task has got all series, the permits are only
+      // released when they have exited
+      for (Future<?> encodingTaskFuture : encodingTaskFutures) {
+        encodingTaskFuture.get();
       }
-      encodingTaskQueue.add(new EndChunkGroupIoTask());
-    }
-    if (IoTDBDescriptor.getInstance().getConfig().isEnableParameterAdapter()) {
-      ActiveTimeSeriesCounter.getInstance().updateActiveRatio(storageGroup);
-    }
-    noMoreEncodingTask = true;
-    logger.debug(
-        "Storage group {} memtable {}, flushing into disk: data sort time cost {} ms.",
-        storageGroup, memTable.getVersion(), sortTime);
-
-    try {
-      encodingTaskFuture.get();
     } catch (InterruptedException | ExecutionException e) {
-      // avoid ioTask waiting forever
-      noMoreIOTask = true;
+      // the rest series will not be written, so stop the sub tasks early
+      encodingTaskQueue.clear();
+      for (Future<?> encodingTaskFuture : encodingTaskFutures) {
+        encodingTaskFuture.cancel(true);
+      }
       ioTaskFuture.cancel(true);
       throw e;
+    } finally {
+      encodingPermits.release(acquiredPermitNum);
     }
 
-    ioTaskFuture.get();
-
     try {
       writer.writeVersion(memTable.getVersion());
     } catch (IOException e) {
       throw new ExecutionException(e);
     }
 
+    logger.debug(
+        "Storage group {} memtable {}, flushing into disk: data sort time cost {} ms, encoding "
+            + "data cost {} ms.", storageGroup, memTable.getVersion(), sortTime.get(),
+        memSerializeTime.get());
     logger.info(
         "Storage group {} memtable {} flushing a memtable has finished! Time consumption: {}ms",
         storageGroup, memTable, System.currentTimeMillis() - start);
   }
 
-  private Runnable encodingTask = new Runnable() {
-    private void writeOneSeries(TVList tvPairs, IChunkWriter seriesWriterImpl,
-        TSDataType dataType) {
-      for (int i = 0; i < tvPairs.size(); i++) {
-        long time = tvPairs.getTime(i);
+  /**
+   * @return the rollups of the flushed series, or null if no rollup is built
+   */
+  public RollupBuilder getRollupBuilder() {
+    return rollupBuilder;
+  }
 
-        // skip duplicated data
-        if ((i + 1 < tvPairs.size() && (time == tvPairs.getTime(i + 1)))) {
-          continue;
+  /**
+   * Put the task into the bounded queue, giving up if any sub task has stopped, as the queue may
+   * never be consumed then.
+   */
+  private <T> void putTask(BlockingQueue<T> queue, T task)
+      throws InterruptedException, ExecutionException {
+    while (!queue.offer(task, WAIT_TIME_IN_MS, TimeUnit.MILLISECONDS)) {
+      if (ioTaskFuture.isDone()) {
+        // throws the exception of the io task, if any
+        ioTaskFuture.get();
+        throw new ExecutionException(new IOException("io task stopped unexpectedly"));
+      }
+      for (Future<?> encodingTaskFuture : encodingTaskFutures) {
+        if (encodingTaskFuture.isDone()) {
+          throw new ExecutionException(new IOException("encoding task stopped unexpectedly"));
         }
+      }
+    }
+  }
 
-        switch (dataType) {
-          case BOOLEAN:
-            seriesWriterImpl.write(time, tvPairs.getBoolean(i));
-            break;
-          case INT32:
-            seriesWriterImpl.write(time, tvPairs.getInt(i));
-            break;
-          case INT64:
-            seriesWriterImpl.write(time, tvPairs.getLong(i));
-            break;
-          case FLOAT:
-            seriesWriterImpl.write(time, tvPairs.getFloat(i));
-            break;
-          case DOUBLE:
-            seriesWriterImpl.write(time, tvPairs.getDouble(i));
-            break;
-          case TEXT:
-            seriesWriterImpl.write(time, tvPairs.getBinary(i));
-            break;
-          default:
-            logger.error("Storage group {} does not support data type: {}", storageGroup,
-                dataType);
-            break;
-        }
+  private void writeOneSeries(TVList tvPairs, IChunkWriter seriesWriterImpl,
+      TSDataType dataType) {
+    for (int i = 0; i < tvPairs.size(); i++) {
+      long time = tvPairs.getTime(i);
+
+      // skip duplicated data
+      if ((i + 1 < tvPairs.size() && (time == tvPairs.getTime(i + 1)))) {
+        continue;
+      }
+
+      switch (dataType) {
+        case BOOLEAN:
+          seriesWriterImpl.write(time, tvPairs.getBoolean(i));
+          break;
+        case INT32:
+          seriesWriterImpl.write(time, tvPairs.getInt(i));
+          break;
+        case INT64:
+          seriesWriterImpl.write(time, tvPairs.getLong(i));
+          break;
+        case FLOAT:
+          seriesWriterImpl.write(time, tvPairs.getFloat(i));
+          break;
+        case DOUBLE:
+          seriesWriterImpl.write(time, tvPairs.getDouble(i));
+          break;
+        case TEXT:
+          seriesWriterImpl.write(time, tvPairs.getBinary(i));
+          break;
+        default:
+          logger.error("Storage group {} does not support data type: {}", storageGroup,
+              dataType);
+          break;
       }
     }
+  }
 
-    @SuppressWarnings("squid:S135")
-    @Override
-    public void run() {
-      long memSerializeTime = 0;
-      boolean noMoreMessages = false;
-      logger.debug("Storage group {} memtable {}, starts to encoding data.", storageGroup,
-          memTable.getVersion());
+  private Runnable encodingTask = () -> {
+    logger.debug("Storage group {} memtable {}, starts to encoding data.", storageGroup,
+        memTable.getVersion());
+    try {
       while (true) {
-        if (noMoreEncodingTask) {
-          noMoreMessages = true;
-        }
-        Object task = encodingTaskQueue.poll();
-        if (task == null) {
-          if (noMoreMessages) {
-            break;
-          }
-          try {
-            TimeUnit.MILLISECONDS.sleep(10);
-          } catch (@SuppressWarnings("squid:S2142") InterruptedException e) {
-            logger.error("Storage group {} memtable {}, encoding task is interrupted.",
-                storageGroup, memTable.getVersion(), e);
-            // generally it is because the thread pool is shutdown so the task should be aborted
-            break;
-          }
-        } else {
-          if (task instanceof StartFlushGroupIOTask || task instanceof EndChunkGroupIoTask) {
-            ioTaskQueue.add(task);
-          } else {
-            long starTime = System.currentTimeMillis();
-            Pair<TVList, MeasurementSchema> encodingMessage = (Pair<TVList, MeasurementSchema>) task;
-            IChunkWriter seriesWriter = new ChunkWriterImpl(encodingMessage.right);
-            writeOneSeries(encodingMessage.left, seriesWriter, encodingMessage.right.getType());
-            ioTaskQueue.add(seriesWriter);
-            memSerializeTime += System.currentTimeMillis() - starTime;
-          }
+        EncodingTask task = encodingTaskQueue.take();
+        if (task == noMoreEncodingTask) {
+          break;
         }
+        // the exception, if any, is kept in the task and thrown to the io task
+        task.run();
+      }
+    } catch (InterruptedException e) {
+      logger.error("Storage group {} memtable {}, encoding task is interrupted.",
+          storageGroup, memTable.getVersion(), e);
+      Thread.currentThread().interrupt();
+      // generally it is because the thread pool is shutdown so the task should be aborted, and
+      // the io task should not wait for the series that will never be encoded
+      EncodingTask task;
+      while ((task = encodingTaskQueue.poll()) != null) {
+        task.cancel(false);
       }
-      noMoreIOTask = true;
-      logger.debug("Storage group {}, flushing memtable {} into disk: Encoding data cost "
-              + "{} ms.",
-          storageGroup, memTable.getVersion(), memSerializeTime);
     }
   };
 
-  @SuppressWarnings("squid:S135")
   private Runnable ioTask = () -> {
     long ioTime = 0;
-    boolean returnWhenNoTask = false;
     logger.debug("Storage group {} memtable {}, start io.", storageGroup, memTable.getVersion());
-    while (true) {
-      if (noMoreIOTask) {
-        returnWhenNoTask = true;
-      }
-      Object ioMessage = ioTaskQueue.poll();
-      if (ioMessage == null) {
-        if (returnWhenNoTask) {
-          break;
-        }
-        try {
-          TimeUnit.MILLISECONDS.sleep(10);
-        } catch (@SuppressWarnings("squid:S2142") InterruptedException e) {
-          logger.error("Storage group {} memtable {}, io task is interrupted.", storageGroup
-              , memTable.getVersion(), e);
-          // generally it is because the thread pool is shutdown so the task should be aborted
+    try {
+      while (true) {
+        Object ioMessage = ioTaskQueue.take();
+        if (ioMessage == noMoreIOTask) {
           break;
         }
-      } else {
-        long starTime = System.currentTimeMillis();
-        try {
+        if (ioMessage instanceof EncodingTask) {
+          // wait for the series to be encoded, the order of chunks is kept by the queue
+          ChunkWriterImpl chunkWriter = (ChunkWriterImpl) ((EncodingTask) ioMessage).get();
+          long starTime = System.currentTimeMillis();
+          chunkWriter.writeToFileWriter(this.writer);
+          ioTime += System.currentTimeMillis() - starTime;
+        } else {
+          long starTime = System.currentTimeMillis();
           if (ioMessage instanceof StartFlushGroupIOTask) {
             this.writer.startChunkGroup(((StartFlushGroupIOTask) ioMessage).deviceId);
-          } else if (ioMessage instanceof IChunkWriter) {
-            ChunkWriterImpl chunkWriter = (ChunkWriterImpl) ioMessage;
-            chunkWriter.writeToFileWriter(this.writer);
           } else {
             this.writer.endChunkGroup();
           }
-        } catch (IOException e) {
-          logger.error("Storage group {} memtable {}, io task meets error.", storageGroup,
-              memTable.getVersion(), e);
-          throw new FlushRunTimeException(e);
+          ioTime += System.currentTimeMillis() - starTime;
         }
-        ioTime += System.currentTimeMillis() - starTime;
       }
+    } catch (InterruptedException e) {
+      logger.error("Storage group {} memtable {}, io task is interrupted.", storageGroup,
+          memTable.getVersion(), e);
+      Thread.currentThread().interrupt();
+      throw new FlushRunTimeException(e);
+    } catch (IOException | ExecutionException e) {
+      logger.error("Storage group {} memtable {}, io task meets error.", storageGroup,
+          memTable.getVersion(), e);
+      throw new FlushRunTimeException(e);
     }
     logger.debug("flushing a memtable {} in storage group {}, io cost {}ms", memTable.getVersion(),
         storageGroup, ioTime);
   };
 
+  /**
+   * Sort and encode one series, the result is got by the io task in the order of writing. The
+   * rollup of the series, if needed, is built from the sorted series as well.
+   */
+  private class EncodingTask extends FutureTask<IChunkWriter> {
+
+    EncodingTask(String deviceId, IWritableMemChunk series) {
+      super(() -> {
+        long startTime = System.currentTimeMillis();
+        MeasurementSchema desc = series.getSchema();
+        TVList tvList = series.getSortedTVList();
+        long sortEndTime = System.currentTimeMillis();
+        sortTime.addAndGet(sortEndTime - startTime);
+
+        if (rollupBuilder != null) {
+          rollupBuilder.add(deviceId, desc.getMeasurementId(),
+              SeriesRollup.build(tvList, desc.getType(), rollupBuilder.getLevels()));
+        }
+        IChunkWriter seriesWriter = new ChunkWriterImpl(desc);
+        writeOneSeries(tvList, seriesWriter, desc.getType());
+        memSerializeTime.addAndGet(System.currentTimeMillis() - sortEndTime);
+        return seriesWriter;
+      });
+    }
+  }
+
   static class EndChunkGroupIoTask {
 
     EndChunkGroupIoTask() {
@@ -19,8 +19,10 @@
 
 package org.apache.iotdb.db.engine.flush.pool;
 
+import java.util.concurrent.Semaphore;
 import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
 import org.apache.iotdb.db.concurrent.ThreadName;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,7 +31,19 @@ public class FlushSubTaskPoolManager extends AbstractPoolManager {
   private static final Logger LOGGER = LoggerFactory
       .getLogger(FlushSubTaskPoolManager.class);
 
+  /**
+   * the encoding permits shared by the flushes running in the pool, sized by
+   * flush_encoding_thread_num when the pool is created
+   */
+  private volatile Semaphore encodingPermits;
+
   private FlushSubTaskPoolManager() {
+    createPool();
+  }
+
+  private void createPool() {
+    this.encodingPermits = new Semaphore(
+        IoTDBDescriptor.getInstance().getConfig().getFlushEncodingThreadNum());
     this.pool = IoTDBThreadPoolFactory
         .newCachedThreadPool(ThreadName.FLUSH_SUB_TASK_SERVICE.getName());
   }
@@ -38,6 +52,14 @@ public class FlushSubTaskPoolManager extends AbstractPoolManager {
     return FlushSubTaskPoolManager.InstanceHolder.instance;
   }
 
+  /**
+   * @return the encoding permits of the current pool, to which the permits acquired from it must
+   * be released even if the pool has been restarted since
+   */
+  public Semaphore getEncodingPermits() {
+    return encodingPermits;
+  }
+
   @Override
   public Logger getLogger() {
     return LOGGER;
@@ -51,8 +73,7 @@ public class FlushSubTaskPoolManager extends AbstractPoolManager {
   @Override
   public void start() {
     if (pool == null) {
-      this.pool = IoTDBThreadPoolFactory
-          .newCachedThreadPool(ThreadName.FLUSH_SUB_TASK_SERVICE.getName());
+      createPool();
     }
     LOGGER.info("Flush sub task manager started.");
   }
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.rollup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RollupBuilder collects the rollups of the series of one TsFile while it is written, e.g., memtable
+ * by memtable when it is flushed, or file by file when files are compacted. The rollups of the
+ * series may be added concurrently.
+ */
+public class RollupBuilder {
+
+  private final long[] levels;
+  /**
+   * device -> measurement -> rollup
+   */
+  private final Map<String, Map<String, SeriesRollup>> seriesRollups = new HashMap<>();
+  /**
+   * the estimated memory of the rollups, which is not released until they are written
+   */
+  private volatile long ramSize;
+
+  public RollupBuilder(long[] levels) {
+    this.levels = levels;
+  }
+
+  public long[] getLevels() {
+    return levels;
+  }
+
+  /**
+   * Add the rollup of a series, which must not overlap with the added rollups of the series.
+   */
+  public synchronized void add(String deviceId, String measurementId, SeriesRollup rollup) {
+    Map<String, SeriesRollup> measurementRollups = seriesRollups
+        .computeIfAbsent(deviceId, k -> new HashMap<>());
+    SeriesRollup existingRollup = measurementRollups.get(measurementId);
+    if (existingRollup == null) {
+      measurementRollups.put(measurementId, rollup);
+      ramSize += rollup.getRamSize();
+    } else {
+      long oldRamSize = existingRollup.getRamSize();
+      existingRollup.merge(rollup);
+      ramSize += existingRollup.getRamSize() - oldRamSize;
+    }
+  }
+
+  /**
+   * Add all rollups of another builder with the same levels, e.g., of another memtable or file.
+   */
+  public synchronized void addAll(RollupBuilder other) {
+    if (!Arrays.equals(levels, other.levels)) {
+      throw new IllegalArgumentException("Cannot merge rollups of levels "
+          + Arrays.toString(other.levels) + " into " + Arrays.toString(levels));
+    }
+    for (Map.Entry<String, Map<String, SeriesRollup>> deviceEntry : other.seriesRollups
+        .entrySet()) {
+      for (Map.Entry<String, SeriesRollup> measurementEntry : deviceEntry.getValue().entrySet()) {
+        add(deviceEntry.getKey(), measurementEntry.getKey(), measurementEntry.getValue());
+      }
+    }
+  }
+
+  /**
+   * @return the estimated memory of the buckets of all series in bytes
+   */
+  public long getRamSize() {
+    return ramSize;
+  }
+
+  synchronized Map<String, Map<String, SeriesRollup>> getSeriesRollups() {
+    return seriesRollups;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.rollup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.qp.constant.DatetimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * RollupLevels parses rollup_levels, e.g., "1m,1h,1d" for all storage groups or
+ * "root.sg1:1m,1h;root.sg2:1d" for each storage group, into the bucket lengths of each storage
+ * group in the timestamp precision, ascending.
+ */
+public class RollupLevels {
+
+  private static final Logger logger = LoggerFactory.getLogger(RollupLevels.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  private static final Pattern DURATION_PATTERN = Pattern.compile("(\\d+)([a-z]+)");
+  private static final long[] NO_LEVEL = new long[0];
+
+  private static String parsedConfig;
+  private static long[] defaultLevels = NO_LEVEL;
+  private static Map<String, long[]> storageGroupLevels = new HashMap<>();
+
+  private RollupLevels() {
+    // util class
+  }
+
+  /**
+   * @return the rollup levels of the storage group, empty if no rollup is maintained
+   */
+  public static synchronized long[] getLevels(String storageGroup) {
+    String levelsConfig = config.getRollupLevels();
+    if (!levelsConfig.equals(parsedConfig)) {
+      parsedConfig = levelsConfig;
+      defaultLevels = NO_LEVEL;
+      storageGroupLevels = new HashMap<>();
+      try {
+        parse(levelsConfig, config.getTimestampPrecision());
+      } catch (IllegalArgumentException e) {
+        logger.error("Illegal rollup_levels {}, no rollup will be maintained", levelsConfig, e);
+        defaultLevels = NO_LEVEL;
+        storageGroupLevels = new HashMap<>();
+      }
+    }
+    return storageGroupLevels.getOrDefault(storageGroup, defaultLevels);
+  }
+
+  private static void parse(String levelsConfig, String timestampPrecision) {
+    for (String entry : levelsConfig.split(";")) {
+      entry = entry.trim();
+      if (entry.isEmpty()) {
+        continue;
+      }
+      int separatorIndex = entry.indexOf(':');
+      if (separatorIndex < 0) {
+        defaultLevels = parseLevels(entry, timestampPrecision);
+      } else {
+        storageGroupLevels.put(entry.substring(0, separatorIndex).trim(),
+            parseLevels(entry.substring(separatorIndex + 1), timestampPrecision));
+      }
+    }
+  }
+
+  /**
+   * @param levels durations separated by ",", e.g., "1m,1h,1d"
+   * @return the distinct durations in the timestamp precision, ascending
+   */
+  static long[] parseLevels(String levels, String timestampPrecision) {
+    String[] durations = levels.split(",");
+    long[] result = new long[durations.length];
+    for (int i = 0; i < durations.length; i++) {
+      Matcher matcher = DURATION_PATTERN.matcher(durations[i].trim().toLowerCase());
+      if (!matcher.matches()) {
+        throw new IllegalArgumentException("Illegal rollup level " + durations[i]);
+      }
+      result[i] = DatetimeUtils.convertDurationStrToLong(Long.parseLong(matcher.group(1)),
+          matcher.group(2), timestampPrecision);
+      if (result[i] <= 0) {
+        throw new IllegalArgumentException("Illegal rollup level " + durations[i]);
+      }
+    }
+    return Arrays.stream(result).sorted().distinct().toArray();
+  }
+}
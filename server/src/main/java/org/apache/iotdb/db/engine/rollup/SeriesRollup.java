@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.rollup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import org.apache.iotdb.db.utils.datastructure.TVList;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+/**
+ * SeriesRollup is the rollup of one series in one TsFile: for each level, the statistics of the
+ * points in each bucket [k * level, (k + 1) * level), keyed by the start time of the bucket.
+ */
+public class SeriesRollup {
+
+  // the entry of a bucket in the TreeMap, with its key
+  private static final long BUCKET_ENTRY_RAM_SIZE = RamUsageEstimator.alignObjectSize(
+      RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 5L * RamUsageEstimator.NUM_BYTES_OBJECT_REF + 1)
+      + RamUsageEstimator.alignObjectSize(
+      RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + (long) RamUsageEstimator.NUM_BYTES_LONG);
+
+  private final TSDataType dataType;
+  private final long[] levels;
+  private final List<TreeMap<Long, Statistics>> buckets;
+  /**
+   * the estimated memory of the buckets, counted when a bucket is created, as merging into a
+   * bucket hardly changes its size
+   */
+  private long ramSize;
+
+  public SeriesRollup(TSDataType dataType, long[] levels) {
+    this.dataType = dataType;
+    this.levels = levels;
+    this.buckets = new ArrayList<>(levels.length);
+    for (int i = 0; i < levels.length; i++) {
+      buckets.add(new TreeMap<>());
+    }
+  }
+
+  /**
+   * Build the rollup of a sorted TVList, skipping the duplicated timestamps like the flush does.
+   */
+  public static SeriesRollup build(TVList tvList, TSDataType dataType, long[] levels) {
+    SeriesRollup rollup = new SeriesRollup(dataType, levels);
+    for (int level = 0; level < levels.length; level++) {
+      Statistics bucket = null;
+      long bucketEnd = Long.MIN_VALUE;
+      for (int i = 0; i < tvList.size(); i++) {
+        long time = tvList.getTime(i);
+        if (i + 1 < tvList.size() && time == tvList.getTime(i + 1)) {
+          continue;
+        }
+        if (bucket == null || time >= bucketEnd) {
+          if (bucket != null) {
+            rollup.putBucket(level, bucket);
+          }
+          bucket = Statistics.getStatsByType(dataType);
+          bucketEnd = rollup.getBucketStart(level, time) + levels[level];
+        }
+        update(bucket, tvList, i, time, dataType);
+      }
+      if (bucket != null) {
+        rollup.putBucket(level, bucket);
+      }
+    }
+    return rollup;
+  }
+
+  private static void update(Statistics bucket, TVList tvList, int index, long time,
+      TSDataType dataType) {
+    switch (dataType) {
+      case BOOLEAN:
+        bucket.update(time, tvList.getBoolean(index));
+        break;
+      case INT32:
+        bucket.update(time, tvList.getInt(index));
+        break;
+      case INT64:
+        bucket.update(time, tvList.getLong(index));
+        break;
+      case FLOAT:
+        bucket.update(time, tvList.getFloat(index));
+        break;
+      case DOUBLE:
+        bucket.update(time, tvList.getDouble(index));
+        break;
+      case TEXT:
+        bucket.update(time, tvList.getBinary(index));
+        break;
+      default:
+        throw new UnsupportedOperationException("Unsupported data type " + dataType);
+    }
+  }
+
+  long getBucketStart(int level, long time) {
+    return Math.floorDiv(time, levels[level]) * levels[level];
+  }
+
+  /**
+   * Put the statistics of a bucket, merging it with the statistics already in the bucket, which
+   * must not overlap with it.
+   */
+  private void putBucket(int level, Statistics statistics) {
+    Statistics oldStatistics = buckets.get(level)
+        .putIfAbsent(getBucketStart(level, statistics.getStartTime()), statistics);
+    if (oldStatistics == null) {
+      ramSize += BUCKET_ENTRY_RAM_SIZE + statistics.calculateRamSize()
+          + statistics.calculateSketchesRamSize();
+    } else {
+      oldStatistics.mergeStatistics(statistics);
+    }
+  }
+
+  /**
+   * Merge the rollup of the same series and levels whose points do not overlap with this one.
+   */
+  public void merge(SeriesRollup other) {
+    for (int level = 0; level < levels.length; level++) {
+      for (Statistics statistics : other.buckets.get(level).values()) {
+        putBucket(level, statistics);
+      }
+    }
+  }
+
+  public TSDataType getDataType() {
+    return dataType;
+  }
+
+  public long[] getLevels() {
+    return levels;
+  }
+
+  /**
+   * @return the estimated memory of the buckets in bytes
+   */
+  public long getRamSize() {
+    return ramSize;
+  }
+
+  /**
+   * @return the buckets of the level keyed by their start times, ascending
+   */
+  public Collection<Entry<Long, Statistics>> getBuckets(int level) {
+    return buckets.get(level).entrySet();
+  }
+
+  public void serialize(OutputStream outputStream) throws IOException {
+    for (TreeMap<Long, Statistics> levelBuckets : buckets) {
+      ReadWriteIOUtils.write(levelBuckets.size(), outputStream);
+      for (Statistics statistics : levelBuckets.values()) {
+        statistics.serialize(outputStream);
+      }
+    }
+  }
+
+  public static SeriesRollup deserialize(ByteBuffer buffer, TSDataType dataType, long[] levels) {
+    SeriesRollup rollup = new SeriesRollup(dataType, levels);
+    for (int level = 0; level < levels.length; level++) {
+      int bucketNum = ReadWriteIOUtils.readInt(buffer);
+      for (int i = 0; i < bucketNum; i++) {
+        rollup.putBucket(level, Statistics.deserialize(buffer, dataType));
+      }
+    }
+    return rollup;
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.rollup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.cache.AccountableString;
+import org.apache.iotdb.db.engine.cache.LRULinkedHashMap;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
+import org.apache.iotdb.tsfile.fileSystem.fsFactory.FSFactory;
+import org.apache.iotdb.tsfile.read.reader.TsFileInput;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * TsFileRollup reads and writes the rollup file of a sealed TsFile, which is the TsFile path with
+ * the suffix ".rollup". The file consists of the rollups of the series, followed by an index of
+ * the levels and the data type, offset and length of each series, and the offset of the index:
+ * <p>
+ * [series rollup]* [level number, levels, series number, [device, measurement, data type, offset,
+ * length]*] [index offset]
+ * <p>
+ * The indexes are cached, so the rollup of a series is read with one positioned read.
+ */
+public class TsFileRollup {
+
+  private static final Logger logger = LoggerFactory.getLogger(TsFileRollup.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private static final FSFactory fsFactory = FSFactoryProducer.getFSFactory();
+
+  public static final String FILE_SUFFIX = ".rollup";
+  private static final String TEMP_SUFFIX = ".temp";
+
+  // the indexes share a tenth of the memory of the chunk metadata cache
+  private static final LRULinkedHashMap<AccountableString, RollupIndex> indexCache =
+      new LRULinkedHashMap<AccountableString, RollupIndex>(
+          config.getAllocateMemoryForChunkMetaDataCache() / 10) {
+        @Override
+        protected long calEntrySize(AccountableString key, RollupIndex value) {
+          return value.ramSize;
+        }
+      };
+
+  private TsFileRollup() {
+    // util class
+  }
+
+  public static File getRollupFile(File tsFile) {
+    return fsFactory.getFile(tsFile.getPath() + FILE_SUFFIX);
+  }
+
+  /**
+   * Write the rollups of a sealed TsFile. The file is written as a temp file and renamed, so a
+   * rollup file is either complete or absent.
+   */
+  public static void write(File tsFile, RollupBuilder builder) throws IOException {
+    File tempFile = fsFactory.getFile(tsFile.getPath() + FILE_SUFFIX + TEMP_SUFFIX);
+    try (OutputStream outputStream = fsFactory.getBufferedOutputStream(tempFile.getPath())) {
+      PublicBAOS indexBuffer = new PublicBAOS();
+      long[] levels = builder.getLevels();
+      ReadWriteIOUtils.write(levels.length, indexBuffer);
+      for (long level : levels) {
+        ReadWriteIOUtils.write(level, indexBuffer);
+      }
+      Map<String, Map<String, SeriesRollup>> seriesRollups = builder.getSeriesRollups();
+      int seriesNum = 0;
+      for (Map<String, SeriesRollup> measurementRollups : seriesRollups.values()) {
+        seriesNum += measurementRollups.size();
+      }
+      ReadWriteIOUtils.write(seriesNum, indexBuffer);
+
+      long offset = 0;
+      PublicBAOS seriesBuffer = new PublicBAOS();
+      for (Entry<String, Map<String, SeriesRollup>> deviceEntry : seriesRollups.entrySet()) {
+        for (Entry<String, SeriesRollup> measurementEntry : deviceEntry.getValue().entrySet()) {
+          seriesBuffer.reset();
+          measurementEntry.getValue().serialize(seriesBuffer);
+          outputStream.write(seriesBuffer.getBuf(), 0, seriesBuffer.size());
+
+          ReadWriteIOUtils.write(deviceEntry.getKey(), indexBuffer);
+          ReadWriteIOUtils.write(measurementEntry.getKey(), indexBuffer);
+          ReadWriteIOUtils.write(measurementEntry.getValue().getDataType(), indexBuffer);
+          ReadWriteIOUtils.write(offset, indexBuffer);
+          ReadWriteIOUtils.write(seriesBuffer.size(), indexBuffer);
+          offset += seriesBuffer.size();
+        }
+      }
+      outputStream.write(indexBuffer.getBuf(), 0, indexBuffer.size());
+      ReadWriteIOUtils.write(offset, outputStream);
+    }
+    File rollupFile = getRollupFile(tsFile);
+    rollupFile.delete();
+    fsFactory.moveFile(tempFile, rollupFile);
+  }
+
+  /**
+   * Read all rollups of a TsFile, e.g., to merge them when the file is compacted.
+   *
+   * @return null if the TsFile has no rollup
+   */
+  public static RollupBuilder read(File tsFile) throws IOException {
+    File rollupFile = getRollupFile(tsFile);
+    if (!rollupFile.exists()) {
+      return null;
+    }
+    TsFileInput input = FSFactoryProducer.getFileInputFactory()
+        .getTsFileInput(rollupFile.getPath());
+    try {
+      RollupIndex index = readIndex(input);
+      RollupBuilder builder = new RollupBuilder(index.levels);
+      for (Entry<String, SeriesEntry> entry : index.seriesEntries.entrySet()) {
+        SeriesEntry seriesEntry = entry.getValue();
+        builder.add(seriesEntry.deviceId, seriesEntry.measurementId,
+            readSeries(input, index, seriesEntry));
+      }
+      return builder;
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * @return the rollup of the series in the TsFile, or null if the TsFile has no rollup or the
+   * series is not in the TsFile
+   */
+  public static SeriesRollup getSeriesRollup(File tsFile, String deviceId, String measurementId)
+      throws IOException {
+    File rollupFile = getRollupFile(tsFile);
+    AccountableString key = new AccountableString(rollupFile.getPath());
+    RollupIndex index;
+    synchronized (indexCache) {
+      index = indexCache.get(key);
+    }
+    if (index == null && !rollupFile.exists()) {
+      return null;
+    }
+
+    TsFileInput input = FSFactoryProducer.getFileInputFactory()
+        .getTsFileInput(rollupFile.getPath());
+    try {
+      if (index == null) {
+        index = readIndex(input);
+        if (config.isMetaDataCacheEnable()) {
+          synchronized (indexCache) {
+            indexCache.put(key, index);
+          }
+        }
+      }
+      SeriesEntry seriesEntry = index.seriesEntries
+          .get(deviceId + IoTDBConstant.PATH_SEPARATOR + measurementId);
+      return seriesEntry == null ? null : readSeries(input, index, seriesEntry);
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * Remove the rollup file of a TsFile, e.g., when the TsFile is removed or rewritten.
+   */
+  public static void remove(File tsFile) {
+    File rollupFile = getRollupFile(tsFile);
+    synchronized (indexCache) {
+      indexCache.remove(new AccountableString(rollupFile.getPath()));
+    }
+    if (rollupFile.exists() && !rollupFile.delete()) {
+      logger.warn("Cannot delete the rollup file {}", rollupFile);
+    }
+  }
+
+  private static RollupIndex readIndex(TsFileInput input) throws IOException {
+    long fileSize = input.size();
+    ByteBuffer buffer = read(input, fileSize - Long.BYTES, Long.BYTES);
+    long indexOffset = buffer.getLong();
+    buffer = read(input, indexOffset, (int) (fileSize - Long.BYTES - indexOffset));
+
+    RollupIndex index = new RollupIndex();
+    long[] levels = new long[ReadWriteIOUtils.readInt(buffer)];
+    for (int i = 0; i < levels.length; i++) {
+      levels[i] = ReadWriteIOUtils.readLong(buffer);
+    }
+    index.levels = levels;
+    int seriesNum = ReadWriteIOUtils.readInt(buffer);
+    index.seriesEntries = new HashMap<>(seriesNum);
+    index.ramSize = buffer.capacity();
+    for (int i = 0; i < seriesNum; i++) {
+      SeriesEntry seriesEntry = new SeriesEntry();
+      seriesEntry.deviceId = ReadWriteIOUtils.readString(buffer);
+      seriesEntry.measurementId = ReadWriteIOUtils.readString(buffer);
+      seriesEntry.dataType = ReadWriteIOUtils.readDataType(buffer);
+      seriesEntry.offset = ReadWriteIOUtils.readLong(buffer);
+      seriesEntry.length = ReadWriteIOUtils.readInt(buffer);
+      index.seriesEntries.put(
+          seriesEntry.deviceId + IoTDBConstant.PATH_SEPARATOR + seriesEntry.measurementId,
+          seriesEntry);
+      // the entry, the key and the chars of the strings
+      index.ramSize += 128 + 2 * (seriesEntry.deviceId.length() * 2L
+          + seriesEntry.measurementId.length());
+    }
+    return index;
+  }
+
+  private static SeriesRollup readSeries(TsFileInput input, RollupIndex index,
+      SeriesEntry seriesEntry) throws IOException {
+    ByteBuffer buffer = read(input, seriesEntry.offset, seriesEntry.length);
+    return SeriesRollup.deserialize(buffer, seriesEntry.dataType, index.levels);
+  }
+
+  private static ByteBuffer read(TsFileInput input, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (input.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of the rollup file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static class RollupIndex {
+
+    private long[] levels;
+    private Map<String, SeriesEntry> seriesEntries;
+    private long ramSize;
+  }
+
+  private static class SeriesEntry {
+
+    private String deviceId;
+    private String measurementId;
+    private TSDataType dataType;
+    private long offset;
+    private int length;
+  }
+}
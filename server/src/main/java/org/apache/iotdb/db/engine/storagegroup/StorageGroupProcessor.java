@@ -38,15 +38,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.concurrent.HashLock;
 import org.apache.iotdb.db.conf.IoTDBConstant;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.conf.directories.DirectoryManager;
 import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.engine.cache.BloomFilterCache;
 import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
 import org.apache.iotdb.db.engine.flush.TsFileFlushPolicy;
 import org.apache.iotdb.db.engine.merge.manage.MergeManager;
@@ -149,6 +153,20 @@ public class StorageGroupProcessor {
    * partitionLatestFlushedTimeForEachDevice)
    */
   private final ReadWriteLock insertLock = new ReentrantReadWriteLock();
+  /**
+   * when enable_striped_insert_lock is true, an insertion only holds the read lock of insertLock
+   * and the write lock of the stripe of its device, so insertions into different devices can be
+   * applied in parallel. Flushing and closing TsFileProcessors still need the write lock of
+   * insertLock, so they are postponed until the insertion has released its locks. Queries hold
+   * the read lock of the stripe of the queried device.
+   */
+  private final boolean enableStripedInsertLock;
+  private final HashLock deviceInsertLock;
+  /**
+   * serializes the creation of TsFileProcessors among concurrent insertions when
+   * enable_striped_insert_lock is true
+   */
+  private final Object tsFileProcessorCreationLock = new Object();
   /**
    * closeStorageGroupCondition is used to wait for all currently closing TsFiles to be done.
    */
@@ -165,11 +183,13 @@ public class StorageGroupProcessor {
   /**
    * time partition id in the storage group -> tsFileProcessor for this time partition
    */
-  private final TreeMap<Long, TsFileProcessor> workSequenceTsFileProcessors = new TreeMap<>();
+  private final ConcurrentSkipListMap<Long, TsFileProcessor> workSequenceTsFileProcessors =
+      new ConcurrentSkipListMap<>();
   /**
    * time partition id in the storage group -> tsFileProcessor for this time partition
    */
-  private final TreeMap<Long, TsFileProcessor> workUnsequenceTsFileProcessors = new TreeMap<>();
+  private final ConcurrentSkipListMap<Long, TsFileProcessor> workUnsequenceTsFileProcessors =
+      new ConcurrentSkipListMap<>();
 
   // upgrading sequence TsFile resource list
   private List<TsFileResource> upgradeSeqFileList = new LinkedList<>();
@@ -186,7 +206,7 @@ public class StorageGroupProcessor {
    * changes upon timestamps of each device, and is used to update partitionLatestFlushedTimeForEachDevice
    * when a flush is issued.
    */
-  private Map<Long, Map<String, Long>> latestTimeForEachDevice = new HashMap<>();
+  private Map<Long, Map<String, Long>> latestTimeForEachDevice = new ConcurrentHashMap<>();
   /**
    * time partition id -> map, which contains device -> largest timestamp of the latest memtable to
    * be submitted to asyncTryToFlush partitionLatestFlushedTimeForEachDevice determines whether a
@@ -194,7 +214,8 @@ public class StorageGroupProcessor {
    * with timestamp less than or equals to the device's latestFlushedTime should go into an
    * unsequential file.
    */
-  private Map<Long, Map<String, Long>> partitionLatestFlushedTimeForEachDevice = new HashMap<>();
+  private Map<Long, Map<String, Long>> partitionLatestFlushedTimeForEachDevice =
+      new ConcurrentHashMap<>();
 
   /**
    * used to record the latest flush time while upgrading and inserting
@@ -206,6 +227,13 @@ public class StorageGroupProcessor {
    * latestFlushedTime of devices and will be updated along with partitionLatestFlushedTimeForEachDevice
    */
   private Map<String, Long> globalLatestFlushedTimeForEachDevice = new HashMap<>();
+
+  /**
+   * increased after every change to the data no later than the global latest flushed time of its
+   * device, i.e., insertions of such data, deletions, loaded or removed files and TTL changes.
+   * Results computed over the data before the latest flushed time stay valid while it is unchanged.
+   */
+  private final AtomicLong historicalDataVersion = new AtomicLong();
   private String storageGroupName;
   private File storageGroupSysDir;
 
@@ -260,6 +288,10 @@ public class StorageGroupProcessor {
       TsFileFlushPolicy fileFlushPolicy) throws StorageGroupProcessorException {
     this.storageGroupName = storageGroupName;
     this.fileFlushPolicy = fileFlushPolicy;
+    this.enableStripedInsertLock = IoTDBDescriptor.getInstance().getConfig()
+        .isEnableStripedInsertLock();
+    this.deviceInsertLock = enableStripedInsertLock ? new HashLock(
+        IoTDBDescriptor.getInstance().getConfig().getInsertLockStripeNum()) : null;
 
     storageGroupSysDir = SystemFileFactory.INSTANCE.getFile(systemDir, storageGroupName);
     if (storageGroupSysDir.mkdirs()) {
@@ -359,10 +391,10 @@ public class StorageGroupProcessor {
         long endTime = resource.getEndTime(index);
         endTimeMap.put(deviceId, endTime);
       }
-      latestTimeForEachDevice.computeIfAbsent(timePartitionId, l -> new HashMap<>())
+      latestTimeForEachDevice.computeIfAbsent(timePartitionId, l -> new ConcurrentHashMap<>())
           .putAll(endTimeMap);
       partitionLatestFlushedTimeForEachDevice
-          .computeIfAbsent(timePartitionId, id -> new HashMap<>())
+          .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>())
           .putAll(endTimeMap);
       globalLatestFlushedTimeForEachDevice.putAll(endTimeMap);
     }
@@ -391,14 +423,15 @@ public class StorageGroupProcessor {
         int index = entry.getValue();
         long endTime = resource.getEndTime(index);
         long endTimePartitionId = StorageEngine.getTimePartition(endTime);
-        latestTimeForEachDevice.computeIfAbsent(endTimePartitionId, l -> new HashMap<>())
+        latestTimeForEachDevice.computeIfAbsent(endTimePartitionId, l -> new ConcurrentHashMap<>())
             .put(deviceId, endTime);
         globalLatestFlushedTimeForEachDevice.put(deviceId, endTime);
 
         // set all the covered partition's LatestFlushedTime to Long.MAX_VALUE
         long partitionId = StorageEngine.getTimePartition(resource.getStartTime(index));
         while (partitionId <= endTimePartitionId) {
-          partitionLatestFlushedTimeForEachDevice.computeIfAbsent(partitionId, l -> new HashMap<>())
+          partitionLatestFlushedTimeForEachDevice
+              .computeIfAbsent(partitionId, l -> new ConcurrentHashMap<>())
               .put(deviceId, Long.MAX_VALUE);
           if (!timePartitionIdVersionControllerMap.containsKey(partitionId)) {
             File directory = SystemFileFactory.INSTANCE
@@ -621,13 +654,14 @@ public class StorageGroupProcessor {
     if (!isAlive(insertRowPlan.getTime())) {
       throw new OutOfTTLException(insertRowPlan.getTime(), (System.currentTimeMillis() - dataTTL));
     }
-    writeLock();
+    String deviceId = insertRowPlan.getDeviceId().getFullPath();
+    lockForInsert(deviceId);
     try {
       // init map
       long timePartitionId = StorageEngine.getTimePartition(insertRowPlan.getTime());
 
       partitionLatestFlushedTimeForEachDevice
-          .computeIfAbsent(timePartitionId, id -> new HashMap<>());
+          .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>());
 
       boolean isSequence = insertRowPlan.getTime() > partitionLatestFlushedTimeForEachDevice.get(timePartitionId)
           .getOrDefault(insertRowPlan.getDeviceId().getFullPath(), Long.MIN_VALUE);
@@ -637,12 +671,21 @@ public class StorageGroupProcessor {
         return;
       }
 
-      latestTimeForEachDevice.computeIfAbsent(timePartitionId, l -> new HashMap<>());
+      boolean isHistorical = insertRowPlan.getTime() <= globalLatestFlushedTimeForEachDevice
+          .getOrDefault(deviceId, Long.MIN_VALUE);
+
+      latestTimeForEachDevice.computeIfAbsent(timePartitionId, l -> new ConcurrentHashMap<>());
       // insert to sequence or unSequence file
       insertToTsFileProcessor(insertRowPlan, isSequence);
+      if (isHistorical) {
+        historicalDataVersion.incrementAndGet();
+      }
 
     } finally {
-      writeUnlock();
+      unlockForInsert(deviceId);
+      if (enableStripedInsertLock) {
+        flushAndCloseAfterStripedInsert();
+      }
     }
   }
 
@@ -653,7 +696,8 @@ public class StorageGroupProcessor {
    */
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   public void insertTablet(InsertTabletPlan insertTabletPlan) throws BatchInsertionException {
-    writeLock();
+    String deviceId = insertTabletPlan.getDeviceId().getFullPath();
+    lockForInsert(deviceId);
     try {
       TSStatus[] results = new TSStatus[insertTabletPlan.getRowCount()];
       Arrays.fill(results, RpcUtils.SUCCESS_STATUS);
@@ -679,6 +723,9 @@ public class StorageGroupProcessor {
       if (loc == insertTabletPlan.getRowCount()) {
         throw new BatchInsertionException(results);
       }
+      // the rows are sorted, so the first legal row is the earliest
+      boolean isHistorical = insertTabletPlan.getTimes()[loc] <= globalLatestFlushedTimeForEachDevice
+          .getOrDefault(deviceId, Long.MIN_VALUE);
       // before is first start point
       int before = loc;
       // before time partition
@@ -686,7 +733,7 @@ public class StorageGroupProcessor {
           .getTimePartition(insertTabletPlan.getTimes()[before]);
       // init map
       long lastFlushTime = partitionLatestFlushedTimeForEachDevice.
-          computeIfAbsent(beforeTimePartition, id -> new HashMap<>()).
+          computeIfAbsent(beforeTimePartition, id -> new ConcurrentHashMap<>()).
           computeIfAbsent(insertTabletPlan.getDeviceId().getFullPath(), id -> Long.MIN_VALUE);
       // if is sequence
       boolean isSequence = false;
@@ -705,7 +752,7 @@ public class StorageGroupProcessor {
           before = loc;
           beforeTimePartition = curTimePartition;
           lastFlushTime = partitionLatestFlushedTimeForEachDevice.
-              computeIfAbsent(beforeTimePartition, id -> new HashMap<>()).
+              computeIfAbsent(beforeTimePartition, id -> new ConcurrentHashMap<>()).
               computeIfAbsent(insertTabletPlan.getDeviceId().getFullPath(), id -> Long.MIN_VALUE);
           isSequence = false;
         }
@@ -733,6 +780,9 @@ public class StorageGroupProcessor {
               results, beforeTimePartition) && noFailure;
         }
       }
+      if (isHistorical) {
+        historicalDataVersion.incrementAndGet();
+      }
       long globalLatestFlushedTime = globalLatestFlushedTimeForEachDevice.getOrDefault(
           insertTabletPlan.getDeviceId().getFullPath(), Long.MIN_VALUE);
       tryToUpdateBatchInsertLastCache(insertTabletPlan, globalLatestFlushedTime);
@@ -741,10 +791,95 @@ public class StorageGroupProcessor {
         throw new BatchInsertionException(results);
       }
     } finally {
+      unlockForInsert(deviceId);
+      if (enableStripedInsertLock) {
+        flushAndCloseAfterStripedInsert();
+      }
+    }
+  }
+
+  /**
+   * take the locks an insertion into the given device needs, see enableStripedInsertLock
+   */
+  private void lockForInsert(String deviceId) {
+    if (enableStripedInsertLock) {
+      insertLock.readLock().lock();
+      deviceInsertLock.writeLock(deviceId);
+    } else {
+      writeLock();
+    }
+  }
+
+  private void unlockForInsert(String deviceId) {
+    if (enableStripedInsertLock) {
+      deviceInsertLock.writeUnlock(deviceId);
+      insertLock.readLock().unlock();
+    } else {
       writeUnlock();
     }
   }
 
+  /**
+   * With striped insert locks, an insertion cannot flush a memtable or close a TsFileProcessor
+   * because other insertions may be writing into the same processor. So after releasing its locks,
+   * the insertion checks the working processors and, only if necessary, takes the write lock to
+   * close the oldest processors when there are too many active time partitions and to apply the
+   * flush policy.
+   */
+  private void flushAndCloseAfterStripedInsert() {
+    int maxPartitionNum = IoTDBDescriptor.getInstance().getConfig()
+        .getConcurrentWritingTimePartition();
+    if (workSequenceTsFileProcessors.size() <= maxPartitionNum
+        && workUnsequenceTsFileProcessors.size() <= maxPartitionNum
+        && !anyShouldFlush(workSequenceTsFileProcessors.values())
+        && !anyShouldFlush(workUnsequenceTsFileProcessors.values())) {
+      return;
+    }
+    writeLock();
+    try {
+      closeExcessiveTsFileProcessors(workSequenceTsFileProcessors, true, maxPartitionNum);
+      closeExcessiveTsFileProcessors(workUnsequenceTsFileProcessors, false, maxPartitionNum);
+      for (TsFileProcessor tsFileProcessor : new ArrayList<>(
+          workSequenceTsFileProcessors.values())) {
+        if (tsFileProcessor.shouldFlush()) {
+          fileFlushPolicy.apply(this, tsFileProcessor, true);
+        }
+      }
+      for (TsFileProcessor tsFileProcessor : new ArrayList<>(
+          workUnsequenceTsFileProcessors.values())) {
+        if (tsFileProcessor.shouldFlush()) {
+          fileFlushPolicy.apply(this, tsFileProcessor, false);
+        }
+      }
+    } finally {
+      writeUnlock();
+    }
+  }
+
+  private boolean anyShouldFlush(Collection<TsFileProcessor> tsFileProcessors) {
+    for (TsFileProcessor tsFileProcessor : tsFileProcessors) {
+      if (tsFileProcessor.shouldFlush()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * thread-safety should be ensured by caller
+   */
+  private void closeExcessiveTsFileProcessors(
+      ConcurrentSkipListMap<Long, TsFileProcessor> tsFileProcessorMap, boolean sequence,
+      int maxPartitionNum) {
+    while (tsFileProcessorMap.size() > maxPartitionNum) {
+      Map.Entry<Long, TsFileProcessor> processorEntry = tsFileProcessorMap.firstEntry();
+      logger.info(
+          "will close a {} TsFile because too many active partitions ({} > {}) in the storage group {},",
+          sequence, tsFileProcessorMap.size(), maxPartitionNum, storageGroupName);
+      asyncCloseOneTsFileProcessor(sequence, processorEntry.getValue());
+    }
+  }
+
   /**
    * @return whether the given time falls in ttl
    */
@@ -787,7 +922,7 @@ public class StorageGroupProcessor {
       return false;
     }
 
-    latestTimeForEachDevice.computeIfAbsent(timePartitionId, t -> new HashMap<>());
+    latestTimeForEachDevice.computeIfAbsent(timePartitionId, t -> new ConcurrentHashMap<>());
     // try to update the latest time of the device of this tsRecord
     if (sequence && latestTimeForEachDevice.get(timePartitionId)
         .getOrDefault(insertTabletPlan.getDeviceId().getFullPath(), Long.MIN_VALUE)
@@ -797,7 +932,7 @@ public class StorageGroupProcessor {
     }
 
     // check memtable size and may async try to flush the work memtable
-    if (tsFileProcessor.shouldFlush()) {
+    if (!enableStripedInsertLock && tsFileProcessor.shouldFlush()) {
       fileFlushPolicy.apply(this, tsFileProcessor, sequence);
     }
     return true;
@@ -850,7 +985,7 @@ public class StorageGroupProcessor {
     tryToUpdateInsertLastCache(insertRowPlan, globalLatestFlushTime);
 
     // check memtable size and may asyncTryToFlush the work memtable
-    if (tsFileProcessor.shouldFlush()) {
+    if (!enableStripedInsertLock && tsFileProcessor.shouldFlush()) {
       fileFlushPolicy.apply(this, tsFileProcessor, sequence);
     }
   }
@@ -906,9 +1041,13 @@ public class StorageGroupProcessor {
    * @param sequence whether is sequence or not
    */
   private TsFileProcessor getOrCreateTsFileProcessorIntern(long timeRangeId,
-      TreeMap<Long, TsFileProcessor> tsFileProcessorTreeMap,
+      ConcurrentSkipListMap<Long, TsFileProcessor> tsFileProcessorTreeMap,
       boolean sequence)
       throws IOException, DiskSpaceInsufficientException {
+    if (enableStripedInsertLock) {
+      return getOrCreateTsFileProcessorWithStripedLock(timeRangeId, tsFileProcessorTreeMap,
+          sequence);
+    }
 
     TsFileProcessor res;
     // we have to ensure only one thread can change workSequenceTsFileProcessors
@@ -946,6 +1085,35 @@ public class StorageGroupProcessor {
   }
 
 
+  /**
+   * The caller holds the read lock of insertLock, so the processor map cannot be changed by
+   * flushing or closing, but other insertions may be creating processors. Closing the oldest
+   * processor if there are too many active partitions is left to flushAndCloseAfterStripedInsert().
+   */
+  private TsFileProcessor getOrCreateTsFileProcessorWithStripedLock(long timeRangeId,
+      ConcurrentSkipListMap<Long, TsFileProcessor> tsFileProcessorMap, boolean sequence)
+      throws IOException, DiskSpaceInsufficientException {
+    TsFileProcessor res = tsFileProcessorMap.get(timeRangeId);
+    if (res != null) {
+      return res;
+    }
+    synchronized (tsFileProcessorCreationLock) {
+      res = tsFileProcessorMap.get(timeRangeId);
+      if (res == null) {
+        res = createTsFileProcessor(sequence, timeRangeId);
+        // queries only hold the read lock of insertLock too
+        tsFileManagement.writeLock();
+        try {
+          tsFileManagement.add(res.getTsFileResource(), sequence);
+        } finally {
+          tsFileManagement.writeUnlock();
+        }
+        tsFileProcessorMap.put(timeRangeId, res);
+      }
+    }
+    return res;
+  }
+
   private TsFileProcessor createTsFileProcessor(boolean sequence, long timePartitionId)
       throws IOException, DiskSpaceInsufficientException {
     String baseDir;
@@ -1089,6 +1257,7 @@ public class StorageGroupProcessor {
       this.globalLatestFlushedTimeForEachDevice.clear();
       this.latestTimeForEachDevice.clear();
     } finally {
+      historicalDataVersion.incrementAndGet();
       writeUnlock();
     }
   }
@@ -1240,6 +1409,9 @@ public class StorageGroupProcessor {
   public QueryDataSource query(PartialPath deviceId, String measurementId, QueryContext context,
       QueryFileManager filePathsManager, Filter timeFilter) throws QueryProcessException {
     insertLock.readLock().lock();
+    if (enableStripedInsertLock) {
+      deviceInsertLock.readLock(deviceId.getFullPath());
+    }
     mergeLock.readLock().lock();
     tsFileManagement.readLock();
     try {
@@ -1264,6 +1436,9 @@ public class StorageGroupProcessor {
     } finally {
       tsFileManagement.readUnLock();
       mergeLock.readLock().unlock();
+      if (enableStripedInsertLock) {
+        deviceInsertLock.readUnlock(deviceId.getFullPath());
+      }
       insertLock.readLock().unlock();
     }
   }
@@ -1290,6 +1465,7 @@ public class StorageGroupProcessor {
     MeasurementSchema schema = IoTDB.metaManager.getSeriesSchema(deviceId, measurementId);
 
     List<TsFileResource> tsfileResourcesForQuery = new ArrayList<>();
+    String seriesPath = deviceId.getFullPath() + IoTDBConstant.PATH_SEPARATOR + measurementId;
     long timeLowerBound = dataTTL != Long.MAX_VALUE ? System.currentTimeMillis() - dataTTL : Long
         .MIN_VALUE;
     context.setQueryTimeLowerBound(timeLowerBound);
@@ -1301,7 +1477,10 @@ public class StorageGroupProcessor {
       closeQueryLock.readLock().lock();
       try {
         if (tsFileResource.isClosed()) {
-          tsfileResourcesForQuery.add(tsFileResource);
+          // files whose resident bloom filter excludes the series are not opened by the query
+          if (!BloomFilterCache.getInstance().isAbsent(tsFileResource, seriesPath)) {
+            tsfileResourcesForQuery.add(tsFileResource);
+          }
         } else {
           tsFileResource.getUnsealedFileProcessor()
               .query(deviceId.getFullPath(), measurementId, schema.getType(),
@@ -1411,6 +1590,7 @@ public class StorageGroupProcessor {
       }
       throw new IOException(e);
     } finally {
+      historicalDataVersion.incrementAndGet();
       tsFileManagement.writeUnlock();
       mergeLock.writeLock().unlock();
       writeUnlock();
@@ -1525,7 +1705,7 @@ public class StorageGroupProcessor {
 
     for (Entry<String, Long> entry : curPartitionDeviceLatestTime.entrySet()) {
       partitionLatestFlushedTimeForEachDevice
-          .computeIfAbsent(processor.getTimeRangeId(), id -> new HashMap<>())
+          .computeIfAbsent(processor.getTimeRangeId(), id -> new ConcurrentHashMap<>())
           .put(entry.getKey(), entry.getValue());
       updateNewlyFlushedPartitionLatestFlushedTimeForEachDevice(processor.getTimeRangeId(),
           entry.getKey(), entry.getValue());
@@ -1658,7 +1838,7 @@ public class StorageGroupProcessor {
           long endTime = endTimeMap.getValue();
           if (latestFlushTimeForPartition.getOrDefault(device, Long.MIN_VALUE) < endTime) {
             partitionLatestFlushedTimeForEachDevice
-                .computeIfAbsent(timePartitionId, id -> new HashMap<>()).put(device, endTime);
+                .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>()).put(device, endTime);
           }
         }
       }
@@ -1901,6 +2081,7 @@ public class StorageGroupProcessor {
       IoTDBDescriptor.getInstance().getConfig().setReadOnly(true);
       throw new LoadFileException(e);
     } finally {
+      historicalDataVersion.incrementAndGet();
       tsFileManagement.writeUnlock();
       mergeLock.writeLock().unlock();
       writeUnlock();
@@ -1970,6 +2151,7 @@ public class StorageGroupProcessor {
       IoTDBDescriptor.getInstance().getConfig().setReadOnly(true);
       throw new LoadFileException(e);
     } finally {
+      historicalDataVersion.incrementAndGet();
       tsFileManagement.writeUnlock();
       mergeLock.writeLock().unlock();
       writeUnlock();
@@ -2208,7 +2390,7 @@ public class StorageGroupProcessor {
       int index = entry.getValue();
       long endTime = newTsFileResource.getEndTime(index);
       long timePartitionId = StorageEngine.getTimePartition(endTime);
-      if (!latestTimeForEachDevice.computeIfAbsent(timePartitionId, id -> new HashMap<>())
+      if (!latestTimeForEachDevice.computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>())
           .containsKey(device)
           || latestTimeForEachDevice.get(timePartitionId).get(device) < endTime) {
         latestTimeForEachDevice.get(timePartitionId).put(device, endTime);
@@ -2219,7 +2401,7 @@ public class StorageGroupProcessor {
 
       if (latestFlushTimeForPartition.getOrDefault(device, Long.MIN_VALUE) < endTime) {
         partitionLatestFlushedTimeForEachDevice
-            .computeIfAbsent(timePartitionId, id -> new HashMap<>()).put(device, endTime);
+            .computeIfAbsent(timePartitionId, id -> new ConcurrentHashMap<>()).put(device, endTime);
       }
       if (globalLatestFlushedTimeForEachDevice.getOrDefault(device, Long.MIN_VALUE) < endTime) {
         globalLatestFlushedTimeForEachDevice.put(device, endTime);
@@ -2347,6 +2529,7 @@ public class StorageGroupProcessor {
         }
       }
     } finally {
+      historicalDataVersion.incrementAndGet();
       tsFileManagement.writeUnlock();
       mergeLock.writeLock().unlock();
       writeUnlock();
@@ -2407,6 +2590,7 @@ public class StorageGroupProcessor {
         }
       }
     } finally {
+      historicalDataVersion.incrementAndGet();
       tsFileManagement.writeUnlock();
       mergeLock.writeLock().unlock();
       writeUnlock();
@@ -2435,6 +2619,31 @@ public class StorageGroupProcessor {
   public void setDataTTL(long dataTTL) {
     this.dataTTL = dataTTL;
     checkFilesTTL();
+    historicalDataVersion.incrementAndGet();
+  }
+
+  /**
+   * @return the version of the data no later than getHistoricalTime(), which increases whenever
+   * such data changes
+   */
+  public AtomicLong getHistoricalDataVersion() {
+    return historicalDataVersion;
+  }
+
+  /**
+   * Data of the device no later than the returned time only changes along with
+   * getHistoricalDataVersion(). As the data expires with a TTL, there is no such time then.
+   */
+  public long getHistoricalTime(String deviceId) {
+    if (dataTTL != Long.MAX_VALUE) {
+      return Long.MIN_VALUE;
+    }
+    insertLock.readLock().lock();
+    try {
+      return globalLatestFlushedTimeForEachDevice.getOrDefault(deviceId, Long.MIN_VALUE);
+    } finally {
+      insertLock.readLock().unlock();
+    }
   }
 
   public List<TsFileResource> getSequenceFileTreeSet() {
@@ -43,6 +43,9 @@ import org.apache.iotdb.db.engine.modification.Deletion;
 import org.apache.iotdb.db.engine.modification.Modification;
 import org.apache.iotdb.db.engine.modification.ModificationFile;
 import org.apache.iotdb.db.engine.querycontext.ReadOnlyMemChunk;
+import org.apache.iotdb.db.engine.rollup.RollupBuilder;
+import org.apache.iotdb.db.engine.rollup.RollupLevels;
+import org.apache.iotdb.db.engine.rollup.TsFileRollup;
 import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor.CloseTsFileCallBack;
 import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor.UpdateEndTimeCallBack;
 import org.apache.iotdb.db.engine.version.VersionController;
@@ -91,7 +94,7 @@ public class TsFileProcessor {
    * and its flushingMemTables are all flushed, then the flush thread will close this file.)
    */
   private volatile boolean shouldClose;
-  private IMemTable workMemTable;
+  private volatile IMemTable workMemTable;
 
   private final VersionController versionController;
   /**
@@ -105,6 +108,12 @@ public class TsFileProcessor {
   private WriteLogNode logNode;
   private final boolean sequence;
   private long totalMemTableSize;
+  /**
+   * the rollups of the flushed memtables, written when the file is sealed. Only a new sequence file
+   * has rollups, as the rollups of a reopened file cannot cover the data flushed before. Their
+   * memory is bounded by sealing the file, see shouldClose().
+   */
+  private volatile RollupBuilder rollupBuilder;
 
   private static final String FLUSH_QUERY_WRITE_LOCKED = "{}: {} get flushQueryLock write lock";
   private static final String FLUSH_QUERY_WRITE_RELEASE = "{}: {} get flushQueryLock write lock released";
@@ -121,6 +130,10 @@ public class TsFileProcessor {
     this.closeTsFileCallback = closeTsFileCallback;
     this.updateLatestFlushTimeCallback = updateLatestFlushTimeCallback;
     this.sequence = sequence;
+    long[] rollupLevels = RollupLevels.getLevels(storageGroupName);
+    if (sequence && rollupLevels.length > 0) {
+      this.rollupBuilder = new RollupBuilder(rollupLevels);
+    }
     logger.info("create a new tsfile processor {}", tsfile.getAbsolutePath());
     // a file generated by flush has only one historical version, which is itself
     this.tsFileResource
@@ -148,12 +161,8 @@ public class TsFileProcessor {
    */
   public void insert(InsertRowPlan insertRowPlan) throws WriteProcessException {
 
-    if (workMemTable == null) {
-      workMemTable = MemTablePool.getInstance().getAvailableMemTable(this);
-    }
-
     // insert insertRowPlan to the work memtable
-    workMemTable.insert(insertRowPlan);
+    getOrCreateWorkMemTable().insert(insertRowPlan);
 
     if (IoTDBDescriptor.getInstance().getConfig().isEnableWal()) {
       try {
@@ -185,13 +194,11 @@ public class TsFileProcessor {
   public void insertTablet(InsertTabletPlan insertTabletPlan, int start, int end,
       TSStatus[] results) throws WriteProcessException {
 
-    if (workMemTable == null) {
-      workMemTable = MemTablePool.getInstance().getAvailableMemTable(this);
-    }
+    IMemTable memTable = getOrCreateWorkMemTable();
 
     // insert insertRowPlan to the work memtable
     try {
-      workMemTable.insertTablet(insertTabletPlan, start, end);
+      memTable.insertTablet(insertTabletPlan, start, end);
       if (IoTDBDescriptor.getInstance().getConfig().isEnableWal()) {
         insertTabletPlan.setStart(start);
         insertTabletPlan.setEnd(end);
@@ -220,6 +227,24 @@ public class TsFileProcessor {
     }
   }
 
+  /**
+   * Insertions into different devices may arrive concurrently when the storage group uses striped
+   * insert locks, so the lazy creation of the work memtable is guarded.
+   */
+  private IMemTable getOrCreateWorkMemTable() {
+    IMemTable memTable = workMemTable;
+    if (memTable == null) {
+      synchronized (this) {
+        memTable = workMemTable;
+        if (memTable == null) {
+          memTable = MemTablePool.getInstance().getAvailableMemTable(this);
+          workMemTable = memTable;
+        }
+      }
+    }
+    return memTable;
+  }
+
   /**
    * Delete data which belongs to the timeseries `deviceId.measurementId` and the timestamp of which
    * <= 'timestamp' in the deletion. <br/>
@@ -303,8 +328,17 @@ public class TsFileProcessor {
     if (fileSize >= fileSizeThreshold) {
       logger.info("{} fileSize {} >= fileSizeThreshold {}", tsFileResource.getTsFilePath(),
           fileSize, fileSizeThreshold);
+      return true;
+    }
+    RollupBuilder builder = rollupBuilder;
+    long rollupBufferSizeThreshold = IoTDBDescriptor.getInstance().getConfig()
+        .getRollupBufferSizeThreshold();
+    if (builder != null && builder.getRamSize() >= rollupBufferSizeThreshold) {
+      logger.info("{} rollup size {} >= rollupBufferSizeThreshold {}",
+          tsFileResource.getTsFilePath(), builder.getRamSize(), rollupBufferSizeThreshold);
+      return true;
     }
-    return fileSize >= fileSizeThreshold;
+    return false;
   }
 
   void syncClose() {
@@ -553,12 +587,18 @@ public class TsFileProcessor {
       try {
         MemTableFlushTask flushTask;
         writer.mark();
-        flushTask = new MemTableFlushTask(memTableToFlush, writer, storageGroupName);
+        flushTask = new MemTableFlushTask(memTableToFlush, writer, storageGroupName,
+            rollupBuilder != null ? rollupBuilder.getLevels() : new long[0]);
         flushTask.syncFlushMemTable();
+        if (rollupBuilder != null) {
+          rollupBuilder.addAll(flushTask.getRollupBuilder());
+        }
       } catch (Exception e) {
         logger.error("{}: {} meet error when flushing a memtable, change system mode to read-only",
             storageGroupName, tsFileResource.getTsFile().getName(), e);
         IoTDBDescriptor.getInstance().getConfig().setReadOnly(true);
+        // the rollups may not match the data left in the file
+        rollupBuilder = null;
         try {
           logger.error("{}: {} IOTask meets error, truncate the corrupted data", storageGroupName,
               tsFileResource.getTsFile().getName(), e);
@@ -649,6 +689,7 @@ public class TsFileProcessor {
     tsFileResource.serialize();
     writer.endFile();
     tsFileResource.cleanCloseFlag();
+    writeRollups();
 
     // remove this processor from Closing list in StorageGroupProcessor,
     // mark the TsFileResource closed, no need writer anymore
@@ -666,6 +707,23 @@ public class TsFileProcessor {
     writer = null;
   }
 
+  /**
+   * Write the rollups of the sealed file before it is marked closed, as queries only use the
+   * rollups of closed files. A file without rollups is still queried from its chunks.
+   */
+  private void writeRollups() {
+    if (rollupBuilder == null) {
+      return;
+    }
+    try {
+      TsFileRollup.write(tsFileResource.getTsFile(), rollupBuilder);
+    } catch (IOException e) {
+      logger.warn("{}: {} cannot write the rollups", storageGroupName,
+          tsFileResource.getTsFile().getName(), e);
+      TsFileRollup.remove(tsFileResource.getTsFile());
+    }
+    rollupBuilder = null;
+  }
 
   public boolean isManagedByFlushManager() {
     return managedByFlushManager;
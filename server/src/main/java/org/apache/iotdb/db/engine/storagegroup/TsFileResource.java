@@ -39,8 +39,10 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import org.apache.iotdb.db.conf.IoTDBConstant;
 import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.engine.cache.BloomFilterCache;
 import org.apache.iotdb.db.engine.modification.ModificationFile;
 import org.apache.iotdb.db.engine.querycontext.ReadOnlyMemChunk;
+import org.apache.iotdb.db.engine.rollup.TsFileRollup;
 import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor.UpgradeTsFileResourceCallBack;
 import org.apache.iotdb.db.engine.upgrade.UpgradeTask;
 import org.apache.iotdb.db.exception.PartitionViolationException;
@@ -55,6 +57,7 @@ import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
 import org.apache.iotdb.tsfile.fileSystem.fsFactory.FSFactory;
+import org.apache.iotdb.tsfile.utils.BloomFilter;
 import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,13 +78,13 @@ public class TsFileResource {
   /**
    * start times array.
    */
-  protected long[] startTimes;
+  protected volatile long[] startTimes;
 
   /**
    * end times array. The values in this array are Long.MIN_VALUE if it's an unsealed sequence
    * tsfile
    */
-  protected long[] endTimes;
+  protected volatile long[] endTimes;
 
   /**
    * device -> index of start times array and end times array
@@ -128,6 +131,11 @@ public class TsFileResource {
    */
   private TimeseriesMetadata timeSeriesMetadata;
 
+  /**
+   * bloom filter of the closed file kept in memory, managed by BloomFilterCache
+   */
+  private volatile BloomFilter residentBloomFilter;
+
   private FSFactory fsFactory = FSFactoryProducer.getFSFactory();
 
   /**
@@ -331,14 +339,18 @@ public class TsFileResource {
     }
   }
 
-  public void updateStartTime(String device, long time) {
+  /**
+   * The update methods are synchronized because insertions into different devices of an unsealed
+   * file may run concurrently, and a new device may enlarge the time arrays.
+   */
+  public synchronized void updateStartTime(String device, long time) {
     long startTime = getStartTime(device);
     if (time < startTime) {
       putStartTime(device, time);
     }
   }
 
-  public void updateEndTime(String device, long time) {
+  public synchronized void updateEndTime(String device, long time) {
     long endTime = getEndTime(device);
     if (time > endTime) {
       putEndTime(device, time);
@@ -349,7 +361,7 @@ public class TsFileResource {
     return fsFactory.getFile(file + RESOURCE_SUFFIX).exists();
   }
 
-  void forceUpdateEndTime(String device, long time) {
+  synchronized void forceUpdateEndTime(String device, long time) {
     putEndTime(device, time);
   }
 
@@ -420,34 +432,32 @@ public class TsFileResource {
     return endTime != Long.MIN_VALUE ? endTime : defaultTime;
   }
 
-  public void putStartTime(String deviceId, long startTime) {
-    int index;
-    if (containsDevice(deviceId)) {
-      index = deviceToIndex.get(deviceId);
-    } else {
-      index = deviceToIndex.size();
-      deviceToIndex.put(deviceId, index);
-      if (startTimes.length <= index) {
-        startTimes = enLargeArray(startTimes, Long.MAX_VALUE);
-        endTimes = enLargeArray(endTimes, Long.MIN_VALUE);
-      }
-    }
-    startTimes[index] = startTime;
+  public synchronized void putStartTime(String deviceId, long startTime) {
+    startTimes[getOrCreateIndex(deviceId)] = startTime;
   }
 
-  public void putEndTime(String deviceId, long endTime) {
-    int index;
-    if (containsDevice(deviceId)) {
-      index = deviceToIndex.get(deviceId);
-    } else {
-      index = deviceToIndex.size();
-      deviceToIndex.put(deviceId, index);
-      if (endTimes.length <= index) {
-        startTimes = enLargeArray(startTimes, Long.MAX_VALUE);
-        endTimes = enLargeArray(endTimes, Long.MIN_VALUE);
-      }
+  public synchronized void putEndTime(String deviceId, long endTime) {
+    endTimes[getOrCreateIndex(deviceId)] = endTime;
+  }
+
+  /**
+   * The time arrays are enlarged before the index of a new device is published, because
+   * getStartTime() and getEndTime() read them without the lock of this resource.
+   */
+  private int getOrCreateIndex(String deviceId) {
+    Integer index = deviceToIndex.get(deviceId);
+    if (index != null) {
+      return index;
+    }
+    index = deviceToIndex.size();
+    if (startTimes.length <= index) {
+      startTimes = enLargeArray(startTimes, Long.MAX_VALUE);
     }
-    endTimes[index] = endTime;
+    if (endTimes.length <= index) {
+      endTimes = enLargeArray(endTimes, Long.MIN_VALUE);
+    }
+    deviceToIndex.put(deviceId, index);
+    return index;
   }
 
   private long[] enLargeArray(long[] array, long defaultValue) {
@@ -564,12 +574,15 @@ public class TsFileResource {
   }
 
   /**
-   * Remove the data file, its resource file, and its modification file physically.
+   * Remove the data file, its resource file, its modification file and its rollup file
+   * physically.
    */
   public void remove() {
     file.delete();
     fsFactory.getFile(file.getPath() + RESOURCE_SUFFIX).delete();
     fsFactory.getFile(file.getPath() + ModificationFile.FILE_SUFFIX).delete();
+    TsFileRollup.remove(file);
+    BloomFilterCache.getInstance().remove(this);
   }
 
   public void removeResourceFile() {
@@ -581,6 +594,8 @@ public class TsFileResource {
     fsFactory.moveFile(fsFactory.getFile(file.getPath() + RESOURCE_SUFFIX),
         fsFactory.getFile(targetDir, file.getName() + RESOURCE_SUFFIX));
     fsFactory.getFile(file.getPath() + ModificationFile.FILE_SUFFIX).delete();
+    TsFileRollup.remove(file);
+    BloomFilterCache.getInstance().remove(this);
   }
 
   @Override
@@ -605,6 +620,14 @@ public class TsFileResource {
     return Objects.hash(file);
   }
 
+  public BloomFilter getResidentBloomFilter() {
+    return residentBloomFilter;
+  }
+
+  public void setResidentBloomFilter(BloomFilter residentBloomFilter) {
+    this.residentBloomFilter = residentBloomFilter;
+  }
+
   public void setClosed(boolean closed) {
     this.closed = closed;
   }
@@ -820,6 +843,8 @@ public class TsFileResource {
       Files.delete(file.toPath());
       Files.delete(FSFactoryProducer.getFSFactory()
           .getFile(file.toPath() + TsFileResource.RESOURCE_SUFFIX).toPath());
+      TsFileRollup.remove(file);
+      BloomFilterCache.getInstance().remove(this);
     }
   }
 }
@@ -31,6 +31,8 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import org.apache.iotdb.db.engine.merge.manage.MergeManager;
+import org.apache.iotdb.db.engine.rollup.RollupBuilder;
+import org.apache.iotdb.db.engine.rollup.TsFileRollup;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
@@ -229,9 +231,42 @@ public class HotCompactionUtils {
     targetResource.setHistoricalVersions(historicalVersions);
     targetResource.serialize();
     writer.endFile();
+    if (sequence) {
+      mergeRollups(targetResource, tsFileResources, storageGroup);
+    }
     targetResource.close();
   }
 
+  /**
+   * The chunks of the sequence files are copied into the target file as they are, so the rollups
+   * of the target file are the merged rollups of the files. The target file has no rollup if any
+   * file has none.
+   */
+  private static void mergeRollups(TsFileResource targetResource,
+      List<TsFileResource> tsFileResources, String storageGroup) {
+    try {
+      RollupBuilder targetRollups = null;
+      for (TsFileResource tsFileResource : tsFileResources) {
+        RollupBuilder rollups = TsFileRollup.read(tsFileResource.getTsFile());
+        if (rollups == null) {
+          return;
+        }
+        if (targetRollups == null) {
+          targetRollups = rollups;
+        } else {
+          targetRollups.addAll(rollups);
+        }
+      }
+      if (targetRollups != null) {
+        TsFileRollup.write(targetResource.getTsFile(), targetRollups);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      logger.warn("Storage group {}, cannot merge the rollups into {}", storageGroup,
+          targetResource.getTsFile(), e);
+      TsFileRollup.remove(targetResource.getTsFile());
+    }
+  }
+
   private static TsFileSequenceReader buildReaderFromTsFileResource(TsFileResource levelResource,
       Map<String, TsFileSequenceReader> tsFileSequenceReaderMap, String storageGroup) {
     return tsFileSequenceReaderMap.computeIfAbsent(levelResource.getTsFile().getAbsolutePath(),
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.db.metadata.mnode.MNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+
+/**
+ * DeviceSchemaCache maps a device path to a snapshot of its measurement nodes, so that insertions
+ * resolve their schemas without the lock of MManager.
+ *
+ * <p>A snapshot may miss measurements created after it, which only sends the insertion to the slow
+ * path, but it must never contain a deleted or renamed measurement. So each change of a device is
+ * surrounded by beginChange() and endChange(), which invalidate its snapshot before the change, and
+ * a snapshot is only published if no change overlaps the time it is built, like a seqlock. An
+ * insertion checks its snapshot again after locking the device node, as the device may be changed
+ * between the lookup and the lock, while deleting a measurement needs the write lock of the
+ * device node.
+ */
+public class DeviceSchemaCache {
+
+  private final int capacity;
+  private final Map<PartialPath, DeviceSchema> cache = new ConcurrentHashMap<>();
+  // odd when a change is in progress, changes are serialized by the write lock of MManager
+  private final AtomicLong version = new AtomicLong();
+
+  DeviceSchemaCache(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return the snapshot of the device, or null if it is not cached
+   */
+  DeviceSchema get(PartialPath device) {
+    return cache.get(device);
+  }
+
+  /**
+   * @return the version to be passed to put(), read it before reading the device node
+   */
+  long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Cache a snapshot of the children of the device node, the caller should hold the read lock of
+   * the device node and the read lock of MManager, so that the children are not changed while they
+   * are copied.
+   *
+   * @param startVersion the version before the device node is read
+   */
+  void put(PartialPath device, MNode deviceNode, long startVersion) {
+    if ((startVersion & 1) != 0) {
+      return;
+    }
+    Map<String, MNode> children = deviceNode.getChildren();
+    Map<String, MNode> aliasChildren = deviceNode.getAliasChildren();
+    Map<String, MeasurementMNode> measurements = new HashMap<>(
+        (children == null ? 0 : children.size()) + (aliasChildren == null ? 0
+            : aliasChildren.size()));
+    addMeasurements(measurements, children);
+    addMeasurements(measurements, aliasChildren);
+    if (cache.size() >= capacity) {
+      // remove an arbitrary one, the first in the iteration order of the map
+      Iterator<Entry<PartialPath, DeviceSchema>> iterator = cache.entrySet().iterator();
+      if (iterator.hasNext()) {
+        iterator.next().getValue().valid = false;
+        iterator.remove();
+      }
+    }
+    DeviceSchema schema = new DeviceSchema(deviceNode, measurements);
+    cache.put(device, schema);
+    if (version.get() != startVersion) {
+      // a change overlaps, the snapshot may be stale
+      schema.valid = false;
+      cache.remove(device, schema);
+    }
+  }
+
+  private static void addMeasurements(Map<String, MeasurementMNode> measurements,
+      Map<String, MNode> nodes) {
+    if (nodes == null) {
+      return;
+    }
+    for (Entry<String, MNode> entry : nodes.entrySet()) {
+      if (entry.getValue() instanceof MeasurementMNode) {
+        measurements.put(entry.getKey(), (MeasurementMNode) entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Invalidate the snapshot of the device before it is changed, the caller should hold the write
+   * lock of MManager and call endChange() after the change.
+   *
+   * @param device the device to be changed, or null if all devices may be changed
+   */
+  void beginChange(PartialPath device) {
+    version.incrementAndGet();
+    if (device == null) {
+      for (DeviceSchema schema : cache.values()) {
+        schema.valid = false;
+      }
+      cache.clear();
+    } else {
+      DeviceSchema schema = cache.remove(device);
+      if (schema != null) {
+        schema.valid = false;
+      }
+    }
+  }
+
+  void endChange() {
+    version.incrementAndGet();
+  }
+
+  /**
+   * @return whether the snapshot has not been invalidated, the caller should hold the read lock
+   * of the device node so that its measurements cannot be deleted afterwards
+   */
+  boolean isValid(DeviceSchema schema) {
+    return schema.valid;
+  }
+
+  int size() {
+    return cache.size();
+  }
+
+  static class DeviceSchema {
+
+    private final MNode deviceNode;
+    // measurement name or alias -> measurement node
+    private final Map<String, MeasurementMNode> measurements;
+    private volatile boolean valid = true;
+
+    private DeviceSchema(MNode deviceNode, Map<String, MeasurementMNode> measurements) {
+      this.deviceNode = deviceNode;
+      this.measurements = measurements;
+    }
+
+    MNode getDeviceNode() {
+      return deviceNode;
+    }
+
+    MeasurementMNode getMeasurement(String measurement) {
+      return measurements.get(measurement);
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeAliasPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeTagOffsetPlan;
+import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.DeleteStorageGroupPlan;
+import org.apache.iotdb.db.qp.physical.sys.DeleteTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetStorageGroupPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetTTLPlan;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+
+/**
+ * Converts between the plans in the binary metadata log and the lines of the text metadata log
+ * (mlog.txt) of former versions. The text format is still used to migrate old logs and to
+ * transfer schemas to sync receivers.
+ */
+public class MLogTxtConverter {
+
+  private MLogTxtConverter() {
+    // util class
+  }
+
+  /**
+   * @param line a line of mlog.txt, see toLine() for the format
+   * @return the plan of the line, or null if the operation is unknown
+   */
+  public static PhysicalPlan toPlan(String line) throws IllegalPathException {
+    String[] args = line.trim().split(",", -1);
+    switch (args[0]) {
+      case MetadataOperationType.CREATE_TIMESERIES:
+        Map<String, String> props = null;
+        if (!args[5].isEmpty()) {
+          String[] keyValues = args[5].split("&");
+          String[] kv;
+          props = new HashMap<>();
+          for (String keyValue : keyValues) {
+            kv = keyValue.split("=");
+            props.put(kv[0], kv[1]);
+          }
+        }
+
+        String alias = null;
+        if (!args[6].isEmpty()) {
+          alias = args[6];
+        }
+
+        CreateTimeSeriesPlan createPlan = new CreateTimeSeriesPlan(new PartialPath(args[1]),
+            TSDataType.deserialize(Short.parseShort(args[2])),
+            TSEncoding.deserialize(Short.parseShort(args[3])),
+            CompressionType.deserialize(Short.parseShort(args[4])), props, null, null, alias);
+        if (!args[7].isEmpty()) {
+          createPlan.setTagOffset(Long.parseLong(args[7]));
+        }
+        return createPlan;
+      case MetadataOperationType.DELETE_TIMESERIES:
+        List<PartialPath> timeseries = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+          timeseries.add(new PartialPath(args[i]));
+        }
+        return new DeleteTimeSeriesPlan(timeseries);
+      case MetadataOperationType.SET_STORAGE_GROUP:
+        return new SetStorageGroupPlan(new PartialPath(args[1]));
+      case MetadataOperationType.DELETE_STORAGE_GROUP:
+        List<PartialPath> storageGroups = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+          storageGroups.add(new PartialPath(args[i]));
+        }
+        return new DeleteStorageGroupPlan(storageGroups);
+      case MetadataOperationType.SET_TTL:
+        return new SetTTLPlan(new PartialPath(args[1]), Long.parseLong(args[2]));
+      case MetadataOperationType.CHANGE_OFFSET:
+        return new ChangeTagOffsetPlan(new PartialPath(args[1]), Long.parseLong(args[2]));
+      case MetadataOperationType.CHANGE_ALIAS:
+        return new ChangeAliasPlan(new PartialPath(args[1]), args[2]);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Format: "operation type,arguments", e.g., "0,path,data type,encoding,compressor,k1=v1&k2=v2,
+   * alias,tag offset" for creating a timeseries. Arguments which are not set are left empty.
+   *
+   * @return the line of the plan, or null if it is not a schema plan
+   */
+  public static String toLine(PhysicalPlan plan) {
+    StringBuilder builder = new StringBuilder();
+    switch (plan.getOperatorType()) {
+      case CREATE_TIMESERIES:
+        CreateTimeSeriesPlan createPlan = (CreateTimeSeriesPlan) plan;
+        builder.append(MetadataOperationType.CREATE_TIMESERIES).append(',')
+            .append(createPlan.getPath().getFullPath()).append(',')
+            .append(createPlan.getDataType().serialize()).append(',')
+            .append(createPlan.getEncoding().serialize()).append(',')
+            .append(createPlan.getCompressor().serialize()).append(',');
+        if (createPlan.getProps() != null) {
+          boolean first = true;
+          for (Entry<String, String> entry : createPlan.getProps().entrySet()) {
+            if (!first) {
+              builder.append('&');
+            }
+            builder.append(entry.getKey()).append('=').append(entry.getValue());
+            first = false;
+          }
+        }
+        builder.append(',');
+        if (createPlan.getAlias() != null) {
+          builder.append(createPlan.getAlias());
+        }
+        builder.append(',');
+        if (createPlan.getTagOffset() >= 0) {
+          builder.append(createPlan.getTagOffset());
+        }
+        break;
+      case DELETE_TIMESERIES:
+        builder.append(MetadataOperationType.DELETE_TIMESERIES);
+        appendPaths(builder, plan.getPaths());
+        break;
+      case SET_STORAGE_GROUP:
+        builder.append(MetadataOperationType.SET_STORAGE_GROUP).append(',')
+            .append(((SetStorageGroupPlan) plan).getPath().getFullPath());
+        break;
+      case DELETE_STORAGE_GROUP:
+        builder.append(MetadataOperationType.DELETE_STORAGE_GROUP);
+        appendPaths(builder, plan.getPaths());
+        break;
+      case TTL:
+        SetTTLPlan ttlPlan = (SetTTLPlan) plan;
+        builder.append(MetadataOperationType.SET_TTL).append(',')
+            .append(ttlPlan.getStorageGroup().getFullPath()).append(',')
+            .append(ttlPlan.getDataTTL());
+        break;
+      case CHANGE_TAG_OFFSET:
+        ChangeTagOffsetPlan offsetPlan = (ChangeTagOffsetPlan) plan;
+        builder.append(MetadataOperationType.CHANGE_OFFSET).append(',')
+            .append(offsetPlan.getPath().getFullPath()).append(',')
+            .append(offsetPlan.getOffset());
+        break;
+      case CHANGE_ALIAS:
+        ChangeAliasPlan aliasPlan = (ChangeAliasPlan) plan;
+        builder.append(MetadataOperationType.CHANGE_ALIAS).append(',')
+            .append(aliasPlan.getPath().getFullPath()).append(',')
+            .append(aliasPlan.getAlias());
+        break;
+      default:
+        return null;
+    }
+    return builder.toString();
+  }
+
+  private static void appendPaths(StringBuilder builder, List<PartialPath> paths) {
+    for (PartialPath path : paths) {
+      builder.append(',').append(path.getFullPath());
+    }
+  }
+}
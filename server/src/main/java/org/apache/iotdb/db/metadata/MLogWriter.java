@@ -7,7 +7,7 @@
  * "License"); you may not use this file except in compliance
  * with the License.  You may obtain a copy of the License at
  *
- *      http://www.apache.org/licenses/LICENSE-2.0
+ *     http://www.apache.org/licenses/LICENSE-2.0
  *
  * Unless required by applicable law or agreed to in writing,
  * software distributed under the License is distributed on an
@@ -24,20 +24,41 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
-import java.util.Map;
+import java.util.Collections;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeAliasPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeTagOffsetPlan;
 import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.DeleteStorageGroupPlan;
+import org.apache.iotdb.db.qp.physical.sys.DeleteTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetStorageGroupPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetTTLPlan;
+import org.apache.iotdb.db.writelog.io.LogWriter;
 import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * MLogWriter appends the schema plans to the metadata log. Each plan is serialized into a record
+ * of [length, plan, CRC32] like the WAL, so a torn or corrupted tail is detected on replay. Unless
+ * sync_mlog_period_in_ms is 0, the records are forced to the disk by the periodic force().
+ */
 public class MLogWriter {
 
   private static final Logger logger = LoggerFactory.getLogger(MLogWriter.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
   private File logFile;
-  private BufferedWriter writer;
-  private int lineNumber;
+  private LogWriter logWriter;
+  private ByteBuffer logBuffer;
+  private int logNum;
 
   public MLogWriter(String schemaDir, String logFileName) throws IOException {
     File metadataDir = SystemFileFactory.INSTANCE.getFile(schemaDir);
@@ -50,72 +71,61 @@ public class MLogWriter {
     }
 
     logFile = SystemFileFactory.INSTANCE.getFile(schemaDir + File.separator + logFileName);
-    FileWriter fileWriter = new FileWriter(logFile, true);
-    writer = new BufferedWriter(fileWriter);
+    openLogWriter();
+    logBuffer = ByteBuffer.allocate(config.getMlogBufferSize());
   }
 
-  public void close() throws IOException {
-    writer.close();
+  public synchronized void close() throws IOException {
+    logWriter.force();
+    logWriter.close();
   }
 
-  public void createTimeseries(CreateTimeSeriesPlan plan, long offset) throws IOException {
-    writer.write(String.format("%s,%s,%s,%s,%s", MetadataOperationType.CREATE_TIMESERIES,
-        plan.getPath().getFullPath(), plan.getDataType().serialize(),
-        plan.getEncoding().serialize(), plan.getCompressor().serialize()));
-
-    writer.write(",");
-    if (plan.getProps() != null) {
-      boolean first = true;
-      for (Map.Entry<String, String> entry : plan.getProps().entrySet()) {
-        if (first) {
-          writer.write(String.format("%s=%s", entry.getKey(), entry.getValue()));
-          first = false;
-        } else {
-          writer.write(String.format("&%s=%s", entry.getKey(), entry.getValue()));
-        }
-      }
-    }
+  public synchronized void force() throws IOException {
+    logWriter.force();
+  }
 
-    writer.write(",");
-    if (plan.getAlias() != null) {
-      writer.write(plan.getAlias());
+  private synchronized void putLog(PhysicalPlan plan) throws IOException {
+    logBuffer.clear();
+    try {
+      plan.serialize(logBuffer);
+    } catch (BufferOverflowException e) {
+      throw new IOException(
+          "Log cannot fit into the buffer, please increase mlog_buffer_size", e);
     }
+    logWriter.write(logBuffer);
+    logNum++;
+  }
 
-    writer.write(",");
-    if (offset >= 0) {
-      writer.write(String.valueOf(offset));
-    }
-    newLine();
+  public void createTimeseries(CreateTimeSeriesPlan plan, long offset) throws IOException {
+    // tags and attributes are kept in the tag file, only their offset is logged
+    CreateTimeSeriesPlan logPlan = new CreateTimeSeriesPlan(plan.getPath(), plan.getDataType(),
+        plan.getEncoding(), plan.getCompressor(), plan.getProps(), null, null, plan.getAlias());
+    logPlan.setTagOffset(offset);
+    putLog(logPlan);
   }
 
-  public void deleteTimeseries(String path) throws IOException {
-    writer.write(MetadataOperationType.DELETE_TIMESERIES + "," + path);
-    newLine();
+  public void deleteTimeseries(PartialPath path) throws IOException {
+    putLog(new DeleteTimeSeriesPlan(Collections.singletonList(path)));
   }
 
-  public void setStorageGroup(String storageGroup) throws IOException {
-    writer.write(MetadataOperationType.SET_STORAGE_GROUP + "," + storageGroup);
-    newLine();
+  public void setStorageGroup(PartialPath storageGroup) throws IOException {
+    putLog(new SetStorageGroupPlan(storageGroup));
   }
 
-  public void deleteStorageGroup(String storageGroup) throws IOException {
-    writer.write(MetadataOperationType.DELETE_STORAGE_GROUP + "," + storageGroup);
-    newLine();
+  public void deleteStorageGroup(PartialPath storageGroup) throws IOException {
+    putLog(new DeleteStorageGroupPlan(Collections.singletonList(storageGroup)));
   }
 
-  public void setTTL(String storageGroup, long ttl) throws IOException {
-    writer.write(String.format("%s,%s,%s", MetadataOperationType.SET_TTL, storageGroup, ttl));
-    newLine();
+  public void setTTL(PartialPath storageGroup, long ttl) throws IOException {
+    putLog(new SetTTLPlan(storageGroup, ttl));
   }
 
-  public void changeOffset(String path, long offset) throws IOException {
-    writer.write(String.format("%s,%s,%s", MetadataOperationType.CHANGE_OFFSET, path, offset));
-    newLine();
+  public void changeOffset(PartialPath path, long offset) throws IOException {
+    putLog(new ChangeTagOffsetPlan(path, offset));
   }
 
-  public void changeAlias(String path, String alias) throws IOException {
-    writer.write(String.format("%s,%s,%s", MetadataOperationType.CHANGE_ALIAS, path, alias));
-    newLine();
+  public void changeAlias(PartialPath path, String alias) throws IOException {
+    putLog(new ChangeAliasPlan(path, alias));
   }
 
   public static void upgradeMLog(String schemaDir, String logFileName) throws IOException {
@@ -154,28 +164,72 @@ public class MLogWriter {
     }
   }
 
-  public void clear() throws IOException {
-    writer.close();
+  /**
+   * Convert the text metadata log of former versions into the binary one. The text log is removed
+   * only after the binary log is completely written and forced, so an interrupted migration is
+   * simply redone on the next start.
+   */
+  public static void migrateTxtLog(String schemaDir) throws IOException {
+    File txtLogFile = SystemFileFactory.INSTANCE
+        .getFile(schemaDir + File.separator + MetadataConstant.METADATA_TXT_LOG);
+    if (!txtLogFile.exists()) {
+      return;
+    }
+    File logFile = SystemFileFactory.INSTANCE
+        .getFile(schemaDir + File.separator + MetadataConstant.METADATA_LOG);
+    if (logFile.exists()) {
+      // the migration has finished before
+      Files.delete(txtLogFile.toPath());
+      return;
+    }
+
+    File tmpLogFile = SystemFileFactory.INSTANCE.getFile(logFile.getAbsolutePath() + ".tmp");
+    Files.deleteIfExists(tmpLogFile.toPath());
+    logger.info("Migrating {} to {}", txtLogFile, logFile);
+    MLogWriter writer = new MLogWriter(schemaDir, tmpLogFile.getName());
+    try (BufferedReader reader = new BufferedReader(new FileReader(txtLogFile))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        PhysicalPlan plan = MLogTxtConverter.toPlan(line);
+        if (plan == null) {
+          logger.error("Unrecognizable command {} in {}", line, txtLogFile);
+          continue;
+        }
+        writer.putLog(plan);
+      }
+    } catch (IllegalPathException e) {
+      throw new IOException(e);
+    } finally {
+      writer.close();
+    }
+    FSFactoryProducer.getFSFactory().moveFile(tmpLogFile, logFile);
+    Files.delete(txtLogFile.toPath());
+    logger.info("{} schema plans are migrated to {}", writer.getLogNum(), logFile);
+  }
+
+  public synchronized void clear() throws IOException {
+    logWriter.close();
     Files.delete(logFile.toPath());
-    FileWriter fileWriter = new FileWriter(logFile, true);
-    writer = new BufferedWriter(fileWriter);
-    lineNumber = 0;
+    openLogWriter();
+    logNum = 0;
   }
 
-  private void newLine() throws IOException {
-    writer.newLine();
-    writer.flush();
-    ++lineNumber;
+  private void openLogWriter() throws IOException {
+    // an empty log must exist once a snapshot is taken, see MManager.initFromLog()
+    if (!logFile.exists() && !logFile.createNewFile()) {
+      throw new IOException("Cannot create " + logFile);
+    }
+    logWriter = new LogWriter(logFile, config.getSyncMlogPeriodInMs() == 0);
   }
 
-  int getLineNumber() {
-    return lineNumber;
+  int getLogNum() {
+    return logNum;
   }
 
   /**
    * only used for initialize a mlog file writer.
    */
-  void setLineNumber(int number) {
-    lineNumber = number;
+  void setLogNum(int number) {
+    logNum = number;
   }
 }
@@ -20,9 +20,7 @@ package org.apache.iotdb.db.metadata;
 
 import static java.util.stream.Collectors.toList;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayDeque;
@@ -33,15 +31,20 @@ import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.conf.adapter.ActiveTimeSeriesCounter;
@@ -56,15 +59,23 @@ import org.apache.iotdb.db.exception.metadata.PathAlreadyExistException;
 import org.apache.iotdb.db.exception.metadata.PathNotExistException;
 import org.apache.iotdb.db.exception.metadata.StorageGroupAlreadySetException;
 import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
+import org.apache.iotdb.db.metadata.DeviceSchemaCache.DeviceSchema;
 import org.apache.iotdb.db.metadata.mnode.MNode;
 import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementPager;
 import org.apache.iotdb.db.metadata.mnode.StorageGroupMNode;
+import org.apache.iotdb.db.metadata.tag.TagInvertedIndex;
 import org.apache.iotdb.db.monitor.MonitorConstants;
 import org.apache.iotdb.db.qp.constant.SQLConstant;
 import org.apache.iotdb.db.qp.physical.crud.InsertPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeAliasPlan;
+import org.apache.iotdb.db.qp.physical.sys.ChangeTagOffsetPlan;
 import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetStorageGroupPlan;
+import org.apache.iotdb.db.qp.physical.sys.SetTTLPlan;
 import org.apache.iotdb.db.qp.physical.sys.ShowTimeSeriesPlan;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.dataset.ShowTimeSeriesResult;
@@ -72,6 +83,7 @@ import org.apache.iotdb.db.utils.RandomDeleteCache;
 import org.apache.iotdb.db.utils.SchemaUtils;
 import org.apache.iotdb.db.utils.TestOnly;
 import org.apache.iotdb.db.utils.TypeInferenceUtils;
+import org.apache.iotdb.db.writelog.io.SingleFileLogReader;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.exception.cache.CacheException;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
@@ -100,6 +112,11 @@ public class MManager {
    */
   private static final long MTREE_SNAPSHOT_THREAD_CHECK_TIME = 600L;
 
+  /**
+   * At most so many timeseries creations are buffered before they are replayed in parallel.
+   */
+  private static final int REPLAY_BATCH_SIZE = 50_000;
+
   // the lock for read/insert
   private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
   // the log file seriesPath
@@ -112,9 +129,12 @@ public class MManager {
   private boolean isRecovering;
   // device -> DeviceMNode
   private RandomDeleteCache<PartialPath, MNode> mNodeCache;
+  // device -> its measurement nodes, read by insertions without the lock
+  private DeviceSchemaCache deviceSchemaCache;
 
   // tag key -> tag value -> LeafMNode
-  private Map<String, Map<String, Set<MeasurementMNode>>> tagIndex = new HashMap<>();
+  // tag key -> tag value -> series with the tag
+  private TagInvertedIndex tagIndex;
 
   // storage group name -> the series number
   private Map<String, Integer> seriesNumberInStorageGroups = new HashMap<>();
@@ -126,6 +146,9 @@ public class MManager {
   private final int mtreeSnapshotInterval;
   private final long mtreeSnapshotThresholdTime;
   private ScheduledExecutorService timedCreateMTreeSnapshotThread;
+  private ScheduledExecutorService timedForceMLogThread;
+  // whether the tail of the log is broken, which is truncated by a snapshot after recovery
+  private boolean logCorrupted;
 
   private static class MManagerHolder {
 
@@ -152,6 +175,7 @@ public class MManager {
     logFilePath = schemaDir + File.separator + MetadataConstant.METADATA_LOG;
     mtreeSnapshotPath = schemaDir + File.separator + MetadataConstant.MTREE_SNAPSHOT;
     mtreeSnapshotTmpPath = schemaDir + File.separator + MetadataConstant.MTREE_SNAPSHOT_TMP;
+    tagIndex = new TagInvertedIndex(schemaDir);
 
     // do not write log when recover
     isRecovering = true;
@@ -172,6 +196,8 @@ public class MManager {
       }
     };
 
+    deviceSchemaCache = new DeviceSchemaCache(cacheSize);
+
     int remoteCacheSize = config.getmRemoteSchemaCacheSize();
 
     timedCreateMTreeSnapshotThread = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r,
@@ -198,9 +224,14 @@ public class MManager {
 
     try {
       tagLogFile = new TagLogFile(config.getSchemaDir(), MetadataConstant.TAG_LOG);
+      boolean tagIndexPersisted = tagIndex.recover();
+      MLogWriter.migrateTxtLog(config.getSchemaDir());
+      // the page file is rebuilt from the recovered MTree
+      MeasurementPager.getInstance().clear();
 
       isRecovering = true;
-      int lineNumber = initFromLog(logFile);
+      int logNum = initFromLog(logFile);
+      recoverTagIndex(tagIndexPersisted);
 
       if (config.isEnableParameterAdapter()) {
         List<PartialPath> storageGroups = mtree.getAllStorageGroupPaths();
@@ -213,8 +244,19 @@ public class MManager {
       }
 
       logWriter = new MLogWriter(config.getSchemaDir(), MetadataConstant.METADATA_LOG);
-      logWriter.setLineNumber(lineNumber);
+      logWriter.setLogNum(logNum);
       isRecovering = false;
+      if (logCorrupted) {
+        // drop the broken tail so that new logs are not appended after it
+        createMTreeSnapshot();
+      }
+      if (config.getSyncMlogPeriodInMs() > 0) {
+        timedForceMLogThread = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r,
+            "timedForceMLogThread"));
+        timedForceMLogThread.scheduleAtFixedRate(this::forceMlog,
+            config.getSyncMlogPeriodInMs(), config.getSyncMlogPeriodInMs(),
+            TimeUnit.MILLISECONDS);
+      }
     } catch (IOException | MetadataException e) {
       mtree = new MTree();
       logger.error("Cannot read MTree from file, using an empty new one", e);
@@ -223,7 +265,40 @@ public class MManager {
   }
 
   /**
-   * @return line number of the logFile
+   * Register the series with tags in the recovered tag index, or rebuild the index from the tag
+   * file if it is not persisted, e.g., when the schema is written by an older version.
+   */
+  private void recoverTagIndex(boolean persisted) throws IOException, MetadataException {
+    long time = System.currentTimeMillis();
+    TagInvertedIndex.Rebuilder rebuilder = persisted ? null : tagIndex.rebuild();
+    Deque<MNode> nodeDeque = new ArrayDeque<>();
+    nodeDeque.addLast(mtree.getNodeByPath(new PartialPath(MetadataConstant.ROOT)));
+    while (!nodeDeque.isEmpty()) {
+      MNode node = nodeDeque.removeFirst();
+      if (node instanceof MeasurementMNode) {
+        MeasurementMNode leafMNode = (MeasurementMNode) node;
+        if (leafMNode.getOffset() < 0) {
+          continue;
+        }
+        if (rebuilder == null) {
+          tagIndex.register(leafMNode);
+        } else {
+          rebuilder.add(leafMNode,
+              tagLogFile.readTag(config.getTagAttributeTotalSize(), leafMNode.getOffset()));
+        }
+      } else if (!node.getChildren().isEmpty()) {
+        nodeDeque.addAll(node.getChildren().values());
+      }
+    }
+    if (rebuilder != null) {
+      rebuilder.finish();
+      logger.info("Rebuild the tag index from {}, spend {} ms", MetadataConstant.TAG_LOG,
+          System.currentTimeMillis() - time);
+    }
+  }
+
+  /**
+   * @return number of the logs in the logFile
    */
   @SuppressWarnings("squid:S3776")
   private int initFromLog(File logFile) throws IOException {
@@ -247,28 +322,153 @@ public class MManager {
     // init the metadata from the operation log
     if (logFile.exists()) {
       int idx = 0;
-      try (FileReader fr = new FileReader(logFile);
-          BufferedReader br = new BufferedReader(fr)) {
-        String cmd;
-        while ((cmd = br.readLine()) != null) {
+      ExecutorService replayPool = config.getMlogReplayThreadNum() > 1
+          ? IoTDBThreadPoolFactory.newFixedThreadPool(config.getMlogReplayThreadNum(),
+          "MLogReplay") : null;
+      SingleFileLogReader reader = new SingleFileLogReader(logFile);
+      try {
+        // storage group -> consecutive timeseries creations in it
+        Map<PartialPath, List<CreateTimeSeriesPlan>> creations = new LinkedHashMap<>();
+        int creationNum = 0;
+        while (reader.hasNext()) {
+          PhysicalPlan plan = reader.next();
+          idx++;
+          if (plan instanceof CreateTimeSeriesPlan) {
+            PartialPath storageGroup = getStorageGroupForReplay(plan);
+            if (storageGroup != null) {
+              creations.computeIfAbsent(storageGroup, sg -> new ArrayList<>())
+                  .add((CreateTimeSeriesPlan) plan);
+              if (++creationNum >= REPLAY_BATCH_SIZE) {
+                replayCreations(creations, replayPool);
+                creationNum = 0;
+              }
+              continue;
+            }
+          }
+          // other plans may change the storage groups, so the creations before them must be done
+          replayCreations(creations, replayPool);
+          creationNum = 0;
           try {
-            operation(cmd);
-            idx++;
+            operation(plan);
           } catch (Exception e) {
-            logger.error("Can not operate cmd {}", cmd, e);
+            logger.error("Can not operate plan {}", plan, e);
           }
         }
+        replayCreations(creations, replayPool);
+      } finally {
+        reader.close();
+        if (replayPool != null) {
+          replayPool.shutdownNow();
+        }
       }
-      logger.debug("spend {} ms to deserialize mtree from mlog.txt",
-          System.currentTimeMillis() - time);
+      logCorrupted = reader.isFileCorrupted();
+      logger.debug("spend {} ms to deserialize mtree from {}",
+          System.currentTimeMillis() - time, MetadataConstant.METADATA_LOG);
       return idx;
     } else if (mtreeSnapshot.exists()) {
-      throw new IOException("mtree snapshot file exists but mlog.txt does not exist.");
+      throw new IOException(String.format("mtree snapshot file exists but %s does not exist.",
+          MetadataConstant.METADATA_LOG));
     } else {
       return 0;
     }
   }
 
+  /**
+   * @return the storage group of the created timeseries, or null if it is not set, in which case
+   * the plan is replayed by operation() in order
+   */
+  private PartialPath getStorageGroupForReplay(PhysicalPlan plan) {
+    try {
+      return mtree.getStorageGroupPath(((CreateTimeSeriesPlan) plan).getPath());
+    } catch (StorageGroupNotSetException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Replay the timeseries creations grouped by storage groups. The MTree below different storage
+   * groups is disjoint, so each group is replayed by one thread without locking.
+   */
+  private void replayCreations(Map<PartialPath, List<CreateTimeSeriesPlan>> creations,
+      ExecutorService replayPool) throws IOException {
+    if (creations.isEmpty()) {
+      return;
+    }
+    int total = 0;
+    for (List<CreateTimeSeriesPlan> plans : creations.values()) {
+      total += plans.size();
+    }
+    try {
+      IoTDBConfigDynamicAdapter.getInstance().addOrDeleteTimeSeries(total);
+    } catch (ConfigAdjusterException e) {
+      // let each creation check the memory by itself
+      for (List<CreateTimeSeriesPlan> plans : creations.values()) {
+        for (CreateTimeSeriesPlan plan : plans) {
+          try {
+            operation(plan);
+          } catch (Exception ex) {
+            logger.error("Can not operate plan {}", plan, ex);
+          }
+        }
+      }
+      creations.clear();
+      return;
+    }
+
+    int failed = 0;
+    if (replayPool == null || creations.size() == 1) {
+      for (List<CreateTimeSeriesPlan> plans : creations.values()) {
+        failed += recoverTimeseries(plans);
+      }
+    } else {
+      List<Future<Integer>> futures = new ArrayList<>(creations.size());
+      for (List<CreateTimeSeriesPlan> plans : creations.values()) {
+        futures.add(replayPool.submit(() -> recoverTimeseries(plans)));
+      }
+      for (Future<Integer> future : futures) {
+        try {
+          failed += future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        } catch (ExecutionException e) {
+          throw new IOException(e.getCause());
+        }
+      }
+    }
+    creations.clear();
+    if (failed > 0) {
+      try {
+        IoTDBConfigDynamicAdapter.getInstance().addOrDeleteTimeSeries(-failed);
+      } catch (ConfigAdjusterException e) {
+        logger.error("Cannot release the memory of {} timeseries", failed, e);
+      }
+    }
+  }
+
+  /**
+   * Create the timeseries in one storage group without locking, only used in recovery.
+   *
+   * @return the number of timeseries which cannot be created
+   */
+  private int recoverTimeseries(List<CreateTimeSeriesPlan> plans) {
+    int failed = 0;
+    for (CreateTimeSeriesPlan plan : plans) {
+      try {
+        SchemaUtils.checkDataTypeWithEncoding(plan.getDataType(), plan.getEncoding());
+        MeasurementMNode leafMNode = mtree
+            .createTimeseries(plan.getPath(), plan.getDataType(), plan.getEncoding(),
+                plan.getCompressor(), plan.getProps(), plan.getAlias());
+        // the tags are indexed by recoverTagIndex() after the whole log is replayed
+        leafMNode.setOffset(plan.getTagOffset());
+      } catch (Exception e) {
+        failed++;
+        logger.error("Can not operate plan {}", plan, e);
+      }
+    }
+    return failed;
+  }
+
   /**
    * function for clearing MTree
    */
@@ -276,7 +476,10 @@ public class MManager {
     lock.writeLock().lock();
     try {
       this.mtree = new MTree();
+      MeasurementPager.getInstance().clear();
       this.mNodeCache.clear();
+      this.deviceSchemaCache.beginChange(null);
+      this.deviceSchemaCache.endChange();
       this.tagIndex.clear();
       this.seriesNumberInStorageGroups.clear();
       this.maxSeriesNumberAmongStorageGroup = 0;
@@ -293,6 +496,10 @@ public class MManager {
         timedCreateMTreeSnapshotThread.shutdownNow();
         timedCreateMTreeSnapshotThread = null;
       }
+      if (timedForceMLogThread != null) {
+        timedForceMLogThread.shutdownNow();
+        timedForceMLogThread = null;
+      }
     } catch (IOException e) {
       logger.error("Cannot close metadata log writer, because:", e);
     } finally {
@@ -301,66 +508,53 @@ public class MManager {
   }
 
   public void operation(String cmd) throws IOException, MetadataException {
-    // see createTimeseries() to get the detailed format of the cmd
-    String[] args = cmd.trim().split(",", -1);
-    switch (args[0]) {
-      case MetadataOperationType.CREATE_TIMESERIES:
-        Map<String, String> props = null;
-        if (!args[5].isEmpty()) {
-          String[] keyValues = args[5].split("&");
-          String[] kv;
-          props = new HashMap<>();
-          for (String keyValue : keyValues) {
-            kv = keyValue.split("=");
-            props.put(kv[0], kv[1]);
-          }
-        }
+    // see MLogTxtConverter.toLine() to get the detailed format of the cmd
+    PhysicalPlan plan = MLogTxtConverter.toPlan(cmd);
+    if (plan == null) {
+      logger.error("Unrecognizable command {}", cmd);
+      return;
+    }
+    operation(plan);
+  }
 
-        String alias = null;
-        if (!args[6].isEmpty()) {
-          alias = args[6];
+  public void operation(PhysicalPlan plan) throws IOException, MetadataException {
+    switch (plan.getOperatorType()) {
+      case CREATE_TIMESERIES:
+        CreateTimeSeriesPlan createPlan = (CreateTimeSeriesPlan) plan;
+        long offset = createPlan.getTagOffset();
+        if (offset >= 0) {
+          createPlan.setTags(tagLogFile.readTag(config.getTagAttributeTotalSize(), offset));
         }
-        long offset = -1L;
-        Map<String, String> tagMap = null;
-        if (!args[7].isEmpty()) {
-          offset = Long.parseLong(args[7]);
-          tagMap = tagLogFile.readTag(config.getTagAttributeTotalSize(), offset);
-        }
-
-        CreateTimeSeriesPlan plan = new CreateTimeSeriesPlan(new PartialPath(args[1]),
-            TSDataType.deserialize(Short.parseShort(args[2])),
-            TSEncoding.deserialize(Short.parseShort(args[3])),
-            CompressionType.deserialize(Short.parseShort(args[4])), props, tagMap, null, alias);
-
-        createTimeseries(plan, offset);
+        createTimeseries(createPlan, offset);
         break;
-      case MetadataOperationType.DELETE_TIMESERIES:
-        String failedTimeseries = deleteTimeseries(new PartialPath(args[1]));
-        if (!failedTimeseries.isEmpty()) {
-          throw new DeleteFailedException(failedTimeseries);
+      case DELETE_TIMESERIES:
+        for (PartialPath path : plan.getPaths()) {
+          String failedTimeseries = deleteTimeseries(path);
+          if (!failedTimeseries.isEmpty()) {
+            throw new DeleteFailedException(failedTimeseries);
+          }
         }
         break;
-      case MetadataOperationType.SET_STORAGE_GROUP:
-        setStorageGroup(new PartialPath(args[1]));
+      case SET_STORAGE_GROUP:
+        setStorageGroup(((SetStorageGroupPlan) plan).getPath());
         break;
-      case MetadataOperationType.DELETE_STORAGE_GROUP:
-        List<PartialPath> storageGroups = new ArrayList<>();
-        for (int i = 1; i <= args.length; i++) {
-          storageGroups.add(new PartialPath(args[i]));
-        }
-        deleteStorageGroups(storageGroups);
+      case DELETE_STORAGE_GROUP:
+        deleteStorageGroups(plan.getPaths());
         break;
-      case MetadataOperationType.SET_TTL:
-        setTTL(new PartialPath(args[1]), Long.parseLong(args[2]));
+      case TTL:
+        SetTTLPlan ttlPlan = (SetTTLPlan) plan;
+        setTTL(ttlPlan.getStorageGroup(), ttlPlan.getDataTTL());
         break;
-      case MetadataOperationType.CHANGE_OFFSET:
-        changeOffset(new PartialPath(args[1]), Long.parseLong(args[2]));
+      case CHANGE_TAG_OFFSET:
+        ChangeTagOffsetPlan offsetPlan = (ChangeTagOffsetPlan) plan;
+        changeOffset(offsetPlan.getPath(), offsetPlan.getOffset());
         break;
-      case MetadataOperationType.CHANGE_ALIAS:
-        changeAlias(new PartialPath(args[1]), args[2]);
+      case CHANGE_ALIAS:
+        ChangeAliasPlan aliasPlan = (ChangeAliasPlan) plan;
+        changeAlias(aliasPlan.getPath(), aliasPlan.getAlias());
         break;
       default:
-        logger.error("Unrecognizable command {}", cmd);
+        logger.error("Unrecognizable plan {}", plan);
     }
   }
 
@@ -397,15 +591,6 @@ public class MManager {
           .createTimeseries(path, plan.getDataType(), plan.getEncoding(), plan.getCompressor(),
               plan.getProps(), plan.getAlias());
 
-      // update tag index
-      if (plan.getTags() != null) {
-        // tag key, tag value
-        for (Entry<String, String> entry : plan.getTags().entrySet()) {
-          tagIndex.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
-              .computeIfAbsent(entry.getValue(), v -> new HashSet<>()).add(leafMNode);
-        }
-      }
-
       // update statistics
       if (config.isEnableParameterAdapter()) {
         int size = seriesNumberInStorageGroups.get(storageGroupPath.getFullPath());
@@ -421,6 +606,14 @@ public class MManager {
         if ((plan.getTags() != null && !plan.getTags().isEmpty())
             || (plan.getAttributes() != null && !plan.getAttributes().isEmpty())) {
           offset = tagLogFile.write(plan.getTags(), plan.getAttributes());
+          leafMNode.setOffset(offset);
+          // update tag index before the creation is logged, so that a series in the log is never
+          // missing in the index
+          if (plan.getTags() != null) {
+            for (Entry<String, String> entry : plan.getTags().entrySet()) {
+              tagIndex.add(entry.getKey(), entry.getValue(), leafMNode);
+            }
+          }
         }
         logWriter.createTimeseries(plan, offset);
       }
@@ -485,7 +678,7 @@ public class MManager {
             if (emptyStorageGroup != null) {
               StorageEngine.getInstance().deleteAllDataFilesInOneStorageGroup(emptyStorageGroup);
             }
-            logWriter.deleteTimeseries(p.getFullPath());
+            logWriter.deleteTimeseries(p);
           }
         } catch (DeleteFailedException e) {
           failedNames.add(e.getName());
@@ -502,41 +695,41 @@ public class MManager {
   /**
    * remove the node from the tag inverted index
    */
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   private void removeFromTagInvertedIndex(MeasurementMNode node) throws IOException {
-    if (node.getOffset() < 0) {
+    // when recovering, the removal is replayed from the log of the index
+    if (node.getOffset() < 0 || isRecovering) {
       return;
     }
     Map<String, String> tagMap =
         tagLogFile.readTag(config.getTagAttributeTotalSize(), node.getOffset());
     if (tagMap != null) {
       for (Entry<String, String> entry : tagMap.entrySet()) {
-        if (tagIndex.containsKey(entry.getKey()) && tagIndex.get(entry.getKey())
-            .containsKey(entry.getValue())) {
-          if (logger.isDebugEnabled()) {
-            logger.debug(String.format(
-                "Delete: TimeSeries %s is removed from tag inverted index, "
-                    + "tag key is %s, tag value is %s, tlog offset is %d",
-                node.getFullPath(), entry.getKey(), entry.getValue(), node.getOffset()));
-          }
-          tagIndex.get(entry.getKey()).get(entry.getValue()).remove(node);
-          if (tagIndex.get(entry.getKey()).get(entry.getValue()).isEmpty()) {
-            tagIndex.get(entry.getKey()).remove(entry.getValue());
-            if (tagIndex.get(entry.getKey()).isEmpty()) {
-              tagIndex.remove(entry.getKey());
-            }
-          }
-        } else {
-          if (logger.isDebugEnabled()) {
-            logger.debug(String.format(
-                "Delete: TimeSeries %s's tag info has been removed from tag inverted index before "
-                    + "deleting it, tag key is %s, tag value is %s, tlog offset is %d, contains key %b",
-                node.getFullPath(), entry.getKey(), entry.getValue(), node.getOffset(),
-                tagIndex.containsKey(entry.getKey())));
-          }
-        }
+        removeFromTagInvertedIndex("Delete", node, entry.getKey(), entry.getValue());
       }
     }
+    tagIndex.unregister(node);
+  }
+
+  /**
+   * remove one tag of the node from the tag inverted index
+   *
+   * @param operation the operation which removes the tag, used in the logs
+   */
+  private void removeFromTagInvertedIndex(String operation, MeasurementMNode node, String key,
+      String value) throws IOException {
+    if (tagIndex.remove(key, value, node)) {
+      if (logger.isDebugEnabled()) {
+        logger.debug(String.format(
+            "%s: TimeSeries %s is removed from tag inverted index, "
+                + "tag key is %s, tag value is %s, tlog offset is %d",
+            operation, node.getFullPath(), key, value, node.getOffset()));
+      }
+    } else if (logger.isDebugEnabled()) {
+      logger.debug(String.format(
+          "%s: TimeSeries %s's tag info has been removed from tag inverted index before "
+              + "deleting it, tag key is %s, tag value is %s, tlog offset is %d",
+          operation, node.getFullPath(), key, value, node.getOffset()));
+    }
   }
 
   /**
@@ -546,6 +739,7 @@ public class MManager {
   private PartialPath deleteOneTimeseriesAndUpdateStatistics(PartialPath path)
       throws MetadataException, IOException {
     lock.writeLock().lock();
+    deviceSchemaCache.beginChange(path.getDevicePath());
     try {
       Pair<PartialPath, MeasurementMNode> pair = mtree
           .deleteTimeseriesAndReturnEmptyStorageGroup(path);
@@ -571,6 +765,7 @@ public class MManager {
       }
       return storageGroupPath;
     } finally {
+      deviceSchemaCache.endChange();
       lock.writeLock().unlock();
     }
   }
@@ -591,7 +786,7 @@ public class MManager {
         seriesNumberInStorageGroups.put(storageGroup.getFullPath(), 0);
       }
       if (!isRecovering) {
-        logWriter.setStorageGroup(storageGroup.getFullPath());
+        logWriter.setStorageGroup(storageGroup);
       }
     } catch (IOException e) {
       throw new MetadataException(e.getMessage());
@@ -610,6 +805,7 @@ public class MManager {
    */
   public void deleteStorageGroups(List<PartialPath> storageGroups) throws MetadataException {
     lock.writeLock().lock();
+    deviceSchemaCache.beginChange(null);
     try {
       for (PartialPath storageGroup : storageGroups) {
 
@@ -635,7 +831,7 @@ public class MManager {
         }
         // if success
         if (!isRecovering) {
-          logWriter.deleteStorageGroup(storageGroup.getFullPath());
+          logWriter.deleteStorageGroup(storageGroup);
         }
       }
     } catch (ConfigAdjusterException e) {
@@ -643,6 +839,7 @@ public class MManager {
     } catch (IOException e) {
       throw new MetadataException(e.getMessage());
     } finally {
+      deviceSchemaCache.endChange();
       lock.writeLock().unlock();
     }
   }
@@ -829,6 +1026,22 @@ public class MManager {
     }
   }
 
+  /**
+   * Similar to method getAllTimeseriesPathWithAlias(), but return at most limit paths after
+   * skipping offset ones, and the MTree traversal stops when the limit is reached.
+   *
+   * @param limit the max number of paths, 0 means no limit
+   */
+  public List<PartialPath> getAllTimeseriesPathWithAlias(PartialPath prefixPath, int limit,
+      int offset) throws MetadataException {
+    lock.readLock().lock();
+    try {
+      return mtree.getAllTimeseriesPathWithAlias(prefixPath, limit, offset);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
   /**
    * To calculate the count of timeseries for given prefix path.
    */
@@ -885,30 +1098,7 @@ public class MManager {
       QueryContext context) throws MetadataException {
     lock.readLock().lock();
     try {
-      if (!tagIndex.containsKey(plan.getKey())) {
-        throw new MetadataException("The key " + plan.getKey() + " is not a tag.");
-      }
-      Map<String, Set<MeasurementMNode>> value2Node = tagIndex.get(plan.getKey());
-      if (value2Node.isEmpty()) {
-        throw new MetadataException("The key " + plan.getKey() + " is not a tag.");
-      }
-
-      List<MeasurementMNode> allMatchedNodes = new ArrayList<>();
-      if (plan.isContains()) {
-        for (Entry<String, Set<MeasurementMNode>> entry : value2Node.entrySet()) {
-          String tagValue = entry.getKey();
-          if (tagValue.contains(plan.getValue())) {
-            allMatchedNodes.addAll(entry.getValue());
-          }
-        }
-      } else {
-        for (Entry<String, Set<MeasurementMNode>> entry : value2Node.entrySet()) {
-          String tagValue = entry.getKey();
-          if (plan.getValue().equals(tagValue)) {
-            allMatchedNodes.addAll(entry.getValue());
-          }
-        }
-      }
+      List<MeasurementMNode> allMatchedNodes = tagIndex.getMatchedNodes(plan.getTagFilter());
 
       // if ordered by heat, we sort all the timeseries by the descending order of the last insert timestamp
       if (plan.isOrderByHeat()) {
@@ -977,7 +1167,7 @@ public class MManager {
   public List<ShowTimeSeriesResult> showTimeseries(ShowTimeSeriesPlan plan, QueryContext context)
       throws MetadataException {
     // show timeseries with index
-    if (plan.getKey() != null && plan.getValue() != null) {
+    if (plan.getTagFilter() != null) {
       return showTimeseriesWithIndex(plan, context);
     } else {
       return showTimeseriesWithoutIndex(plan, context);
@@ -1240,7 +1430,7 @@ public class MManager {
     try {
       getStorageGroupNodeByStorageGroupPath(storageGroup).setDataTTL(dataTTL);
       if (!isRecovering) {
-        logWriter.setTTL(storageGroup.getFullPath(), dataTTL);
+        logWriter.setTTL(storageGroup, dataTTL);
       }
     } finally {
       lock.writeLock().unlock();
@@ -1286,11 +1476,16 @@ public class MManager {
     lock.writeLock().lock();
     try {
       MeasurementMNode leafMNode = (MeasurementMNode) mtree.getNodeByPath(path);
-      if (leafMNode.getAlias() != null) {
-        leafMNode.getParent().deleteAliasChild(leafMNode.getAlias());
+      deviceSchemaCache.beginChange(path.getDevicePath());
+      try {
+        if (leafMNode.getAlias() != null) {
+          leafMNode.getParent().deleteAliasChild(leafMNode.getAlias());
+        }
+        leafMNode.getParent().addAlias(alias, leafMNode);
+        leafMNode.setAlias(alias);
+      } finally {
+        deviceSchemaCache.endChange();
       }
-      leafMNode.getParent().addAlias(alias, leafMNode);
-      leafMNode.setAlias(alias);
     } finally {
       lock.writeLock().unlock();
     }
@@ -1322,13 +1517,18 @@ public class MManager {
         if (leafMNode.getParent().hasChild(alias)) {
           throw new MetadataException("The alias already exists.");
         }
-        if (leafMNode.getAlias() != null) {
-          leafMNode.getParent().deleteAliasChild(leafMNode.getAlias());
+        deviceSchemaCache.beginChange(fullPath.getDevicePath());
+        try {
+          if (leafMNode.getAlias() != null) {
+            leafMNode.getParent().deleteAliasChild(leafMNode.getAlias());
+          }
+          leafMNode.getParent().addAlias(alias, leafMNode);
+          leafMNode.setAlias(alias);
+        } finally {
+          deviceSchemaCache.endChange();
         }
-        leafMNode.getParent().addAlias(alias, leafMNode);
-        leafMNode.setAlias(alias);
         // persist to WAL
-        logWriter.changeAlias(fullPath.getFullPath(), alias);
+        logWriter.changeAlias(fullPath, alias);
       }
 
       if (tagsMap == null && attributesMap == null) {
@@ -1337,15 +1537,14 @@ public class MManager {
       // no tag or attribute, we need to add a new record in log
       if (leafMNode.getOffset() < 0) {
         long offset = tagLogFile.write(tagsMap, attributesMap);
-        logWriter.changeOffset(fullPath.getFullPath(), offset);
         leafMNode.setOffset(offset);
         // update inverted Index map
         if (tagsMap != null) {
           for (Entry<String, String> entry : tagsMap.entrySet()) {
-            tagIndex.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
-                .computeIfAbsent(entry.getValue(), v -> new HashSet<>()).add(leafMNode);
+            tagIndex.add(entry.getKey(), entry.getValue(), leafMNode);
           }
         }
+        logWriter.changeOffset(fullPath, offset);
         return;
       }
 
@@ -1361,35 +1560,13 @@ public class MManager {
           // if the key has existed and the value is not equal to the new one
           // we should remove before key-value from inverted index map
           if (beforeValue != null && !beforeValue.equals(value)) {
-
-            if (tagIndex.containsKey(key) && tagIndex.get(key).containsKey(beforeValue)) {
-              if (logger.isDebugEnabled()) {
-                logger.debug(String.format(
-                    "Upsert: TimeSeries %s is removed from tag inverted index, "
-                        + "tag key is %s, tag value is %s, tlog offset is %d",
-                    leafMNode.getFullPath(), key, beforeValue, leafMNode.getOffset()));
-              }
-
-              tagIndex.get(key).get(beforeValue).remove(leafMNode);
-              if (tagIndex.get(key).get(beforeValue).isEmpty()) {
-                tagIndex.get(key).remove(beforeValue);
-              }
-            } else {
-              if (logger.isDebugEnabled()) {
-                logger.debug(String.format(
-                    "Upsert: TimeSeries %s's tag info has been removed from tag inverted index "
-                        + "before deleting it, tag key is %s, tag value is %s, tlog offset is %d, contains key %b",
-                    leafMNode.getFullPath(), key, beforeValue, leafMNode.getOffset(),
-                    tagIndex.containsKey(key)));
-              }
-            }
+            removeFromTagInvertedIndex("Upsert", leafMNode, key, beforeValue);
           }
 
           // if the key doesn't exist or the value is not equal to the new one
           // we should add a new key-value to inverted index map
           if (beforeValue == null || !beforeValue.equals(value)) {
-            tagIndex.computeIfAbsent(key, k -> new HashMap<>())
-                .computeIfAbsent(value, v -> new HashSet<>()).add(leafMNode);
+            tagIndex.add(key, value, leafMNode);
           }
         }
       }
@@ -1422,7 +1599,7 @@ public class MManager {
       // no tag or attribute, we need to add a new record in log
       if (leafMNode.getOffset() < 0) {
         long offset = tagLogFile.write(Collections.emptyMap(), attributesMap);
-        logWriter.changeOffset(fullPath.getFullPath(), offset);
+        logWriter.changeOffset(fullPath, offset);
         leafMNode.setOffset(offset);
         return;
       }
@@ -1465,13 +1642,12 @@ public class MManager {
       // no tag or attribute, we need to add a new record in log
       if (leafMNode.getOffset() < 0) {
         long offset = tagLogFile.write(tagsMap, Collections.emptyMap());
-        logWriter.changeOffset(fullPath.getFullPath(), offset);
         leafMNode.setOffset(offset);
         // update inverted Index map
         for (Entry<String, String> entry : tagsMap.entrySet()) {
-          tagIndex.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
-              .computeIfAbsent(entry.getValue(), v -> new HashSet<>()).add(leafMNode);
+          tagIndex.add(entry.getKey(), entry.getValue(), leafMNode);
         }
+        logWriter.changeOffset(fullPath, offset);
         return;
       }
 
@@ -1492,8 +1668,9 @@ public class MManager {
       tagLogFile.write(pair.left, pair.right, leafMNode.getOffset());
 
       // update tag inverted map
-      tagsMap.forEach((key, value) -> tagIndex.computeIfAbsent(key, k -> new HashMap<>())
-          .computeIfAbsent(value, v -> new HashSet<>()).add(leafMNode));
+      for (Entry<String, String> entry : tagsMap.entrySet()) {
+        tagIndex.add(entry.getKey(), entry.getValue(), leafMNode);
+      }
 
     } finally {
       lock.writeLock().unlock();
@@ -1538,34 +1715,8 @@ public class MManager {
       tagLogFile.write(pair.left, pair.right, leafMNode.getOffset());
 
       for (Entry<String, String> entry : deleteTag.entrySet()) {
-        String key = entry.getKey();
-        String value = entry.getValue();
         // change the tag inverted index map
-        if (tagIndex.containsKey(key) && tagIndex.get(key).containsKey(value)) {
-          if (logger.isDebugEnabled()) {
-            logger.debug(String.format(
-                "Drop: TimeSeries %s is removed from tag inverted index, "
-                    + "tag key is %s, tag value is %s, tlog offset is %d",
-                leafMNode.getFullPath(), entry.getKey(), entry.getValue(), leafMNode.getOffset()));
-          }
-
-          tagIndex.get(key).get(value).remove(leafMNode);
-          if (tagIndex.get(key).get(value).isEmpty()) {
-            tagIndex.get(key).remove(value);
-            if (tagIndex.get(key).isEmpty()) {
-              tagIndex.remove(key);
-            }
-          }
-        } else {
-          if (logger.isDebugEnabled()) {
-            logger.debug(String.format(
-                "Drop: TimeSeries %s's tag info has been removed from tag inverted index "
-                    + "before deleting it, tag key is %s, tag value is %s, tlog offset is %d, contains key %b",
-                leafMNode.getFullPath(), key, value, leafMNode.getOffset(),
-                tagIndex.containsKey(key)));
-          }
-        }
-
+        removeFromTagInvertedIndex("Drop", leafMNode, entry.getKey(), entry.getValue());
       }
     } finally {
       lock.writeLock().unlock();
@@ -1624,27 +1775,8 @@ public class MManager {
         String beforeValue = entry.getValue();
         String currentValue = newTagValue.get(key);
         // change the tag inverted index map
-        if (tagIndex.containsKey(key) && tagIndex.get(key).containsKey(beforeValue)) {
-
-          if (logger.isDebugEnabled()) {
-            logger.debug(String.format(
-                "Set: TimeSeries %s is removed from tag inverted index, "
-                    + "tag key is %s, tag value is %s, tlog offset is %d",
-                leafMNode.getFullPath(), entry.getKey(), beforeValue, leafMNode.getOffset()));
-          }
-
-          tagIndex.get(key).get(beforeValue).remove(leafMNode);
-        } else {
-          if (logger.isDebugEnabled()) {
-            logger.debug(String.format(
-                "Set: TimeSeries %s's tag info has been removed from tag inverted index "
-                    + "before deleting it, tag key is %s, tag value is %s, tlog offset is %d, contains key %b",
-                leafMNode.getFullPath(), key, beforeValue, leafMNode.getOffset(),
-                tagIndex.containsKey(key)));
-          }
-        }
-        tagIndex.computeIfAbsent(key, k -> new HashMap<>())
-            .computeIfAbsent(currentValue, k -> new HashSet<>()).add(leafMNode);
+        removeFromTagInvertedIndex("Set", leafMNode, key, beforeValue);
+        tagIndex.add(key, currentValue, leafMNode);
       }
     } finally {
       lock.writeLock().unlock();
@@ -1690,28 +1822,8 @@ public class MManager {
         // persist the change to disk
         tagLogFile.write(pair.left, pair.right, leafMNode.getOffset());
         // change the tag inverted index map
-        if (tagIndex.containsKey(oldKey) && tagIndex.get(oldKey).containsKey(value)) {
-
-          if (logger.isDebugEnabled()) {
-            logger.debug(String.format(
-                "Rename: TimeSeries %s is removed from tag inverted index, "
-                    + "tag key is %s, tag value is %s, tlog offset is %d",
-                leafMNode.getFullPath(), oldKey, value, leafMNode.getOffset()));
-          }
-
-          tagIndex.get(oldKey).get(value).remove(leafMNode);
-
-        } else {
-          if (logger.isDebugEnabled()) {
-            logger.debug(String.format(
-                "Rename: TimeSeries %s's tag info has been removed from tag inverted index "
-                    + "before deleting it, tag key is %s, tag value is %s, tlog offset is %d, contains key %b",
-                leafMNode.getFullPath(), oldKey, value, leafMNode.getOffset(),
-                tagIndex.containsKey(oldKey)));
-          }
-        }
-        tagIndex.computeIfAbsent(newKey, k -> new HashMap<>())
-            .computeIfAbsent(value, k -> new HashSet<>()).add(leafMNode);
+        removeFromTagInvertedIndex("Rename", leafMNode, oldKey, value);
+        tagIndex.add(newKey, value, leafMNode);
       } else if (pair.right.containsKey(oldKey)) {
         // check attribute map
         pair.right.put(newKey, pair.right.remove(oldKey));
@@ -1876,6 +1988,19 @@ public class MManager {
     return null;
   }
 
+  private void forceMlog() {
+    MLogWriter writer = logWriter;
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.force();
+      tagIndex.force();
+    } catch (IOException e) {
+      logger.error("Cannot force {} to the disk", logFilePath, e);
+    }
+  }
+
   private void checkMTreeModified() {
     if (logWriter == null || logFile == null) {
       // the logWriter is not initialized now, we skip the check once.
@@ -1886,14 +2011,14 @@ public class MManager {
         logger.debug("MTree snapshot need not be created. Time from last modification: {} ms.",
             System.currentTimeMillis() - logFile.lastModified());
       }
-    } else if (logWriter.getLineNumber() < mtreeSnapshotInterval) {
+    } else if (logWriter.getLogNum() < mtreeSnapshotInterval) {
       if (logger.isDebugEnabled()) {
-        logger.debug("MTree snapshot need not be created. New mlog line number: {}.",
-            logWriter.getLineNumber());
+        logger.debug("MTree snapshot need not be created. New mlog log number: {}.",
+            logWriter.getLogNum());
       }
     } else {
-      logger.info("New mlog line number: {}, time from last modification: {} ms",
-          logWriter.getLineNumber(), System.currentTimeMillis() - logFile.lastModified());
+      logger.info("New mlog log number: {}, time from last modification: {} ms",
+          logWriter.getLogNum(), System.currentTimeMillis() - logFile.lastModified());
       createMTreeSnapshot();
     }
   }
@@ -1913,6 +2038,9 @@ public class MManager {
         logger.info("Finish creating MTree snapshot to {}, spend {} ms.", mtreeSnapshotPath,
             System.currentTimeMillis() - time);
       }
+      // the tag index is persisted before the logs are cleared, so the series in the MTree
+      // snapshot are in its snapshot too
+      tagIndex.snapshot();
       logWriter.clear();
     } catch (IOException e) {
       logger.warn("Failed to create MTree snapshot to {}", mtreeSnapshotPath, e);
@@ -1934,6 +2062,12 @@ public class MManager {
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   public MNode getSeriesSchemasAndReadLockDevice(InsertPlan plan)
       throws MetadataException {
+    // 0. try the cached schemas of the device
+    MNode deviceMNode = getSeriesSchemasFromCacheAndReadLockDevice(plan);
+    if (deviceMNode != null) {
+      return deviceMNode;
+    }
+    long cacheVersion = deviceSchemaCache.getVersion();
 
     PartialPath deviceId = plan.getDeviceId();
     String[] measurementList = plan.getMeasurements();
@@ -1941,74 +2075,143 @@ public class MManager {
 
 
     // 1. get device node
-    MNode deviceMNode = getDeviceNodeWithAutoCreateAndReadLock(deviceId);
+    deviceMNode = getDeviceNodeWithAutoCreateAndReadLock(deviceId);
 
+    try {
+      boolean seriesCreated = false;
+      // 2. get schema of each measurement
+      for (int i = 0; i < measurementList.length; i++) {
+        try {
+          // if do not has measurement
+          if (!deviceMNode.hasChild(measurementList[i])) {
+            // could not create it
+            if (!config.isAutoCreateSchemaEnabled()) {
+              throw new MetadataException(String.format(
+                  "Current deviceId[%s] does not contain measurement:%s", deviceId,
+                  measurementList[i]));
+            }
 
-    // 2. get schema of each measurement
-    for (int i = 0; i < measurementList.length; i++) {
-      try {
-        // if do not has measurement
-        if (!deviceMNode.hasChild(measurementList[i])) {
-          // could not create it
-          if (!config.isAutoCreateSchemaEnabled()) {
-            throw new MetadataException(String.format(
-                "Current deviceId[%s] does not contain measurement:%s", deviceId,
-                measurementList[i]));
+            TSDataType dataType = getTypeInLoc(plan, i);
+            // create it, may concurrent created by multiple thread
+            internalCreateTimeseries(deviceId.concatNode(measurementList[i]), dataType);
+            seriesCreated = true;
           }
 
-          TSDataType dataType = getTypeInLoc(plan, i);
-          // create it, may concurrent created by multiple thread
-          internalCreateTimeseries(deviceId.concatNode(measurementList[i]), dataType);
-        }
-
-        MeasurementMNode measurementMNode = (MeasurementMNode) getChild(deviceMNode,
-            measurementList[i]);
-
-        // check type is match
-        TSDataType insertDataType = null;
-        if (plan instanceof InsertRowPlan) {
-          if (!((InsertRowPlan) plan).isNeedInferType()) {
-            // only when InsertRowPlan's values is object[], we should check type
-            insertDataType = getTypeInLoc(plan, i);
+          MeasurementMNode measurementMNode = (MeasurementMNode) getChild(deviceMNode,
+              measurementList[i]);
+          setMeasurementMNode(plan, i, measurementMNode);
+        } catch (MetadataException e) {
+          logger.warn("meet error when check {}.{}, message: {}", deviceId, measurementList[i],
+              e.getMessage());
+          if (config.isEnablePartialInsert()) {
+            // mark failed measurement
+            plan.markFailedMeasurementInsertion(i);
           } else {
-            insertDataType = measurementMNode.getSchema().getType();
+            throw e;
           }
-        } else if (plan instanceof InsertTabletPlan) {
-          insertDataType = getTypeInLoc(plan, i);
         }
+      }
 
-        if (measurementMNode.getSchema().getType() != insertDataType) {
-          logger.warn("DataType mismatch, Insert measurement {} type {}, metadata tree type {}",
-              measurementList[i], insertDataType, measurementMNode.getSchema().getType());
-          if (!config.isEnablePartialInsert()) {
-            throw new MetadataException(String.format(
-                "DataType mismatch, Insert measurement %s type %s, metadata tree type %s",
-                measurementList[i], insertDataType, measurementMNode.getSchema().getType()));
-          } else {
-            // mark failed measurement
-            plan.markFailedMeasurementInsertion(i);
-            continue;
-          }
+      // 3. cache the schemas of the device for the following insertions. A device whose series
+      // are still being created is not cached, as each snapshot copies all its children, and
+      // the snapshot is taken only if the MTree is not being changed, so it can be copied safely
+      if (!seriesCreated && lock.readLock().tryLock()) {
+        try {
+          deviceSchemaCache.put(deviceId, deviceMNode, cacheVersion);
+        } finally {
+          lock.readLock().unlock();
         }
+      }
+    } catch (MetadataException | RuntimeException e) {
+      // the caller only unlocks the device node when it is returned
+      deviceMNode.readUnlock();
+      throw e;
+    }
+    return deviceMNode;
+  }
 
-        measurementMNodes[i] = measurementMNode;
+  /**
+   * Get the schemas of the insertion from DeviceSchemaCache without the lock of MManager.
+   *
+   * <p>!!!!!!Attention!!!!! must call the return node's readUnlock() if it is not null.
+   *
+   * @return the device node, or null if any measurement is not cached, in which case the plan is
+   * not changed
+   */
+  private MNode getSeriesSchemasFromCacheAndReadLockDevice(InsertPlan plan)
+      throws MetadataException {
+    DeviceSchema deviceSchema = deviceSchemaCache.get(plan.getDeviceId());
+    if (deviceSchema == null) {
+      return null;
+    }
+    String[] measurementList = plan.getMeasurements();
+    MeasurementMNode[] cachedMNodes = new MeasurementMNode[measurementList.length];
+    for (int i = 0; i < measurementList.length; i++) {
+      if (measurementList[i] == null) {
+        return null;
+      }
+      cachedMNodes[i] = deviceSchema.getMeasurement(measurementList[i]);
+      if (cachedMNodes[i] == null) {
+        return null;
+      }
+    }
 
-        // set measurementName instead of alias
-        measurementList[i] = measurementMNode.getName();
+    MNode deviceMNode = deviceSchema.getDeviceNode();
+    deviceMNode.readLock();
+    // the device may be changed before it is locked
+    if (!deviceSchemaCache.isValid(deviceSchema)) {
+      deviceMNode.readUnlock();
+      return null;
+    }
+    try {
+      for (int i = 0; i < measurementList.length; i++) {
+        setMeasurementMNode(plan, i, cachedMNodes[i]);
+      }
+    } catch (MetadataException e) {
+      deviceMNode.readUnlock();
+      throw e;
+    }
+    return deviceMNode;
+  }
 
-      } catch (MetadataException e) {
-        logger.warn("meet error when check {}.{}, message: {}", deviceId, measurementList[i],
-            e.getMessage());
-        if (config.isEnablePartialInsert()) {
-          // mark failed measurement
-          plan.markFailedMeasurementInsertion(i);
-        } else {
-          throw e;
-        }
+  /**
+   * Check the data type of the i-th measurement of the plan and set its node.
+   */
+  private void setMeasurementMNode(InsertPlan plan, int i, MeasurementMNode measurementMNode)
+      throws MetadataException {
+    String[] measurementList = plan.getMeasurements();
+
+    // check type is match
+    TSDataType insertDataType = null;
+    if (plan instanceof InsertRowPlan) {
+      if (!((InsertRowPlan) plan).isNeedInferType()) {
+        // only when InsertRowPlan's values is object[], we should check type
+        insertDataType = getTypeInLoc(plan, i);
+      } else {
+        insertDataType = measurementMNode.getSchema().getType();
+      }
+    } else if (plan instanceof InsertTabletPlan) {
+      insertDataType = getTypeInLoc(plan, i);
+    }
+
+    if (measurementMNode.getSchema().getType() != insertDataType) {
+      logger.warn("DataType mismatch, Insert measurement {} type {}, metadata tree type {}",
+          measurementList[i], insertDataType, measurementMNode.getSchema().getType());
+      if (!config.isEnablePartialInsert()) {
+        throw new MetadataException(String.format(
+            "DataType mismatch, Insert measurement %s type %s, metadata tree type %s",
+            measurementList[i], insertDataType, measurementMNode.getSchema().getType()));
+      } else {
+        // mark failed measurement
+        plan.markFailedMeasurementInsertion(i);
+        return;
       }
     }
 
-    return deviceMNode;
+    plan.getMeasurementMNodes()[i] = measurementMNode;
+
+    // set measurementName instead of alias
+    measurementList[i] = measurementMNode.getName();
   }
 
 
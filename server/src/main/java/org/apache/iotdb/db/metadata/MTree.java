@@ -32,12 +32,12 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -87,10 +87,6 @@ public class MTree implements Serializable {
   private static final Logger logger = LoggerFactory.getLogger(MTree.class);
 
   private MNode root;
-  private static transient ThreadLocal<Integer> limit = new ThreadLocal<>();
-  private static transient ThreadLocal<Integer> offset = new ThreadLocal<>();
-  private static transient ThreadLocal<Integer> count = new ThreadLocal<>();
-  private static transient ThreadLocal<Integer> curOffset = new ThreadLocal<>();
   public static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 
   MTree() {
@@ -611,12 +607,9 @@ public class MTree implements Serializable {
    * @param prefixPath a prefix path or a full path, may contain '*'.
    */
   List<PartialPath> getAllTimeseriesPath(PartialPath prefixPath) throws MetadataException {
-    ShowTimeSeriesPlan plan = new ShowTimeSeriesPlan(prefixPath);
-    List<Pair<PartialPath, String[]>> res = getAllMeasurementSchema(plan);
     List<PartialPath> paths = new ArrayList<>();
-    for (Pair<PartialPath, String[]> p : res) {
-      paths.add(p.left);
-    }
+    traverseMeasurements(PathPattern.compile(prefixPath), 0, 0,
+        (node, path, length, storageGroup) -> paths.add(new PartialPath(Arrays.copyOf(path, length))));
     return paths;
   }
 
@@ -626,16 +619,27 @@ public class MTree implements Serializable {
    * @param prefixPath a prefix path or a full path, may contain '*'.
    */
   List<PartialPath> getAllTimeseriesPathWithAlias(PartialPath prefixPath) throws MetadataException {
-    PartialPath prePath = new PartialPath(prefixPath.getNodes());
-    ShowTimeSeriesPlan plan = new ShowTimeSeriesPlan(prefixPath);
-    List<Pair<PartialPath, String[]>> res = getAllMeasurementSchema(plan);
+    return getAllTimeseriesPathWithAlias(prefixPath, 0, 0);
+  }
+
+  /**
+   * Get at most limit timeseries paths under the given path after skipping offset ones
+   *
+   * @param prefixPath a prefix path or a full path, may contain '*'.
+   * @param limit      the max number of paths, 0 means no limit
+   */
+  List<PartialPath> getAllTimeseriesPathWithAlias(PartialPath prefixPath, int limit, int offset)
+      throws MetadataException {
+    String measurement = prefixPath.getMeasurement();
     List<PartialPath> paths = new ArrayList<>();
-    for (Pair<PartialPath, String[]> p : res) {
-      if (prePath.getMeasurement().equals(p.right[0])) {
-        p.left.setMeasurementAlias(p.right[0]);
-      }
-      paths.add(p.left);
-    }
+    traverseMeasurements(PathPattern.compile(prefixPath), offset, limit,
+        (node, path, length, storageGroup) -> {
+          PartialPath partialPath = new PartialPath(Arrays.copyOf(path, length));
+          if (measurement.equals(node.getAlias())) {
+            partialPath.setMeasurementAlias(node.getAlias());
+          }
+          paths.add(partialPath);
+        });
     return paths;
   }
 
@@ -645,11 +649,10 @@ public class MTree implements Serializable {
    * @param prefixPath a prefix path or a full path, may contain '*'.
    */
   int getAllTimeseriesCount(PartialPath prefixPath) throws MetadataException {
-    String[] nodes = prefixPath.getNodes();
-    if (nodes.length == 0 || !nodes[0].equals(root.getName())) {
-      throw new IllegalPathException(prefixPath.getFullPath());
-    }
-    return getCount(root, nodes, 1);
+    int[] count = new int[1];
+    traverseMeasurements(PathPattern.compile(prefixPath), 0, 0,
+        (node, path, length, storageGroup) -> count[0]++);
+    return count[0];
   }
 
   /**
@@ -697,33 +700,6 @@ public class MTree implements Serializable {
     return getCountInGivenLevel(node, level - (nodes.length - 1));
   }
 
-  /**
-   * Traverse the MTree to get the count of timeseries.
-   */
-  private int getCount(MNode node, String[] nodes, int idx) throws MetadataException {
-    String nodeReg = MetaUtils.getNodeRegByIdx(idx, nodes);
-    if (!(PATH_WILDCARD).equals(nodeReg)) {
-      if (node.hasChild(nodeReg)) {
-        if (node.getChild(nodeReg) instanceof MeasurementMNode) {
-          return 1;
-        } else {
-          return getCount(node.getChild(nodeReg), nodes, idx + 1);
-        }
-      } else {
-        throw new MetadataException(node.getName() + " does not have the child node " + nodeReg);
-      }
-    } else {
-      int cnt = 0;
-      for (MNode child : node.getChildren().values()) {
-        if (child instanceof MeasurementMNode) {
-          cnt++;
-        }
-        cnt += getCount(child, nodes, idx + 1);
-      }
-      return cnt;
-    }
-  }
-
   /**
    * Traverse the MTree to get the count of devices.
    */
@@ -799,13 +775,10 @@ public class MTree implements Serializable {
    */
   List<Pair<PartialPath, String[]>> getAllMeasurementSchemaByHeatOrder(ShowTimeSeriesPlan plan,
       QueryContext queryContext) throws MetadataException {
-    String[] nodes = plan.getPath().getNodes();
-    if (nodes.length == 0 || !nodes[0].equals(root.getName())) {
-      throw new IllegalPathException(plan.getPath().getFullPath());
-    }
     List<Pair<PartialPath, String[]>> allMatchedNodes = new ArrayList<>();
-
-    findPath(root, nodes, 1, allMatchedNodes, false, true, queryContext);
+    traverseMeasurements(PathPattern.compile(plan.getPath()), 0, 0,
+        (node, path, length, storageGroup) -> allMatchedNodes
+            .add(toSchemaRow(node, path, length, storageGroup, true, queryContext)));
 
     Stream<Pair<PartialPath, String[]>> sortedStream = allMatchedNodes.stream().sorted(
         Comparator.comparingLong((Pair<PartialPath, String[]> p) -> Long.parseLong(p.right[6])).reversed()
@@ -826,85 +799,118 @@ public class MTree implements Serializable {
    * <p>result: [name, alias, storage group, dataType, encoding, compression, offset]
    */
   List<Pair<PartialPath, String[]>> getAllMeasurementSchema(ShowTimeSeriesPlan plan) throws MetadataException {
-    List<Pair<PartialPath, String[]>> res;
-    String[] nodes = plan.getPath().getNodes();
-    if (nodes.length == 0 || !nodes[0].equals(root.getName())) {
-      throw new IllegalPathException(plan.getPath().getFullPath());
-    }
-    limit.set(plan.getLimit());
-    offset.set(plan.getOffset());
-    curOffset.set(-1);
-    count.set(0);
-    if (offset.get() != 0 || limit.get() != 0) {
-      res = new LinkedList<>();
-      findPath(root, nodes, 1, res, true, false, null);
-    } else {
-      res = new LinkedList<>();
-      findPath(root, nodes, 1, res, false, false, null);
-    }
-    // avoid memory leaks
-    limit.remove();
-    offset.remove();
-    curOffset.remove();
-    count.remove();
+    List<Pair<PartialPath, String[]>> res = new ArrayList<>();
+    traverseMeasurements(PathPattern.compile(plan.getPath()), plan.getOffset(), plan.getLimit(),
+        (node, path, length, storageGroup) -> res
+            .add(toSchemaRow(node, path, length, storageGroup, false, null)));
     return res;
   }
 
   /**
-   * Iterate through MTree to fetch metadata info of all leaf nodes under the given seriesPath
-   *
-   * @param needLast             if false, lastTimeStamp in timeseriesSchemaList will be null
-   * @param timeseriesSchemaList List<timeseriesSchema> result: [name, alias, storage group,
-   *                             dataType, encoding, compression, offset, lastTimeStamp]
+   * @param needLast if false, lastTimeStamp in the row will be null
+   * @return [name, alias, storage group, dataType, encoding, compression, offset, lastTimeStamp]
    */
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
-  private void findPath(MNode node, String[] nodes, int idx, List<Pair<PartialPath, String[]>> timeseriesSchemaList,
-      boolean hasLimit, boolean needLast, QueryContext queryContext) throws MetadataException {
-    if (node instanceof MeasurementMNode && nodes.length <= idx) {
-      if (hasLimit) {
-        curOffset.set(curOffset.get() + 1);
-        if (curOffset.get() < offset.get() || count.get().intValue() == limit.get().intValue()) {
+  private static Pair<PartialPath, String[]> toSchemaRow(MeasurementMNode node, String[] path,
+      int length, StorageGroupMNode storageGroup, boolean needLast, QueryContext queryContext) {
+    String[] tsRow = new String[7];
+    tsRow[0] = node.getAlias();
+    MeasurementSchema measurementSchema = node.getSchema();
+    tsRow[1] = storageGroup.getFullPath();
+    tsRow[2] = measurementSchema.getType().toString();
+    tsRow[3] = measurementSchema.getEncodingType().toString();
+    tsRow[4] = measurementSchema.getCompressor().toString();
+    tsRow[5] = String.valueOf(node.getOffset());
+    tsRow[6] = needLast ? String.valueOf(getLastTimeStamp(node, queryContext)) : null;
+    return new Pair<>(new PartialPath(Arrays.copyOf(path, length)), tsRow);
+  }
+
+  /**
+   * Visit the measurements matched by the pattern in the order of MTree, pruning the subtrees
+   * which cannot match. The first offset measurements are skipped, and the traversal stops after
+   * limit measurements are visited if limit is positive.
+   */
+  void traverseMeasurements(PathPattern pattern, int offset, int limit,
+      MeasurementVisitor visitor) {
+    new MeasurementTraversal(pattern, offset, limit, visitor).traverse(root, 0, null);
+  }
+
+  @FunctionalInterface
+  interface MeasurementVisitor {
+
+    /**
+     * @param path   the node names from root, only the first length ones are valid and the array
+     *               is reused after the call returns
+     * @param storageGroup the storage group which the measurement belongs to
+     */
+    void visit(MeasurementMNode node, String[] path, int length, StorageGroupMNode storageGroup);
+  }
+
+  private static class MeasurementTraversal {
+
+    private final PathPattern pattern;
+    private final int offset;
+    private final int limit;
+    private final MeasurementVisitor visitor;
+
+    private String[] path = new String[16];
+    // number of the matched measurements, including the skipped ones
+    private int matched = 0;
+    private boolean finished = false;
+
+    private MeasurementTraversal(PathPattern pattern, int offset, int limit,
+        MeasurementVisitor visitor) {
+      this.pattern = pattern;
+      this.offset = offset;
+      this.limit = limit;
+      this.visitor = visitor;
+    }
+
+    private void traverse(MNode node, int level, StorageGroupMNode storageGroup) {
+      if (level == path.length) {
+        path = Arrays.copyOf(path, path.length * 2);
+      }
+      path[level] = node.getName();
+      if (node instanceof StorageGroupMNode) {
+        storageGroup = (StorageGroupMNode) node;
+      }
+      // a measurement matches only if the whole pattern is consumed, and it may have sub
+      // measurements
+      if (node instanceof MeasurementMNode && level + 1 >= pattern.getLength()) {
+        visit((MeasurementMNode) node, level + 1, storageGroup);
+        if (finished) {
           return;
         }
       }
 
-      PartialPath nodePath = node.getPartialPath();
-      String[] tsRow = new String[7];
-      tsRow[0] = ((MeasurementMNode) node).getAlias();
-      MeasurementSchema measurementSchema = ((MeasurementMNode) node).getSchema();
-      tsRow[1] = getStorageGroupPath(nodePath).getFullPath();
-      tsRow[2] = measurementSchema.getType().toString();
-      tsRow[3] = measurementSchema.getEncodingType().toString();
-      tsRow[4] = measurementSchema.getCompressor().toString();
-      tsRow[5] = String.valueOf(((MeasurementMNode) node).getOffset());
-      tsRow[6] =
-          needLast ? String.valueOf(getLastTimeStamp((MeasurementMNode) node, queryContext)) : null;
-      Pair<PartialPath, String[]> temp = new Pair<>(nodePath, tsRow);
-      timeseriesSchemaList.add(temp);
-
-      if (hasLimit) {
-        count.set(count.get() + 1);
-      }
-    }
-    String nodeReg = MetaUtils.getNodeRegByIdx(idx, nodes);
-    if (!nodeReg.contains(PATH_WILDCARD)) {
-      if (node.hasChild(nodeReg)) {
-        findPath(node.getChild(nodeReg), nodes, idx + 1, timeseriesSchemaList, hasLimit, needLast,
-            queryContext);
+      int childLevel = level + 1;
+      String exactName = pattern.getExactName(childLevel);
+      if (exactName != null) {
+        // the name may be an alias
+        MNode child = node.getChild(exactName);
+        if (child != null) {
+          traverse(child, childLevel, storageGroup);
+        }
+        return;
       }
-    } else {
       for (MNode child : node.getChildren().values()) {
-        if (!Pattern.matches(nodeReg.replace("*", ".*"), child.getName())) {
-          continue;
-        }
-        findPath(child, nodes, idx + 1, timeseriesSchemaList, hasLimit, needLast, queryContext);
-        if (hasLimit) {
-          if (count.get().intValue() == limit.get().intValue()) {
+        if (pattern.matches(childLevel, child.getName())) {
+          traverse(child, childLevel, storageGroup);
+          if (finished) {
             return;
           }
         }
       }
     }
+
+    private void visit(MeasurementMNode node, int length, StorageGroupMNode storageGroup) {
+      if (matched++ < offset) {
+        return;
+      }
+      visitor.visit(node, path, length, storageGroup);
+      if (limit > 0 && matched - offset >= limit) {
+        finished = true;
+      }
+    }
   }
 
   static long getLastTimeStamp(MeasurementMNode node, QueryContext queryContext) {
@@ -1111,7 +1117,7 @@ public class MTree implements Serializable {
         if (childrenSize == 0) {
           nodeStack.push(node);
         } else {
-          Map<String, MNode> childrenMap = new LinkedHashMap<>();
+          Map<String, MNode> childrenMap = MNode.newChildrenMap(childrenSize);
           for (int i = 0; i < childrenSize; i++) {
             MNode child = nodeStack.removeFirst();
             child.setParent(node);
@@ -1131,11 +1137,6 @@ public class MTree implements Serializable {
     } catch (IOException e) {
       logger.warn("Failed to deserialize from {}. Use a new MTree.", mtreeSnapshot.getPath());
       return new MTree();
-    } finally {
-      limit = new ThreadLocal<>();
-      offset = new ThreadLocal<>();
-      count = new ThreadLocal<>();
-      curOffset = new ThreadLocal<>();
     }
   }
 
@@ -29,10 +29,14 @@ public class MetadataConstant {
   private static final String MTREE_VERSION = "1";
 
   public static final String ROOT = "root";
-  public static final String METADATA_LOG = "mlog.txt";
+  public static final String METADATA_LOG = "mlog.bin";
+  public static final String METADATA_TXT_LOG = "mlog.txt";
   public static final String TAG_LOG = "tlog.txt";
+  public static final String TAG_INDEX_SNAPSHOT = "tindex.snapshot";
+  public static final String TAG_INDEX_LOG = "tindex.log";
   public static final String MTREE_SNAPSHOT =
       "mtree" + IoTDBConstant.FILE_NAME_SEPARATOR + MTREE_VERSION + ".snapshot";
+  public static final String MTREE_PAGE_FILE = "mtree.pages";
   public static final String MTREE_SNAPSHOT_TMP =
       "mtree" + IoTDBConstant.FILE_NAME_SEPARATOR + MTREE_VERSION + ".snapshot.tmp";
 
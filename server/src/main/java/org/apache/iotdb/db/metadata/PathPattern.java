@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import static org.apache.iotdb.db.conf.IoTDBConstant.PATH_WILDCARD;
+
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+
+/**
+ * PathPattern is a path which may contain '*', compiled once for matching the nodes of MTree
+ * level by level. A '*' matches any characters within one level, and all levels after the last
+ * node of the pattern are matched, i.e., root.sg.* and root.sg both match root.sg.d.s.
+ *
+ * <p>The pattern is a linear automaton whose states are the levels, so MTree is traversed once:
+ * a level without '*' is looked up directly in the children, and the other levels are matched by
+ * comparing the literal parts of the node without regular expressions.
+ */
+public class PathPattern {
+
+  private final PartialPath path;
+  // matchers[i] matches the node in level i, matchers[0] matches root
+  private final NodeMatcher[] matchers;
+
+  private PathPattern(PartialPath path, NodeMatcher[] matchers) {
+    this.path = path;
+    this.matchers = matchers;
+  }
+
+  public static PathPattern compile(PartialPath path) throws IllegalPathException {
+    String[] nodes = path.getNodes();
+    if (nodes.length == 0 || !nodes[0].equals(IoTDBConstant.PATH_ROOT)) {
+      throw new IllegalPathException(path.getFullPath());
+    }
+    NodeMatcher[] matchers = new NodeMatcher[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      matchers[i] = new NodeMatcher(nodes[i]);
+    }
+    return new PathPattern(path, matchers);
+  }
+
+  public PartialPath getPath() {
+    return path;
+  }
+
+  /**
+   * @return the number of levels in the pattern, the levels after it match everything
+   */
+  public int getLength() {
+    return matchers.length;
+  }
+
+  /**
+   * @return the name of the only node matched in the level, or null if there is a wildcard
+   */
+  public String getExactName(int level) {
+    return level < matchers.length ? matchers[level].exactName : null;
+  }
+
+  public boolean matches(int level, String name) {
+    return level >= matchers.length || matchers[level].matches(name);
+  }
+
+  private static class NodeMatcher {
+
+    // not null if the node has no wildcard
+    private final String exactName;
+    private final boolean matchAll;
+    // the literal parts split by '*', the first one is a prefix and the last one is a suffix
+    private final String[] parts;
+    private final int minLength;
+
+    private NodeMatcher(String node) {
+      if (!node.contains(PATH_WILDCARD)) {
+        exactName = node;
+        matchAll = false;
+        parts = null;
+        minLength = node.length();
+        return;
+      }
+      exactName = null;
+      // a trailing '*' leaves an empty suffix
+      parts = node.split("\\*", -1);
+      int length = 0;
+      boolean allEmpty = true;
+      for (String part : parts) {
+        length += part.length();
+        allEmpty &= part.isEmpty();
+      }
+      matchAll = allEmpty;
+      minLength = length;
+    }
+
+    private boolean matches(String name) {
+      if (exactName != null) {
+        return exactName.equals(name);
+      }
+      if (matchAll) {
+        return true;
+      }
+      if (name.length() < minLength) {
+        return false;
+      }
+      String prefix = parts[0];
+      String suffix = parts[parts.length - 1];
+      if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+        return false;
+      }
+      // the middle parts appear in order between the prefix and the suffix
+      int from = prefix.length();
+      int to = name.length() - suffix.length();
+      for (int i = 1; i < parts.length - 1; i++) {
+        int index = name.indexOf(parts[i], from);
+        if (index < 0 || index + parts[i].length() > to) {
+          return false;
+        }
+        from = index + parts[i].length();
+      }
+      return true;
+    }
+  }
+}
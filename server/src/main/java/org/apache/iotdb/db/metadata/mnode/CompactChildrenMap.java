@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mnode;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A memory-efficient map from child names to MNodes used by the compact MTree. The entries are
+ * kept in insertion order in two parallel arrays, like a LinkedHashMap but without an entry
+ * object per child. Small maps are searched linearly; once there are more than
+ * LINEAR_SEARCH_LIMIT slots, an open-addressing table of slot indexes is built for the lookups.
+ *
+ * <p>Removed entries leave holes in the arrays, which are squeezed out when the arrays are full.
+ * Like LinkedHashMap, the map is not thread-safe.
+ */
+public class CompactChildrenMap extends AbstractMap<String, MNode> {
+
+  private static final int LINEAR_SEARCH_LIMIT = 8;
+
+  private String[] keys;
+  private MNode[] values;
+  // number of used slots, including the removed ones
+  private int end;
+  private int size;
+  // (slot index + 1) of the entries, 0 means empty. null when the map is small
+  private int[] table;
+  private int modCount;
+
+  public CompactChildrenMap() {
+    this(2);
+  }
+
+  public CompactChildrenMap(int expectedSize) {
+    int capacity = Math.max(expectedSize, 1);
+    keys = new String[capacity];
+    values = new MNode[capacity];
+    rebuildTable();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key != null && indexOf(key) >= 0;
+  }
+
+  @Override
+  public MNode get(Object key) {
+    if (key == null) {
+      return null;
+    }
+    int slot = indexOf(key);
+    return slot < 0 ? null : values[slot];
+  }
+
+  @Override
+  public MNode put(String key, MNode value) {
+    if (key == null) {
+      throw new NullPointerException("the name of a child cannot be null");
+    }
+    int slot = indexOf(key);
+    if (slot >= 0) {
+      MNode old = values[slot];
+      values[slot] = value;
+      return old;
+    }
+    if (end == keys.length) {
+      resize();
+    }
+    keys[end] = key;
+    values[end] = value;
+    if (table != null) {
+      insertIntoTable(key, end);
+    }
+    end++;
+    size++;
+    modCount++;
+    return null;
+  }
+
+  @Override
+  public MNode remove(Object key) {
+    if (key == null) {
+      return null;
+    }
+    int slot = indexOf(key);
+    if (slot < 0) {
+      return null;
+    }
+    MNode old = values[slot];
+    removeSlot(slot);
+    return old;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(keys, 0, end, null);
+    Arrays.fill(values, 0, end, null);
+    if (table != null) {
+      Arrays.fill(table, 0);
+    }
+    end = 0;
+    size = 0;
+    modCount++;
+  }
+
+  @Override
+  public Set<Entry<String, MNode>> entrySet() {
+    return new EntrySet();
+  }
+
+  private void removeSlot(int slot) {
+    // the slot stays in the table so that the probing chains are not broken, the null key makes
+    // it unmatchable until the arrays are squeezed
+    keys[slot] = null;
+    values[slot] = null;
+    size--;
+    modCount++;
+  }
+
+  private int indexOf(Object key) {
+    if (table == null) {
+      for (int i = 0; i < end; i++) {
+        if (key.equals(keys[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    int mask = table.length - 1;
+    for (int i = spread(key.hashCode()) & mask; table[i] != 0; i = (i + 1) & mask) {
+      int slot = table[i] - 1;
+      if (key.equals(keys[slot])) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  private void resize() {
+    if (size < end) {
+      squeeze();
+    }
+    if (end == keys.length) {
+      // grow by 1.5x, the maps of devices may have thousands of children
+      int capacity = keys.length + (keys.length >> 1) + 1;
+      keys = Arrays.copyOf(keys, capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+    rebuildTable();
+  }
+
+  /**
+   * remove the holes left by the removed entries, keeping the insertion order
+   */
+  private void squeeze() {
+    int newEnd = 0;
+    for (int i = 0; i < end; i++) {
+      if (keys[i] != null) {
+        keys[newEnd] = keys[i];
+        values[newEnd] = values[i];
+        newEnd++;
+      }
+    }
+    Arrays.fill(keys, newEnd, end, null);
+    Arrays.fill(values, newEnd, end, null);
+    end = newEnd;
+  }
+
+  private void rebuildTable() {
+    if (keys.length <= LINEAR_SEARCH_LIMIT) {
+      table = null;
+      return;
+    }
+    // at most half full
+    table = new int[Integer.highestOneBit(keys.length * 2 - 1) << 1];
+    for (int i = 0; i < end; i++) {
+      if (keys[i] != null) {
+        insertIntoTable(keys[i], i);
+      }
+    }
+  }
+
+  private void insertIntoTable(String key, int slot) {
+    int mask = table.length - 1;
+    int i = spread(key.hashCode()) & mask;
+    while (table[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    table[i] = slot + 1;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private class EntrySet extends AbstractSet<Entry<String, MNode>> {
+
+    @Override
+    public Iterator<Entry<String, MNode>> iterator() {
+      return new EntryIterator();
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void clear() {
+      CompactChildrenMap.this.clear();
+    }
+  }
+
+  private class EntryIterator implements Iterator<Entry<String, MNode>> {
+
+    private int next = advance(0);
+    private int last = -1;
+    private int expectedModCount = modCount;
+
+    private int advance(int from) {
+      while (from < end && keys[from] == null) {
+        from++;
+      }
+      return from;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < end;
+    }
+
+    @Override
+    public Entry<String, MNode> next() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (next >= end) {
+        throw new NoSuchElementException();
+      }
+      last = next;
+      next = advance(next + 1);
+      return new SlotEntry(last);
+    }
+
+    @Override
+    public void remove() {
+      if (last < 0) {
+        throw new IllegalStateException();
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      removeSlot(last);
+      last = -1;
+      expectedModCount = modCount;
+    }
+  }
+
+  private class SlotEntry implements Map.Entry<String, MNode> {
+
+    private final int slot;
+    private final String key;
+
+    private SlotEntry(int slot) {
+      this.slot = slot;
+      this.key = keys[slot];
+    }
+
+    @Override
+    public String getKey() {
+      return key;
+    }
+
+    @Override
+    public MNode getValue() {
+      return keys[slot] == key ? values[slot] : null;
+    }
+
+    @Override
+    public MNode setValue(MNode value) {
+      MNode old = getValue();
+      values[slot] = value;
+      return old;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> that = (Map.Entry<?, ?>) o;
+      return key.equals(that.getKey()) && Objects.equals(getValue(), that.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      MNode value = getValue();
+      return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+    }
+  }
+}
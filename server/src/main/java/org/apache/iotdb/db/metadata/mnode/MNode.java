@@ -31,7 +31,9 @@ import java.util.Map.Entry;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.metadata.DeleteFailedException;
 import org.apache.iotdb.db.metadata.MetadataConstant;
 import org.apache.iotdb.db.metadata.PartialPath;
@@ -54,6 +56,8 @@ public class MNode implements Serializable {
 
   private static Map<String, String> cachedPathPool = CachedStringPool.getInstance().getCachedPool();
 
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
   /**
    * from root to this node, only be set when used once for InternalMNode
    */
@@ -62,6 +66,7 @@ public class MNode implements Serializable {
   transient Map<String, MNode> children = null;
   private transient Map<String, MNode> aliasChildren = null;
 
+  // always null in the compact MTree, whose nodes use the shared LockStripes
   protected transient ReadWriteLock lock = null;
 
   /**
@@ -85,8 +90,8 @@ public class MNode implements Serializable {
    */
   public void addChild(String name, MNode child) {
     if (children == null) {
-      children = new LinkedHashMap<>();
-      if (lock == null) {
+      children = config.isEnableDiskMTree() ? new PagedChildrenMap(this, 1) : newChildrenMap(1);
+      if (lock == null && !config.isEnableCompactMTree()) {
         lock = new ReentrantReadWriteLock();
       }
     }
@@ -103,10 +108,10 @@ public class MNode implements Serializable {
       MNode node = children.get(name);
       // if its child node is leaf node, we need to acquire the write lock of the current device node
       if (node.children == null) {
-        writeLock = lock.writeLock();
+        writeLock = getLock().writeLock();
       } else {
         // otherwise, we only need to acquire the write lock of its child node.
-        writeLock = node.lock.writeLock();
+        writeLock = node.getLock().writeLock();
       }
       if (writeLock.tryLock()) {
         children.remove(name);
@@ -124,9 +129,10 @@ public class MNode implements Serializable {
     if (aliasChildren == null) {
       return;
     }
-    if (lock.writeLock().tryLock()) {
+    Lock writeLock = getLock().writeLock();
+    if (writeLock.tryLock()) {
       aliasChildren.remove(alias);
-      lock.writeLock().unlock();
+      writeLock.unlock();
     } else {
       throw new DeleteFailedException(getFullPath() + PATH_SEPARATOR + alias);
     }
@@ -165,7 +171,7 @@ public class MNode implements Serializable {
    */
   public void addAlias(String alias, MNode child) {
     if (aliasChildren == null) {
-      aliasChildren = new LinkedHashMap<>();
+      aliasChildren = newChildrenMap(1);
     }
     aliasChildren.put(alias, child);
   }
@@ -174,6 +180,10 @@ public class MNode implements Serializable {
    * get full path
    */
   public String getFullPath() {
+    if (config.isEnableCompactMTree()) {
+      // the full paths of millions of nodes are not worth keeping
+      return concatFullPath();
+    }
     if (fullPath == null) {
       fullPath = concatFullPath();
       String cachedFullPath = cachedPathPool.get(fullPath);
@@ -227,6 +237,10 @@ public class MNode implements Serializable {
     return children;
   }
 
+  public Map<String, MNode> getAliasChildren() {
+    return aliasChildren;
+  }
+
   public String getName() {
     return name;
   }
@@ -236,12 +250,43 @@ public class MNode implements Serializable {
   }
 
   public void setChildren(Map<String, MNode> children) {
+    if (children != null && config.isEnableDiskMTree()
+        && !(children instanceof PagedChildrenMap)) {
+      Map<String, MNode> pagedChildren = new PagedChildrenMap(this, children.size());
+      pagedChildren.putAll(children);
+      children = pagedChildren;
+    } else if (children != null && config.isEnableCompactMTree()
+        && !(children instanceof CompactChildrenMap)) {
+      Map<String, MNode> compactChildren = newChildrenMap(children.size());
+      compactChildren.putAll(children);
+      children = compactChildren;
+    }
     this.children = children;
-    if (children != null && lock == null) {
+    if (children != null && lock == null && !config.isEnableCompactMTree()) {
       lock = new ReentrantReadWriteLock();
     }
   }
 
+  /**
+   * @return an empty map for the children of a node, whose type depends on whether the MTree is
+   * compact
+   */
+  public static Map<String, MNode> newChildrenMap(int expectedSize) {
+    return config.isEnableCompactMTree() ? new CompactChildrenMap(expectedSize)
+        : new LinkedHashMap<>();
+  }
+
+  private ReadWriteLock getLock() {
+    if (lock != null) {
+      return lock;
+    }
+    if (config.isEnableCompactMTree()) {
+      return LockStripes.get(this);
+    }
+    lock = new ReentrantReadWriteLock();
+    return lock;
+  }
+
   public void serializeTo(BufferedWriter bw) throws IOException {
     serializeChildren(bw);
 
@@ -263,10 +308,7 @@ public class MNode implements Serializable {
   public void readLock() {
     MNode node = this;
     while (node != null) {
-      if (node.lock == null) {
-        node.lock = new ReentrantReadWriteLock();
-      }
-      node.lock.readLock().lock();
+      node.getLock().readLock().lock();
       node = node.parent;
     }
   }
@@ -274,8 +316,35 @@ public class MNode implements Serializable {
   public void readUnlock() {
     MNode node = this;
     while (node != null) {
-      node.lock.readLock().unlock();
+      node.getLock().readLock().unlock();
       node = node.parent;
     }
   }
+
+  /**
+   * The locks of the compact MTree. A node uses the stripe selected by its identity hash, so an
+   * unrelated node may share the lock, which only makes a deletion fail in rare cases as if the
+   * node itself were being read. The read lock is reentrant, so a node and its ancestor can share
+   * one stripe.
+   */
+  private static class LockStripes {
+
+    private static final int STRIPE_NUM = 1024;
+    private static final ReadWriteLock[] STRIPES = new ReadWriteLock[STRIPE_NUM];
+
+    static {
+      for (int i = 0; i < STRIPE_NUM; i++) {
+        STRIPES[i] = new ReentrantReadWriteLock();
+      }
+    }
+
+    private LockStripes() {
+      // allowed to do nothing
+    }
+
+    static ReadWriteLock get(MNode node) {
+      int hash = System.identityHashCode(node);
+      return STRIPES[(hash ^ (hash >>> 16)) & (STRIPE_NUM - 1)];
+    }
+  }
 }
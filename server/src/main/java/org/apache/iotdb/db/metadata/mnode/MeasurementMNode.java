@@ -18,10 +18,13 @@
  */
 package org.apache.iotdb.db.metadata.mnode;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.metadata.MetadataConstant;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
@@ -37,9 +40,16 @@ public class MeasurementMNode extends MNode {
   private static final long serialVersionUID = -1199657856921206435L;
 
   /**
-   * measurement's Schema for one timeseries represented by current leaf node
+   * Schemas shared by the compact MTree. Many devices have measurements of the same name and type,
+   * whose schemas only differ when they have props.
    */
-  private MeasurementSchema schema;
+  private static final Interner<MeasurementSchema> SCHEMA_INTERNER = Interners.newWeakInterner();
+
+  /**
+   * measurement's Schema for one timeseries represented by current leaf node, null if it is paged
+   * out by the disk-backed MTree, see PagedChildrenMap
+   */
+  private volatile MeasurementSchema schema;
   private String alias;
   // tag/attribute's start offset in tag file
   private long offset = -1;
@@ -51,22 +61,57 @@ public class MeasurementMNode extends MNode {
    */
   public MeasurementMNode(MNode parent, String measurementName, String alias, TSDataType dataType,
       TSEncoding encoding, CompressionType type, Map<String, String> props) {
-    super(parent, measurementName);
-    this.schema = new MeasurementSchema(measurementName, dataType, encoding, type, props);
-    this.alias = alias;
+    this(parent, measurementName,
+        new MeasurementSchema(measurementName, dataType, encoding, type, props), alias);
   }
 
   public MeasurementMNode(MNode parent, String measurementName, MeasurementSchema schema,
       String alias) {
     super(parent, measurementName);
-    this.schema = schema;
+    this.schema = shareSchema(schema);
     this.alias = alias;
+    if (this.schema != schema) {
+      // the name of the shared schema is the same string
+      this.name = this.schema.getMeasurementId();
+    }
+  }
+
+  private static MeasurementSchema shareSchema(MeasurementSchema schema) {
+    // MeasurementSchema.equals() ignores the props
+    if (!IoTDBDescriptor.getInstance().getConfig().isEnableCompactMTree()
+        || (schema.getProps() != null && !schema.getProps().isEmpty())) {
+      return schema;
+    }
+    return SCHEMA_INTERNER.intern(schema);
   }
 
   public MeasurementSchema getSchema() {
+    MeasurementSchema residentSchema = schema;
+    if (parent != null && parent.children instanceof PagedChildrenMap) {
+      PagedChildrenMap pagedChildren = (PagedChildrenMap) parent.children;
+      if (residentSchema == null) {
+        return pagedChildren.loadSchema(this);
+      }
+      pagedChildren.touch();
+    }
+    return residentSchema;
+  }
+
+  /**
+   * @return the schema if it is in memory, or null if it is paged out
+   */
+  MeasurementSchema getResidentSchema() {
     return schema;
   }
 
+  /**
+   * Restore the schema loaded from the page file, or drop it when it is paged out. Called by
+   * PagedChildrenMap with its lock held.
+   */
+  void setResidentSchema(MeasurementSchema schema) {
+    this.schema = schema == null ? null : shareSchema(schema);
+  }
+
   public TimeValuePair getCachedLast() {
     return cachedLastValuePair;
   }
@@ -118,12 +163,17 @@ public class MeasurementMNode extends MNode {
 
   public void setSchema(MeasurementSchema schema) {
     this.schema = schema;
+    if (parent != null && parent.children instanceof PagedChildrenMap) {
+      // the record in the page file is stale
+      ((PagedChildrenMap) parent.children).markDirty();
+    }
   }
 
   @Override
   public void serializeTo(BufferedWriter bw) throws IOException {
     serializeChildren(bw);
 
+    MeasurementSchema schema = getSchema();
     StringBuilder s = new StringBuilder(String.valueOf(MetadataConstant.MEASUREMENT_MNODE_TYPE));
     s.append(",").append(name).append(",");
     if (alias != null) {
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mnode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+import org.apache.iotdb.db.metadata.MetadataConstant;
+import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MeasurementPager bounds the number of resident measurement schemas of the disk-backed MTree.
+ * When more than disk_mtree_cached_measurement_num schemas are resident, the schemas of the
+ * measurements of the least recently used devices are paged out to the page file, chosen by the
+ * CLOCK algorithm so that accessing a schema only sets a flag. The measurement nodes themselves
+ * stay in memory.
+ *
+ * <p>The page file only extends the heap: the metadata log and the MTree snapshot are still the
+ * persistent schema, so the page file is discarded when the system starts. The MTree is rebuilt
+ * from them node by node and the schemas are paged out as it grows, but all nodes are on the heap
+ * during and after the startup.
+ */
+public class MeasurementPager {
+
+  private static final Logger logger = LoggerFactory.getLogger(MeasurementPager.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  /**
+   * The page file is compacted when it is larger than this and more than half of it is garbage.
+   */
+  private static final long COMPACTION_THRESHOLD = 64L * 1024 * 1024;
+
+  // guarded by this
+  private final Deque<PagedChildrenMap> clock = new ArrayDeque<>();
+  private long residentNum = 0;
+
+  // guarded by fileLock
+  private final Object fileLock = new Object();
+  private RandomAccessFile file;
+  private FileChannel channel;
+  private long fileSize = 0;
+  private long liveBytes = 0;
+  private final List<WeakReference<PagedChildrenMap>> recordedMaps = new ArrayList<>();
+
+  private MeasurementPager() {
+  }
+
+  public static MeasurementPager getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  synchronized void addResident(PagedChildrenMap map, int delta) {
+    residentNum += delta;
+    if (delta > 0 && !map.inClock) {
+      map.inClock = true;
+      clock.add(map);
+    }
+  }
+
+  /**
+   * Evict the schemas until they are no more than the capacity. No lock of any map should be held
+   * by the caller, and the lock of the pager is not held when a map is evicted.
+   */
+  void evictIfNeeded() {
+    long capacity = config.getDiskMTreeCachedMeasurementNum();
+    while (true) {
+      PagedChildrenMap victim;
+      synchronized (this) {
+        if (residentNum <= capacity) {
+          return;
+        }
+        victim = clock.poll();
+        if (victim == null) {
+          return;
+        }
+        if (victim.referenced) {
+          // give it a second chance
+          victim.referenced = false;
+          clock.add(victim);
+          continue;
+        }
+        victim.inClock = false;
+      }
+
+      int evicted;
+      try {
+        evicted = victim.evict();
+      } catch (UncheckedIOException e) {
+        logger.error("Cannot page out measurements, they are kept in memory", e);
+        continue;
+      }
+      synchronized (this) {
+        residentNum -= evicted;
+      }
+    }
+  }
+
+  void write(PagedChildrenMap map, byte[] record) throws IOException {
+    synchronized (fileLock) {
+      openIfNeeded();
+      channel.write(ByteBuffer.wrap(record), fileSize);
+      if (map.recordLength > 0) {
+        liveBytes -= map.recordLength;
+      } else {
+        recordedMaps.add(new WeakReference<>(map));
+      }
+      map.recordPosition = fileSize;
+      map.recordLength = record.length;
+      fileSize += record.length;
+      liveBytes += record.length;
+      if (fileSize > COMPACTION_THRESHOLD && fileSize > 2 * liveBytes) {
+        compact();
+      }
+    }
+  }
+
+  ByteBuffer read(PagedChildrenMap map) throws IOException {
+    synchronized (fileLock) {
+      ByteBuffer buffer = ByteBuffer.allocate(map.recordLength);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, map.recordPosition + buffer.position()) < 0) {
+          throw new IOException("Reach the end of the page file");
+        }
+      }
+      buffer.flip();
+      return buffer;
+    }
+  }
+
+  /**
+   * Rewrite the records of the living maps into a new page file, the records of the maps whose
+   * nodes are deleted are dropped.
+   */
+  private void compact() throws IOException {
+    File pageFile = getPageFile();
+    File tmpFile = SystemFileFactory.INSTANCE.getFile(pageFile.getPath() + ".tmp");
+    long newSize = 0;
+    try (RandomAccessFile newFile = new RandomAccessFile(tmpFile, "rw")) {
+      FileChannel newChannel = newFile.getChannel();
+      Iterator<WeakReference<PagedChildrenMap>> iterator = recordedMaps.iterator();
+      while (iterator.hasNext()) {
+        PagedChildrenMap map = iterator.next().get();
+        if (map == null) {
+          iterator.remove();
+          continue;
+        }
+        ByteBuffer record = read(map);
+        newChannel.write(record, newSize);
+        map.recordPosition = newSize;
+        newSize += map.recordLength;
+      }
+    }
+    close();
+    FSFactoryProducer.getFSFactory().moveFile(tmpFile, pageFile);
+    logger.info("The page file of MTree is compacted from {} to {} bytes", fileSize, newSize);
+    fileSize = newSize;
+    liveBytes = newSize;
+    openIfNeeded();
+  }
+
+  private void openIfNeeded() throws IOException {
+    if (channel == null) {
+      File pageFile = getPageFile();
+      if (!pageFile.getParentFile().exists() && !pageFile.getParentFile().mkdirs()) {
+        throw new IOException("Cannot create the folder of " + pageFile);
+      }
+      file = new RandomAccessFile(pageFile, "rw");
+      channel = file.getChannel();
+    }
+  }
+
+  private void close() throws IOException {
+    if (file != null) {
+      file.close();
+      file = null;
+      channel = null;
+    }
+  }
+
+  private File getPageFile() {
+    return SystemFileFactory.INSTANCE.getFile(config.getSchemaDir() + File.separator
+        + MetadataConstant.MTREE_PAGE_FILE);
+  }
+
+  /**
+   * Forget all paged maps and delete the page file, which is called when the MTree is rebuilt.
+   */
+  public void clear() {
+    synchronized (this) {
+      clock.clear();
+      residentNum = 0;
+    }
+    synchronized (fileLock) {
+      try {
+        close();
+        Files.deleteIfExists(getPageFile().toPath());
+      } catch (IOException e) {
+        logger.error("Cannot delete the page file of MTree", e);
+      }
+      recordedMaps.clear();
+      fileSize = 0;
+      liveBytes = 0;
+    }
+  }
+
+  synchronized long getResidentNum() {
+    return residentNum;
+  }
+
+  private static class InstanceHolder {
+
+    private static final MeasurementPager INSTANCE = new MeasurementPager();
+
+    private InstanceHolder() {
+      // allowed to do nothing
+    }
+  }
+}
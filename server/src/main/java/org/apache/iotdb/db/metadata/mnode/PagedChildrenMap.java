@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mnode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+/**
+ * The children of a node in the disk-backed MTree. All children stay in memory, so a node is the
+ * same object as long as it is in the MTree, but the schemas of the measurement children may be
+ * paged out to the page file by MeasurementPager. They are loaded back together when the schema of
+ * any of them is accessed by MeasurementMNode.getSchema().
+ *
+ * <p>The map is thread-safe, and its views are snapshots so that they are not broken by a
+ * concurrent change.
+ */
+public class PagedChildrenMap extends AbstractMap<String, MNode> {
+
+  private final MNode owner;
+  private final Map<String, MNode> children;
+  // the measurements whose schemas are only in the page file
+  private int pagedNum = 0;
+  // whether the record in the page file misses the schemas of some measurements
+  private boolean dirty = false;
+  // the measurements whose schemas are counted by the pager as resident
+  private int countedNum = 0;
+
+  // CLOCK states, see MeasurementPager
+  volatile boolean referenced = true;
+  boolean inClock = false;
+
+  // the record in the page file, guarded by MeasurementPager
+  long recordPosition = -1;
+  int recordLength = 0;
+
+  PagedChildrenMap(MNode owner, int expectedSize) {
+    this.owner = owner;
+    this.children = MNode.newChildrenMap(expectedSize);
+  }
+
+  @Override
+  public synchronized int size() {
+    return children.size();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public synchronized MNode get(Object key) {
+    return children.get(key);
+  }
+
+  @Override
+  public MNode put(String key, MNode value) {
+    MNode old;
+    synchronized (this) {
+      touch();
+      old = children.put(key, value);
+      forget(old);
+      if (value instanceof MeasurementMNode) {
+        dirty = true;
+        if (((MeasurementMNode) value).getResidentSchema() != null) {
+          count(1);
+        } else {
+          pagedNum++;
+        }
+      }
+    }
+    MeasurementPager.getInstance().evictIfNeeded();
+    return old;
+  }
+
+  @Override
+  public synchronized MNode remove(Object key) {
+    MNode old = children.remove(key);
+    forget(old);
+    return old;
+  }
+
+  @Override
+  public synchronized void clear() {
+    children.clear();
+    pagedNum = 0;
+    dirty = true;
+    count(-countedNum);
+  }
+
+  @Override
+  public synchronized Set<Entry<String, MNode>> entrySet() {
+    List<Entry<String, MNode>> snapshot = new ArrayList<>(children.size());
+    for (Entry<String, MNode> entry : children.entrySet()) {
+      snapshot.add(new SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+    }
+    return new SnapshotEntrySet(snapshot);
+  }
+
+  /**
+   * mark the schemas of the children as recently used
+   */
+  void touch() {
+    if (!referenced) {
+      referenced = true;
+    }
+  }
+
+  synchronized void markDirty() {
+    dirty = true;
+  }
+
+  private void forget(MNode node) {
+    if (node instanceof MeasurementMNode) {
+      dirty = true;
+      if (((MeasurementMNode) node).getResidentSchema() != null) {
+        if (countedNum > 0) {
+          count(-1);
+        }
+      } else if (pagedNum > 0) {
+        pagedNum--;
+      }
+    }
+  }
+
+  private void count(int delta) {
+    countedNum += delta;
+    MeasurementPager.getInstance().addResident(this, delta);
+  }
+
+  /**
+   * Load the paged schemas of the children, including the one of the given node.
+   */
+  MeasurementSchema loadSchema(MeasurementMNode node) {
+    MeasurementSchema schema;
+    synchronized (this) {
+      touch();
+      schema = node.getResidentSchema();
+      if (schema != null) {
+        return schema;
+      }
+      Map<String, MeasurementSchema> record = restore();
+      schema = node.getResidentSchema();
+      if (schema == null) {
+        // the node has been removed from this map after its schema was paged out
+        schema = record.get(node.getName());
+        node.setResidentSchema(schema);
+      }
+    }
+    MeasurementPager.getInstance().evictIfNeeded();
+    return schema;
+  }
+
+  /**
+   * Read the record and restore the paged schemas of the children.
+   *
+   * @return the schemas in the record by the names of the measurements
+   */
+  private Map<String, MeasurementSchema> restore() {
+    if (recordLength == 0) {
+      return new HashMap<>();
+    }
+    ByteBuffer buffer;
+    try {
+      buffer = MeasurementPager.getInstance().read(this);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot load the measurements of " + owner.getFullPath(), e);
+    }
+    int num = buffer.getInt();
+    Map<String, MeasurementSchema> record = new HashMap<>(num);
+    for (int i = 0; i < num; i++) {
+      MeasurementSchema schema = deserialize(buffer);
+      record.put(schema.getMeasurementId(), schema);
+    }
+    int restored = 0;
+    for (MNode child : children.values()) {
+      if (child instanceof MeasurementMNode
+          && ((MeasurementMNode) child).getResidentSchema() == null) {
+        ((MeasurementMNode) child).setResidentSchema(record.get(child.getName()));
+        restored++;
+      }
+    }
+    pagedNum = 0;
+    count(restored);
+    return record;
+  }
+
+  /**
+   * Page out the schemas of the measurements, the nodes stay in memory.
+   *
+   * @return how many schemas are no longer counted as resident
+   */
+  synchronized int evict() {
+    List<MeasurementMNode> measurements = new ArrayList<>();
+    for (MNode node : children.values()) {
+      if (node instanceof MeasurementMNode) {
+        measurements.add((MeasurementMNode) node);
+      }
+    }
+    if (measurements.isEmpty()) {
+      int uncounted = countedNum;
+      countedNum = 0;
+      return uncounted;
+    }
+    if (dirty || recordLength == 0) {
+      // the record must hold the schemas of all measurements, including the paged ones
+      restore();
+      try {
+        MeasurementPager.getInstance().write(this, serialize(measurements));
+      } catch (IOException e) {
+        // keep them in memory, this map is not evicted again until a schema is added
+        throw new UncheckedIOException("Cannot page out the measurements of "
+            + owner.getFullPath(), e);
+      }
+      dirty = false;
+    }
+    int uncounted = countedNum;
+    countedNum = 0;
+    for (MeasurementMNode node : measurements) {
+      node.setResidentSchema(null);
+    }
+    pagedNum = measurements.size();
+    return uncounted;
+  }
+
+  synchronized boolean isPagedOut() {
+    return pagedNum > 0;
+  }
+
+  private static byte[] serialize(List<MeasurementMNode> nodes) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream stream = new DataOutputStream(bytes);
+    stream.writeInt(nodes.size());
+    for (MeasurementMNode node : nodes) {
+      MeasurementSchema schema = node.getResidentSchema();
+      ReadWriteIOUtils.write(node.getName(), stream);
+      stream.writeByte(schema.getType().ordinal());
+      stream.writeByte(schema.getEncodingType().ordinal());
+      stream.writeByte(schema.getCompressor().ordinal());
+      ReadWriteIOUtils.writeIsNull(schema.getProps(), stream);
+      if (schema.getProps() != null) {
+        ReadWriteIOUtils.write(schema.getProps(), stream);
+      }
+    }
+    stream.flush();
+    return bytes.toByteArray();
+  }
+
+  private static MeasurementSchema deserialize(ByteBuffer buffer) {
+    String name = ReadWriteIOUtils.readString(buffer);
+    TSDataType dataType = TSDataType.values()[buffer.get()];
+    TSEncoding encoding = TSEncoding.values()[buffer.get()];
+    CompressionType compressor = CompressionType.values()[buffer.get()];
+    Map<String, String> props = ReadWriteIOUtils.readIsNull(buffer) ? null
+        : ReadWriteIOUtils.readMap(buffer);
+    return new MeasurementSchema(name, dataType, encoding, compressor, props);
+  }
+
+  private class SnapshotEntrySet extends AbstractSet<Entry<String, MNode>> {
+
+    private final List<Entry<String, MNode>> snapshot;
+
+    private SnapshotEntrySet(List<Entry<String, MNode>> snapshot) {
+      this.snapshot = snapshot;
+    }
+
+    @Override
+    public Iterator<Entry<String, MNode>> iterator() {
+      Iterator<Entry<String, MNode>> iterator = snapshot.iterator();
+      return new Iterator<Entry<String, MNode>>() {
+        private Entry<String, MNode> last;
+
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, MNode> next() {
+          last = iterator.next();
+          return last;
+        }
+
+        @Override
+        public void remove() {
+          iterator.remove();
+          PagedChildrenMap.this.remove(last.getKey());
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return snapshot.size();
+    }
+  }
+}
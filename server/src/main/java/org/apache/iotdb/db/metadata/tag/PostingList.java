@@ -0,0 +1,535 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.tag;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * PostingList is an immutable compressed bitmap of series ids, organized like a Roaring bitmap: the
+ * ids are grouped by their high 16 bits, and the low 16 bits of each group are kept in a sorted
+ * array if the group is sparse, or in a bitmap of 2^16 bits if it is dense.
+ *
+ * <p>Updates return a new list that shares the unchanged groups with the old one, so a list can be
+ * read while it is being updated by another thread.
+ */
+public class PostingList {
+
+  public static final PostingList EMPTY = new PostingList(new char[0], new Container[0], 0);
+
+  // an array container with more values than this is converted to a bitmap container
+  private static final int MAX_ARRAY_SIZE = 4096;
+  private static final int BITMAP_WORDS = 1 << 10;
+
+  private static final byte ARRAY_CONTAINER = 0;
+  private static final byte BITMAP_CONTAINER = 1;
+
+  // the high 16 bits of the ids in each container, in ascending order
+  private final char[] keys;
+  private final Container[] containers;
+  private final int size;
+
+  private PostingList(char[] keys, Container[] containers, int size) {
+    this.keys = keys;
+    this.containers = containers;
+    this.size = size;
+  }
+
+  /**
+   * @param ids non-negative ids in ascending order without duplicates
+   */
+  public static PostingList of(int[] ids, int length) {
+    int containerNum = 0;
+    for (int i = 0; i < length; i++) {
+      if (i == 0 || high(ids[i]) != high(ids[i - 1])) {
+        containerNum++;
+      }
+    }
+    char[] keys = new char[containerNum];
+    Container[] containers = new Container[containerNum];
+    int start = 0;
+    for (int c = 0; c < containerNum; c++) {
+      int end = start + 1;
+      while (end < length && high(ids[end]) == high(ids[start])) {
+        end++;
+      }
+      keys[c] = high(ids[start]);
+      char[] values = new char[end - start];
+      for (int i = start; i < end; i++) {
+        values[i - start] = low(ids[i]);
+      }
+      containers[c] = ArrayContainer.of(values);
+      start = end;
+    }
+    return new PostingList(keys, containers, length);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean contains(int id) {
+    int index = Arrays.binarySearch(keys, high(id));
+    return index >= 0 && containers[index].contains(low(id));
+  }
+
+  /**
+   * @return a list with the id, which is this list if the id has been in it
+   */
+  public PostingList add(int id) {
+    char high = high(id);
+    int index = Arrays.binarySearch(keys, high);
+    if (index >= 0) {
+      Container container = containers[index];
+      if (container.contains(low(id))) {
+        return this;
+      }
+      Container[] newContainers = containers.clone();
+      newContainers[index] = container.add(low(id));
+      return new PostingList(keys, newContainers, size + 1);
+    }
+    int insertion = -index - 1;
+    char[] newKeys = new char[keys.length + 1];
+    Container[] newContainers = new Container[containers.length + 1];
+    System.arraycopy(keys, 0, newKeys, 0, insertion);
+    System.arraycopy(containers, 0, newContainers, 0, insertion);
+    newKeys[insertion] = high;
+    newContainers[insertion] = ArrayContainer.of(new char[]{low(id)});
+    System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+    System.arraycopy(containers, insertion, newContainers, insertion + 1,
+        containers.length - insertion);
+    return new PostingList(newKeys, newContainers, size + 1);
+  }
+
+  /**
+   * @return a list without the id, which is this list if the id is not in it
+   */
+  public PostingList remove(int id) {
+    int index = Arrays.binarySearch(keys, high(id));
+    if (index < 0 || !containers[index].contains(low(id))) {
+      return this;
+    }
+    Container container = containers[index].remove(low(id));
+    if (container != null) {
+      Container[] newContainers = containers.clone();
+      newContainers[index] = container;
+      return new PostingList(keys, newContainers, size - 1);
+    }
+    char[] newKeys = new char[keys.length - 1];
+    Container[] newContainers = new Container[containers.length - 1];
+    System.arraycopy(keys, 0, newKeys, 0, index);
+    System.arraycopy(containers, 0, newContainers, 0, index);
+    System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+    System.arraycopy(containers, index + 1, newContainers, index, containers.length - index - 1);
+    return new PostingList(newKeys, newContainers, size - 1);
+  }
+
+  public PostingList and(PostingList other) {
+    char[] newKeys = new char[Math.min(keys.length, other.keys.length)];
+    Container[] newContainers = new Container[newKeys.length];
+    int num = 0;
+    int newSize = 0;
+    int i = 0;
+    int j = 0;
+    while (i < keys.length && j < other.keys.length) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        Container container = containers[i].and(other.containers[j]);
+        if (container != null) {
+          newKeys[num] = keys[i];
+          newContainers[num++] = container;
+          newSize += container.cardinality();
+        }
+        i++;
+        j++;
+      }
+    }
+    return new PostingList(Arrays.copyOf(newKeys, num), Arrays.copyOf(newContainers, num),
+        newSize);
+  }
+
+  public PostingList or(PostingList other) {
+    char[] newKeys = new char[keys.length + other.keys.length];
+    Container[] newContainers = new Container[newKeys.length];
+    int num = 0;
+    int newSize = 0;
+    int i = 0;
+    int j = 0;
+    while (i < keys.length || j < other.keys.length) {
+      Container container;
+      if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+        newKeys[num] = keys[i];
+        container = containers[i++];
+      } else if (i == keys.length || keys[i] > other.keys[j]) {
+        newKeys[num] = other.keys[j];
+        container = other.containers[j++];
+      } else {
+        newKeys[num] = keys[i];
+        container = containers[i++].or(other.containers[j++]);
+      }
+      newContainers[num++] = container;
+      newSize += container.cardinality();
+    }
+    return new PostingList(Arrays.copyOf(newKeys, num), Arrays.copyOf(newContainers, num),
+        newSize);
+  }
+
+  /**
+   * visit the ids in ascending order
+   */
+  public void forEach(IntConsumer consumer) {
+    for (int i = 0; i < keys.length; i++) {
+      containers[i].forEach(keys[i] << 16, consumer);
+    }
+  }
+
+  public void serialize(DataOutputStream stream) throws IOException {
+    stream.writeInt(keys.length);
+    for (int i = 0; i < keys.length; i++) {
+      stream.writeChar(keys[i]);
+      containers[i].serialize(stream);
+    }
+  }
+
+  public static PostingList deserialize(DataInputStream stream) throws IOException {
+    int num = stream.readInt();
+    char[] keys = new char[num];
+    Container[] containers = new Container[num];
+    int size = 0;
+    for (int i = 0; i < num; i++) {
+      keys[i] = stream.readChar();
+      byte type = stream.readByte();
+      if (type == ARRAY_CONTAINER) {
+        char[] values = new char[stream.readChar() + 1];
+        for (int j = 0; j < values.length; j++) {
+          values[j] = stream.readChar();
+        }
+        containers[i] = new ArrayContainer(values);
+      } else if (type == BITMAP_CONTAINER) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int j = 0; j < words.length; j++) {
+          words[j] = stream.readLong();
+        }
+        containers[i] = new BitmapContainer(words, BitmapContainer.cardinality(words));
+      } else {
+        throw new IOException("Unknown container type " + type);
+      }
+      size += containers[i].cardinality();
+    }
+    return new PostingList(keys, containers, size);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("[");
+    forEach(id -> {
+      if (builder.length() > 1) {
+        builder.append(", ");
+      }
+      builder.append(id);
+    });
+    return builder.append(']').toString();
+  }
+
+  private static char high(int id) {
+    return (char) (id >>> 16);
+  }
+
+  private static char low(int id) {
+    return (char) id;
+  }
+
+  /**
+   * A container holds the low 16 bits of the ids with the same high 16 bits, it is never empty
+   * and never changed once created.
+   */
+  private abstract static class Container {
+
+    abstract int cardinality();
+
+    abstract boolean contains(char value);
+
+    abstract Container add(char value);
+
+    /**
+     * @return null if the container becomes empty
+     */
+    abstract Container remove(char value);
+
+    /**
+     * @return null if the intersection is empty
+     */
+    abstract Container and(Container other);
+
+    abstract Container or(Container other);
+
+    abstract void forEach(int high, IntConsumer consumer);
+
+    abstract void serialize(DataOutputStream stream) throws IOException;
+  }
+
+  private static class ArrayContainer extends Container {
+
+    private final char[] values;
+
+    private ArrayContainer(char[] values) {
+      this.values = values;
+    }
+
+    private static Container of(char[] values) {
+      return values.length > MAX_ARRAY_SIZE ? BitmapContainer.of(values, values.length)
+          : new ArrayContainer(values);
+    }
+
+    @Override
+    int cardinality() {
+      return values.length;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    @Override
+    Container add(char value) {
+      int insertion = -Arrays.binarySearch(values, value) - 1;
+      char[] newValues = new char[values.length + 1];
+      System.arraycopy(values, 0, newValues, 0, insertion);
+      newValues[insertion] = value;
+      System.arraycopy(values, insertion, newValues, insertion + 1, values.length - insertion);
+      return of(newValues);
+    }
+
+    @Override
+    Container remove(char value) {
+      if (values.length == 1) {
+        return null;
+      }
+      int index = Arrays.binarySearch(values, value);
+      char[] newValues = new char[values.length - 1];
+      System.arraycopy(values, 0, newValues, 0, index);
+      System.arraycopy(values, index + 1, newValues, index, values.length - index - 1);
+      return new ArrayContainer(newValues);
+    }
+
+    @Override
+    Container and(Container other) {
+      char[] result = new char[values.length];
+      int num = 0;
+      if (other instanceof ArrayContainer) {
+        char[] otherValues = ((ArrayContainer) other).values;
+        int i = 0;
+        int j = 0;
+        while (i < values.length && j < otherValues.length) {
+          if (values[i] < otherValues[j]) {
+            i++;
+          } else if (values[i] > otherValues[j]) {
+            j++;
+          } else {
+            result[num++] = values[i];
+            i++;
+            j++;
+          }
+        }
+      } else {
+        for (char value : values) {
+          if (other.contains(value)) {
+            result[num++] = value;
+          }
+        }
+      }
+      return num == 0 ? null : new ArrayContainer(Arrays.copyOf(result, num));
+    }
+
+    @Override
+    Container or(Container other) {
+      if (other instanceof BitmapContainer) {
+        return other.or(this);
+      }
+      char[] otherValues = ((ArrayContainer) other).values;
+      char[] result = new char[values.length + otherValues.length];
+      int num = 0;
+      int i = 0;
+      int j = 0;
+      while (i < values.length || j < otherValues.length) {
+        if (j == otherValues.length || (i < values.length && values[i] < otherValues[j])) {
+          result[num++] = values[i++];
+        } else if (i == values.length || values[i] > otherValues[j]) {
+          result[num++] = otherValues[j++];
+        } else {
+          result[num++] = values[i++];
+          j++;
+        }
+      }
+      return num > MAX_ARRAY_SIZE ? BitmapContainer.of(result, num)
+          : new ArrayContainer(Arrays.copyOf(result, num));
+    }
+
+    @Override
+    void forEach(int high, IntConsumer consumer) {
+      for (char value : values) {
+        consumer.accept(high | value);
+      }
+    }
+
+    @Override
+    void serialize(DataOutputStream stream) throws IOException {
+      stream.writeByte(ARRAY_CONTAINER);
+      // a container is never empty, so the size - 1 fits in a char
+      stream.writeChar(values.length - 1);
+      for (char value : values) {
+        stream.writeChar(value);
+      }
+    }
+  }
+
+  private static class BitmapContainer extends Container {
+
+    private final long[] words;
+    private final int cardinality;
+
+    private BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    private static BitmapContainer of(char[] values, int length) {
+      long[] words = new long[BITMAP_WORDS];
+      for (int i = 0; i < length; i++) {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+      return new BitmapContainer(words, length);
+    }
+
+    private static int cardinality(long[] words) {
+      int cardinality = 0;
+      for (long word : words) {
+        cardinality += Long.bitCount(word);
+      }
+      return cardinality;
+    }
+
+    /**
+     * @return an array container if the bitmap is sparse enough
+     */
+    private static Container of(long[] words) {
+      int cardinality = cardinality(words);
+      if (cardinality == 0) {
+        return null;
+      }
+      if (cardinality > MAX_ARRAY_SIZE) {
+        return new BitmapContainer(words, cardinality);
+      }
+      char[] values = new char[cardinality];
+      int num = 0;
+      for (int i = 0; i < words.length; i++) {
+        long word = words[i];
+        while (word != 0) {
+          values[num++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return new ArrayContainer(values);
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    Container add(char value) {
+      long[] newWords = words.clone();
+      newWords[value >>> 6] |= 1L << value;
+      return new BitmapContainer(newWords, cardinality + 1);
+    }
+
+    @Override
+    Container remove(char value) {
+      long[] newWords = words.clone();
+      newWords[value >>> 6] &= ~(1L << value);
+      return cardinality - 1 > MAX_ARRAY_SIZE ? new BitmapContainer(newWords, cardinality - 1)
+          : of(newWords);
+    }
+
+    @Override
+    Container and(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.and(this);
+      }
+      long[] otherWords = ((BitmapContainer) other).words;
+      long[] newWords = new long[BITMAP_WORDS];
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        newWords[i] = words[i] & otherWords[i];
+      }
+      return of(newWords);
+    }
+
+    @Override
+    Container or(Container other) {
+      long[] newWords = words.clone();
+      if (other instanceof ArrayContainer) {
+        for (char value : ((ArrayContainer) other).values) {
+          newWords[value >>> 6] |= 1L << value;
+        }
+      } else {
+        long[] otherWords = ((BitmapContainer) other).words;
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          newWords[i] |= otherWords[i];
+        }
+      }
+      return new BitmapContainer(newWords, cardinality(newWords));
+    }
+
+    @Override
+    void forEach(int high, IntConsumer consumer) {
+      for (int i = 0; i < words.length; i++) {
+        long word = words[i];
+        while (word != 0) {
+          consumer.accept(high | ((i << 6) + Long.numberOfTrailingZeros(word)));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    void serialize(DataOutputStream stream) throws IOException {
+      stream.writeByte(BITMAP_CONTAINER);
+      for (long word : words) {
+        stream.writeLong(word);
+      }
+    }
+  }
+}
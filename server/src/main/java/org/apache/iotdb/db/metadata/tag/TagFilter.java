@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.tag;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+/**
+ * TagFilter is a combination of tag predicates with AND and OR, which is evaluated to the posting
+ * list of the matched series by TagInvertedIndex. A predicate on a key that is not a tag cannot be
+ * served by the index, so the whole filter is rejected whether the predicate is under AND or OR.
+ */
+public abstract class TagFilter {
+
+  private static final byte EQUAL = 0;
+  private static final byte CONTAINS = 1;
+  private static final byte AND = 2;
+  private static final byte OR = 3;
+
+  public static TagFilter equal(String key, String value) {
+    return new Predicate(EQUAL, key, value);
+  }
+
+  public static TagFilter contains(String key, String value) {
+    return new Predicate(CONTAINS, key, value);
+  }
+
+  public static TagFilter and(TagFilter left, TagFilter right) {
+    return new Binary(AND, left, right);
+  }
+
+  public static TagFilter or(TagFilter left, TagFilter right) {
+    return new Binary(OR, left, right);
+  }
+
+  /**
+   * @return the ids of the matched series
+   * @throws MetadataException if the key of any predicate is not a tag
+   */
+  abstract PostingList evaluate(TagInvertedIndex index) throws MetadataException;
+
+  public abstract void serialize(DataOutputStream stream) throws IOException;
+
+  public static TagFilter deserialize(ByteBuffer buffer) {
+    byte type = buffer.get();
+    if (type == EQUAL || type == CONTAINS) {
+      return new Predicate(type, ReadWriteIOUtils.readString(buffer),
+          ReadWriteIOUtils.readString(buffer));
+    }
+    return new Binary(type, deserialize(buffer), deserialize(buffer));
+  }
+
+  private static class Predicate extends TagFilter {
+
+    private final byte type;
+    private final String key;
+    private final String value;
+
+    private Predicate(byte type, String key, String value) {
+      this.type = type;
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    PostingList evaluate(TagInvertedIndex index) throws MetadataException {
+      Map<String, PostingList> value2Ids = index.getPostingLists(key);
+      if (value2Ids == null || value2Ids.isEmpty()) {
+        throw new MetadataException("The key " + key + " is not a tag.");
+      }
+      if (type == EQUAL) {
+        PostingList ids = value2Ids.get(value);
+        return ids == null ? PostingList.EMPTY : ids;
+      }
+      PostingList result = PostingList.EMPTY;
+      for (Entry<String, PostingList> entry : value2Ids.entrySet()) {
+        if (entry.getKey().contains(value)) {
+          result = result.or(entry.getValue());
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public void serialize(DataOutputStream stream) throws IOException {
+      stream.writeByte(type);
+      ReadWriteIOUtils.write(key, stream);
+      ReadWriteIOUtils.write(value, stream);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Predicate predicate = (Predicate) o;
+      return type == predicate.type && key.equals(predicate.key) && value.equals(predicate.value);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, key, value);
+    }
+
+    @Override
+    public String toString() {
+      return key + (type == EQUAL ? "=" : " contains ") + value;
+    }
+  }
+
+  private static class Binary extends TagFilter {
+
+    private final byte type;
+    private final TagFilter left;
+    private final TagFilter right;
+
+    private Binary(byte type, TagFilter left, TagFilter right) {
+      this.type = type;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    PostingList evaluate(TagInvertedIndex index) throws MetadataException {
+      PostingList leftIds = left.evaluate(index);
+      PostingList rightIds = right.evaluate(index);
+      return type == AND ? leftIds.and(rightIds) : leftIds.or(rightIds);
+    }
+
+    @Override
+    public void serialize(DataOutputStream stream) throws IOException {
+      stream.writeByte(type);
+      left.serialize(stream);
+      right.serialize(stream);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Binary binary = (Binary) o;
+      return type == binary.type && left.equals(binary.left) && right.equals(binary.right);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, left, right);
+    }
+
+    @Override
+    public String toString() {
+      return "(" + left + (type == AND ? " and " : " or ") + right + ")";
+    }
+  }
+}
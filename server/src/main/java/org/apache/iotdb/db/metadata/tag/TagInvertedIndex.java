@@ -0,0 +1,422 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.tag;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.MetadataConstant;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.writelog.io.LogWriter;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * TagInvertedIndex maps each tag key and value to the posting list of the series with the tag. A
+ * series is identified by the index of its record in the tag file, which never changes and is
+ * dense, so the posting lists are compact bitmaps.
+ *
+ * <p>The index is persisted as a snapshot, which is written together with the MTree snapshot, and
+ * a log of the changes after the snapshot, so it is not rebuilt from the tag file when the system
+ * starts. Reads are not blocked by writes, as posting lists are never changed but replaced.
+ */
+public class TagInvertedIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(TagInvertedIndex.class);
+
+  private static final int SNAPSHOT_MAGIC = 0x54494458;
+  private static final byte ADD = 0;
+  private static final byte REMOVE = 1;
+  // 1 byte type, 4 bytes id, and 4 bytes lengths of the key and the value
+  private static final int LOG_HEADER_SIZE = 13;
+
+  private final File snapshotFile;
+  private final File snapshotTmpFile;
+  private final File logFile;
+  private final int recordSize;
+
+  // tag key -> tag value -> ids of the series
+  private final Map<String, Map<String, PostingList>> index = new ConcurrentHashMap<>();
+  // id -> series, written under the lock of this
+  private volatile MeasurementMNode[] nodes = new MeasurementMNode[0];
+
+  private LogWriter logWriter;
+  private final ByteBuffer logBuffer;
+
+  public TagInvertedIndex(String schemaDir) {
+    this.snapshotFile = SystemFileFactory.INSTANCE
+        .getFile(schemaDir + File.separator + MetadataConstant.TAG_INDEX_SNAPSHOT);
+    this.snapshotTmpFile = SystemFileFactory.INSTANCE
+        .getFile(schemaDir + File.separator + MetadataConstant.TAG_INDEX_SNAPSHOT + ".tmp");
+    this.logFile = SystemFileFactory.INSTANCE
+        .getFile(schemaDir + File.separator + MetadataConstant.TAG_INDEX_LOG);
+    this.recordSize = IoTDBDescriptor.getInstance().getConfig().getTagAttributeTotalSize();
+    // the tag and its value fit in a record of the tag file
+    this.logBuffer = ByteBuffer.allocate(recordSize + LOG_HEADER_SIZE);
+  }
+
+  private int getId(MeasurementMNode node) {
+    return (int) (node.getOffset() / recordSize);
+  }
+
+  /**
+   * Add the series to the posting list of the tag, the offset of the series should be set.
+   */
+  public synchronized void add(String key, String value, MeasurementMNode node)
+      throws IOException {
+    register(node);
+    int id = getId(node);
+    Map<String, PostingList> value2Ids = index.computeIfAbsent(key,
+        k -> new ConcurrentHashMap<>());
+    PostingList ids = value2Ids.getOrDefault(value, PostingList.EMPTY);
+    value2Ids.put(value, ids.add(id));
+    writeLog(ADD, key, value, id);
+  }
+
+  /**
+   * Remove the series from the posting list of the tag.
+   *
+   * @return whether the series has the tag in the index
+   */
+  public synchronized boolean remove(String key, String value, MeasurementMNode node)
+      throws IOException {
+    int id = getId(node);
+    Map<String, PostingList> value2Ids = index.get(key);
+    PostingList ids = value2Ids == null ? null : value2Ids.get(value);
+    if (ids == null || !ids.contains(id)) {
+      return false;
+    }
+    removeId(key, value, id);
+    writeLog(REMOVE, key, value, id);
+    return true;
+  }
+
+  private void removeId(String key, String value, int id) {
+    Map<String, PostingList> value2Ids = index.get(key);
+    if (value2Ids == null) {
+      return;
+    }
+    PostingList ids = value2Ids.getOrDefault(value, PostingList.EMPTY).remove(id);
+    if (!ids.isEmpty()) {
+      value2Ids.put(value, ids);
+      return;
+    }
+    value2Ids.remove(value);
+    if (value2Ids.isEmpty()) {
+      index.remove(key);
+    }
+  }
+
+  /**
+   * Make the series found by its id, which is done by add() for series with tags.
+   */
+  public synchronized void register(MeasurementMNode node) {
+    int id = getId(node);
+    MeasurementMNode[] current = nodes;
+    if (id >= current.length) {
+      current = Arrays.copyOf(current, Math.max(id + 1, current.length + (current.length >> 1)));
+      current[id] = node;
+      nodes = current;
+    } else {
+      current[id] = node;
+    }
+  }
+
+  /**
+   * Forget the deleted series, its tags should have been removed.
+   */
+  public synchronized void unregister(MeasurementMNode node) {
+    int id = getId(node);
+    MeasurementMNode[] current = nodes;
+    if (id < current.length && current[id] == node) {
+      current[id] = null;
+    }
+  }
+
+  /**
+   * @return tag value -> ids of the series, or null if the key is not a tag
+   */
+  Map<String, PostingList> getPostingLists(String key) {
+    return index.get(key);
+  }
+
+  /**
+   * @return the series matched by the filter in the order of their ids
+   */
+  public List<MeasurementMNode> getMatchedNodes(TagFilter filter) throws MetadataException {
+    PostingList ids = filter.evaluate(this);
+    MeasurementMNode[] current = nodes;
+    List<MeasurementMNode> result = new ArrayList<>(ids.size());
+    ids.forEach(id -> {
+      // ids without a series are left by deletions that are not completely logged
+      if (id < current.length && current[id] != null) {
+        result.add(current[id]);
+      }
+    });
+    return result;
+  }
+
+  private void writeLog(byte type, String key, String value, int id) throws IOException {
+    if (logWriter == null) {
+      logWriter = new LogWriter(logFile,
+          IoTDBDescriptor.getInstance().getConfig().getSyncMlogPeriodInMs() == 0);
+    }
+    logBuffer.clear();
+    logBuffer.put(type);
+    logBuffer.putInt(id);
+    ReadWriteIOUtils.write(key, logBuffer);
+    ReadWriteIOUtils.write(value, logBuffer);
+    logWriter.write(logBuffer);
+  }
+
+  /**
+   * Load the snapshot and replay the log after it.
+   *
+   * @return false if the index is not persisted, in which case it should be rebuilt from the tag
+   * file by rebuild()
+   */
+  public synchronized boolean recover() throws IOException {
+    clear();
+    if (snapshotTmpFile.exists()) {
+      Files.delete(snapshotTmpFile.toPath());
+    }
+    boolean persisted = snapshotFile.exists() && loadSnapshot();
+    if (!persisted) {
+      index.clear();
+      return false;
+    }
+    if (logFile.exists()) {
+      replayLog();
+    }
+    return true;
+  }
+
+  private boolean loadSnapshot() throws IOException {
+    try (DataInputStream stream = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+      if (stream.readInt() != SNAPSHOT_MAGIC || stream.readInt() != recordSize) {
+        logger.warn("The tag index snapshot {} is not compatible, rebuild it", snapshotFile);
+        return false;
+      }
+      int keyNum = stream.readInt();
+      for (int i = 0; i < keyNum; i++) {
+        String key = stream.readUTF();
+        int valueNum = stream.readInt();
+        Map<String, PostingList> value2Ids = new ConcurrentHashMap<>(valueNum);
+        for (int j = 0; j < valueNum; j++) {
+          String value = stream.readUTF();
+          value2Ids.put(value, PostingList.deserialize(stream));
+        }
+        index.put(key, value2Ids);
+      }
+      return true;
+    } catch (EOFException e) {
+      logger.warn("The tag index snapshot {} is broken, rebuild it", snapshotFile, e);
+      return false;
+    }
+  }
+
+  private void replayLog() throws IOException {
+    long validLength = 0;
+    int logNum = 0;
+    CRC32 checkSummer = new CRC32();
+    try (DataInputStream stream = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(logFile)))) {
+      while (true) {
+        int size = stream.readInt();
+        if (size <= 0 || size > logBuffer.capacity()) {
+          throw new IOException("Illegal log size " + size);
+        }
+        byte[] bytes = new byte[size];
+        stream.readFully(bytes);
+        long checkSum = stream.readLong();
+        checkSummer.reset();
+        checkSummer.update(bytes, 0, size);
+        if (checkSummer.getValue() != checkSum) {
+          throw new IOException("The check sum of the No." + logNum + " log is incorrect");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte type = buffer.get();
+        int id = buffer.getInt();
+        String key = ReadWriteIOUtils.readString(buffer);
+        String value = ReadWriteIOUtils.readString(buffer);
+        if (type == ADD) {
+          index.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+              .compute(value, (v, ids) -> (ids == null ? PostingList.EMPTY : ids).add(id));
+        } else {
+          removeId(key, value, id);
+        }
+        validLength += Integer.BYTES + size + Long.BYTES;
+        logNum++;
+      }
+    } catch (EOFException e) {
+      // reach the end of the log, maybe in the middle of a log
+    } catch (IOException e) {
+      logger.warn("Cannot replay the tag index log {} after {} logs", logFile, logNum, e);
+    }
+    if (validLength < logFile.length()) {
+      logger.warn("Truncate the broken tail of the tag index log {} from {} to {} bytes", logFile,
+          logFile.length(), validLength);
+      try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+        file.getChannel().truncate(validLength);
+      }
+    }
+  }
+
+  /**
+   * @return a builder which rebuilds the index efficiently, replacing all posting lists when it
+   * finishes
+   */
+  public Rebuilder rebuild() {
+    return new Rebuilder();
+  }
+
+  /**
+   * Persist the whole index and clear the log, which is called with the MTree snapshot, or after
+   * the index is rebuilt.
+   */
+  public synchronized void snapshot() throws IOException {
+    try (DataOutputStream stream = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(snapshotTmpFile)))) {
+      stream.writeInt(SNAPSHOT_MAGIC);
+      stream.writeInt(recordSize);
+      stream.writeInt(index.size());
+      for (Entry<String, Map<String, PostingList>> keyEntry : index.entrySet()) {
+        stream.writeUTF(keyEntry.getKey());
+        stream.writeInt(keyEntry.getValue().size());
+        for (Entry<String, PostingList> valueEntry : keyEntry.getValue().entrySet()) {
+          stream.writeUTF(valueEntry.getKey());
+          valueEntry.getValue().serialize(stream);
+        }
+      }
+    }
+    if (snapshotFile.exists()) {
+      Files.delete(snapshotFile.toPath());
+    }
+    if (!snapshotTmpFile.renameTo(snapshotFile)) {
+      throw new IOException("Cannot rename " + snapshotTmpFile + " to " + snapshotFile);
+    }
+    closeLog();
+    Files.deleteIfExists(logFile.toPath());
+  }
+
+  public synchronized void force() throws IOException {
+    if (logWriter != null) {
+      logWriter.force();
+    }
+  }
+
+  private void closeLog() throws IOException {
+    if (logWriter != null) {
+      logWriter.force();
+      logWriter.close();
+      logWriter = null;
+    }
+  }
+
+  /**
+   * clear the index in memory and close the log
+   */
+  public synchronized void clear() throws IOException {
+    index.clear();
+    nodes = new MeasurementMNode[0];
+    closeLog();
+  }
+
+  /**
+   * Rebuilder collects the tags of all series and builds their posting lists at once, instead of
+   * copying a posting list for each series.
+   */
+  public class Rebuilder {
+
+    private final Map<String, Map<String, IdList>> tags = new HashMap<>();
+
+    private Rebuilder() {
+    }
+
+    public void add(MeasurementMNode node, Map<String, String> tagMap) {
+      register(node);
+      int id = getId(node);
+      for (Entry<String, String> entry : tagMap.entrySet()) {
+        tags.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
+            .computeIfAbsent(entry.getValue(), v -> new IdList()).add(id);
+      }
+    }
+
+    public void finish() throws IOException {
+      synchronized (TagInvertedIndex.this) {
+        index.clear();
+        for (Entry<String, Map<String, IdList>> keyEntry : tags.entrySet()) {
+          Map<String, PostingList> value2Ids = new ConcurrentHashMap<>(keyEntry.getValue().size());
+          for (Entry<String, IdList> valueEntry : keyEntry.getValue().entrySet()) {
+            value2Ids.put(valueEntry.getKey(), valueEntry.getValue().toPostingList());
+          }
+          index.put(keyEntry.getKey(), value2Ids);
+        }
+        snapshot();
+      }
+    }
+  }
+
+  private static class IdList {
+
+    private int[] ids = new int[4];
+    private int size = 0;
+
+    private void add(int id) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = id;
+    }
+
+    private PostingList toPostingList() {
+      Arrays.sort(ids, 0, size);
+      int distinct = 0;
+      for (int i = 0; i < size; i++) {
+        if (i == 0 || ids[i] != ids[i - 1]) {
+          ids[distinct++] = ids[i];
+        }
+      }
+      return PostingList.of(ids, distinct);
+    }
+  }
+}
@@ -44,6 +44,8 @@ public class CreateTimeSeriesPlan extends PhysicalPlan {
   private Map<String, String> props = null;
   private Map<String, String> tags = null;
   private Map<String, String> attributes = null;
+  // the offset of the tags and attributes in the tag file, only used by the metadata log
+  private long tagOffset = -1;
 
   public CreateTimeSeriesPlan() {
     super(false, Operator.OperatorType.CREATE_TIMESERIES);
@@ -129,6 +131,14 @@ public class CreateTimeSeriesPlan extends PhysicalPlan {
     this.props = props;
   }
 
+  public long getTagOffset() {
+    return tagOffset;
+  }
+
+  public void setTagOffset(long tagOffset) {
+    this.tagOffset = tagOffset;
+  }
+
   @Override
   public String toString() {
     return String.format("seriesPath: %s, resultDataType: %s, encoding: %s, compression: %s", path,
@@ -181,6 +191,53 @@ public class CreateTimeSeriesPlan extends PhysicalPlan {
     } else {
       stream.write(0);
     }
+
+    stream.writeLong(tagOffset);
+  }
+
+  @Override
+  public void serialize(ByteBuffer buffer) {
+    buffer.put((byte) PhysicalPlanType.CREATE_TIMESERIES.ordinal());
+    byte[] bytes = path.getFullPath().getBytes();
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+    buffer.put((byte) dataType.ordinal());
+    buffer.put((byte) encoding.ordinal());
+    buffer.put((byte) compressor.ordinal());
+
+    // alias
+    if (alias != null) {
+      buffer.put((byte) 1);
+      ReadWriteIOUtils.write(alias, buffer);
+    } else {
+      buffer.put((byte) 0);
+    }
+
+    // props
+    if (props != null && !props.isEmpty()) {
+      buffer.put((byte) 1);
+      ReadWriteIOUtils.write(props, buffer);
+    } else {
+      buffer.put((byte) 0);
+    }
+
+    // tags
+    if (tags != null && !tags.isEmpty()) {
+      buffer.put((byte) 1);
+      ReadWriteIOUtils.write(tags, buffer);
+    } else {
+      buffer.put((byte) 0);
+    }
+
+    // attributes
+    if (attributes != null && !attributes.isEmpty()) {
+      buffer.put((byte) 1);
+      ReadWriteIOUtils.write(attributes, buffer);
+    } else {
+      buffer.put((byte) 0);
+    }
+
+    buffer.putLong(tagOffset);
   }
 
   @Override
@@ -212,6 +269,8 @@ public class CreateTimeSeriesPlan extends PhysicalPlan {
     if (buffer.get() == 1) {
       attributes = ReadWriteIOUtils.readMap(buffer);
     }
+
+    tagOffset = buffer.getLong();
   }
 
   @Override
@@ -66,6 +66,14 @@ public class SetStorageGroupPlan extends PhysicalPlan {
     stream.write(fullPathBytes);
   }
 
+  @Override
+  public void serialize(ByteBuffer buffer) {
+    buffer.put((byte) PhysicalPlanType.SET_STORAGE_GROUP.ordinal());
+    byte[] fullPathBytes = path.getFullPath().getBytes();
+    buffer.putInt(fullPathBytes.length);
+    buffer.put(fullPathBytes);
+  }
+
   @Override
   public void deserialize(ByteBuffer buffer) throws IllegalPathException {
     int length = buffer.getInt();
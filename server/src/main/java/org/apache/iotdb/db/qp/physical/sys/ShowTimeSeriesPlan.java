@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import org.apache.iotdb.db.exception.metadata.IllegalPathException;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.metadata.tag.TagFilter;
 
 public class ShowTimeSeriesPlan extends ShowPlan {
 
@@ -32,6 +33,8 @@ public class ShowTimeSeriesPlan extends ShowPlan {
   private boolean isContains;
   private String key;
   private String value;
+  // a boolean combination of tag predicates, takes precedence over key/value when set
+  private TagFilter tagFilter;
   private int limit = 0;
   private int offset = 0;
   // if is true, the result will be sorted according to the inserting frequency of the timeseries
@@ -76,6 +79,21 @@ public class ShowTimeSeriesPlan extends ShowPlan {
     return value;
   }
 
+  /**
+   * @return the tag filter of the WHERE clause, or null if there is none. A plan built only from
+   * key/value falls back to a single EQUAL or CONTAINS predicate.
+   */
+  public TagFilter getTagFilter() {
+    if (tagFilter == null && key != null) {
+      return isContains ? TagFilter.contains(key, value) : TagFilter.equal(key, value);
+    }
+    return tagFilter;
+  }
+
+  public void setTagFilter(TagFilter tagFilter) {
+    this.tagFilter = tagFilter;
+  }
+
   public int getLimit() {
     return limit;
   }
@@ -120,6 +138,12 @@ public class ShowTimeSeriesPlan extends ShowPlan {
     outputStream.writeInt(limit);
     outputStream.writeInt(offset);
     outputStream.writeBoolean(orderByHeat);
+    if (tagFilter != null) {
+      outputStream.writeBoolean(true);
+      tagFilter.serialize(outputStream);
+    } else {
+      outputStream.writeBoolean(false);
+    }
   }
 
   @Override
@@ -130,7 +154,10 @@ public class ShowTimeSeriesPlan extends ShowPlan {
     value = readString(buffer);
 
     limit = buffer.getInt();
-    limit = buffer.getInt();
+    offset = buffer.getInt();
     orderByHeat = buffer.get() == 1;
+    if (buffer.hasRemaining() && buffer.get() == 1) {
+      tagFilter = TagFilter.deserialize(buffer);
+    }
   }
 }
\ No newline at end of file
@@ -33,6 +33,7 @@ import org.antlr.v4.runtime.tree.TerminalNode;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.runtime.SQLParserException;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.metadata.tag.TagFilter;
 import org.apache.iotdb.db.qp.constant.DatetimeUtils;
 import org.apache.iotdb.db.qp.constant.SQLConstant;
 import org.apache.iotdb.db.qp.logical.RootOperator;
@@ -166,7 +167,10 @@ import org.apache.iotdb.db.qp.strategy.SqlBaseParser.SlimitClauseContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.SoffsetClauseContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.StringLiteralContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.SuffixPathContext;
+import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TagAndExpressionContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TagClauseContext;
+import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TagOrExpressionContext;
+import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TagPredicateContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TimeIntervalContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TracingOffContext;
 import org.apache.iotdb.db.qp.strategy.SqlBaseParser.TracingOnContext;
@@ -1288,11 +1292,31 @@ public class LogicalGenerator extends SqlBaseBaseListener {
     List<FunctionCallContext> functionCallContextList = ctx.functionCall();
     for (FunctionCallContext functionCallContext : functionCallContextList) {
       PartialPath path = parseSuffixPath(functionCallContext.suffixPath());
-      selectOp.addClusterPath(path, functionCallContext.functionName().getText());
+      selectOp.addClusterPath(path, parseAggregation(functionCallContext));
     }
     queryOp.setSelectOperator(selectOp);
   }
 
+  /**
+   * @return the aggregation of the function call, with its parameter if any, e.g.
+   * "percentile(0.99)"
+   */
+  private String parseAggregation(FunctionCallContext ctx) {
+    String aggregation = ctx.functionName().getText();
+    if (ctx.realLiteral() == null) {
+      return aggregation;
+    }
+    if (ctx.functionName().PERCENTILE() == null) {
+      throw new SQLParserException(aggregation + " does not accept a parameter");
+    }
+    String quantile = ctx.realLiteral().getText();
+    double value = Double.parseDouble(quantile);
+    if (!(value >= 0 && value <= 1)) {
+      throw new SQLParserException("the quantile of percentile must be in [0, 1]: " + quantile);
+    }
+    return aggregation + "(" + quantile + ")";
+  }
+
   @Override
   public void enterSelectElement(SelectElementContext ctx) {
     super.enterSelectElement(ctx);
@@ -1352,7 +1376,7 @@ public class LogicalGenerator extends SqlBaseBaseListener {
       if (functionAsClauseContext.ID() != null) {
         path.setTsAlias(functionAsClauseContext.ID().toString());
       }
-      selectOp.addClusterPath(path, functionCallContext.functionName().getText());
+      selectOp.addClusterPath(path, parseAggregation(functionCallContext));
     }
     queryOp.setSelectOperator(selectOp);
   }
@@ -1438,23 +1462,60 @@ public class LogicalGenerator extends SqlBaseBaseListener {
     super.enterShowWhereClause(ctx);
 
     ShowTimeSeriesOperator operator = (ShowTimeSeriesOperator) initializedOperator;
-    PropertyValueContext propertyValueContext;
-    if (ctx.containsExpression() != null) {
-      operator.setContains(true);
-      propertyValueContext = ctx.containsExpression().propertyValue();
-      operator.setKey(ctx.containsExpression().ID().getText());
+    TagOrExpressionContext orContext = ctx.tagOrExpression();
+    if (orContext.tagAndExpression().size() == 1
+        && orContext.tagAndExpression(0).tagPredicate().size() == 1
+        && orContext.tagAndExpression(0).tagPredicate(0).tagOrExpression() == null) {
+      // a single predicate keeps the plain key/value form
+      TagPredicateContext predicate = orContext.tagAndExpression(0).tagPredicate(0);
+      if (predicate.containsExpression() != null) {
+        operator.setContains(true);
+        operator.setKey(predicate.containsExpression().ID().getText());
+        operator.setValue(parseTagValue(predicate.containsExpression().propertyValue()));
+      } else {
+        operator.setContains(false);
+        operator.setKey(predicate.property().ID().getText());
+        operator.setValue(parseTagValue(predicate.property().propertyValue()));
+      }
     } else {
-      operator.setContains(false);
-      propertyValueContext = ctx.property().propertyValue();
-      operator.setKey(ctx.property().ID().getText());
+      operator.setTagFilter(parseTagOrExpression(orContext));
     }
-    String value;
+  }
+
+  private TagFilter parseTagOrExpression(TagOrExpressionContext ctx) {
+    TagFilter filter = parseTagAndExpression(ctx.tagAndExpression(0));
+    for (int i = 1; i < ctx.tagAndExpression().size(); i++) {
+      filter = TagFilter.or(filter, parseTagAndExpression(ctx.tagAndExpression(i)));
+    }
+    return filter;
+  }
+
+  private TagFilter parseTagAndExpression(TagAndExpressionContext ctx) {
+    TagFilter filter = parseTagPredicate(ctx.tagPredicate(0));
+    for (int i = 1; i < ctx.tagPredicate().size(); i++) {
+      filter = TagFilter.and(filter, parseTagPredicate(ctx.tagPredicate(i)));
+    }
+    return filter;
+  }
+
+  private TagFilter parseTagPredicate(TagPredicateContext ctx) {
+    if (ctx.tagOrExpression() != null) {
+      return parseTagOrExpression(ctx.tagOrExpression());
+    } else if (ctx.containsExpression() != null) {
+      return TagFilter.contains(ctx.containsExpression().ID().getText(),
+          parseTagValue(ctx.containsExpression().propertyValue()));
+    } else {
+      return TagFilter.equal(ctx.property().ID().getText(),
+          parseTagValue(ctx.property().propertyValue()));
+    }
+  }
+
+  private String parseTagValue(PropertyValueContext propertyValueContext) {
     if (propertyValueContext.stringLiteral() != null) {
-      value = removeStringQuote(propertyValueContext.getText());
+      return removeStringQuote(propertyValueContext.getText());
     } else {
-      value = propertyValueContext.getText();
+      return propertyValueContext.getText();
     }
-    operator.setValue(value);
   }
 
   private FilterOperator parseOrExpression(OrExpressionContext ctx) {
@@ -88,7 +88,11 @@ public class ConcatPathOptimizer implements ILogicalOptimizer {
     if (operator instanceof QueryOperator) {
       if (!((QueryOperator) operator).isAlignByDevice() || ((QueryOperator) operator)
           .isLastQuery()) {
-        concatSelect(prefixPaths, select); // concat and remove star
+        // only the first SOFFSET + SLIMIT series are needed
+        int maxSeriesNum = ((QueryOperator) operator).hasSlimit()
+            ? ((QueryOperator) operator).getSeriesOffset()
+            + ((QueryOperator) operator).getSeriesLimit() : 0;
+        concatSelect(prefixPaths, select, maxSeriesNum); // concat and remove star
 
         if (((QueryOperator) operator).hasSlimit()) {
           int seriesLimit = ((QueryOperator) operator).getSeriesLimit();
@@ -158,9 +162,11 @@ public class ConcatPathOptimizer implements ILogicalOptimizer {
   /**
    * Extract paths from select&from cql, expand them into complete versions, and reassign them to
    * selectOperator's suffixPathList. Treat aggregations similarly.
+   *
+   * @param maxSeriesNum the expansion stops after so many series are found, 0 means no limit
    */
-  private void concatSelect(List<PartialPath> fromPaths, SelectOperator selectOperator)
-      throws LogicalOptimizeException {
+  private void concatSelect(List<PartialPath> fromPaths, SelectOperator selectOperator,
+      int maxSeriesNum) throws LogicalOptimizeException {
     List<PartialPath> suffixPaths = judgeSelectOperator(selectOperator);
 
     List<PartialPath> allPaths = new ArrayList<>();
@@ -180,7 +186,7 @@ public class ConcatPathOptimizer implements ILogicalOptimizer {
       }
     }
 
-    removeStarsInPath(allPaths, afterConcatAggregations, selectOperator);
+    removeStarsInPath(allPaths, afterConcatAggregations, selectOperator, maxSeriesNum);
   }
 
   /**
@@ -302,12 +308,23 @@ public class ConcatPathOptimizer implements ILogicalOptimizer {
   }
 
   private void removeStarsInPath(List<PartialPath> paths, List<String> afterConcatAggregations,
-      SelectOperator selectOperator) throws LogicalOptimizeException {
+      SelectOperator selectOperator, int maxSeriesNum) throws LogicalOptimizeException {
     List<PartialPath> retPaths = new ArrayList<>();
     List<String> newAggregations = new ArrayList<>();
     for (int i = 0; i < paths.size(); i++) {
+      int limit = 0;
+      if (maxSeriesNum > 0) {
+        limit = maxSeriesNum - retPaths.size();
+        if (limit <= 0) {
+          break;
+        }
+        if (paths.get(i).getTsAlias() != null) {
+          // find a second series to report the ambiguous alias
+          limit = Math.max(limit, 2);
+        }
+      }
       try {
-        List<PartialPath> actualPaths = removeWildcard(paths.get(i));
+        List<PartialPath> actualPaths = removeWildcard(paths.get(i), limit);
         if (paths.get(i).getTsAlias() != null) {
           if (actualPaths.size() == 1) {
             actualPaths.get(0).setTsAlias(paths.get(i).getTsAlias());
@@ -333,4 +350,12 @@ public class ConcatPathOptimizer implements ILogicalOptimizer {
   protected List<PartialPath> removeWildcard(PartialPath path) throws MetadataException {
     return IoTDB.metaManager.getAllTimeseriesPathWithAlias(path);
   }
+
+  /**
+   * @param limit the max number of the returned paths, 0 means no limit
+   */
+  protected List<PartialPath> removeWildcard(PartialPath path, int limit)
+      throws MetadataException {
+    return IoTDB.metaManager.getAllTimeseriesPathWithAlias(path, limit, 0);
+  }
 }
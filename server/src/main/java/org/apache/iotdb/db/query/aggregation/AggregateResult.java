@@ -67,6 +67,16 @@ public abstract class AggregateResult {
   public abstract void updateResultFromStatistics(Statistics statistics)
       throws QueryProcessException;
 
+  /**
+   * Whether {@link #updateResultFromStatistics} can use the statistics, otherwise the points they
+   * summarize must be read.
+   *
+   * @param statistics chunkStatistics or pageStatistics
+   */
+  public boolean canUpdateFromStatistics(Statistics statistics) {
+    return true;
+  }
+
   /**
    * Aggregate results cannot be calculated using Statistics directly, using the data in each page
    *
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.aggregation.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.query.aggregation.AggregateResult;
+import org.apache.iotdb.db.query.aggregation.AggregationType;
+import org.apache.iotdb.db.query.reader.series.IReaderByTimestamp;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.statistics.DistinctCountSketch;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+/**
+ * An approximate number of distinct values. The distinct count sketches in the statistics of the
+ * series enabling them are merged without reading the pages, other points are added to the
+ * sketch one by one.
+ */
+public class ApproxCountDistinctAggrResult extends AggregateResult {
+
+  private TSDataType seriesDataType;
+  private DistinctCountSketch sketch = new DistinctCountSketch();
+
+  public ApproxCountDistinctAggrResult(TSDataType seriesDataType) {
+    super(TSDataType.INT64, AggregationType.APPROX_COUNT_DISTINCT);
+    this.seriesDataType = seriesDataType;
+    reset();
+    setLongValue(0);
+  }
+
+  @Override
+  public Long getResult() {
+    setLongValue(sketch.getEstimate());
+    return getLongValue();
+  }
+
+  @Override
+  public boolean canUpdateFromStatistics(Statistics statistics) {
+    return statistics.getDistinctCountSketch() != null;
+  }
+
+  @Override
+  public void updateResultFromStatistics(Statistics statistics) throws QueryProcessException {
+    if (statistics.getDistinctCountSketch() == null) {
+      throw new QueryProcessException(
+          "Statistics without sketches does not support: approx_count_distinct");
+    }
+    sketch.merge(statistics.getDistinctCountSketch());
+  }
+
+  @Override
+  public void updateResultFromPageData(BatchData dataInThisPage) throws IOException {
+    updateResultFromPageData(dataInThisPage, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  @Override
+  public void updateResultFromPageData(BatchData dataInThisPage, long minBound, long maxBound)
+      throws IOException {
+    while (dataInThisPage.hasCurrent()) {
+      if (dataInThisPage.currentTime() >= maxBound || dataInThisPage.currentTime() < minBound) {
+        break;
+      }
+      updateSketch(seriesDataType, dataInThisPage.currentValue());
+      dataInThisPage.next();
+    }
+  }
+
+  @Override
+  public void updateResultUsingTimestamps(long[] timestamps, int length,
+      IReaderByTimestamp dataReader) throws IOException {
+    for (int i = 0; i < length; i++) {
+      Object value = dataReader.getValueInTimestamp(timestamps[i]);
+      if (value != null) {
+        updateSketch(seriesDataType, value);
+      }
+    }
+  }
+
+  private void updateSketch(TSDataType type, Object value) throws IOException {
+    switch (type) {
+      case BOOLEAN:
+        sketch.update((boolean) value);
+        break;
+      case INT32:
+        sketch.update((int) value);
+        break;
+      case INT64:
+        sketch.update((long) value);
+        break;
+      case FLOAT:
+        sketch.update((float) value);
+        break;
+      case DOUBLE:
+        sketch.update((double) value);
+        break;
+      case TEXT:
+        sketch.update((Binary) value);
+        break;
+      default:
+        throw new IOException(
+            String.format("Unsupported data type in aggregation APPROX_COUNT_DISTINCT : %s",
+                type));
+    }
+  }
+
+  @Override
+  public boolean isCalculatedAggregationResult() {
+    return false;
+  }
+
+  @Override
+  public void merge(AggregateResult another) {
+    sketch.merge(((ApproxCountDistinctAggrResult) another).sketch);
+  }
+
+  @Override
+  protected void deserializeSpecificFields(ByteBuffer buffer) {
+    this.seriesDataType = TSDataType.deserialize(buffer.getShort());
+    this.sketch = DistinctCountSketch.deserialize(buffer);
+  }
+
+  @Override
+  protected void serializeSpecificFields(OutputStream outputStream) throws IOException {
+    ReadWriteIOUtils.write(seriesDataType, outputStream);
+    sketch.serialize(outputStream);
+  }
+
+  @Override
+  public void reset() {
+    super.reset();
+    sketch = new DistinctCountSketch();
+  }
+}
@@ -22,7 +22,6 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -123,10 +122,10 @@ public class QueryResourceManager {
         .query(singleSeriesExpression, context, filePathsManager);
     // calculate the distinct number of seq and unseq tsfiles
     if (config.isEnablePerformanceTracing()) {
-      seqFileNumMap.computeIfAbsent(context.getQueryId(), k -> new HashSet<>())
+      seqFileNumMap.computeIfAbsent(context.getQueryId(), k -> ConcurrentHashMap.newKeySet())
           .addAll((queryDataSource.getSeqResources().stream().map(r -> new WeakReference<>(r))
                   .collect(Collectors.toSet())));
-      unseqFileNumMap.computeIfAbsent(context.getQueryId(), k -> new HashSet<>())
+      unseqFileNumMap.computeIfAbsent(context.getQueryId(), k -> ConcurrentHashMap.newKeySet())
           .addAll((queryDataSource.getUnseqResources().stream().map(r -> new WeakReference<>(r))
               .collect(Collectors.toSet())));
     }
@@ -142,9 +142,10 @@ public class AlignByDeviceDataSet extends QueryDataSet {
       for (String column : measurementDataTypeMap.keySet()) {
         String measurement = column;
         if (dataSetType == DataSetType.GROUPBYTIME || dataSetType == DataSetType.AGGREGATE) {
-          measurement = column.substring(column.indexOf('(') + 1, column.indexOf(')'));
+          // the aggregation may have a parameter, e.g. percentile(0.99)(s1)
+          measurement = column.substring(column.lastIndexOf('(') + 1, column.lastIndexOf(')'));
           if (measurementOfGivenDevice.contains(measurement)) {
-            executeAggregations.add(column.substring(0, column.indexOf('(')));
+            executeAggregations.add(column.substring(0, column.lastIndexOf('(')));
           }
         }
         if (measurementOfGivenDevice.contains(measurement)) {
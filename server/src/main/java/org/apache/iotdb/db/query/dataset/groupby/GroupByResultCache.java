@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.dataset.groupby;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.cache.WTinyLFUCache;
+import org.apache.iotdb.db.query.aggregation.AggregateResult;
+import org.apache.iotdb.tsfile.common.cache.Accountable;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
+
+/**
+ * This class caches the group by results of the intervals no later than the latest flushed time of
+ * their series, so that a repeated group by query only calculates the newest intervals. A cached
+ * interval is tagged with the historical data version of its storage group (see
+ * StorageGroupProcessor.getHistoricalDataVersion()) and dropped once the version changes.
+ */
+public class GroupByResultCache {
+
+  private static final int RESULT_SIZE = 32;
+
+  private final WTinyLFUCache<IntervalKey, CachedInterval> cache;
+
+  private final AtomicLong cacheHitNum = new AtomicLong();
+  private final AtomicLong cacheRequestNum = new AtomicLong();
+
+  GroupByResultCache(long maxMemory) {
+    cache = new WTinyLFUCache<IntervalKey, CachedInterval>(maxMemory) {
+      @Override
+      protected long calEntrySize(IntervalKey key, CachedInterval value) {
+        long size = RamUsageEstimator.shallowSizeOf(key) + RamUsageEstimator.sizeOf(key.path)
+            + RamUsageEstimator.sizeOf(key.aggregations) + RamUsageEstimator.shallowSizeOf(value)
+            + (long) RESULT_SIZE * value.results.length;
+        for (Object result : value.results) {
+          if (result instanceof Binary) {
+            size += ((Binary) result).getLength();
+          }
+        }
+        return size;
+      }
+    };
+  }
+
+  public static GroupByResultCache getInstance() {
+    return GroupByResultCacheHolder.INSTANCE;
+  }
+
+  /**
+   * @return the cached results of the interval, or null if they are not cached or the data has
+   * changed since they were calculated
+   */
+  public CachedInterval get(IntervalKey key) {
+    cacheRequestNum.incrementAndGet();
+    CachedInterval interval = cache.get(key);
+    if (interval == null) {
+      return null;
+    }
+    if (!interval.isValid()) {
+      cache.remove(key);
+      return null;
+    }
+    cacheHitNum.incrementAndGet();
+    return interval;
+  }
+
+  public void put(IntervalKey key, CachedInterval interval) {
+    cache.put(key, interval);
+  }
+
+  public void clear() {
+    cache.clear();
+    cacheHitNum.set(0);
+    cacheRequestNum.set(0);
+  }
+
+  public double calculateHitRatio() {
+    if (cacheRequestNum.get() != 0) {
+      return cacheHitNum.get() * 1.0 / cacheRequestNum.get();
+    } else {
+      return 0;
+    }
+  }
+
+  public long getUsedMemory() {
+    return cache.getUsedMemory();
+  }
+
+  public static class IntervalKey implements Accountable {
+
+    private final String path;
+    // the aggregations calculated for the path, in the order of their results
+    private final String aggregations;
+    private final long startTime;
+    private final long endTime;
+
+    private long ramSize;
+
+    public IntervalKey(String path, String aggregations, long startTime, long endTime) {
+      this.path = path;
+      this.aggregations = aggregations;
+      this.startTime = startTime;
+      this.endTime = endTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      IntervalKey that = (IntervalKey) o;
+      return startTime == that.startTime && endTime == that.endTime
+          && Objects.equals(path, that.path) && Objects.equals(aggregations, that.aggregations);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, aggregations, startTime, endTime);
+    }
+
+    @Override
+    public void setRamSize(long size) {
+      this.ramSize = size;
+    }
+
+    @Override
+    public long getRamSize() {
+      return ramSize;
+    }
+  }
+
+  public static class CachedInterval {
+
+    private final Object[] results;
+    private final TSDataType[] dataTypes;
+    private final AtomicLong dataVersion;
+    private final long version;
+
+    /**
+     * @param version the value of dataVersion before the results were calculated
+     */
+    public CachedInterval(List<AggregateResult> aggregateResults, AtomicLong dataVersion,
+        long version) {
+      this.results = new Object[aggregateResults.size()];
+      this.dataTypes = new TSDataType[aggregateResults.size()];
+      for (int i = 0; i < aggregateResults.size(); i++) {
+        results[i] = aggregateResults.get(i).getResult();
+        dataTypes[i] = aggregateResults.get(i).getResultDataType();
+      }
+      this.dataVersion = dataVersion;
+      this.version = version;
+    }
+
+    boolean isValid() {
+      return dataVersion.get() == version;
+    }
+
+    public Object getResult(int index) {
+      return results[index];
+    }
+
+    public TSDataType getDataType(int index) {
+      return dataTypes[index];
+    }
+  }
+
+  private static class GroupByResultCacheHolder {
+
+    private GroupByResultCacheHolder() {
+    }
+
+    private static final GroupByResultCache INSTANCE = new GroupByResultCache(
+        IoTDBDescriptor.getInstance().getConfig().getGroupByResultCacheMemoryInByte());
+  }
+}
@@ -26,20 +26,31 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.qp.constant.SQLConstant;
+import org.apache.iotdb.db.qp.physical.crud.GroupByTimeFillPlan;
 import org.apache.iotdb.db.qp.physical.crud.GroupByTimePlan;
 import org.apache.iotdb.db.query.aggregation.AggregateResult;
 import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.dataset.groupby.GroupByResultCache.CachedInterval;
+import org.apache.iotdb.db.query.dataset.groupby.GroupByResultCache.IntervalKey;
 import org.apache.iotdb.db.query.factory.AggregateResultFactory;
 import org.apache.iotdb.db.query.filter.TsFileFilter;
+import org.apache.iotdb.db.query.pool.ParallelSeriesExecutor;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.common.Path;
 import org.apache.iotdb.tsfile.read.common.RowRecord;
 import org.apache.iotdb.tsfile.read.expression.IExpression;
 import org.apache.iotdb.tsfile.read.expression.impl.GlobalTimeExpression;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
 import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
 import org.apache.iotdb.tsfile.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +60,9 @@ public class GroupByWithoutValueFilterDataSet extends GroupByEngineDataSet {
   private static final Logger logger = LoggerFactory
       .getLogger(GroupByWithoutValueFilterDataSet.class);
 
+  // calculating one interval of a series is cheap, so a thread takes several series
+  private static final int MIN_SERIES_PER_THREAD = 16;
+
   private Map<PartialPath, GroupByExecutor> pathExecutors = new HashMap<>();
 
   /**
@@ -62,6 +76,19 @@ public class GroupByWithoutValueFilterDataSet extends GroupByEngineDataSet {
    */
   private Map<PartialPath, List<Integer>> resultIndexes = new HashMap<>();
 
+  // the entries of pathExecutors, indexed for executing the series in parallel
+  private List<Entry<PartialPath, GroupByExecutor>> executorEntries;
+
+  // the intervals may be calculated from the rollups if any rollup level is configured
+  private GroupByTimePlan rollupGroupByTimePlan;
+
+  // the time filter of the query, the cached results of an interval are only used if the filter
+  // contains the whole interval
+  private Filter timeFilter;
+
+  // the cache contexts of the paths, or null if GroupByResultCache is not used
+  private Map<PartialPath, SeriesCacheContext> cacheContexts;
+
   public GroupByWithoutValueFilterDataSet() {
   }
 
@@ -78,30 +105,114 @@ public class GroupByWithoutValueFilterDataSet extends GroupByEngineDataSet {
   protected void initGroupBy(QueryContext context, GroupByTimePlan groupByTimePlan)
       throws StorageEngineException, QueryProcessException {
     IExpression expression = groupByTimePlan.getExpression();
+    if (!IoTDBDescriptor.getInstance().getConfig().getRollupLevels().isEmpty()
+        && !hasSketchAggregation(groupByTimePlan)) {
+      rollupGroupByTimePlan = groupByTimePlan;
+    }
 
-    Filter timeFilter = null;
     if (expression != null) {
       timeFilter = ((GlobalTimeExpression) expression).getFilter();
     }
 
     // init resultIndexes, group result indexes by path
     for (int i = 0; i < paths.size(); i++) {
-      PartialPath path = (PartialPath) paths.get(i);
-      if (!pathExecutors.containsKey(path)) {
-        //init GroupByExecutor
-        pathExecutors.put(path,
-            getGroupByExecutor(path, groupByTimePlan.getAllMeasurementsInDevice(path.getDevice()),
-                dataTypes.get(i), context, timeFilter, null, groupByTimePlan.isAscending()));
-        resultIndexes.put(path, new ArrayList<>());
+      resultIndexes.computeIfAbsent((PartialPath) paths.get(i), p -> new ArrayList<>()).add(i);
+    }
+
+    // the executor of previous intervals for the fill is not called for the cached intervals
+    if (IoTDBDescriptor.getInstance().getConfig().isEnableGroupByResultCache()
+        && !(groupByTimePlan instanceof GroupByTimeFillPlan)) {
+      initCacheContexts(groupByTimePlan);
+    }
+
+    for (Entry<PartialPath, List<Integer>> entry : resultIndexes.entrySet()) {
+      PartialPath path = entry.getKey();
+      List<Integer> indexes = entry.getValue();
+      Filter seriesTimeFilter = timeFilter;
+      SeriesCacheContext cacheContext = cacheContexts == null ? null : cacheContexts.get(path);
+      if (cacheContext != null && cacheContext.uncachedStartTime != startTime) {
+        // the leading intervals are all cached, so the data before them is not read
+        Filter lowerBound = TimeFilter.gtEq(cacheContext.uncachedStartTime);
+        seriesTimeFilter =
+            timeFilter == null ? lowerBound : FilterFactory.and(timeFilter, lowerBound);
+      }
+      //init GroupByExecutor
+      GroupByExecutor executor = getGroupByExecutor(path,
+          groupByTimePlan.getAllMeasurementsInDevice(path.getDevice()),
+          dataTypes.get(indexes.get(0)), context, seriesTimeFilter, null,
+          groupByTimePlan.isAscending());
+      for (int i : indexes) {
+        executor.addAggregateResult(AggregateResultFactory
+            .getAggrResultByName(groupByTimePlan.getDeduplicatedAggregations().get(i),
+                dataTypes.get(i)));
       }
-      resultIndexes.get(path).add(i);
-      AggregateResult aggrResult = AggregateResultFactory
-          .getAggrResultByName(groupByTimePlan.getDeduplicatedAggregations().get(i),
-              dataTypes.get(i));
-      pathExecutors.get(path).addAggregateResult(aggrResult);
+      pathExecutors.put(path, executor);
     }
   }
 
+  private void initCacheContexts(GroupByTimePlan groupByTimePlan) throws StorageEngineException {
+    cacheContexts = new HashMap<>();
+    for (Entry<PartialPath, List<Integer>> entry : resultIndexes.entrySet()) {
+      PartialPath path = entry.getKey();
+      StringBuilder aggregations = new StringBuilder();
+      for (int i : entry.getValue()) {
+        aggregations.append(groupByTimePlan.getDeduplicatedAggregations().get(i)).append(',');
+      }
+      StorageGroupProcessor processor = StorageEngine.getInstance()
+          .getProcessor(path.getDevicePath());
+      // the version must be read before the data, so that any change of the data read drops the
+      // results calculated from it
+      AtomicLong dataVersion = processor.getHistoricalDataVersion();
+      SeriesCacheContext cacheContext = new SeriesCacheContext(aggregations.toString(),
+          dataVersion, dataVersion.get(), processor.getHistoricalTime(path.getDevice()));
+      if (ascending) {
+        long intervalStartTime = startTime;
+        CachedInterval cachedInterval;
+        while (intervalStartTime < endTime && (cachedInterval = getCachedInterval(path,
+            cacheContext, intervalStartTime, Math.min(intervalStartTime + interval, endTime)))
+            != null) {
+          cacheContext.leadingIntervals.put(intervalStartTime, cachedInterval);
+          intervalStartTime += slidingStep;
+        }
+        cacheContext.uncachedStartTime = intervalStartTime;
+      }
+      cacheContexts.put(path, cacheContext);
+    }
+  }
+
+  /**
+   * The results of an interval may be cached if all the data of the interval is historical and
+   * the time filter does not cut it.
+   */
+  private boolean isCacheable(SeriesCacheContext cacheContext, long intervalStartTime,
+      long intervalEndTime) {
+    return intervalEndTime - 1 <= cacheContext.historicalTime && (timeFilter == null
+        || timeFilter.containStartEndTime(intervalStartTime, intervalEndTime - 1));
+  }
+
+  private CachedInterval getCachedInterval(PartialPath path, SeriesCacheContext cacheContext,
+      long intervalStartTime, long intervalEndTime) {
+    if (!isCacheable(cacheContext, intervalStartTime, intervalEndTime)) {
+      return null;
+    }
+    return GroupByResultCache.getInstance().get(new IntervalKey(path.getFullPath(),
+        cacheContext.aggregations, intervalStartTime, intervalEndTime));
+  }
+
+  /**
+   * the rollup buckets keep no sketches, so the sketch based aggregations cannot use them
+   */
+  private static boolean hasSketchAggregation(GroupByTimePlan groupByTimePlan) {
+    for (String aggregation : groupByTimePlan.getDeduplicatedAggregations()) {
+      String aggregationName = aggregation.toLowerCase();
+      if (aggregationName.startsWith(SQLConstant.PERCENTILE)
+          || aggregationName.equals(SQLConstant.APPROX_COUNT_DISTINCT)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   protected RowRecord nextWithoutConstraint() throws IOException {
     if (!hasCachedTimeInterval) {
@@ -116,28 +227,58 @@ public class GroupByWithoutValueFilterDataSet extends GroupByEngineDataSet {
       record = new RowRecord(curEndTime - 1);
     }
 
-    AggregateResult[] fields = new AggregateResult[paths.size()];
+    Object[] results = new Object[paths.size()];
+    TSDataType[] resultDataTypes = new TSDataType[paths.size()];
 
+    if (executorEntries == null) {
+      executorEntries = new ArrayList<>(pathExecutors.entrySet());
+    }
     try {
-      for (Entry<PartialPath, GroupByExecutor> pathToExecutorEntry : pathExecutors.entrySet()) {
-        GroupByExecutor executor = pathToExecutorEntry.getValue();
-        List<AggregateResult> aggregations = executor.calcResult(curStartTime, curEndTime);
+      // the executors of the series calculate the interval independently
+      ParallelSeriesExecutor.execute(executorEntries.size(), MIN_SERIES_PER_THREAD, index -> {
+        Entry<PartialPath, GroupByExecutor> pathToExecutorEntry = executorEntries.get(index);
+        PartialPath path = pathToExecutorEntry.getKey();
+        List<Integer> indexes = resultIndexes.get(path);
+        SeriesCacheContext cacheContext = cacheContexts == null ? null : cacheContexts.get(path);
+        CachedInterval cachedInterval = null;
+        if (cacheContext != null) {
+          cachedInterval = cacheContext.leadingIntervals.remove(curStartTime);
+          if (cachedInterval == null) {
+            cachedInterval = getCachedInterval(path, cacheContext, curStartTime, curEndTime);
+          }
+        }
+        if (cachedInterval != null) {
+          for (int i = 0; i < indexes.size(); i++) {
+            results[indexes.get(i)] = cachedInterval.getResult(i);
+            resultDataTypes[indexes.get(i)] = cachedInterval.getDataType(i);
+          }
+          return;
+        }
+
+        List<AggregateResult> aggregations = pathToExecutorEntry.getValue()
+            .calcResult(curStartTime, curEndTime);
         for (int i = 0; i < aggregations.size(); i++) {
-          int resultIndex = resultIndexes.get(pathToExecutorEntry.getKey()).get(i);
-          fields[resultIndex] = aggregations.get(i);
+          results[indexes.get(i)] = aggregations.get(i).getResult();
+          resultDataTypes[indexes.get(i)] = aggregations.get(i).getResultDataType();
         }
-      }
-    } catch (QueryProcessException e) {
+        if (cacheContext != null && isCacheable(cacheContext, curStartTime, curEndTime)) {
+          GroupByResultCache.getInstance().put(
+              new IntervalKey(path.getFullPath(), cacheContext.aggregations, curStartTime,
+                  curEndTime),
+              new CachedInterval(aggregations, cacheContext.dataVersion, cacheContext.version));
+        }
+      });
+    } catch (QueryProcessException | StorageEngineException e) {
       logger.error("GroupByWithoutValueFilterDataSet execute has error", e);
       throw new IOException(e.getMessage(), e);
     }
 
-    for (AggregateResult res : fields) {
-      if (res == null) {
+    for (int i = 0; i < results.length; i++) {
+      if (resultDataTypes[i] == null) {
         record.addField(null);
         continue;
       }
-      record.addField(res.getResult(), res.getResultDataType());
+      record.addField(results[i], resultDataTypes[i]);
     }
     return record;
   }
@@ -159,11 +300,32 @@ public class GroupByWithoutValueFilterDataSet extends GroupByEngineDataSet {
     return result;
   }
 
+  private static class SeriesCacheContext {
+
+    private final String aggregations;
+    private final AtomicLong dataVersion;
+    private final long version;
+    // the data no later than it only changes along with dataVersion
+    private final long historicalTime;
+    // the cached leading intervals of an ascending query, which are looked up before the
+    // executor is created
+    private final Map<Long, CachedInterval> leadingIntervals = new HashMap<>();
+    private long uncachedStartTime;
+
+    private SeriesCacheContext(String aggregations, AtomicLong dataVersion, long version,
+        long historicalTime) {
+      this.aggregations = aggregations;
+      this.dataVersion = dataVersion;
+      this.version = version;
+      this.historicalTime = historicalTime;
+    }
+  }
+
   protected GroupByExecutor getGroupByExecutor(PartialPath path, Set<String> allSensors,
       TSDataType dataType,
       QueryContext context, Filter timeFilter, TsFileFilter fileFilter, boolean ascending)
       throws StorageEngineException, QueryProcessException {
     return new LocalGroupByExecutor(path, allSensors, dataType, context, timeFilter, fileFilter,
-        ascending);
+        ascending, rollupGroupByTimePlan);
   }
 }
\ No newline at end of file
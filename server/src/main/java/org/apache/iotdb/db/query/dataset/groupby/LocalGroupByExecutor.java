@@ -27,6 +27,7 @@ import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.GroupByTimePlan;
 import org.apache.iotdb.db.query.aggregation.AggregateResult;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.control.QueryResourceManager;
@@ -56,13 +57,40 @@ public class LocalGroupByExecutor implements GroupByExecutor {
 
   private QueryDataSource queryDataSource;
 
+  // calculates the files served by their rollups, null if no file is served
+  private RollupAggregator rollupAggregator;
+
   public LocalGroupByExecutor(PartialPath path, Set<String> allSensors, TSDataType dataType,
       QueryContext context, Filter timeFilter, TsFileFilter fileFilter, boolean ascending)
       throws StorageEngineException, QueryProcessException {
+    this(path, allSensors, dataType, context, timeFilter, fileFilter, ascending, null);
+  }
+
+  /**
+   * @param groupByTimePlan the group by whose intervals may be calculated from the rollups of the
+   * sealed sequence files if it is ascending, or null if the rollups are not used
+   */
+  public LocalGroupByExecutor(PartialPath path, Set<String> allSensors, TSDataType dataType,
+      QueryContext context, Filter timeFilter, TsFileFilter fileFilter, boolean ascending,
+      GroupByTimePlan groupByTimePlan) throws StorageEngineException, QueryProcessException {
     queryDataSource = QueryResourceManager.getInstance()
         .getQueryDataSource(path, context, timeFilter);
     // update filter by TTL
     timeFilter = queryDataSource.updateFilterUsingTTL(timeFilter);
+    // the results of a descending group by follow the order of the reader, which the merged
+    // results of the rollups do not
+    if (groupByTimePlan != null && ascending) {
+      try {
+        rollupAggregator = RollupAggregator.create(path, dataType, context, queryDataSource,
+            timeFilter, groupByTimePlan.getStartTime(), groupByTimePlan.getEndTime(),
+            groupByTimePlan.getInterval(), groupByTimePlan.getSlidingStep());
+      } catch (IOException e) {
+        throw new QueryProcessException(e.getMessage());
+      }
+      if (rollupAggregator != null) {
+        fileFilter = rollupAggregator.getFileFilter(fileFilter);
+      }
+    }
     this.reader = new SeriesAggregateReader(path, allSensors, dataType, context, queryDataSource,
         timeFilter, null, fileFilter, ascending);
     this.preCachedData = null;
@@ -157,6 +185,15 @@ public class LocalGroupByExecutor implements GroupByExecutor {
     return true;
   }
 
+  private boolean canUseStatistics(Statistics statistics) {
+    for (AggregateResult result : results) {
+      if (!result.isCalculatedAggregationResult() && !result.canUpdateFromStatistics(statistics)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private void calcFromStatistics(Statistics pageStatistics) throws QueryProcessException {
     for (AggregateResult result : results) {
       // cacl is compile
@@ -170,6 +207,15 @@ public class LocalGroupByExecutor implements GroupByExecutor {
   @Override
   public List<AggregateResult> calcResult(long curStartTime, long curEndTime)
       throws IOException, QueryProcessException {
+    calcResultFromReader(curStartTime, curEndTime);
+    if (rollupAggregator != null) {
+      rollupAggregator.mergeResults(results, curStartTime, curEndTime);
+    }
+    return results;
+  }
+
+  private List<AggregateResult> calcResultFromReader(long curStartTime, long curEndTime)
+      throws IOException, QueryProcessException {
 
     // clear result cache
     for (AggregateResult result : results) {
@@ -199,7 +245,8 @@ public class LocalGroupByExecutor implements GroupByExecutor {
       }
       // calc from fileMetaData
       if (reader.canUseCurrentFileStatistics()
-          && timeRange.contains(fileStatistics.getStartTime(), fileStatistics.getEndTime())) {
+          && timeRange.contains(fileStatistics.getStartTime(), fileStatistics.getEndTime())
+          && canUseStatistics(fileStatistics)) {
         calcFromStatistics(fileStatistics);
         reader.skipCurrentFile();
         continue;
@@ -257,7 +304,8 @@ public class LocalGroupByExecutor implements GroupByExecutor {
       }
       // calc from chunkMetaData
       if (reader.canUseCurrentChunkStatistics()
-          && timeRange.contains(chunkStatistics.getStartTime(), chunkStatistics.getEndTime())) {
+          && timeRange.contains(chunkStatistics.getStartTime(), chunkStatistics.getEndTime())
+          && canUseStatistics(chunkStatistics)) {
         calcFromStatistics(chunkStatistics);
         reader.skipCurrentChunk();
         continue;
@@ -287,7 +335,8 @@ public class LocalGroupByExecutor implements GroupByExecutor {
         }
         // can use pageHeader
         if (reader.canUseCurrentPageStatistics()
-            && timeRange.contains(pageStatistics.getStartTime(), pageStatistics.getEndTime())) {
+            && timeRange.contains(pageStatistics.getStartTime(), pageStatistics.getEndTime())
+            && canUseStatistics(pageStatistics)) {
           calcFromStatistics(pageStatistics);
           reader.skipCurrentPage();
           if (isEndCalc()) {
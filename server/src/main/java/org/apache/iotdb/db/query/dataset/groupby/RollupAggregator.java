@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.dataset.groupby;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
+import org.apache.iotdb.db.engine.rollup.SeriesRollup;
+import org.apache.iotdb.db.engine.rollup.TsFileRollup;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.query.aggregation.AggregateResult;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.factory.AggregateResultFactory;
+import org.apache.iotdb.db.query.filter.TsFileFilter;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+
+/**
+ * RollupAggregator calculates the group by intervals of a series from the rollups of the sealed
+ * sequence files instead of their chunks. A file is served by its rollups when:
+ * <p>
+ * 1. the interval, the sliding step, the start time and the end time of the group by are
+ * multiples of a level of its rollups, so each bucket of the level is either in or out of an
+ * interval. The largest such level is used;
+ * <p>
+ * 2. no data of the series in the file is deleted and no unseq file overlaps the file;
+ * <p>
+ * 3. each bucket of the level either satisfies the time filter or not at all.
+ * <p>
+ * The served files are excluded from the reader of the series by the file filter, and the results
+ * of their buckets are merged into the results of the reader.
+ */
+class RollupAggregator {
+
+  private final TSDataType dataType;
+  /**
+   * the buckets of the served files, keyed by the time of their first points
+   */
+  private final TreeMap<Long, Statistics> buckets = new TreeMap<>();
+  private final Set<TsFileResource> servedFiles = new HashSet<>();
+  private List<AggregateResult> rollupResults;
+
+  private RollupAggregator(TSDataType dataType) {
+    this.dataType = dataType;
+  }
+
+  /**
+   * @param timeFilter the time filter of the group by, including the TTL
+   * @return the aggregator of the files that can be served by their rollups, or null if there is
+   * no such file
+   */
+  static RollupAggregator create(PartialPath path, TSDataType dataType, QueryContext context,
+      QueryDataSource queryDataSource, Filter timeFilter, long startTime, long endTime,
+      long interval, long slidingStep) throws IOException {
+    RollupAggregator aggregator = new RollupAggregator(dataType);
+    String deviceId = path.getDevice();
+    for (TsFileResource seqResource : queryDataSource.getSeqResources()) {
+      if (!seqResource.isClosed() || !context.getPathModifications(seqResource.getModFile(), path.getFullPath())
+          .isEmpty()
+          || overlapsUnseqFiles(seqResource, deviceId, queryDataSource.getUnseqResources())) {
+        continue;
+      }
+      SeriesRollup rollup = TsFileRollup
+          .getSeriesRollup(seqResource.getTsFile(), deviceId, path.getMeasurement());
+      if (rollup == null || rollup.getDataType() != dataType) {
+        continue;
+      }
+      int level = selectLevel(rollup.getLevels(), startTime, endTime, interval, slidingStep);
+      if (level >= 0) {
+        aggregator.addFile(seqResource, rollup, level, timeFilter);
+      }
+    }
+    return aggregator.servedFiles.isEmpty() ? null : aggregator;
+  }
+
+  private static boolean overlapsUnseqFiles(TsFileResource seqResource, String deviceId,
+      List<TsFileResource> unseqResources) {
+    long startTime = seqResource.getStartTime(deviceId);
+    long endTime = seqResource.getEndTime(deviceId);
+    for (TsFileResource unseqResource : unseqResources) {
+      long unseqStartTime = unseqResource.getStartTime(deviceId);
+      if (unseqStartTime == Long.MAX_VALUE) {
+        // the device is not in the file
+        continue;
+      }
+      // an unsealed file may have more data than its end time
+      long unseqEndTime = unseqResource.isClosed() ? unseqResource.getEndTime(deviceId)
+          : Long.MAX_VALUE;
+      if (unseqStartTime <= endTime && startTime <= unseqEndTime) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the index of the largest level that divides the intervals of the group by, or -1
+   */
+  static int selectLevel(long[] levels, long startTime, long endTime, long interval,
+      long slidingStep) {
+    for (int i = levels.length - 1; i >= 0; i--) {
+      long level = levels[i];
+      if (interval % level == 0 && slidingStep % level == 0
+          && Math.floorMod(startTime, level) == 0 && Math.floorMod(endTime, level) == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void addFile(TsFileResource seqResource, SeriesRollup rollup, int level,
+      Filter timeFilter) {
+    List<Statistics> satisfiedBuckets = new ArrayList<>();
+    for (Entry<Long, Statistics> bucket : rollup.getBuckets(level)) {
+      Statistics statistics = bucket.getValue();
+      if (timeFilter == null
+          || timeFilter.containStartEndTime(statistics.getStartTime(), statistics.getEndTime())) {
+        satisfiedBuckets.add(statistics);
+      } else if (timeFilter.satisfyStartEndTime(statistics.getStartTime(),
+          statistics.getEndTime())) {
+        // only a part of the bucket is selected, so the file must be read
+        return;
+      }
+    }
+    for (Statistics statistics : satisfiedBuckets) {
+      buckets.put(statistics.getStartTime(), statistics);
+    }
+    servedFiles.add(seqResource);
+  }
+
+  /**
+   * @return the filter excluding the served files from the reader, combined with the given filter
+   */
+  TsFileFilter getFileFilter(TsFileFilter fileFilter) {
+    return resource -> servedFiles.contains(resource)
+        || (fileFilter != null && fileFilter.fileNotSatisfy(resource));
+  }
+
+  /**
+   * Merge the results of the buckets in [curStartTime, curEndTime) into the results.
+   */
+  void mergeResults(List<AggregateResult> results, long curStartTime, long curEndTime)
+      throws QueryProcessException {
+    Collection<Statistics> intervalBuckets = buckets.subMap(curStartTime, curEndTime).values();
+    if (intervalBuckets.isEmpty()) {
+      return;
+    }
+    if (rollupResults == null) {
+      rollupResults = new ArrayList<>(results.size());
+      for (AggregateResult result : results) {
+        rollupResults.add(
+            AggregateResultFactory.getAggrResultByType(result.getAggregationType(), dataType));
+      }
+    }
+    for (int i = 0; i < results.size(); i++) {
+      AggregateResult rollupResult = rollupResults.get(i);
+      rollupResult.reset();
+      for (Statistics statistics : intervalBuckets) {
+        rollupResult.updateResultFromStatistics(statistics);
+      }
+      results.get(i).merge(rollupResult);
+    }
+  }
+}
@@ -39,6 +39,7 @@ import org.apache.iotdb.db.query.control.QueryResourceManager;
 import org.apache.iotdb.db.query.dataset.SingleDataSet;
 import org.apache.iotdb.db.query.factory.AggregateResultFactory;
 import org.apache.iotdb.db.query.filter.TsFileFilter;
+import org.apache.iotdb.db.query.pool.ParallelSeriesExecutor;
 import org.apache.iotdb.db.query.reader.series.DescSeriesReaderByTimestamp;
 import org.apache.iotdb.db.query.reader.series.IAggregateReader;
 import org.apache.iotdb.db.query.reader.series.IReaderByTimestamp;
@@ -93,19 +94,23 @@ public class AggregationExecutor {
       timeFilter = ((GlobalTimeExpression) expression).getFilter();
     }
 
-    // TODO use multi-thread
     Map<PartialPath, List<Integer>> pathToAggrIndexesMap = groupAggregationsBySeries(selectedSeries);
+    List<Map.Entry<PartialPath, List<Integer>>> entries = new ArrayList<>(
+        pathToAggrIndexesMap.entrySet());
     AggregateResult[] aggregateResultList = new AggregateResult[selectedSeries.size()];
-    for (Map.Entry<PartialPath, List<Integer>> entry : pathToAggrIndexesMap.entrySet()) {
+    final Filter finalTimeFilter = timeFilter;
+    // each series is aggregated independently, and its results are put into distinct indexes
+    ParallelSeriesExecutor.execute(entries.size(), 1, seriesIndex -> {
+      Map.Entry<PartialPath, List<Integer>> entry = entries.get(seriesIndex);
       List<AggregateResult> aggregateResults = aggregateOneSeries(entry,
-          aggregationPlan.getAllMeasurementsInDevice(entry.getKey().getDevice()), timeFilter,
+          aggregationPlan.getAllMeasurementsInDevice(entry.getKey().getDevice()), finalTimeFilter,
           context, aggregationPlan.isAscending());
       int index = 0;
       for (int i : entry.getValue()) {
         aggregateResultList[i] = aggregateResults.get(index);
         index++;
       }
-    }
+    });
 
     return constructDataSet(Arrays.asList(aggregateResultList), aggregationPlan);
   }
@@ -168,7 +173,8 @@ public class AggregationExecutor {
 
     while (seriesReader.hasNextFile()) {
       // cal by file statistics
-      if (seriesReader.canUseCurrentFileStatistics()) {
+      if (seriesReader.canUseCurrentFileStatistics() && canUseStatistics(aggregateResultList,
+          isCalculatedArray, seriesReader.currentFileStatistics())) {
         Statistics fileStatistics = seriesReader.currentFileStatistics();
         remainingToCalculate = aggregateStatistics(aggregateResultList, isCalculatedArray,
             remainingToCalculate, fileStatistics);
@@ -181,7 +187,8 @@ public class AggregationExecutor {
 
       while (seriesReader.hasNextChunk()) {
         // cal by chunk statistics
-        if (seriesReader.canUseCurrentChunkStatistics()) {
+        if (seriesReader.canUseCurrentChunkStatistics() && canUseStatistics(aggregateResultList,
+            isCalculatedArray, seriesReader.currentChunkStatistics())) {
           Statistics chunkStatistics = seriesReader.currentChunkStatistics();
           remainingToCalculate = aggregateStatistics(aggregateResultList, isCalculatedArray,
               remainingToCalculate, chunkStatistics);
@@ -202,6 +209,20 @@ public class AggregationExecutor {
 
   }
 
+  /**
+   * @return whether every result not calculated yet can use the statistics, e.g. the sketch based
+   * results need statistics with sketches
+   */
+  private static boolean canUseStatistics(List<AggregateResult> aggregateResultList,
+      boolean[] isCalculatedArray, Statistics statistics) {
+    for (int i = 0; i < aggregateResultList.size(); i++) {
+      if (!isCalculatedArray[i] && !aggregateResultList.get(i).canUpdateFromStatistics(statistics)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Aggregate each result in the list with the statistics
    *
@@ -239,7 +260,8 @@ public class AggregationExecutor {
       throws IOException, QueryProcessException {
     while (seriesReader.hasNextPage()) {
       //cal by page statistics
-      if (seriesReader.canUseCurrentPageStatistics()) {
+      if (seriesReader.canUseCurrentPageStatistics() && canUseStatistics(aggregateResultList,
+          isCalculatedArray, seriesReader.currentPageStatistics())) {
         Statistics pageStatistic = seriesReader.currentPageStatistics();
         remainingToCalculate = aggregateStatistics(aggregateResultList, isCalculatedArray,
             remainingToCalculate, pageStatistic);
@@ -22,6 +22,7 @@ package org.apache.iotdb.db.query.factory;
 import org.apache.iotdb.db.qp.constant.SQLConstant;
 import org.apache.iotdb.db.query.aggregation.AggregateResult;
 import org.apache.iotdb.db.query.aggregation.AggregationType;
+import org.apache.iotdb.db.query.aggregation.impl.ApproxCountDistinctAggrResult;
 import org.apache.iotdb.db.query.aggregation.impl.AvgAggrResult;
 import org.apache.iotdb.db.query.aggregation.impl.CountAggrResult;
 import org.apache.iotdb.db.query.aggregation.impl.FirstValueAggrResult;
@@ -30,6 +31,7 @@ import org.apache.iotdb.db.query.aggregation.impl.MaxTimeAggrResult;
 import org.apache.iotdb.db.query.aggregation.impl.MaxValueAggrResult;
 import org.apache.iotdb.db.query.aggregation.impl.MinTimeAggrResult;
 import org.apache.iotdb.db.query.aggregation.impl.MinValueAggrResult;
+import org.apache.iotdb.db.query.aggregation.impl.PercentileAggrResult;
 import org.apache.iotdb.db.query.aggregation.impl.SumAggrResult;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 
@@ -44,7 +46,7 @@ public class AggregateResultFactory {
   /**
    * construct AggregateFunction using factory pattern.
    *
-   * @param aggrFuncName function name.
+   * @param aggrFuncName function name, with its parameter if any, e.g. "percentile(0.99)".
    * @param dataType data type.
    */
   public static AggregateResult getAggrResultByName(String aggrFuncName, TSDataType dataType) {
@@ -52,7 +54,11 @@ public class AggregateResultFactory {
       throw new IllegalArgumentException("AggregateFunction Name must not be null");
     }
 
-    switch (aggrFuncName.toLowerCase()) {
+    String aggregation = aggrFuncName.toLowerCase();
+    if (aggregation.startsWith(SQLConstant.PERCENTILE)) {
+      return new PercentileAggrResult(dataType, PercentileAggrResult.parseQuantile(aggregation));
+    }
+    switch (aggregation) {
       case SQLConstant.MIN_TIME:
         return new MinTimeAggrResult();
       case SQLConstant.MAX_TIME:
@@ -71,6 +77,8 @@ public class AggregateResultFactory {
         return new SumAggrResult(dataType);
       case SQLConstant.LAST_VALUE:
         return new LastValueAggrResult(dataType);
+      case SQLConstant.APPROX_COUNT_DISTINCT:
+        return new ApproxCountDistinctAggrResult(dataType);
       default:
         throw new IllegalArgumentException("Invalid Aggregation function: " + aggrFuncName);
     }
@@ -97,6 +105,11 @@ public class AggregateResultFactory {
         return new MaxValueAggrResult(dataType);
       case MIN_VALUE:
         return new MinValueAggrResult(dataType);
+      case PERCENTILE:
+        // the quantile is set when deserializing the result
+        return new PercentileAggrResult(dataType, PercentileAggrResult.DEFAULT_QUANTILE);
+      case APPROX_COUNT_DISTINCT:
+        return new ApproxCountDistinctAggrResult(dataType);
       default:
         throw new IllegalArgumentException("Invalid Aggregation Type: " + aggregationType.name());
     }
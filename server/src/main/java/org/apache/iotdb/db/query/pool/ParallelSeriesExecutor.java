@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.pool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.StorageEngineException;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+
+/**
+ * ParallelSeriesExecutor runs the independent tasks of the series in one query on
+ * QueryTaskPoolManager, e.g., aggregating each series.
+ *
+ * <p>The calling thread and at most (parallelism - 1) pool threads take the series one by one
+ * from a shared counter, so at most parallelism series of a query are read at the same time. As
+ * the calling thread also takes series, the query still finishes when the pool is busy: once the
+ * calling thread runs out of series, the workers still waiting in the queue of the pool are
+ * cancelled, and only the ones already running are waited for.
+ */
+public class ParallelSeriesExecutor {
+
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  // the size of a chunk in memory, assuming 8 bytes for both the time and the value of a point
+  private static final int BYTES_PER_POINT = 16;
+
+  private ParallelSeriesExecutor() {
+    // util class
+  }
+
+  @FunctionalInterface
+  public interface SeriesTask {
+
+    void run(int seriesIndex) throws IOException, QueryProcessException, StorageEngineException;
+  }
+
+  /**
+   * @param minSeriesPerThread each thread should take at least so many series, so the cost of
+   *                           scheduling is paid off
+   * @return how many series of a query can be read at the same time, limited by
+   * max_query_series_parallelism and the memory of reading a chunk of each series
+   */
+  public static int getParallelism(int seriesNum, int minSeriesPerThread) {
+    int parallelism = config.getMaxQuerySeriesParallelism();
+    long memoryPerSeries = (long) config.getAvgSeriesPointNumberThreshold() * BYTES_PER_POINT;
+    if (memoryPerSeries > 0) {
+      long limitByMemory = config.getParallelSeriesReadMemoryInByte() / memoryPerSeries;
+      parallelism = (int) Math.min(parallelism, limitByMemory);
+    }
+    return Math.max(1, Math.min(parallelism, seriesNum / Math.max(1, minSeriesPerThread)));
+  }
+
+  /**
+   * Run task(i) for each i in [0, seriesNum) and return when all of them finish. If any task
+   * fails, the remaining series are not started and the first exception is thrown.
+   *
+   * @param minSeriesPerThread see getParallelism()
+   */
+  public static void execute(int seriesNum, int minSeriesPerThread, SeriesTask task)
+      throws IOException, QueryProcessException, StorageEngineException {
+    int parallelism = getParallelism(seriesNum, minSeriesPerThread);
+    if (parallelism <= 1) {
+      for (int i = 0; i < seriesNum; i++) {
+        task.run(i);
+      }
+      return;
+    }
+
+    AtomicInteger nextSeries = new AtomicInteger();
+    AtomicReference<Exception> failure = new AtomicReference<>();
+    Workers workers = new Workers();
+    Runnable worker = () -> {
+      if (!workers.start()) {
+        return;
+      }
+      try {
+        runSeries(seriesNum, task, nextSeries, failure);
+      } finally {
+        workers.finish();
+      }
+    };
+    List<Future<?>> futures = new ArrayList<>(parallelism - 1);
+    for (int i = 0; i < parallelism - 1; i++) {
+      futures.add(QueryTaskPoolManager.getInstance().submit(worker));
+    }
+    try {
+      runSeries(seriesNum, task, nextSeries, failure);
+    } finally {
+      // the workers not started yet would find no series left
+      workers.close();
+      for (Future<?> future : futures) {
+        future.cancel(false);
+      }
+      if (!workers.awaitRunning()) {
+        failure.compareAndSet(null, new QueryProcessException("Interrupted while executing "
+            + "the series of the query"));
+        // stop the running workers quickly, they still share the state of the query
+        nextSeries.set(seriesNum);
+        workers.awaitRunningUninterruptibly();
+        Thread.currentThread().interrupt();
+      }
+    }
+    throwFailure(failure.get());
+  }
+
+  /**
+   * Tracks the pool workers of one execution, so the calling thread only waits for those already
+   * running and no worker starts after it has stopped waiting.
+   */
+  private static class Workers {
+
+    private int running = 0;
+    private boolean closed = false;
+
+    private synchronized boolean start() {
+      if (closed) {
+        return false;
+      }
+      running++;
+      return true;
+    }
+
+    private synchronized void finish() {
+      running--;
+      notifyAll();
+    }
+
+    private synchronized void close() {
+      closed = true;
+    }
+
+    /**
+     * @return false if interrupted before all running workers finish
+     */
+    private synchronized boolean awaitRunning() {
+      try {
+        while (running > 0) {
+          wait();
+        }
+        return true;
+      } catch (InterruptedException e) {
+        return false;
+      }
+    }
+
+    private synchronized void awaitRunningUninterruptibly() {
+      boolean interrupted = false;
+      while (running > 0) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static void runSeries(int seriesNum, SeriesTask task, AtomicInteger nextSeries,
+      AtomicReference<Exception> failure) {
+    int seriesIndex;
+    while (failure.get() == null && (seriesIndex = nextSeries.getAndIncrement()) < seriesNum) {
+      try {
+        task.run(seriesIndex);
+      } catch (IOException | QueryProcessException | StorageEngineException
+          | RuntimeException e) {
+        failure.compareAndSet(null, e);
+      }
+    }
+  }
+
+  private static void throwFailure(Exception e)
+      throws IOException, QueryProcessException, StorageEngineException {
+    if (e == null) {
+      return;
+    }
+    if (e instanceof IOException) {
+      throw (IOException) e;
+    } else if (e instanceof QueryProcessException) {
+      throw (QueryProcessException) e;
+    } else if (e instanceof StorageEngineException) {
+      throw (StorageEngineException) e;
+    } else {
+      throw (RuntimeException) e;
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.pool;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * QueryResultPrefetcher produces the next serialized blocks of a query result on
+ * QueryTaskPoolManager, while the previous block is being transferred to the client, so a long
+ * scan takes max(execution, transfer) instead of their sum.
+ *
+ * <p>At most query_result_prefetch_block_num blocks of a query are kept, and the blocks of all
+ * queries share query_result_prefetch_memory_in_byte. When either is used up, the prefetching
+ * pauses until the client fetches a block. Blocks are only produced by one thread at a time, either
+ * a pool thread or the fetching thread when nothing is prefetched.
+ *
+ * <p>A prefetching task may wait for the read tasks of its query on the same pool, so at most
+ * (concurrent_query_thread - 1) queries prefetch at the same time, leaving a thread for the read
+ * tasks.
+ */
+public class QueryResultPrefetcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(QueryResultPrefetcher.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  // memory of the prefetched blocks of all queries
+  private static final AtomicLong usedMemory = new AtomicLong();
+  // queries whose prefetching task is submitted or running
+  private static final AtomicInteger prefetchingQueryNum = new AtomicInteger();
+
+  @FunctionalInterface
+  public interface BlockProducer {
+
+    /**
+     * @return the next block of the query result, whose time buffer is empty if there are no
+     * more results
+     */
+    @SuppressWarnings("squid:S112") // the exceptions are returned to the client as they are
+    TSQueryDataSet next() throws Exception;
+  }
+
+  private final BlockProducer producer;
+  // held while a block is being produced, so the data set is never read concurrently
+  private final Object produceLock = new Object();
+  private final int capacity;
+
+  // the fields below are guarded by this
+  private final Deque<TSQueryDataSet> blocks = new ArrayDeque<>();
+  private long blocksMemory = 0;
+  private boolean prefetching = false;
+  // the last block (with an empty time buffer) has been produced
+  private boolean finished = false;
+  private boolean cancelled = false;
+  private Exception failure;
+
+  public QueryResultPrefetcher(BlockProducer producer) {
+    this.producer = producer;
+    this.capacity = config.getQueryResultPrefetchBlockNum();
+  }
+
+  /**
+   * Start prefetching the blocks after the ones already returned.
+   */
+  public synchronized void start() {
+    schedule();
+  }
+
+  /**
+   * @return the next block of the query result, waiting for the block being prefetched if any,
+   * or producing it in the calling thread otherwise
+   */
+  @SuppressWarnings("squid:S112")
+  public TSQueryDataSet next() throws Exception {
+    synchronized (this) {
+      while (blocks.isEmpty() && failure == null && prefetching) {
+        wait();
+      }
+      TSQueryDataSet block = blocks.poll();
+      if (block != null) {
+        long blockMemory = sizeOf(block);
+        blocksMemory -= blockMemory;
+        usedMemory.addAndGet(-blockMemory);
+        schedule();
+        return block;
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+
+    TSQueryDataSet block;
+    synchronized (produceLock) {
+      block = producer.next();
+    }
+    synchronized (this) {
+      finished = !block.time.hasRemaining();
+      schedule();
+    }
+    return block;
+  }
+
+  /**
+   * Stop prefetching and drop the prefetched blocks. When this returns, no block is being
+   * produced, so the resources of the query can be released.
+   */
+  public void cancel() {
+    synchronized (this) {
+      cancelled = true;
+      blocks.clear();
+      usedMemory.addAndGet(-blocksMemory);
+      blocksMemory = 0;
+      notifyAll();
+    }
+    // wait for the block being produced
+    synchronized (produceLock) {
+      logger.debug("Prefetching of a query result is cancelled");
+    }
+  }
+
+  private void schedule() {
+    if (prefetching || !canPrefetch() || !tryAcquireThread()) {
+      return;
+    }
+    prefetching = true;
+    try {
+      QueryTaskPoolManager.getInstance().submit(this::prefetch);
+    } catch (RejectedExecutionException e) {
+      logger.warn("Cannot prefetch the query result as the query pool is closed");
+      stopPrefetching();
+    }
+  }
+
+  private boolean canPrefetch() {
+    return !cancelled && !finished && failure == null && blocks.size() < capacity
+        && usedMemory.get() < config.getQueryResultPrefetchMemoryInByte();
+  }
+
+  private static boolean tryAcquireThread() {
+    int maxPrefetchingQueryNum = config.getConcurrentQueryThread() - 1;
+    int num;
+    do {
+      num = prefetchingQueryNum.get();
+      if (num >= maxPrefetchingQueryNum) {
+        return false;
+      }
+    } while (!prefetchingQueryNum.compareAndSet(num, num + 1));
+    return true;
+  }
+
+  private void stopPrefetching() {
+    prefetching = false;
+    prefetchingQueryNum.decrementAndGet();
+    notifyAll();
+  }
+
+  private void prefetch() {
+    boolean resubmitted = false;
+    try {
+      resubmitted = prefetchBlock();
+    } finally {
+      if (!resubmitted) {
+        synchronized (this) {
+          stopPrefetching();
+        }
+      }
+    }
+  }
+
+  /**
+   * @return whether the task is submitted again to prefetch the next block
+   */
+  private boolean prefetchBlock() {
+    TSQueryDataSet block = null;
+    Exception exception = null;
+    synchronized (produceLock) {
+      if (!isCancelled()) {
+        try {
+          block = producer.next();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          exception = e;
+        } catch (Exception e) {
+          exception = e;
+        }
+      }
+    }
+
+    synchronized (this) {
+      if (cancelled) {
+        return false;
+      }
+      if (exception != null) {
+        logger.error("Cannot prefetch the query result", exception);
+        failure = exception;
+        return false;
+      }
+      if (block != null) {
+        long blockMemory = sizeOf(block);
+        blocks.add(block);
+        blocksMemory += blockMemory;
+        usedMemory.addAndGet(blockMemory);
+        finished = !block.time.hasRemaining();
+        notifyAll();
+      }
+      if (!canPrefetch()) {
+        return false;
+      }
+      try {
+        // submit itself again instead of looping, so the other tasks get the thread in turn
+        QueryTaskPoolManager.getInstance().submit(this::prefetch);
+        return true;
+      } catch (RejectedExecutionException e) {
+        logger.warn("Cannot prefetch the query result as the query pool is closed");
+        return false;
+      }
+    }
+  }
+
+  private synchronized boolean isCancelled() {
+    return cancelled;
+  }
+
+  private static long sizeOf(TSQueryDataSet block) {
+    long size = block.time.capacity();
+    for (ByteBuffer buffer : block.valueList) {
+      size += buffer.capacity();
+    }
+    for (ByteBuffer buffer : block.bitmapList) {
+      size += buffer.capacity();
+    }
+    return size;
+  }
+
+  public static long getUsedMemory() {
+    return usedMemory.get();
+  }
+}
@@ -58,7 +58,7 @@ public class MemChunkReader implements IChunkReader, IPointReader {
     while (timeValuePairIterator.hasNextTimeValuePair()) {
       TimeValuePair timeValuePair = timeValuePairIterator.nextTimeValuePair();
       if (filter == null || filter
-          .satisfy(timeValuePair.getTimestamp(), timeValuePair.getValue().getValue())) {
+          .satisfyPrimitive(timeValuePair.getTimestamp(), timeValuePair.getValue())) {
         hasCachedTimeValuePair = true;
         cachedTimeValuePair = timeValuePair;
         break;
@@ -48,7 +48,7 @@ public class MemPageReader implements IPageReader {
     while (timeValuePairIterator.hasNextTimeValuePair()) {
       TimeValuePair timeValuePair = timeValuePairIterator.nextTimeValuePair();
       if (valueFilter == null || valueFilter
-          .satisfy(timeValuePair.getTimestamp(), timeValuePair.getValue().getValue())) {
+          .satisfyPrimitive(timeValuePair.getTimestamp(), timeValuePair.getValue())) {
         batchData.putAnObject(timeValuePair.getTimestamp(), timeValuePair.getValue().getValue());
       }
     }
@@ -50,7 +50,7 @@ public class DiskChunkMetadataLoader implements IChunkMetadataLoader {
   @Override
   public List<ChunkMetadata> loadChunkMetadataList() throws IOException {
     List<ChunkMetadata> chunkMetadataList = ChunkMetadataCache
-        .getInstance().get(resource.getTsFilePath(), seriesPath);
+        .getInstance().get(resource, seriesPath);
 
     setDiskChunkLoader(chunkMetadataList, resource, seriesPath, context);
 
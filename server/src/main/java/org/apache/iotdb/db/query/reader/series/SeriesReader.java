@@ -567,8 +567,7 @@ public class SeriesReader {
           timeValuePair = mergeReader.nextTimeValuePair();
 
           if (valueFilter == null
-              || valueFilter.satisfy(
-              timeValuePair.getTimestamp(), timeValuePair.getValue().getValue())) {
+              || valueFilter.satisfyPrimitive(timeValuePair.getTimestamp(), timeValuePair.getValue())) {
             cachedBatchData.putAnObject(
                 timeValuePair.getTimestamp(), timeValuePair.getValue().getValue());
           }
@@ -92,6 +92,9 @@ public class MemTablePool {
             "Currently the size of available MemTables is {}, the maxmin size of MemTables is {}, discard this MemTable.",
             CONFIG.getMaxMemtableNumber(), size);
         size--;
+        // the memory is tight, so the pooled arrays will not be needed by the fewer memtables
+        PrimitiveArrayPool.getInstance().evict();
+        OffHeapPagePool.getInstance().evict();
         return;
       }
       memTable.clear();
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.rescon;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+
+/**
+ * Manage the direct memory pages used by off-heap TVLists, including get and release operation.
+ * Pages are pooled by their size, as allocating direct memory is much more expensive than
+ * allocating a primitive array and it is only freed after the buffer is garbage collected.
+ *
+ * The direct pages in use and in the pool take at most off_heap_page_pool_max_bytes. Beyond it,
+ * pages are allocated on heap and left to GC when they are released, and evict() drops the pooled
+ * pages when the memory is tight.
+ */
+public class OffHeapPagePool {
+
+  /**
+   * page size -> released pages
+   */
+  private final Map<Integer, ArrayDeque<ByteBuffer>> pagesMap = new HashMap<>();
+
+  /**
+   * the bytes of all direct pages allocated by this pool and not dropped yet, in use or pooled
+   */
+  private long allocatedBytes = 0;
+
+  private long pooledBytes = 0;
+
+  private long maxBytes = IoTDBDescriptor.getInstance().getConfig().getOffHeapPagePoolMaxBytes();
+
+  private static final OffHeapPagePool INSTANCE = new OffHeapPagePool();
+
+  public static OffHeapPagePool getInstance() {
+    return INSTANCE;
+  }
+
+  private OffHeapPagePool() {}
+
+  /**
+   * @return a buffer of pageSize bytes in native byte order, its content is undefined. It is a
+   * direct buffer unless the direct pages have used up off_heap_page_pool_max_bytes.
+   */
+  public synchronized ByteBuffer getPage(int pageSize) {
+    ArrayDeque<ByteBuffer> pages = pagesMap.get(pageSize);
+    ByteBuffer page = pages == null ? null : pages.poll();
+    if (page != null) {
+      pooledBytes -= pageSize;
+      return page;
+    }
+    if (allocatedBytes + pageSize > maxBytes) {
+      return ByteBuffer.allocate(pageSize).order(ByteOrder.nativeOrder());
+    }
+    allocatedBytes += pageSize;
+    return ByteBuffer.allocateDirect(pageSize).order(ByteOrder.nativeOrder());
+  }
+
+  public synchronized void release(ByteBuffer page) {
+    if (!page.isDirect()) {
+      return;
+    }
+    page.clear();
+    pagesMap.computeIfAbsent(page.capacity(), k -> new ArrayDeque<>()).add(page);
+    pooledBytes += page.capacity();
+  }
+
+  /**
+   * Leave all pooled pages to GC, which frees their direct memory.
+   */
+  public synchronized void evict() {
+    pagesMap.clear();
+    allocatedBytes -= pooledBytes;
+    pooledBytes = 0;
+  }
+
+  /**
+   * @return the number of bytes held by the released pages
+   */
+  public synchronized long getPooledBytes() {
+    return pooledBytes;
+  }
+
+  /**
+   * @return the number of bytes of the direct pages in use or pooled
+   */
+  public synchronized long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * Only for test
+   */
+  synchronized void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+}
@@ -18,9 +18,13 @@
  */
 package org.apache.iotdb.db.rescon;
 
-import java.util.ArrayDeque;
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
-import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
@@ -28,25 +32,49 @@ import org.apache.iotdb.tsfile.utils.Binary;
 
 /**
  * Manage all primitive data list in memory, including get and release operation.
+ *
+ * Each thread caches up to primitive_array_magazine_size released arrays of each data type in a
+ * thread-local magazine, which is only locked by its own thread except during evict(), so the lock
+ * is never contended in practice. A full magazine moves half of its arrays to a lock-free depot
+ * shared by all threads, and an empty one refills from the depot, so the depot is only touched once
+ * per several arrays. The depot keeps at most primitive_array_pool_capacity arrays of each data
+ * type, the arrays beyond it are left to GC. When the memory is tight, evict() empties the depot
+ * and the magazines of all threads, including idle ones. The magazines are registered by weak
+ * references, so those of dead threads are collected together with the threads.
  */
 public class PrimitiveArrayPool {
 
+  private static final IoTDBConfig CONFIG = IoTDBDescriptor.getInstance().getConfig();
+
+  public static final int ARRAY_SIZE = CONFIG.getPrimitiveArraySize();
+
+  private static final int MAGAZINE_SIZE = CONFIG.getPrimitiveArrayMagazineSize();
+
+  private static final int DEPOT_CAPACITY = CONFIG.getPrimitiveArrayPoolCapacity();
+
+  private static final int TYPE_NUM = TSDataType.values().length;
+
   /**
-   * data type -> Array<PrimitiveArray>
+   * data type ordinal -> released arrays shared by all threads
    */
-  private static final EnumMap<TSDataType, ArrayDeque<Object>> primitiveArraysMap = new EnumMap<>(TSDataType.class);
+  private final ConcurrentLinkedQueue<Object>[] depots;
 
-  public static final int ARRAY_SIZE =
-      IoTDBDescriptor.getInstance().getConfig().getPrimitiveArraySize();
+  /**
+   * data type ordinal -> number of arrays in the depot, ConcurrentLinkedQueue.size() is O(n)
+   */
+  private final AtomicInteger[] depotSizes;
 
-  static {
-    primitiveArraysMap.put(TSDataType.BOOLEAN, new ArrayDeque<>());
-    primitiveArraysMap.put(TSDataType.INT32, new ArrayDeque<>());
-    primitiveArraysMap.put(TSDataType.INT64, new ArrayDeque<>());
-    primitiveArraysMap.put(TSDataType.FLOAT, new ArrayDeque<>());
-    primitiveArraysMap.put(TSDataType.DOUBLE, new ArrayDeque<>());
-    primitiveArraysMap.put(TSDataType.TEXT, new ArrayDeque<>());
-  }
+  private final ThreadLocal<Magazine> magazines = ThreadLocal.withInitial(this::newMagazine);
+
+  /**
+   * the magazines of all threads, for evict() and the statistics
+   */
+  private final ConcurrentLinkedQueue<WeakReference<Magazine>> magazineRegistry =
+      new ConcurrentLinkedQueue<>();
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
 
   public static PrimitiveArrayPool getInstance() {
     return INSTANCE;
@@ -54,64 +82,232 @@ public class PrimitiveArrayPool {
 
   private static final PrimitiveArrayPool INSTANCE = new PrimitiveArrayPool();
 
+  @SuppressWarnings("unchecked")
+  private PrimitiveArrayPool() {
+    depots = new ConcurrentLinkedQueue[TYPE_NUM];
+    depotSizes = new AtomicInteger[TYPE_NUM];
+    for (int i = 0; i < TYPE_NUM; i++) {
+      depots[i] = new ConcurrentLinkedQueue<>();
+      depotSizes[i] = new AtomicInteger();
+    }
+  }
 
-  private PrimitiveArrayPool() {}
-
-  public synchronized Object getPrimitiveDataListByType(TSDataType dataType) {
-    ArrayDeque<Object> dataListQueue = primitiveArraysMap.computeIfAbsent(dataType, k ->new ArrayDeque<>());
-    Object dataArray = dataListQueue.poll();
+  public Object getPrimitiveDataListByType(TSDataType dataType) {
+    Object dataArray = poll(dataType.ordinal());
+    if (dataArray != null) {
+      hitCount.increment();
+      return dataArray;
+    }
+    missCount.increment();
     switch (dataType) {
       case BOOLEAN:
-        if (dataArray == null) {
-          dataArray = new boolean[ARRAY_SIZE];
-        }
-        break;
+        return new boolean[ARRAY_SIZE];
       case INT32:
-        if (dataArray == null) {
-          dataArray = new int[ARRAY_SIZE];
-        }
-        break;
+        return new int[ARRAY_SIZE];
       case INT64:
-        if (dataArray == null) {
-          dataArray = new long[ARRAY_SIZE];
-        }
-        break;
+        return new long[ARRAY_SIZE];
       case FLOAT:
-        if (dataArray == null) {
-          dataArray = new float[ARRAY_SIZE];
-        }
-        break;
+        return new float[ARRAY_SIZE];
       case DOUBLE:
-        if (dataArray == null) {
-          dataArray = new double[ARRAY_SIZE];
-        }
-        break;
+        return new double[ARRAY_SIZE];
       case TEXT:
-        if (dataArray == null) {
-          dataArray = new Binary[ARRAY_SIZE];
-        }
-        break;
+        return new Binary[ARRAY_SIZE];
       default:
         throw new UnSupportedDataTypeException("DataType: " + dataType);
     }
-    return dataArray;
   }
 
-
-  public synchronized void release(Object dataArray) {
+  public void release(Object dataArray) {
+    TSDataType dataType;
     if (dataArray instanceof boolean[]) {
-      primitiveArraysMap.get(TSDataType.BOOLEAN).add(dataArray);
+      dataType = TSDataType.BOOLEAN;
     } else if (dataArray instanceof int[]) {
-      primitiveArraysMap.get(TSDataType.INT32).add(dataArray);
-    } else if (dataArray instanceof long[]){
-      primitiveArraysMap.get(TSDataType.INT64).add(dataArray);
+      dataType = TSDataType.INT32;
+    } else if (dataArray instanceof long[]) {
+      dataType = TSDataType.INT64;
     } else if (dataArray instanceof float[]) {
-      primitiveArraysMap.get(TSDataType.FLOAT).add(dataArray);
+      dataType = TSDataType.FLOAT;
     } else if (dataArray instanceof double[]) {
-      primitiveArraysMap.get(TSDataType.DOUBLE).add(dataArray);
+      dataType = TSDataType.DOUBLE;
     } else if (dataArray instanceof Binary[]) {
       Arrays.fill((Binary[]) dataArray, null);
-      primitiveArraysMap.get(TSDataType.TEXT).add(dataArray);
+      dataType = TSDataType.TEXT;
+    } else {
+      return;
+    }
+    offer(dataType.ordinal(), dataArray);
+  }
+
+  private Magazine newMagazine() {
+    Magazine magazine = new Magazine();
+    magazineRegistry.add(new WeakReference<>(magazine));
+    return magazine;
+  }
+
+  private Object poll(int typeIdx) {
+    Magazine magazine = magazines.get();
+    synchronized (magazine) {
+      return poll(typeIdx, magazine);
+    }
+  }
+
+  private Object poll(int typeIdx, Magazine magazine) {
+    if (magazine.sizes[typeIdx] == 0) {
+      // refill half of the magazine, so that the next releases do not overflow it at once
+      int refillNum = Math.max(1, MAGAZINE_SIZE / 2);
+      for (int i = 0; i < refillNum; i++) {
+        Object dataArray = pollDepot(typeIdx);
+        if (dataArray == null) {
+          break;
+        }
+        if (MAGAZINE_SIZE == 0) {
+          return dataArray;
+        }
+        magazine.push(typeIdx, dataArray);
+      }
+      if (magazine.sizes[typeIdx] == 0) {
+        return null;
+      }
+    }
+    return magazine.pop(typeIdx);
+  }
+
+  private void offer(int typeIdx, Object dataArray) {
+    if (MAGAZINE_SIZE == 0) {
+      offerDepot(typeIdx, dataArray);
+      return;
+    }
+    Magazine magazine = magazines.get();
+    synchronized (magazine) {
+      if (magazine.sizes[typeIdx] == MAGAZINE_SIZE) {
+        // keep half of the magazine, so that the next gets do not drain it at once
+        for (int i = MAGAZINE_SIZE / 2; i < MAGAZINE_SIZE; i++) {
+          offerDepot(typeIdx, magazine.pop(typeIdx));
+        }
+      }
+      magazine.push(typeIdx, dataArray);
+    }
+  }
+
+  private Object pollDepot(int typeIdx) {
+    Object dataArray = depots[typeIdx].poll();
+    if (dataArray != null) {
+      depotSizes[typeIdx].decrementAndGet();
+    }
+    return dataArray;
+  }
+
+  private void offerDepot(int typeIdx, Object dataArray) {
+    if (depotSizes[typeIdx].incrementAndGet() > DEPOT_CAPACITY) {
+      depotSizes[typeIdx].decrementAndGet();
+      evictionCount.increment();
+      return;
+    }
+    depots[typeIdx].add(dataArray);
+  }
+
+  /**
+   * Leave all arrays in the shared depot and in the magazines of all threads to GC.
+   */
+  public void evict() {
+    for (int i = 0; i < TYPE_NUM; i++) {
+      while (pollDepot(i) != null) {
+        evictionCount.increment();
+      }
+    }
+    Iterator<WeakReference<Magazine>> iterator = magazineRegistry.iterator();
+    while (iterator.hasNext()) {
+      Magazine magazine = iterator.next().get();
+      if (magazine == null) {
+        iterator.remove();
+        continue;
+      }
+      synchronized (magazine) {
+        evictionCount.add(magazine.clear());
+      }
+    }
+  }
+
+  /**
+   * @return the number of gets served by a released array
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * @return the number of gets that allocated a new array
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * @return the number of released arrays left to GC
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /**
+   * @return the number of arrays in the shared depot and in the magazines of all live threads
+   */
+  public int getPooledArrayNumber() {
+    int number = 0;
+    for (AtomicInteger depotSize : depotSizes) {
+      number += depotSize.get();
+    }
+    Iterator<WeakReference<Magazine>> iterator = magazineRegistry.iterator();
+    while (iterator.hasNext()) {
+      Magazine magazine = iterator.next().get();
+      if (magazine == null) {
+        iterator.remove();
+        continue;
+      }
+      synchronized (magazine) {
+        number += magazine.count();
+      }
+    }
+    return number;
+  }
+
+  /**
+   * released arrays of each data type cached by one thread, used as stacks
+   */
+  private static class Magazine {
+
+    private final Object[][] arrays = new Object[TYPE_NUM][MAGAZINE_SIZE];
+    private final int[] sizes = new int[TYPE_NUM];
+
+    private void push(int typeIdx, Object dataArray) {
+      arrays[typeIdx][sizes[typeIdx]++] = dataArray;
+    }
+
+    private Object pop(int typeIdx) {
+      int idx = --sizes[typeIdx];
+      Object dataArray = arrays[typeIdx][idx];
+      arrays[typeIdx][idx] = null;
+      return dataArray;
+    }
+
+    private int count() {
+      int count = 0;
+      for (int size : sizes) {
+        count += size;
+      }
+      return count;
+    }
+
+    /**
+     * @return the number of arrays dropped
+     */
+    private int clear() {
+      int count = count();
+      for (int i = 0; i < TYPE_NUM; i++) {
+        Arrays.fill(arrays[i], 0, sizes[i], null);
+        sizes[i] = 0;
+      }
+      return count;
     }
   }
 
@@ -119,7 +315,7 @@ public class PrimitiveArrayPool {
    * @param size needed capacity
    * @return an array of primitive data arrays
    */
-  public synchronized Object getDataListsByType(TSDataType dataType, int size) {
+  public Object getDataListsByType(TSDataType dataType, int size) {
     int arrayNumber = (int) Math.ceil((float) size / (float)ARRAY_SIZE);
     switch (dataType) {
       case BOOLEAN:
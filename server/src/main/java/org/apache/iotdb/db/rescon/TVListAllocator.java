@@ -34,6 +34,7 @@ import org.apache.iotdb.db.utils.datastructure.DoubleTVList;
 import org.apache.iotdb.db.utils.datastructure.FloatTVList;
 import org.apache.iotdb.db.utils.datastructure.IntTVList;
 import org.apache.iotdb.db.utils.datastructure.LongTVList;
+import org.apache.iotdb.db.utils.datastructure.OffHeapTVList;
 import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 
@@ -64,7 +65,9 @@ public class TVListAllocator implements TVListAllocatorMBean, IService {
 
   public synchronized void release(TVList list) {
     list.clear();
-    if (list instanceof BinaryTVList) {
+    if (list instanceof OffHeapTVList) {
+      tvListCache.get(((OffHeapTVList) list).getDataType()).add(list);
+    } else if (list instanceof BinaryTVList) {
       tvListCache.get(TSDataType.TEXT).add(list);
     } else if (list instanceof BooleanTVList) {
       tvListCache.get(TSDataType.BOOLEAN).add(list);
@@ -88,6 +91,36 @@ public class TVListAllocator implements TVListAllocatorMBean, IService {
     return number;
   }
 
+  @Override
+  public long getPrimitiveArrayHitCount() {
+    return PrimitiveArrayPool.getInstance().getHitCount();
+  }
+
+  @Override
+  public long getPrimitiveArrayMissCount() {
+    return PrimitiveArrayPool.getInstance().getMissCount();
+  }
+
+  @Override
+  public long getPrimitiveArrayEvictionCount() {
+    return PrimitiveArrayPool.getInstance().getEvictionCount();
+  }
+
+  @Override
+  public int getNumberOfPooledPrimitiveArrays() {
+    return PrimitiveArrayPool.getInstance().getPooledArrayNumber();
+  }
+
+  @Override
+  public long getOffHeapPageBytes() {
+    return OffHeapPagePool.getInstance().getAllocatedBytes();
+  }
+
+  @Override
+  public long getPooledOffHeapPageBytes() {
+    return OffHeapPagePool.getInstance().getPooledBytes();
+  }
+
   @Override
   public void start() throws StartupException {
     try {
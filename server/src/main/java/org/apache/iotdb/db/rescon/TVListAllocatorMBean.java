@@ -22,4 +22,16 @@ public interface TVListAllocatorMBean {
 
   int getNumberOfTVLists();
 
+  long getPrimitiveArrayHitCount();
+
+  long getPrimitiveArrayMissCount();
+
+  long getPrimitiveArrayEvictionCount();
+
+  int getNumberOfPooledPrimitiveArrays();
+
+  long getOffHeapPageBytes();
+
+  long getPooledOffHeapPageBytes();
+
 }
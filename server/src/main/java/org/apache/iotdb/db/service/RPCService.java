@@ -61,12 +61,20 @@ public class RPCService extends ThriftService implements RPCServiceMBean {
   public void initThriftServiceThread()
       throws IllegalAccessException, InstantiationException, ClassNotFoundException {
     IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
-    thriftServiceThread = new ThriftServiceThread(processor,
-        getID().getName(), ThreadName.RPC_CLIENT.getName(),
-        config.getRpcAddress(), config.getRpcPort(), config.getRpcMaxConcurrentClientNum(),
-        config.getThriftServerAwaitTimeForStopService(),
-        new RPCServiceThriftHandler(impl),
-        IoTDBDescriptor.getInstance().getConfig().isRpcThriftCompressionEnable());
+    RPCServiceThriftHandler handler = new RPCServiceThriftHandler(impl);
+    if (config.isRpcSelectorServerEnable()) {
+      thriftServiceThread = new ThriftServiceThread(handler.bindSessions(processor),
+          getID().getName(), ThreadName.RPC_CLIENT.getName(),
+          config.getRpcAddress(), config.getRpcPort(), config.getRpcSelectorThreadNum(),
+          config.getRpcSelectorWorkerThreadNum(), config.getThriftServerAwaitTimeForStopService(),
+          handler, config.isRpcThriftCompressionEnable());
+    } else {
+      thriftServiceThread = new ThriftServiceThread(handler.bindSessions(processor),
+          getID().getName(), ThreadName.RPC_CLIENT.getName(),
+          config.getRpcAddress(), config.getRpcPort(), config.getRpcMaxConcurrentClientNum(),
+          config.getThriftServerAwaitTimeForStopService(), handler,
+          config.isRpcThriftCompressionEnable());
+    }
     thriftServiceThread.setName(ThreadName.RPC_SERVICE.getName());
   }
 
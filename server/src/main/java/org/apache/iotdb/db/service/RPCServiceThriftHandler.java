@@ -19,28 +19,56 @@
 
 package org.apache.iotdb.db.service;
 
+import org.apache.thrift.TProcessor;
 import org.apache.thrift.protocol.TProtocol;
 import org.apache.thrift.server.ServerContext;
 import org.apache.thrift.server.TServerEventHandler;
 import org.apache.thrift.transport.TTransport;
 
+/**
+ * Keeps the session of each client connection in its ServerContext, so that the session is known
+ * to whichever thread serves a request of the connection: the connection thread in the thread
+ * pool server, or any worker thread in the selector server.
+ */
 public class RPCServiceThriftHandler implements TServerEventHandler {
   private TSServiceImpl serviceImpl;
 
+  // the connection whose request is being served by the current thread
+  private ThreadLocal<SessionContext> servingContext = new ThreadLocal<>();
+
   RPCServiceThriftHandler(TSServiceImpl serviceImpl) {
     this.serviceImpl = serviceImpl;
   }
 
+  /**
+   * Wraps the processor so that the session opened or closed by a request is saved back into the
+   * context of its connection after the request is served.
+   */
+  TProcessor bindSessions(TProcessor processor) {
+    return (in, out) -> {
+      try {
+        processor.process(in, out);
+      } finally {
+        SessionContext context = servingContext.get();
+        if (context != null) {
+          context.sessionId = serviceImpl.unbindSession();
+          servingContext.remove();
+        }
+      }
+    };
+  }
+
   @Override
   public ServerContext createContext(TProtocol arg0, TProtocol arg1) {
-    // nothing
-    return null;
+    return new SessionContext();
   }
 
   @Override
   public void deleteContext(ServerContext arg0, TProtocol arg1, TProtocol arg2) {
     //release query resources.
+    serviceImpl.bindSession(((SessionContext) arg0).sessionId);
     serviceImpl.handleClientExit();
+    serviceImpl.unbindSession();
   }
 
   @Override
@@ -50,6 +78,14 @@ public class RPCServiceThriftHandler implements TServerEventHandler {
 
   @Override
   public void processContext(ServerContext arg0, TTransport arg1, TTransport arg2) {
-    // nothing
+    SessionContext context = (SessionContext) arg0;
+    servingContext.set(context);
+    serviceImpl.bindSession(context.sessionId);
+  }
+
+  private static class SessionContext implements ServerContext {
+
+    // requests of one connection are served one after another, but maybe by different threads
+    private volatile Long sessionId;
   }
 }
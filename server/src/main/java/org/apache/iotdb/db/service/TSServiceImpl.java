@@ -28,6 +28,7 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -83,13 +84,16 @@ import org.apache.iotdb.db.query.control.TracingManager;
 import org.apache.iotdb.db.query.dataset.AlignByDeviceDataSet;
 import org.apache.iotdb.db.query.dataset.NonAlignEngineDataSet;
 import org.apache.iotdb.db.query.dataset.RawQueryDataSetWithoutValueFilter;
+import org.apache.iotdb.db.query.pool.QueryResultPrefetcher;
 import org.apache.iotdb.db.tools.watermark.GroupedLSBWatermarkEncoder;
 import org.apache.iotdb.db.tools.watermark.WatermarkEncoder;
 import org.apache.iotdb.db.utils.FilePathUtils;
 import org.apache.iotdb.db.utils.QueryDataSetUtils;
 import org.apache.iotdb.db.utils.SchemaUtils;
+import org.apache.iotdb.rpc.QueryDataSetCodec;
 import org.apache.iotdb.rpc.RpcUtils;
 import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.rpc.TabletCodec;
 import org.apache.iotdb.service.rpc.thrift.ServerProperties;
 import org.apache.iotdb.service.rpc.thrift.TSCancelOperationReq;
 import org.apache.iotdb.service.rpc.thrift.TSCloseOperationReq;
@@ -155,6 +159,10 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
   // Record the username for every rpc connection (session).
   private Map<Long, String> sessionIdUsernameMap = new ConcurrentHashMap<>();
   private Map<Long, ZoneId> sessionIdZoneIdMap = new ConcurrentHashMap<>();
+  // sessions whose query results are encoded, see QueryDataSetCodec
+  private Map<Long, QueryDataSetCodec> sessionIdResultCodecMap = new ConcurrentHashMap<>();
+  // sessions whose inserted tablets are encoded, see TabletCodec
+  private Map<Long, TabletCodec> sessionIdTabletCodecMap = new ConcurrentHashMap<>();
 
   // The sessionId is unique in one IoTDB instance.
   private AtomicLong sessionIdGenerator = new AtomicLong();
@@ -169,6 +177,9 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
   // (queryId -> QueryDataSet)
   private Map<Long, QueryDataSet> queryId2DataSet = new ConcurrentHashMap<>();
 
+  // (queryId -> QueryResultPrefetcher), for the queries whose results are being prefetched
+  private Map<Long, QueryResultPrefetcher> queryId2Prefetcher = new ConcurrentHashMap<>();
+
   private IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
 
   // When the client abnormally exits, we can still know who to disconnect
@@ -206,6 +217,8 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
 
     TSStatus tsStatus;
     long sessionId = -1;
+    QueryDataSetCodec resultCodec = null;
+    TabletCodec tabletCodec = null;
     if (status) {
       //check the version compatibility
       boolean compatible = checkCompatibility(req.getClient_protocol());
@@ -222,6 +235,14 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
       sessionId = sessionIdGenerator.incrementAndGet();
       sessionIdUsernameMap.put(sessionId, req.getUsername());
       sessionIdZoneIdMap.put(sessionId, config.getZoneID());
+      resultCodec = QueryDataSetCodec.fromConfiguration(req.getConfiguration());
+      if (resultCodec != null) {
+        sessionIdResultCodecMap.put(sessionId, resultCodec);
+      }
+      tabletCodec = TabletCodec.fromConfiguration(req.getConfiguration());
+      if (tabletCodec != null) {
+        sessionIdTabletCodecMap.put(sessionId, tabletCodec);
+      }
       currSessionId.set(sessionId);
     } else {
       tsStatus = RpcUtils.getStatus(TSStatusCode.WRONG_LOGIN_PASSWORD_ERROR);
@@ -231,6 +252,17 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
     TSOpenSessionResp resp = new TSOpenSessionResp(tsStatus,
         CURRENT_RPC_VERSION);
     resp.setSessionId(sessionId);
+    // tell the client which of its query results and tablets will be encoded
+    Map<String, String> configuration = new HashMap<>();
+    if (resultCodec != null) {
+      configuration.putAll(resultCodec.toConfiguration());
+    }
+    if (tabletCodec != null) {
+      configuration.putAll(tabletCodec.toConfiguration());
+    }
+    if (!configuration.isEmpty()) {
+      resp.setConfiguration(configuration);
+    }
     logger.info(
         "{}: Login status: {}. User : {}", IoTDBConstant.GLOBAL_DB_NAME, tsStatus.message,
         req.getUsername());
@@ -256,6 +288,8 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
     }
 
     sessionIdZoneIdMap.remove(sessionId);
+    sessionIdResultCodecMap.remove(sessionId);
+    sessionIdTabletCodecMap.remove(sessionId);
     List<Exception> exceptions = new ArrayList<>();
     Set<Long> statementIds = sessionId2StatementId.getOrDefault(sessionId, Collections.emptySet());
     for (long statementId : statementIds) {
@@ -325,6 +359,11 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
    * release single operation resource
    */
   protected void releaseQueryResource(long queryId) throws StorageEngineException {
+    // stop reading the data set before its resources are released
+    QueryResultPrefetcher prefetcher = queryId2Prefetcher.remove(queryId);
+    if (prefetcher != null) {
+      prefetcher.cancel();
+    }
     // remove the corresponding Physical Plan
     queryId2DataSet.remove(queryId);
     QueryResourceManager.getInstance().endQuery(queryId);
@@ -480,8 +519,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
           processor.parseSQLToPhysicalPlan(statement, sessionIdZoneIdMap.get(req.getSessionId()));
       if (physicalPlan.isQuery()) {
         return internalExecuteQueryStatement(statement, req.statementId, physicalPlan,
-            req.fetchSize,
-            sessionIdUsernameMap.get(req.getSessionId()));
+            req.fetchSize, req.getSessionId());
       } else {
         return executeUpdateStatement(physicalPlan, req.getSessionId());
       }
@@ -527,7 +565,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
       }
 
       return internalExecuteQueryStatement(statement, req.statementId, physicalPlan, req.fetchSize,
-          sessionIdUsernameMap.get(req.getSessionId()));
+          req.getSessionId());
 
     } catch (ParseCancellationException e) {
       logger.warn(ERROR_PARSING_SQL, req.getStatement() + " " + e.getMessage());
@@ -566,7 +604,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
       }
 
       return internalExecuteQueryStatement("", generateQueryId(true), physicalPlan, req.fetchSize,
-          sessionIdUsernameMap.get(req.getSessionId()));
+          req.getSessionId());
 
     } catch (ParseCancellationException e) {
       logger.warn(ERROR_PARSING_SQL, e.getMessage());
@@ -589,8 +627,9 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
    */
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   private TSExecuteStatementResp internalExecuteQueryStatement(String statement,
-      long statementId, PhysicalPlan plan, int fetchSize, String username) throws IOException {
+      long statementId, PhysicalPlan plan, int fetchSize, long sessionId) throws IOException {
     auditLogger.debug("Session {} execute Query: {}", currSessionId.get(), statement);
+    String username = sessionIdUsernameMap.get(sessionId);
     long startTime = System.currentTimeMillis();
     long queryId = -1;
     try {
@@ -654,7 +693,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
           resp.setDataTypeList(
               newDataSet.getDataTypes().stream().map(Enum::toString).collect(Collectors.toList()));
         }
-        TSQueryDataSet result = fillRpcReturnData(fetchSize, newDataSet, username);
+        TSQueryDataSet result = fillRpcReturnData(fetchSize, newDataSet, sessionId);
         resp.setQueryDataSet(result);
       }
       resp.setQueryId(queryId);
@@ -663,6 +702,10 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
         TracingManager.getInstance()
             .writePathsNum(queryId, ((AlignByDeviceDataSet) newDataSet).getPathsNum());
       }
+      if (plan instanceof QueryPlan && resp.isSetQueryDataSet()
+          && resp.getQueryDataSet().bufferForTime().limit() != 0) {
+        startPrefetching(queryId, fetchSize, newDataSet, sessionId);
+      }
 
       if (enableMetric) {
         long endTime = System.currentTimeMillis();
@@ -918,8 +961,10 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
 
       QueryDataSet queryDataSet = queryId2DataSet.get(req.queryId);
       if (req.isAlign) {
-        TSQueryDataSet result =
-            fillRpcReturnData(req.fetchSize, queryDataSet, sessionIdUsernameMap.get(req.sessionId));
+        QueryResultPrefetcher prefetcher = queryId2Prefetcher.get(req.queryId);
+        // the prefetched blocks have the fetch size of the query, which is only a hint
+        TSQueryDataSet result = prefetcher != null ? prefetcher.next()
+            : fillRpcReturnData(req.fetchSize, queryDataSet, req.sessionId);
         boolean hasResultSet = result.bufferForTime().limit() != 0;
         if (!hasResultSet) {
           releaseQueryResource(req.queryId);
@@ -961,8 +1006,9 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
   }
 
   private TSQueryDataSet fillRpcReturnData(
-      int fetchSize, QueryDataSet queryDataSet, String userName)
+      int fetchSize, QueryDataSet queryDataSet, long sessionId)
       throws TException, AuthException, IOException, InterruptedException {
+    String userName = sessionIdUsernameMap.get(sessionId);
     IAuthorizer authorizer;
     try {
       authorizer = BasicAuthorizer.getInstance();
@@ -994,9 +1040,27 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
         result = QueryDataSetUtils.convertQueryDataSetByFetchSize(queryDataSet, fetchSize);
       }
     }
+    QueryDataSetCodec resultCodec = sessionIdResultCodecMap.get(sessionId);
+    if (resultCodec != null) {
+      result = resultCodec.encode(result, queryDataSet.getDataTypes());
+    }
     return result;
   }
 
+  /**
+   * Prefetch the next blocks of the query result, so they are ready when the client fetches them.
+   */
+  private void startPrefetching(long queryId, int fetchSize, QueryDataSet queryDataSet,
+      long sessionId) {
+    if (!config.isEnableQueryResultPrefetch()) {
+      return;
+    }
+    QueryResultPrefetcher prefetcher = new QueryResultPrefetcher(
+        () -> fillRpcReturnData(fetchSize, queryDataSet, sessionId));
+    queryId2Prefetcher.put(queryId, prefetcher);
+    prefetcher.start();
+  }
+
   private TSQueryNonAlignDataSet fillRpcNonAlignReturnData(
       int fetchSize, QueryDataSet queryDataSet, String userName)
       throws TException, AuthException, InterruptedException {
@@ -1123,6 +1187,28 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
     }
   }
 
+  /**
+   * Binds the session of a connection to the current thread before a request of the connection is
+   * served, as the requests of one connection may be served by different threads.
+   */
+  void bindSession(Long sessionId) {
+    if (sessionId == null) {
+      currSessionId.remove();
+    } else {
+      currSessionId.set(sessionId);
+    }
+  }
+
+  /**
+   * @return the session of the connection after its request is served, which may have been
+   * opened or closed by the request
+   */
+  Long unbindSession() {
+    Long sessionId = currSessionId.get();
+    currSessionId.remove();
+    return sessionId;
+  }
+
   @Override
   public TSGetTimeZoneResp getTimeZone(long sessionId) {
     TSStatus tsStatus;
@@ -1379,10 +1465,8 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
       }
 
       InsertTabletPlan insertTabletPlan = new InsertTabletPlan(new PartialPath(req.deviceId), req.measurements);
-      insertTabletPlan.setTimes(QueryDataSetUtils.readTimesFromBuffer(req.timestamps, req.size));
-      insertTabletPlan.setColumns(
-          QueryDataSetUtils.readValuesFromBuffer(
-              req.values, req.types, req.measurements.size(), req.size));
+      readTablet(insertTabletPlan, req.getSessionId(), req.timestamps, req.values, req.types,
+          req.size);
       insertTabletPlan.setRowCount(req.size);
       insertTabletPlan.setDataTypes(req.types);
 
@@ -1401,6 +1485,27 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
     }
   }
 
+  /**
+   * Read the times and the values of a tablet into the plan, which are encoded if the session
+   * negotiated a TabletCodec.
+   */
+  private void readTablet(InsertTabletPlan insertTabletPlan, long sessionId,
+      ByteBuffer timestamps, ByteBuffer values, List<Integer> types, int size) {
+    TabletCodec tabletCodec = sessionIdTabletCodecMap.get(sessionId);
+    if (tabletCodec == null) {
+      insertTabletPlan.setTimes(QueryDataSetUtils.readTimesFromBuffer(timestamps, size));
+      insertTabletPlan.setColumns(
+          QueryDataSetUtils.readValuesFromBuffer(values, types, types.size(), size));
+      return;
+    }
+    TSDataType[] dataTypes = new TSDataType[types.size()];
+    for (int i = 0; i < dataTypes.length; i++) {
+      dataTypes[i] = TSDataType.values()[types.get(i)];
+    }
+    insertTabletPlan.setTimes(tabletCodec.decodeTimes(timestamps, size));
+    insertTabletPlan.setColumns(tabletCodec.decodeValues(values, dataTypes, size));
+  }
+
   @Override
   public TSStatus insertTablets(TSInsertTabletsReq req) {
     long t1 = System.currentTimeMillis();
@@ -1414,12 +1519,8 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
       for (int i = 0; i < req.deviceIds.size(); i++) {
         InsertTabletPlan insertTabletPlan = new InsertTabletPlan(new PartialPath(req.deviceIds.get(i)),
             req.measurementsList.get(i));
-        insertTabletPlan.setTimes(
-            QueryDataSetUtils.readTimesFromBuffer(req.timestampsList.get(i), req.sizeList.get(i)));
-        insertTabletPlan.setColumns(
-            QueryDataSetUtils.readValuesFromBuffer(
-                req.valuesList.get(i), req.typesList.get(i), req.measurementsList.get(i).size(),
-                req.sizeList.get(i)));
+        readTablet(insertTabletPlan, req.getSessionId(), req.timestampsList.get(i),
+            req.valuesList.get(i), req.typesList.get(i), req.sizeList.get(i));
         insertTabletPlan.setRowCount(req.sizeList.get(i));
         insertTabletPlan.setDataTypes(req.typesList.get(i));
 
@@ -31,8 +31,11 @@ import org.apache.thrift.protocol.TProtocolFactory;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.server.TServerEventHandler;
 import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.server.TThreadedSelectorServer;
 import org.apache.thrift.transport.TFastFramedTransport;
+import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TServerSocket;
+import org.apache.thrift.transport.TServerTransport;
 import org.apache.thrift.transport.TTransportException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,7 +43,7 @@ import org.slf4j.LoggerFactory;
 public class ThriftServiceThread extends Thread{
 
   private static final Logger logger = LoggerFactory.getLogger(ThriftServiceThread.class);
-  private TServerSocket serverTransport;
+  private TServerTransport serverTransport;
   private TServer poolServer;
   private CountDownLatch threadStopLatch;
 
@@ -54,12 +57,7 @@ public class ThriftServiceThread extends Thread{
       String threadsName,
       String bindAddress, int port, int maxWorkerThreads, int timeoutMs,
       TServerEventHandler serverEventHandler, boolean compress) {
-    if(compress) {
-      protocolFactory = new TCompactProtocol.Factory();
-    }
-    else {
-      protocolFactory = new TBinaryProtocol.Factory();
-    }
+    initProtocolFactory(compress);
     this.serviceName = serviceName;
 
     try {
@@ -76,20 +74,66 @@ public class ThriftServiceThread extends Thread{
       poolServer = new TThreadPoolServer(poolArgs);
       poolServer.setServerEventHandler(serverEventHandler);
     } catch (TTransportException e) {
-      close();
-      if (threadStopLatch == null) {
-        logger.debug("Stop Count Down latch is null");
-      } else {
-        logger.debug("Stop Count Down latch is {}", threadStopLatch.getCount());
-      }
-      if (threadStopLatch != null && threadStopLatch.getCount() == 1) {
-        threadStopLatch.countDown();
-      }
-      logger.debug("{}: close TThreadPoolServer and TServerSocket for {}",
-          IoTDBConstant.GLOBAL_DB_NAME, serviceName);
-      throw new RPCServiceException(String.format("%s: failed to start %s, because ",
-          IoTDBConstant.GLOBAL_DB_NAME, serviceName), e);
+      catchFailedInitialization(e);
+    }
+  }
+
+  /**
+   * Creates a half-sync/half-async server: the selector threads read and write the frames of all
+   * connections without blocking, and a complete request frame is processed by one of the
+   * worker threads. So idle connections cost no thread, and the number of worker threads bounds
+   * the requests served at the same time instead of the number of connections. The clients must
+   * use a framed transport, which the thread pool server requires as well.
+   */
+  @SuppressWarnings("squid:S107")
+  public ThriftServiceThread(TProcessor processor, String serviceName,
+      String threadsName,
+      String bindAddress, int port, int selectorThreads, int workerThreads, int timeoutMs,
+      TServerEventHandler serverEventHandler, boolean compress) {
+    initProtocolFactory(compress);
+    this.serviceName = serviceName;
+
+    try {
+      TNonblockingServerSocket nonblockingServerSocket = new TNonblockingServerSocket(
+          new InetSocketAddress(bindAddress, port));
+      serverTransport = nonblockingServerSocket;
+      TThreadedSelectorServer.Args selectorArgs = new TThreadedSelectorServer.Args(
+          nonblockingServerSocket)
+          .selectorThreads(selectorThreads)
+          .executorService(IoTDBThreadPoolFactory.newFixedThreadPool(workerThreads, threadsName))
+          .stopTimeoutVal(timeoutMs);
+      selectorArgs.processor(processor);
+      selectorArgs.protocolFactory(protocolFactory);
+      poolServer = new TThreadedSelectorServer(selectorArgs);
+      poolServer.setServerEventHandler(serverEventHandler);
+    } catch (TTransportException e) {
+      catchFailedInitialization(e);
+    }
+  }
+
+  private void initProtocolFactory(boolean compress) {
+    if(compress) {
+      protocolFactory = new TCompactProtocol.Factory();
+    }
+    else {
+      protocolFactory = new TBinaryProtocol.Factory();
+    }
+  }
+
+  private void catchFailedInitialization(TTransportException e) {
+    close();
+    if (threadStopLatch == null) {
+      logger.debug("Stop Count Down latch is null");
+    } else {
+      logger.debug("Stop Count Down latch is {}", threadStopLatch.getCount());
+    }
+    if (threadStopLatch != null && threadStopLatch.getCount() == 1) {
+      threadStopLatch.countDown();
     }
+    logger.debug("{}: close thrift server and server transport for {}",
+        IoTDBConstant.GLOBAL_DB_NAME, serviceName);
+    throw new RPCServiceException(String.format("%s: failed to start %s, because ",
+        IoTDBConstant.GLOBAL_DB_NAME, serviceName), e);
   }
 
   public void setThreadStopLatch(CountDownLatch threadStopLatch) {
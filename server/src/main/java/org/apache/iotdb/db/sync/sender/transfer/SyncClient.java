@@ -58,7 +58,9 @@ import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.exception.SyncConnectionException;
 import org.apache.iotdb.db.exception.SyncDeviceOwnerConflictException;
+import org.apache.iotdb.db.metadata.MLogTxtConverter;
 import org.apache.iotdb.db.metadata.MetadataConstant;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
 import org.apache.iotdb.db.sync.conf.SyncConstant;
 import org.apache.iotdb.db.sync.conf.SyncSenderConfig;
 import org.apache.iotdb.db.sync.conf.SyncSenderDescriptor;
@@ -68,6 +70,7 @@ import org.apache.iotdb.db.sync.sender.recover.ISyncSenderLogger;
 import org.apache.iotdb.db.sync.sender.recover.SyncSenderLogAnalyzer;
 import org.apache.iotdb.db.sync.sender.recover.SyncSenderLogger;
 import org.apache.iotdb.db.utils.SyncUtils;
+import org.apache.iotdb.db.writelog.io.SingleFileLogReader;
 import org.apache.iotdb.service.sync.thrift.ConfirmInfo;
 import org.apache.iotdb.service.sync.thrift.SyncService;
 import org.apache.iotdb.service.sync.thrift.SyncStatus;
@@ -342,7 +345,7 @@ public class SyncClient implements ISyncClient {
       return;
     }
     int retryCount = 0;
-    serviceClient.initSyncData(MetadataConstant.METADATA_LOG);
+    serviceClient.initSyncData(MetadataConstant.METADATA_TXT_LOG);
     while (true) {
       if (retryCount > config.getMaxNumOfSyncFileRetry()) {
         throw new SyncConnectionException(String
@@ -360,18 +363,24 @@ public class SyncClient implements ISyncClient {
     int schemaPos = readSyncSchemaPos(getSchemaPosFile());
 
     // start to sync file data and get md5 of this file.
-    try (BufferedReader br = new BufferedReader(new FileReader(getSchemaLogFile()));
-        ByteArrayOutputStream bos = new ByteArrayOutputStream(SyncConstant.DATA_CHUNK_SIZE)) {
+    // the receiver replays the schema in the text format of MLogTxtConverter
+    SingleFileLogReader reader = null;
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream(SyncConstant.DATA_CHUNK_SIZE)) {
+      reader = new SingleFileLogReader(getSchemaLogFile());
       schemaFileLinePos = 0;
-      String line;
-      while (schemaFileLinePos < schemaPos) {
-        line = br.readLine();
+      while (schemaFileLinePos < schemaPos && reader.hasNext()) {
+        reader.next();
         schemaFileLinePos++;
       }
       MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
       int cntLine = 0;
-      while ((line = br.readLine()) != null) {
+      while (reader.hasNext()) {
+        PhysicalPlan plan = reader.next();
         schemaFileLinePos++;
+        String line = MLogTxtConverter.toLine(plan);
+        if (line == null) {
+          continue;
+        }
         byte[] singleLineData = BytesUtils.stringToBytes(line);
         bos.write(singleLineData);
         bos.write("\r\n".getBytes());
@@ -403,6 +412,10 @@ public class SyncClient implements ISyncClient {
     } catch (NoSuchAlgorithmException | IOException | TException e) {
       logger.error("Can not finish transfer schema to receiver", e);
       return false;
+    } finally {
+      if (reader != null) {
+        reader.close();
+      }
     }
   }
 
@@ -41,11 +41,12 @@ public class MemEstTool {
   public static void main(String... args) throws IOException {
     List<Class<? extends Runnable>> commands = Lists.newArrayList(
         Help.class,
-        MemEstToolCmd.class
+        MemEstToolCmd.class,
+        SchemaMemEstToolCmd.class
     );
     Cli.CliBuilder<Runnable> builder = Cli.builder("memory-tool");
 
-    builder.withDescription("Estimate memory for writing")
+    builder.withDescription("Estimate memory for writing and for the schema")
         .withDefaultCommand(Help.class)
         .withCommands(commands);
 
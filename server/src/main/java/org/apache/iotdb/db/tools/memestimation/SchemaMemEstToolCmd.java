@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.tools.memestimation;
+
+import io.airlift.airline.Command;
+import io.airlift.airline.Option;
+import java.util.Collections;
+import org.apache.iotdb.db.concurrent.WrappedRunnable;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.metadata.mnode.MNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.metadata.mnode.StorageGroupMNode;
+import org.apache.iotdb.db.rescon.CachedStringPool;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+
+@Command(name = "calschema", description = "calculate the memory used by the schema tree per timeseries, with and without the compact MTree")
+public class SchemaMemEstToolCmd extends WrappedRunnable {
+
+  @Option(title = "storage group number", name = {"-sg",
+      "--storagegroup"}, description = "Storage group number")
+  private String sgNumString = "10";
+
+  @Option(title = "total timeseries number", name = {"-ts",
+      "--timeseries"}, description = "Total timeseries number")
+  private String tsNumString = "1000000";
+
+  @Option(title = "measurement number", name = {"-m",
+      "--measurement"}, description = "Measurement number of each device")
+  private String measurementNumString = "100";
+
+  @Override
+  public void runMayThrow() {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    boolean enableCompactMTree = config.isEnableCompactMTree();
+
+    int sgNum = Integer.parseInt(sgNumString);
+    long tsNum = Long.parseLong(tsNumString);
+    int measurementNum = Integer.parseInt(measurementNumString);
+
+    try {
+      config.setEnableCompactMTree(false);
+      long before = measure(sgNum, tsNum, measurementNum);
+      config.setEnableCompactMTree(true);
+      long after = measure(sgNum, tsNum, measurementNum);
+      System.out.println(String.format("SG: %d, TS: %d, measurements per device: %d", sgNum, tsNum,
+          measurementNum));
+      System.out.println(String.format("MTree: %dMB, %d bytes per timeseries",
+          before / IoTDBConstant.MB, before / tsNum));
+      System.out.println(String.format("Compact MTree: %dMB, %d bytes per timeseries",
+          after / IoTDBConstant.MB, after / tsNum));
+    } finally {
+      config.setEnableCompactMTree(enableCompactMTree);
+    }
+  }
+
+  /**
+   * Build a schema tree like MTree.createTimeseries() does and touch the nodes like the insertions
+   * do.
+   *
+   * @return the heap occupied by the tree
+   */
+  private long measure(int sgNum, long tsNum, int measurementNum) {
+    CachedStringPool.getInstance().getCachedPool().clear();
+    long start = usedMemory();
+
+    MNode root = new MNode(null, IoTDBConstant.PATH_ROOT);
+    long deviceNum = (tsNum + measurementNum - 1) / measurementNum;
+    for (int i = 0; i < sgNum; i++) {
+      String sgName = "sg" + i;
+      root.addChild(sgName, new StorageGroupMNode(root, sgName, Long.MAX_VALUE));
+    }
+    long created = 0;
+    for (long d = 0; d < deviceNum; d++) {
+      MNode sg = root.getChild("sg" + d % sgNum);
+      String deviceName = "d" + d;
+      MNode device = new MNode(sg, deviceName);
+      sg.addChild(deviceName, device);
+      for (int m = 0; m < measurementNum && created < tsNum; m++, created++) {
+        String measurementName = "s" + m;
+        device.addChild(measurementName, new MeasurementMNode(device, measurementName, null,
+            TSDataType.DOUBLE, TSEncoding.GORILLA, CompressionType.SNAPPY,
+            Collections.emptyMap()));
+      }
+      device.readLock();
+      device.getFullPath();
+      device.readUnlock();
+    }
+
+    long used = usedMemory() - start;
+    // keep the tree reachable until it is measured
+    if (root.getChildren().size() != sgNum) {
+      throw new IllegalStateException("The schema tree is incomplete");
+    }
+    CachedStringPool.getInstance().getCachedPool().clear();
+    return used;
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
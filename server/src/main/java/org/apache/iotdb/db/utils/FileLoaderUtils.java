@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import org.apache.iotdb.db.engine.cache.BloomFilterCache;
 import org.apache.iotdb.db.engine.cache.TimeSeriesMetadataCache;
 import org.apache.iotdb.db.engine.modification.Modification;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
@@ -89,7 +90,8 @@ public class FileLoaderUtils {
       QueryContext context, Filter filter, Set<String> allSensors) throws IOException {
     TimeseriesMetadata timeSeriesMetadata;
     if (resource.isClosed()) {
-      if (!resource.getTsFile().exists()) {
+      if (!resource.getTsFile().exists() || !BloomFilterCache.getInstance()
+          .mayContain(resource, seriesPath.getFullPath())) {
         return null;
       }
       timeSeriesMetadata = TimeSeriesMetadataCache.getInstance()
@@ -143,10 +143,15 @@ public class SchemaUtils {
     if (aggregation == null) {
       return null;
     }
-    switch (aggregation.toLowerCase()) {
+    String aggregationName = aggregation.toLowerCase();
+    if (aggregationName.startsWith(SQLConstant.PERCENTILE)) {
+      return TSDataType.DOUBLE;
+    }
+    switch (aggregationName) {
       case SQLConstant.MIN_TIME:
       case SQLConstant.MAX_TIME:
       case SQLConstant.COUNT:
+      case SQLConstant.APPROX_COUNT_DISTINCT:
         return TSDataType.INT64;
       case SQLConstant.LAST_VALUE:
       case SQLConstant.FIRST_VALUE:
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import java.nio.ByteBuffer;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+
+public class OffHeapBooleanTVList extends OffHeapTVList {
+
+  OffHeapBooleanTVList() {
+    super(1);
+  }
+
+  @Override
+  public TSDataType getDataType() {
+    return TSDataType.BOOLEAN;
+  }
+
+  @Override
+  public void putBoolean(long timestamp, boolean value) {
+    checkExpansion();
+    ByteBuffer page = getLastPage();
+    minTime = minTime <= timestamp ? minTime : timestamp;
+    page.putLong(timeOffset(size), timestamp);
+    page.put(valueOffset(size), (byte) (value ? 1 : 0));
+    size++;
+    if (sorted && size > 1 && timestamp < getTime(size - 2)) {
+      sorted = false;
+    }
+  }
+
+  @Override
+  public boolean getBoolean(int index) {
+    ByteBuffer page = getPage(index);
+    return page.get(valueOffset(index)) != 0;
+  }
+
+  @Override
+  public void putBooleans(long[] time, boolean[] value) {
+    putBatch(time, value, 0, time.length);
+  }
+
+  @Override
+  public void putBooleans(long[] time, boolean[] value, int start, int end) {
+    putBatch(time, value, start, end);
+  }
+
+  @Override
+  protected void putValues(ByteBuffer values, Object value, int start, int length) {
+    boolean[] booleans = (boolean[]) value;
+    for (int i = 0; i < length; i++) {
+      values.put(i, (byte) (booleans[start + i] ? 1 : 0));
+    }
+  }
+
+  @Override
+  public TVList clone() {
+    BooleanTVList cloneList = new BooleanTVList();
+    for (int pageIdx = 0; pageIdx < getUsedPageNum(); pageIdx++) {
+      boolean[] values = new boolean[getPageLength(pageIdx)];
+      ByteBuffer pageValues = getPageValues(pageIdx);
+      for (int i = 0; i < values.length; i++) {
+        values[i] = pageValues.get(i) != 0;
+      }
+      cloneList.putBooleans(getPageTimes(pageIdx), values);
+    }
+    return cloneAttributes(cloneList);
+  }
+
+  @Override
+  public TimeValuePair getTimeValuePair(int index) {
+    return new TimeValuePair(getTime(index),
+        TsPrimitiveType.getByType(TSDataType.BOOLEAN, getBoolean(index)));
+  }
+
+  @Override
+  protected TimeValuePair getTimeValuePair(int index, long time, Integer floatPrecision,
+      TSEncoding encoding) {
+    return new TimeValuePair(time, TsPrimitiveType.getByType(TSDataType.BOOLEAN, getBoolean(index)));
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import java.nio.ByteBuffer;
+import org.apache.iotdb.db.utils.MathUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+
+public class OffHeapDoubleTVList extends OffHeapTVList {
+
+  OffHeapDoubleTVList() {
+    super(8);
+  }
+
+  @Override
+  public TSDataType getDataType() {
+    return TSDataType.DOUBLE;
+  }
+
+  @Override
+  public void putDouble(long timestamp, double value) {
+    checkExpansion();
+    ByteBuffer page = getLastPage();
+    minTime = minTime <= timestamp ? minTime : timestamp;
+    page.putLong(timeOffset(size), timestamp);
+    page.putDouble(valueOffset(size), value);
+    size++;
+    if (sorted && size > 1 && timestamp < getTime(size - 2)) {
+      sorted = false;
+    }
+  }
+
+  @Override
+  public double getDouble(int index) {
+    ByteBuffer page = getPage(index);
+    return page.getDouble(valueOffset(index));
+  }
+
+  @Override
+  public void putDoubles(long[] time, double[] value) {
+    putBatch(time, value, 0, time.length);
+  }
+
+  @Override
+  public void putDoubles(long[] time, double[] value, int start, int end) {
+    putBatch(time, value, start, end);
+  }
+
+  @Override
+  protected void putValues(ByteBuffer values, Object value, int start, int length) {
+    values.asDoubleBuffer().put((double[]) value, start, length);
+  }
+
+  @Override
+  public TVList clone() {
+    DoubleTVList cloneList = new DoubleTVList();
+    for (int pageIdx = 0; pageIdx < getUsedPageNum(); pageIdx++) {
+      double[] values = new double[getPageLength(pageIdx)];
+      getPageValues(pageIdx).asDoubleBuffer().get(values);
+      cloneList.putDoubles(getPageTimes(pageIdx), values);
+    }
+    return cloneAttributes(cloneList);
+  }
+
+  @Override
+  public TimeValuePair getTimeValuePair(int index) {
+    return new TimeValuePair(getTime(index),
+        TsPrimitiveType.getByType(TSDataType.DOUBLE, getDouble(index)));
+  }
+
+  @Override
+  protected TimeValuePair getTimeValuePair(int index, long time, Integer floatPrecision,
+      TSEncoding encoding) {
+    double value = getDouble(index);
+    if (encoding == TSEncoding.RLE || encoding == TSEncoding.TS_2DIFF) {
+      value = MathUtils.roundWithGivenPrecision(value, floatPrecision);
+    }
+    return new TimeValuePair(time, TsPrimitiveType.getByType(TSDataType.DOUBLE, value));
+  }
+}
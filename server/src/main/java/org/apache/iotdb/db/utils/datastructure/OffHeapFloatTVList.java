@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import java.nio.ByteBuffer;
+import org.apache.iotdb.db.utils.MathUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+
+public class OffHeapFloatTVList extends OffHeapTVList {
+
+  OffHeapFloatTVList() {
+    super(4);
+  }
+
+  @Override
+  public TSDataType getDataType() {
+    return TSDataType.FLOAT;
+  }
+
+  @Override
+  public void putFloat(long timestamp, float value) {
+    checkExpansion();
+    ByteBuffer page = getLastPage();
+    minTime = minTime <= timestamp ? minTime : timestamp;
+    page.putLong(timeOffset(size), timestamp);
+    page.putFloat(valueOffset(size), value);
+    size++;
+    if (sorted && size > 1 && timestamp < getTime(size - 2)) {
+      sorted = false;
+    }
+  }
+
+  @Override
+  public float getFloat(int index) {
+    ByteBuffer page = getPage(index);
+    return page.getFloat(valueOffset(index));
+  }
+
+  @Override
+  public void putFloats(long[] time, float[] value) {
+    putBatch(time, value, 0, time.length);
+  }
+
+  @Override
+  public void putFloats(long[] time, float[] value, int start, int end) {
+    putBatch(time, value, start, end);
+  }
+
+  @Override
+  protected void putValues(ByteBuffer values, Object value, int start, int length) {
+    values.asFloatBuffer().put((float[]) value, start, length);
+  }
+
+  @Override
+  public TVList clone() {
+    FloatTVList cloneList = new FloatTVList();
+    for (int pageIdx = 0; pageIdx < getUsedPageNum(); pageIdx++) {
+      float[] values = new float[getPageLength(pageIdx)];
+      getPageValues(pageIdx).asFloatBuffer().get(values);
+      cloneList.putFloats(getPageTimes(pageIdx), values);
+    }
+    return cloneAttributes(cloneList);
+  }
+
+  @Override
+  public TimeValuePair getTimeValuePair(int index) {
+    return new TimeValuePair(getTime(index),
+        TsPrimitiveType.getByType(TSDataType.FLOAT, getFloat(index)));
+  }
+
+  @Override
+  protected TimeValuePair getTimeValuePair(int index, long time, Integer floatPrecision,
+      TSEncoding encoding) {
+    float value = getFloat(index);
+    if (encoding == TSEncoding.RLE || encoding == TSEncoding.TS_2DIFF) {
+      value = MathUtils.roundWithGivenPrecision(value, floatPrecision);
+    }
+    return new TimeValuePair(time, TsPrimitiveType.getByType(TSDataType.FLOAT, value));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import java.nio.ByteBuffer;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+
+public class OffHeapLongTVList extends OffHeapTVList {
+
+  OffHeapLongTVList() {
+    super(8);
+  }
+
+  @Override
+  public TSDataType getDataType() {
+    return TSDataType.INT64;
+  }
+
+  @Override
+  public void putLong(long timestamp, long value) {
+    checkExpansion();
+    ByteBuffer page = getLastPage();
+    minTime = minTime <= timestamp ? minTime : timestamp;
+    page.putLong(timeOffset(size), timestamp);
+    page.putLong(valueOffset(size), value);
+    size++;
+    if (sorted && size > 1 && timestamp < getTime(size - 2)) {
+      sorted = false;
+    }
+  }
+
+  @Override
+  public long getLong(int index) {
+    ByteBuffer page = getPage(index);
+    return page.getLong(valueOffset(index));
+  }
+
+  @Override
+  public void putLongs(long[] time, long[] value) {
+    putBatch(time, value, 0, time.length);
+  }
+
+  @Override
+  public void putLongs(long[] time, long[] value, int start, int end) {
+    putBatch(time, value, start, end);
+  }
+
+  @Override
+  protected void putValues(ByteBuffer values, Object value, int start, int length) {
+    values.asLongBuffer().put((long[]) value, start, length);
+  }
+
+  @Override
+  public TVList clone() {
+    LongTVList cloneList = new LongTVList();
+    for (int pageIdx = 0; pageIdx < getUsedPageNum(); pageIdx++) {
+      long[] values = new long[getPageLength(pageIdx)];
+      getPageValues(pageIdx).asLongBuffer().get(values);
+      cloneList.putLongs(getPageTimes(pageIdx), values);
+    }
+    return cloneAttributes(cloneList);
+  }
+
+  @Override
+  public TimeValuePair getTimeValuePair(int index) {
+    return new TimeValuePair(getTime(index),
+        TsPrimitiveType.getByType(TSDataType.INT64, getLong(index)));
+  }
+
+  @Override
+  protected TimeValuePair getTimeValuePair(int index, long time, Integer floatPrecision,
+      TSEncoding encoding) {
+    return new TimeValuePair(time, TsPrimitiveType.getByType(TSDataType.INT64, getLong(index)));
+  }
+}
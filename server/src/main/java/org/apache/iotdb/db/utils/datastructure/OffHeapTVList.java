@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import static org.apache.iotdb.db.rescon.PrimitiveArrayPool.ARRAY_SIZE;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.db.rescon.OffHeapPagePool;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+
+/**
+ * OffHeapTVList stores timestamps and values in pages of direct memory taken from
+ * OffHeapPagePool instead of primitive arrays on heap, so that large memtables do not burden the
+ * garbage collector. Each page holds ARRAY_SIZE timestamps followed by ARRAY_SIZE values, and the
+ * values are moved as raw bits while sorting, so the subclasses only convert the typed values.
+ *
+ * clone() returns an on-heap TVList, as the clones are short-lived query snapshots which are
+ * never released to the pool.
+ */
+public abstract class OffHeapTVList extends TVList {
+
+  private static final int TIME_SIZE = 8;
+
+  // bytes of each value
+  private final int valueSize;
+  // where the values start in a page
+  private final int valuesStart;
+  private final int pageSize;
+
+  private List<ByteBuffer> pages;
+
+  private ByteBuffer[] sortedPages;
+
+  private long pivotValueBits;
+
+  OffHeapTVList(int valueSize) {
+    super();
+    this.valueSize = valueSize;
+    this.valuesStart = ARRAY_SIZE * TIME_SIZE;
+    this.pageSize = ARRAY_SIZE * (TIME_SIZE + valueSize);
+    pages = new ArrayList<>();
+  }
+
+  public static OffHeapTVList newList(TSDataType dataType) {
+    switch (dataType) {
+      case FLOAT:
+        return new OffHeapFloatTVList();
+      case INT32:
+        return new OffHeapIntTVList();
+      case INT64:
+        return new OffHeapLongTVList();
+      case DOUBLE:
+        return new OffHeapDoubleTVList();
+      case BOOLEAN:
+        return new OffHeapBooleanTVList();
+      default:
+        return null;
+    }
+  }
+
+  public abstract TSDataType getDataType();
+
+  @Override
+  public long getTime(int index) {
+    return getPage(index).getLong(timeOffset(index));
+  }
+
+  protected ByteBuffer getPage(int index) {
+    if (index >= size) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    return pages.get(index / ARRAY_SIZE);
+  }
+
+  protected ByteBuffer getLastPage() {
+    return pages.get(size / ARRAY_SIZE);
+  }
+
+  protected static int timeOffset(int index) {
+    return (index % ARRAY_SIZE) * TIME_SIZE;
+  }
+
+  protected int valueOffset(int index) {
+    return valuesStart + (index % ARRAY_SIZE) * valueSize;
+  }
+
+  private long getValueBits(ByteBuffer page, int offset) {
+    switch (valueSize) {
+      case 8:
+        return page.getLong(offset);
+      case 4:
+        return page.getInt(offset);
+      default:
+        return page.get(offset);
+    }
+  }
+
+  private void putValueBits(ByteBuffer page, int offset, long bits) {
+    switch (valueSize) {
+      case 8:
+        page.putLong(offset, bits);
+        break;
+      case 4:
+        page.putInt(offset, (int) bits);
+        break;
+      default:
+        page.put(offset, (byte) bits);
+        break;
+    }
+  }
+
+  private void set(int index, long timestamp, long valueBits) {
+    ByteBuffer page = getPage(index);
+    page.putLong(timeOffset(index), timestamp);
+    putValueBits(page, valueOffset(index), valueBits);
+  }
+
+  @Override
+  protected void set(int src, int dest) {
+    ByteBuffer page = getPage(src);
+    set(dest, page.getLong(timeOffset(src)), getValueBits(page, valueOffset(src)));
+  }
+
+  @Override
+  protected void setToSorted(int src, int dest) {
+    ByteBuffer page = getPage(src);
+    ByteBuffer sortedPage = sortedPages[dest / ARRAY_SIZE];
+    sortedPage.putLong(timeOffset(dest), page.getLong(timeOffset(src)));
+    putValueBits(sortedPage, valueOffset(dest), getValueBits(page, valueOffset(src)));
+  }
+
+  @Override
+  protected void setFromSorted(int src, int dest) {
+    ByteBuffer sortedPage = sortedPages[src / ARRAY_SIZE];
+    set(dest, sortedPage.getLong(timeOffset(src)),
+        getValueBits(sortedPage, valueOffset(src)));
+  }
+
+  @Override
+  protected void reverseRange(int lo, int hi) {
+    hi--;
+    while (lo < hi) {
+      ByteBuffer loPage = getPage(lo);
+      long loT = loPage.getLong(timeOffset(lo));
+      long loV = getValueBits(loPage, valueOffset(lo));
+      ByteBuffer hiPage = getPage(hi);
+      long hiT = hiPage.getLong(timeOffset(hi));
+      long hiV = getValueBits(hiPage, valueOffset(hi));
+      set(lo++, hiT, hiV);
+      set(hi--, loT, loV);
+    }
+  }
+
+  @Override
+  protected void saveAsPivot(int pos) {
+    ByteBuffer page = getPage(pos);
+    pivotTime = page.getLong(timeOffset(pos));
+    pivotValueBits = getValueBits(page, valueOffset(pos));
+  }
+
+  @Override
+  protected void setPivotTo(int pos) {
+    set(pos, pivotTime, pivotValueBits);
+  }
+
+  @Override
+  public void sort() {
+    if (sorted) {
+      return;
+    }
+    int pageNum = getUsedPageNum();
+    sortedPages = new ByteBuffer[pageNum];
+    for (int i = 0; i < pageNum; i++) {
+      sortedPages[i] = OffHeapPagePool.getInstance().getPage(pageSize);
+    }
+    sort(0, size);
+    clearSortedTime();
+    sorted = true;
+  }
+
+  @Override
+  protected void checkExpansion() {
+    if ((size % ARRAY_SIZE) == 0) {
+      expandValues();
+    }
+  }
+
+  @Override
+  protected void expandValues() {
+    pages.add(OffHeapPagePool.getInstance().getPage(pageSize));
+  }
+
+  @Override
+  protected int getTimeArrayNum() {
+    return pages.size();
+  }
+
+  @Override
+  protected void releaseLastTimeArray() {
+    OffHeapPagePool.getInstance().release(pages.remove(pages.size() - 1));
+  }
+
+  @Override
+  protected void releaseLastValueArray() {
+    // the values are in the same page as the timestamps
+  }
+
+  @Override
+  protected void clearTime() {
+    for (ByteBuffer page : pages) {
+      OffHeapPagePool.getInstance().release(page);
+    }
+    pages.clear();
+  }
+
+  @Override
+  protected void clearSortedTime() {
+    if (sortedPages != null) {
+      for (ByteBuffer page : sortedPages) {
+        OffHeapPagePool.getInstance().release(page);
+      }
+      sortedPages = null;
+    }
+  }
+
+  @Override
+  void clearValue() {
+    // the values are in the same pages as the timestamps
+  }
+
+  @Override
+  void clearSortedValue() {
+    // the values are in the same pages as the timestamps
+  }
+
+  /**
+   * Put the timestamps of [start, end) into the pages, the values are put by putValues() for each
+   * page they fall in.
+   */
+  protected void putBatch(long[] time, Object value, int start, int end) {
+    checkExpansion();
+    updateMinTimeAndSorted(time, start, end);
+    int idx = start;
+    while (idx < end) {
+      int elementIdx = size % ARRAY_SIZE;
+      int length = Math.min(end - idx, ARRAY_SIZE - elementIdx);
+      ByteBuffer page = getLastPage();
+      view(page, timeOffset(elementIdx)).asLongBuffer().put(time, idx, length);
+      putValues(view(page, valueOffset(elementIdx)), value, idx, length);
+      idx += length;
+      size += length;
+      if (idx < end) {
+        checkExpansion();
+      }
+    }
+  }
+
+  /**
+   * @param values a view of the page starting from where the first value should be put
+   */
+  protected abstract void putValues(ByteBuffer values, Object value, int start, int length);
+
+  /**
+   * @return a view of the page starting from offset, in native byte order
+   */
+  protected static ByteBuffer view(ByteBuffer page, int offset) {
+    ByteBuffer view = page.duplicate();
+    view.position(offset);
+    return view.slice().order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * @return the number of pages holding points
+   */
+  protected int getUsedPageNum() {
+    return (size + ARRAY_SIZE - 1) / ARRAY_SIZE;
+  }
+
+  /**
+   * @return the number of points in the page
+   */
+  protected int getPageLength(int pageIdx) {
+    return Math.min(ARRAY_SIZE, size - pageIdx * ARRAY_SIZE);
+  }
+
+  protected long[] getPageTimes(int pageIdx) {
+    long[] times = new long[getPageLength(pageIdx)];
+    view(pages.get(pageIdx), 0).asLongBuffer().get(times);
+    return times;
+  }
+
+  protected ByteBuffer getPageValues(int pageIdx) {
+    return view(pages.get(pageIdx), valuesStart);
+  }
+
+  /**
+   * copy the attributes that are not recalculated when the points are put into the on-heap clone
+   */
+  protected <T extends TVList> T cloneAttributes(T cloneList) {
+    cloneList.sorted = sorted;
+    cloneList.minTime = minTime;
+    return cloneList;
+  }
+}
@@ -24,6 +24,7 @@ import static org.apache.iotdb.db.rescon.PrimitiveArrayPool.ARRAY_SIZE;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.rescon.PrimitiveArrayPool;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
@@ -199,6 +200,10 @@ public abstract class TVList {
 
   protected abstract void releaseLastValueArray();
 
+  protected int getTimeArrayNum() {
+    return timestamps.size();
+  }
+
   protected void releaseLastTimeArray() {
     PrimitiveArrayPool.getInstance().release(timestamps.remove(timestamps.size() - 1));
   }
@@ -220,7 +225,7 @@ public abstract class TVList {
     if (newSize % ARRAY_SIZE != 0) {
       newArrayNum++;
     }
-    for (int releaseIdx = newArrayNum; releaseIdx < timestamps.size(); releaseIdx++) {
+    for (int releaseIdx = newArrayNum; releaseIdx < getTimeArrayNum(); releaseIdx++) {
       releaseLastTimeArray();
       releaseLastValueArray();
     }
@@ -327,6 +332,11 @@ public abstract class TVList {
   }
 
   public static TVList newList(TSDataType dataType) {
+    if (IoTDBDescriptor.getInstance().getConfig().isEnableOffHeapTVList()
+        && dataType != TSDataType.TEXT) {
+      // TEXT values are objects and stay on heap
+      return OffHeapTVList.newList(dataType);
+    }
     switch (dataType) {
       case TEXT:
         return new BinaryTVList();
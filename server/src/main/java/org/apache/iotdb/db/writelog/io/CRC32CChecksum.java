@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.writelog.io;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.Checksum;
+
+/**
+ * CRC32CChecksum calculates CRC-32C (Castagnoli) check sums. It delegates to java.util.zip.CRC32C,
+ * which is hardware accelerated, when running on Java 9 or later, and falls back to a
+ * slicing-by-8 implementation on Java 8.
+ */
+public class CRC32CChecksum implements Checksum {
+
+  private static final int POLYNOMIAL = 0x82F63B78;
+  private static final int[][] TABLES = new int[8][256];
+
+  private static final MethodHandle JDK_CONSTRUCTOR;
+  private static final MethodHandle JDK_UPDATE_BUFFER;
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      int crc = i;
+      for (int j = 0; j < 8; j++) {
+        crc = (crc >>> 1) ^ ((crc & 1) != 0 ? POLYNOMIAL : 0);
+      }
+      TABLES[0][i] = crc;
+    }
+    for (int i = 0; i < 256; i++) {
+      for (int k = 1; k < 8; k++) {
+        TABLES[k][i] = (TABLES[k - 1][i] >>> 8) ^ TABLES[0][TABLES[k - 1][i] & 0xff];
+      }
+    }
+
+    MethodHandle constructor = null;
+    MethodHandle updateBuffer = null;
+    try {
+      Class<?> jdkClass = Class.forName("java.util.zip.CRC32C");
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      constructor = lookup.findConstructor(jdkClass, MethodType.methodType(void.class))
+          .asType(MethodType.methodType(Checksum.class));
+      updateBuffer = lookup
+          .findVirtual(jdkClass, "update", MethodType.methodType(void.class, ByteBuffer.class))
+          .asType(MethodType.methodType(void.class, Checksum.class, ByteBuffer.class));
+    } catch (ReflectiveOperationException e) {
+      // Java 8, use the fallback implementation
+      constructor = null;
+      updateBuffer = null;
+    }
+    JDK_CONSTRUCTOR = constructor;
+    JDK_UPDATE_BUFFER = updateBuffer;
+  }
+
+  // null when running on Java 8
+  private final Checksum jdkChecksum;
+  private int crc = 0xFFFFFFFF;
+
+  public CRC32CChecksum() {
+    jdkChecksum = JDK_CONSTRUCTOR == null ? null : newJdkChecksum();
+  }
+
+  private static Checksum newJdkChecksum() {
+    try {
+      return (Checksum) JDK_CONSTRUCTOR.invokeExact();
+    } catch (Throwable e) {
+      throw new IllegalStateException("Cannot create java.util.zip.CRC32C", e);
+    }
+  }
+
+  @Override
+  public void update(int b) {
+    if (jdkChecksum != null) {
+      jdkChecksum.update(b);
+      return;
+    }
+    crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xff];
+  }
+
+  @Override
+  public void update(byte[] b, int off, int len) {
+    if (jdkChecksum != null) {
+      jdkChecksum.update(b, off, len);
+      return;
+    }
+    int value = crc;
+    int end = off + len;
+    while (off + 8 <= end) {
+      int low = (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16
+          | (b[off + 3] & 0xff) << 24;
+      int high = (b[off + 4] & 0xff) | (b[off + 5] & 0xff) << 8 | (b[off + 6] & 0xff) << 16
+          | (b[off + 7] & 0xff) << 24;
+      value = update8(value, low, high);
+      off += 8;
+    }
+    while (off < end) {
+      value = (value >>> 8) ^ TABLES[0][(value ^ b[off++]) & 0xff];
+    }
+    crc = value;
+  }
+
+  /**
+   * Update the check sum with the remaining bytes of the buffer, the position of the buffer will be
+   * moved to its limit.
+   */
+  public void update(ByteBuffer buffer) {
+    if (jdkChecksum != null) {
+      try {
+        JDK_UPDATE_BUFFER.invokeExact(jdkChecksum, buffer);
+      } catch (Throwable e) {
+        throw new IllegalStateException("Cannot update java.util.zip.CRC32C", e);
+      }
+      return;
+    }
+    if (buffer.hasArray()) {
+      update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      buffer.position(buffer.limit());
+      return;
+    }
+    ByteBuffer littleEndian = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int value = crc;
+    int pos = buffer.position();
+    int limit = buffer.limit();
+    while (pos + 8 <= limit) {
+      value = update8(value, littleEndian.getInt(pos), littleEndian.getInt(pos + 4));
+      pos += 8;
+    }
+    while (pos < limit) {
+      value = (value >>> 8) ^ TABLES[0][(value ^ buffer.get(pos++)) & 0xff];
+    }
+    crc = value;
+    buffer.position(limit);
+  }
+
+  private static int update8(int crc, int low, int high) {
+    int c = crc ^ low;
+    return TABLES[7][c & 0xff] ^ TABLES[6][(c >>> 8) & 0xff] ^ TABLES[5][(c >>> 16) & 0xff]
+        ^ TABLES[4][c >>> 24] ^ TABLES[3][high & 0xff] ^ TABLES[2][(high >>> 8) & 0xff]
+        ^ TABLES[1][(high >>> 16) & 0xff] ^ TABLES[0][high >>> 24];
+  }
+
+  @Override
+  public long getValue() {
+    if (jdkChecksum != null) {
+      return jdkChecksum.getValue();
+    }
+    return (~crc) & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public void reset() {
+    if (jdkChecksum != null) {
+      jdkChecksum.reset();
+      return;
+    }
+    crc = 0xFFFFFFFF;
+  }
+}
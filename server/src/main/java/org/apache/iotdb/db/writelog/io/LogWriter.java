@@ -24,7 +24,6 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.zip.CRC32;
-import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
 
@@ -38,16 +37,25 @@ public class LogWriter implements ILogWriter {
   private FileOutputStream fileOutputStream;
   private FileChannel channel;
   private CRC32 checkSummer = new CRC32();
-  private IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private final boolean forceEachWrite;
   private ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
   private ByteBuffer checkSumBuffer = ByteBuffer.allocate(8);
 
   public LogWriter(String logFilePath) {
-    logFile = SystemFileFactory.INSTANCE.getFile(logFilePath);
+    this(SystemFileFactory.INSTANCE.getFile(logFilePath));
   }
 
   public LogWriter(File logFile) {
+    this(logFile, IoTDBDescriptor.getInstance().getConfig().getForceWalPeriodInMs() == 0);
+  }
+
+  /**
+   * @param forceEachWrite whether each write is forced to the disk, otherwise the owner of the
+   * writer is responsible for calling force()
+   */
+  public LogWriter(File logFile, boolean forceEachWrite) {
     this.logFile = logFile;
+    this.forceEachWrite = forceEachWrite;
   }
 
   @Override
@@ -73,11 +81,13 @@ public class LogWriter implements ILogWriter {
     lengthBuffer.flip();
     checkSumBuffer.flip();
 
-    channel.write(lengthBuffer);
-    channel.write(logBuffer);
-    channel.write(checkSumBuffer);
+    // write the size, the logs and the check sum with one gathering write
+    ByteBuffer[] buffers = new ByteBuffer[]{lengthBuffer, logBuffer, checkSumBuffer};
+    while (checkSumBuffer.hasRemaining()) {
+      channel.write(buffers);
+    }
 
-    if (config.getForceWalPeriodInMs() == 0) {
+    if (forceEachWrite) {
       channel.force(true);
     }
   }
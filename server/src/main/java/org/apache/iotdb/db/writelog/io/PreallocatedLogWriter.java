@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.writelog.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
+
+/**
+ * PreallocatedLogWriter writes the binarized logs into a file that is preallocated in segments of
+ * wal_segment_size bytes, so appending a log does not change the size of the file and forcing it
+ * does not need to persist file metadata. The file starts with SEGMENT_MAGIC and each log batch is
+ * framed as [size (4 bytes)][CRC32C check sum (4 bytes)][logs], written with positional writes
+ * directly from the given buffer. A record size of 0 marks the end of the logs, as the unused tail
+ * of the file is filled with zeros.
+ */
+public class PreallocatedLogWriter implements ILogWriter {
+
+  /**
+   * a negative int, so that it cannot be mistaken for the size of the first log of a LogWriter file
+   */
+  public static final int SEGMENT_MAGIC = 0xC32C0001;
+  public static final int MAGIC_SIZE = 4;
+  // size + check sum
+  public static final int RECORD_HEADER_SIZE = 8;
+
+  private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(64 * 1024);
+
+  private File logFile;
+  private FileChannel channel;
+  // where the next log batch will be written
+  private long position;
+  private long fileSize;
+  private CRC32CChecksum checkSummer = new CRC32CChecksum();
+  private IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private ByteBuffer headerBuffer = ByteBuffer.allocateDirect(RECORD_HEADER_SIZE);
+
+  public PreallocatedLogWriter(String logFilePath) {
+    logFile = SystemFileFactory.INSTANCE.getFile(logFilePath);
+  }
+
+  public PreallocatedLogWriter(File logFile) {
+    this.logFile = logFile;
+  }
+
+  @Override
+  public void write(ByteBuffer logBuffer) throws IOException {
+    if (channel == null) {
+      open();
+    }
+    logBuffer.flip();
+    int logSize = logBuffer.limit();
+
+    checkSummer.reset();
+    checkSummer.update(logBuffer);
+    logBuffer.position(0);
+
+    headerBuffer.clear();
+    headerBuffer.putInt(logSize);
+    headerBuffer.putInt((int) checkSummer.getValue());
+    headerBuffer.flip();
+
+    ensureCapacity(RECORD_HEADER_SIZE + logSize);
+    ByteBuffer[] buffers = new ByteBuffer[]{headerBuffer, logBuffer};
+    channel.position(position);
+    while (logBuffer.hasRemaining()) {
+      channel.write(buffers);
+    }
+    position += RECORD_HEADER_SIZE + logSize;
+
+    if (config.getForceWalPeriodInMs() == 0) {
+      channel.force(false);
+    }
+  }
+
+  private void open() throws IOException {
+    channel = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    fileSize = channel.size();
+    if (fileSize == 0) {
+      ensureCapacity(MAGIC_SIZE);
+      ByteBuffer magic = ByteBuffer.allocate(MAGIC_SIZE);
+      magic.putInt(SEGMENT_MAGIC);
+      magic.flip();
+      channel.write(magic, 0);
+      position = MAGIC_SIZE;
+    } else {
+      position = findEndOfLogs();
+    }
+  }
+
+  /**
+   * The file is truncated when it is closed, but the zero tail remains if the writer was not
+   * closed, so skip the existing logs by their headers to find where to continue.
+   */
+  private long findEndOfLogs() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    header.limit(MAGIC_SIZE);
+    channel.read(header, 0);
+    header.flip();
+    if (header.remaining() < MAGIC_SIZE || header.getInt() != SEGMENT_MAGIC) {
+      throw new IOException(logFile + " is not a preallocated WAL file");
+    }
+    long pos = MAGIC_SIZE;
+    while (pos + RECORD_HEADER_SIZE <= fileSize) {
+      header.clear();
+      channel.read(header, pos);
+      header.flip();
+      int logSize = header.getInt();
+      if (logSize <= 0 || pos + RECORD_HEADER_SIZE + logSize > fileSize) {
+        break;
+      }
+      pos += RECORD_HEADER_SIZE + logSize;
+    }
+    return pos;
+  }
+
+  /**
+   * Extend the file by whole segments filled with zeros if the next write does not fit in it.
+   */
+  private void ensureCapacity(int writeSize) throws IOException {
+    if (position + writeSize <= fileSize) {
+      return;
+    }
+    long segmentSize = config.getWalSegmentSize();
+    long newFileSize = fileSize;
+    while (newFileSize < position + writeSize) {
+      newFileSize += segmentSize;
+    }
+    long pos = fileSize;
+    while (pos < newFileSize) {
+      ByteBuffer zeros = ZEROS.duplicate();
+      zeros.limit((int) Math.min(zeros.capacity(), newFileSize - pos));
+      pos += channel.write(zeros, pos);
+    }
+    // persist the new size once here, so that forcing the following logs needs no metadata
+    channel.force(true);
+    fileSize = newFileSize;
+  }
+
+  @Override
+  public void force() throws IOException {
+    if (channel != null) {
+      channel.force(false);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      // release the preallocated space that is not used
+      channel.truncate(position);
+      channel.close();
+      channel = null;
+    }
+  }
+}
@@ -24,16 +24,23 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.NoSuchElementException;
 import java.util.zip.CRC32;
 import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.utils.MmapUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * SingleFileLogReader reads binarized WAL logs from a file through a DataInputStream by scanning
- * the file from head to tail.
+ * the file from head to tail. Files written by PreallocatedLogWriter are recognized by their
+ * magic number and scanned through a read-only memory mapping instead, each log batch is
+ * deserialized directly from the mapped file without being copied.
  */
 public class SingleFileLogReader implements ILogReader {
 
@@ -46,6 +53,10 @@ public class SingleFileLogReader implements ILogReader {
   private byte[] buffer;
   private CRC32 checkSummer = new CRC32();
 
+  // not null if the file is written by PreallocatedLogWriter
+  private MappedByteBuffer segmentBuffer;
+  private CRC32CChecksum segmentCheckSummer;
+
   // used to indicate the position of the broken log
   private int idx;
 
@@ -64,7 +75,10 @@ public class SingleFileLogReader implements ILogReader {
         return true;
       }
 
-      if (logStream.available() < LEAST_LOG_SIZE) {
+      if (segmentBuffer != null) {
+        return nextSegmentBatch();
+      }
+      if (logStream == null || logStream.available() < LEAST_LOG_SIZE) {
         return false;
       }
 
@@ -98,6 +112,35 @@ public class SingleFileLogReader implements ILogReader {
     return true;
   }
 
+  private boolean nextSegmentBatch() throws IOException {
+    if (segmentBuffer.remaining() < PreallocatedLogWriter.RECORD_HEADER_SIZE) {
+      return false;
+    }
+    int logSize = segmentBuffer.getInt();
+    if (logSize <= 0) {
+      // the zero-filled tail of the preallocated file
+      return false;
+    }
+    int checkSum = segmentBuffer.getInt();
+    if (logSize > segmentBuffer.remaining()) {
+      throw new IOException("Reach eof");
+    }
+    ByteBuffer batch = segmentBuffer.slice();
+    batch.limit(logSize);
+    segmentBuffer.position(segmentBuffer.position() + logSize);
+
+    segmentCheckSummer.reset();
+    segmentCheckSummer.update(batch.duplicate());
+    if ((int) segmentCheckSummer.getValue() != checkSum) {
+      throw new IOException(String.format("The check sum of the No.%d log batch is incorrect! In "
+          + "file: %d Calculated: %d.", idx, checkSum, (int) segmentCheckSummer.getValue()));
+    }
+
+    batchLogReader = new BatchLogReader(batch);
+    fileCorrupted = fileCorrupted || batchLogReader.isFileCorrupted();
+    return true;
+  }
+
   @Override
   public PhysicalPlan next() {
     if (!hasNext()){
@@ -116,14 +159,51 @@ public class SingleFileLogReader implements ILogReader {
       } catch (IOException e) {
         logger.error("Cannot close log file {}", filepath, e);
       }
+      logStream = null;
+    }
+    if (segmentBuffer != null) {
+      // BatchLogReader deserializes a whole batch at once, so no plan refers to the mapping
+      MmapUtil.clean(segmentBuffer);
+      segmentBuffer = null;
     }
   }
 
   public void open(File logFile) throws FileNotFoundException {
     close();
-    logStream = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)));
     this.filepath = logFile.getPath();
     idx = 0;
+    if (!openSegment(logFile)) {
+      logStream = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)));
+    }
+  }
+
+  /**
+   * Map the file if it is written by PreallocatedLogWriter.
+   *
+   * @return whether the file is mapped
+   */
+  private boolean openSegment(File logFile) throws FileNotFoundException {
+    try (RandomAccessFile file = new RandomAccessFile(logFile, "r")) {
+      long fileSize = file.length();
+      if (fileSize < PreallocatedLogWriter.MAGIC_SIZE
+          || file.readInt() != PreallocatedLogWriter.SEGMENT_MAGIC) {
+        return false;
+      }
+      if (fileSize > Integer.MAX_VALUE) {
+        throw new IOException("WAL file is too large to be mapped: " + fileSize);
+      }
+      segmentBuffer = file.getChannel().map(MapMode.READ_ONLY, 0, fileSize);
+      segmentBuffer.position(PreallocatedLogWriter.MAGIC_SIZE);
+      if (segmentCheckSummer == null) {
+        segmentCheckSummer = new CRC32CChecksum();
+      }
+      return true;
+    } catch (FileNotFoundException e) {
+      throw e;
+    } catch (IOException e) {
+      logger.error("Cannot read the header of {}", logFile, e);
+      return false;
+    }
   }
 
   public boolean isFileCorrupted() {
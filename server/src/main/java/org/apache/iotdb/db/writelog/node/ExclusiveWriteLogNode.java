@@ -24,7 +24,12 @@ import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.commons.io.FileUtils;
 import org.apache.iotdb.db.conf.IoTDBConfig;
@@ -36,11 +41,18 @@ import org.apache.iotdb.db.writelog.io.ILogReader;
 import org.apache.iotdb.db.writelog.io.ILogWriter;
 import org.apache.iotdb.db.writelog.io.LogWriter;
 import org.apache.iotdb.db.writelog.io.MultiFileLogReader;
+import org.apache.iotdb.db.writelog.io.PreallocatedLogWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This WriteLogNode is used to manage insert ahead logs of a TsFile.
+ *
+ * If enable_wal_group_commit is set, writers only hold the read lock of the node: each of them
+ * appends its log into the appending buffer and waits until the batch containing it is written.
+ * The first waiter that finds no batch being written becomes the leader, swaps the appending
+ * buffer with the spare one and writes the whole batch, so the other writers keep appending while
+ * the batch is being written and forced.
  */
 public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<ExclusiveWriteLogNode> {
 
@@ -55,11 +67,33 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
 
   private IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
 
-  private ByteBuffer logBuffer = ByteBuffer
-      .allocate(IoTDBDescriptor.getInstance().getConfig().getWalBufferSize());
+  /**
+   * direct buffers released by deleted group commit nodes, reused by the following nodes instead
+   * of allocating new direct memory for every TsFile
+   */
+  private static final Queue<ByteBuffer> GROUP_COMMIT_BUFFER_POOL = new ConcurrentLinkedQueue<>();
+  private static final int MAX_POOLED_GROUP_COMMIT_BUFFER_NUM = 8;
+
+  private ByteBuffer logBuffer;
 
   private ReadWriteLock lock = new ReentrantReadWriteLock();
 
+  private final boolean groupCommit;
+
+  /**
+   * guards the group commit fields below
+   */
+  private final Lock groupCommitLock = new ReentrantLock();
+  private final Condition batchWritten = groupCommitLock.newCondition();
+  private ByteBuffer appendingBuffer;
+  // null while the batch in it is being written by a leader
+  private ByteBuffer spareBuffer;
+  // log sequence number of the last appended log and the last written log
+  private long lastAppendedLsn = 0;
+  private long lastWrittenLsn = 0;
+  private boolean batchWriting = false;
+  private IOException groupCommitFailure;
+
   private long fileId = 0;
   private long lastFlushedId = 0;
 
@@ -77,10 +111,24 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
     if (SystemFileFactory.INSTANCE.getFile(logDirectory).mkdirs()) {
       logger.info("create the WAL folder {}." + logDirectory);
     }
+    this.groupCommit = config.isEnableWalGroupCommit();
+    // the group commit buffers are borrowed by the first write
+    if (!groupCommit) {
+      this.logBuffer = ByteBuffer.allocate(config.getWalBufferSize());
+    }
   }
 
   @Override
   public void write(PhysicalPlan plan) throws IOException {
+    if (groupCommit) {
+      lock.readLock().lock();
+      try {
+        groupCommit(plan);
+      } finally {
+        lock.readLock().unlock();
+      }
+      return;
+    }
     lock.writeLock().lock();
     try {
       putLog(plan);
@@ -109,6 +157,111 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
     bufferedLogNum ++;
   }
 
+  /**
+   * Append the log and wait until the batch containing it is written, writing the batch as the
+   * leader if no other writer is doing so. The caller must hold the read lock so the log file is
+   * not switched during the commit.
+   */
+  private void groupCommit(PhysicalPlan plan) throws IOException {
+    groupCommitLock.lock();
+    try {
+      if (appendingBuffer == null) {
+        // first write, or the buffers have been released by delete(). Each buffer has the full
+        // wal_buffer_size, so any log that fits without group commit fits a batch alone
+        int bufferSize = config.getWalBufferSize();
+        appendingBuffer = borrowGroupCommitBuffer(bufferSize);
+        spareBuffer = borrowGroupCommitBuffer(bufferSize);
+      }
+      long lsn = appendLog(plan);
+      while (lastWrittenLsn < lsn) {
+        waitOrWriteBatch();
+      }
+    } finally {
+      groupCommitLock.unlock();
+    }
+  }
+
+  private long appendLog(PhysicalPlan plan) throws IOException {
+    while (true) {
+      appendingBuffer.mark();
+      try {
+        plan.serialize(appendingBuffer);
+        return ++lastAppendedLsn;
+      } catch (BufferOverflowException e) {
+        appendingBuffer.reset();
+        if (appendingBuffer.position() == 0) {
+          throw new IOException(
+              "Log cannot fit into buffer, please increase wal_buffer_size", e);
+        }
+        // the appending buffer is full, wait for it to be swapped out
+        waitOrWriteBatch();
+      }
+    }
+  }
+
+  private void waitOrWriteBatch() throws IOException {
+    if (groupCommitFailure != null) {
+      throw new IOException("Log node " + identifier + " failed to write logs",
+          groupCommitFailure);
+    }
+    if (batchWriting) {
+      batchWritten.awaitUninterruptibly();
+    } else {
+      writeBatch();
+    }
+  }
+
+  /**
+   * Write the appending buffer as the leader. The group commit lock is released while writing so
+   * that other writers can append to the spare buffer meanwhile.
+   */
+  private void writeBatch() {
+    ByteBuffer batch = appendingBuffer;
+    long batchLsn = lastAppendedLsn;
+    appendingBuffer = spareBuffer;
+    spareBuffer = null;
+    batchWriting = true;
+    groupCommitLock.unlock();
+    IOException failure = null;
+    try {
+      getCurrentFileWriter().write(batch);
+    } catch (IOException e) {
+      failure = e;
+    } finally {
+      groupCommitLock.lock();
+    }
+    batch.clear();
+    spareBuffer = batch;
+    batchWriting = false;
+    if (failure != null) {
+      logger.error("Log node {} sync failed, change system mode to read-only", identifier,
+          failure);
+      IoTDBDescriptor.getInstance().getConfig().setReadOnly(true);
+      groupCommitFailure = failure;
+    } else {
+      lastWrittenLsn = batchLsn;
+    }
+    batchWritten.signalAll();
+  }
+
+  private static ByteBuffer borrowGroupCommitBuffer(int bufferSize) {
+    ByteBuffer buffer;
+    while ((buffer = GROUP_COMMIT_BUFFER_POOL.poll()) != null) {
+      // wal_buffer_size may have been changed by the dynamic parameter adapter
+      if (buffer.capacity() == bufferSize) {
+        buffer.clear();
+        return buffer;
+      }
+    }
+    return ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  private static void returnGroupCommitBuffer(ByteBuffer buffer) {
+    if (buffer != null && GROUP_COMMIT_BUFFER_POOL.size() < MAX_POOLED_GROUP_COMMIT_BUFFER_NUM) {
+      GROUP_COMMIT_BUFFER_POOL.add(buffer);
+    }
+  }
+
   @Override
   public void close() {
     sync();
@@ -170,7 +323,20 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
   public void delete() throws IOException {
     lock.writeLock().lock();
     try {
-      logBuffer.clear();
+      if (groupCommit) {
+        // no writer holds the read lock, so both buffers are idle
+        groupCommitLock.lock();
+        try {
+          returnGroupCommitBuffer(appendingBuffer);
+          returnGroupCommitBuffer(spareBuffer);
+          appendingBuffer = null;
+          spareBuffer = null;
+        } finally {
+          groupCommitLock.unlock();
+        }
+      } else {
+        logBuffer.clear();
+      }
       close();
       FileUtils.deleteDirectory(SystemFileFactory.INSTANCE.getFile(logDirectory));
     } finally {
@@ -248,7 +414,8 @@ public class ExclusiveWriteLogNode implements WriteLogNode, Comparable<Exclusive
     if (newFile.getParentFile().mkdirs()) {
       logger.info("create WAL parent folder {}.", newFile.getParent());
     }
-    currentFileWriter = new LogWriter(newFile);
+    currentFileWriter = config.isEnablePreallocatedWal() ? new PreallocatedLogWriter(newFile)
+        : new LogWriter(newFile);
   }
 
   @Override
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.apache.iotdb.db.conf.adapter.ActiveTimeSeriesCounter;
+import org.apache.iotdb.db.constant.TestConstant;
+import org.apache.iotdb.db.engine.MetadataManagerHelper;
+import org.apache.iotdb.db.engine.flush.TsFileFlushPolicy.DirectFlushPolicy;
+import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
+import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.exception.WriteProcessException;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.control.FileReaderManager;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.datapoint.DataPoint;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BloomFilterCacheTest {
+
+  private QueryContext context = EnvironmentUtils.TEST_QUERY_CONTEXT;
+
+  private String storageGroup = "root.vehicle.d0";
+  private String measurementId0 = "s0";
+  private String measurementId5 = "s5";
+  private StorageGroupProcessor storageGroupProcessor;
+  private String systemDir = TestConstant.BASE_OUTPUT_PATH.concat("data")
+      .concat(File.separator).concat("info");
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    MetadataManagerHelper.initMetadata();
+    ActiveTimeSeriesCounter.getInstance().init(storageGroup);
+    storageGroupProcessor = new StorageGroupProcessor(systemDir, storageGroup,
+        new DirectFlushPolicy());
+    insertData();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileReaderManager.getInstance().closeAndRemoveAllOpenedReaders();
+    storageGroupProcessor.syncDeleteDataFiles();
+    EnvironmentUtils.cleanEnv();
+    EnvironmentUtils.cleanDir(systemDir);
+  }
+
+  private void insertData() throws WriteProcessException, IllegalPathException {
+    insertData(0);
+  }
+
+  /**
+   * write a new sequence file
+   */
+  private void insertData(long timeOffset) throws WriteProcessException, IllegalPathException {
+    for (long j = timeOffset + 1; j <= timeOffset + 100; j++) {
+      TSRecord record = new TSRecord(j, storageGroup);
+      record.addTuple(DataPoint.getDataPoint(TSDataType.INT32, measurementId0, String.valueOf(j)));
+      storageGroupProcessor.insert(new InsertRowPlan(record));
+    }
+    storageGroupProcessor.syncCloseAllWorkingTsFileProcessors();
+  }
+
+  private TsFileResource getSeqResource() throws QueryProcessException, IllegalPathException {
+    QueryDataSource queryDataSource = storageGroupProcessor
+        .query(new PartialPath(storageGroup), measurementId0, context, null, null);
+    List<TsFileResource> seqResources = queryDataSource.getSeqResources();
+    Assert.assertEquals(1, seqResources.size());
+    return seqResources.get(0);
+  }
+
+  @Test
+  public void testNegativeLookup()
+      throws IOException, QueryProcessException, IllegalPathException {
+    BloomFilterCache cache = BloomFilterCache.getInstance();
+    TsFileResource resource = getSeqResource();
+    Assert.assertNull(resource.getResidentBloomFilter());
+    // not resident yet, so nothing is excluded without reading the file
+    Assert.assertFalse(cache.isAbsent(resource, storageGroup + ".s5"));
+
+    Assert.assertTrue(cache.mayContain(resource, storageGroup + ".s0"));
+    Assert.assertNotNull(resource.getResidentBloomFilter());
+    Assert.assertFalse(cache.mayContain(resource, storageGroup + ".s5"));
+    Assert.assertEquals(1, cache.getNegativeLookupNum());
+    Assert.assertEquals(0.5, cache.calculateResidentHitRatio(), 0.0001);
+    Assert.assertTrue(cache.getUsedMemory() > 0);
+
+    // the resident filter excludes the file before the query opens it
+    QueryDataSource queryDataSource = storageGroupProcessor
+        .query(new PartialPath(storageGroup), measurementId5, context, null, null);
+    Assert.assertTrue(queryDataSource.getSeqResources().isEmpty());
+    Assert.assertEquals(2, cache.getNegativeLookupNum());
+    Assert.assertNotNull(resource.getResidentBloomFilter());
+  }
+
+  @Test
+  public void testInvalidate() throws IOException, QueryProcessException, IllegalPathException {
+    BloomFilterCache cache = BloomFilterCache.getInstance();
+    TsFileResource resource = getSeqResource();
+    Assert.assertTrue(cache.mayContain(resource, storageGroup + ".s0"));
+    Assert.assertEquals(1, cache.getResidentNum());
+
+    cache.remove(resource);
+    Assert.assertNull(resource.getResidentBloomFilter());
+    Assert.assertEquals(0, cache.getResidentNum());
+    Assert.assertEquals(0, cache.getUsedMemory());
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsed()
+      throws IOException, QueryProcessException, IllegalPathException, WriteProcessException {
+    insertData(100);
+    insertData(200);
+    List<TsFileResource> resources = storageGroupProcessor
+        .query(new PartialPath(storageGroup), measurementId0, context, null, null)
+        .getSeqResources();
+    Assert.assertEquals(3, resources.size());
+    TsFileResource first = resources.get(0);
+    TsFileResource second = resources.get(1);
+    TsFileResource third = resources.get(2);
+
+    // room for the filters of two files, which have the same series
+    BloomFilterCache cache = new BloomFilterCache(Long.MAX_VALUE);
+    cache.mayContain(first, storageGroup + ".s0");
+    long filterSize = cache.getUsedMemory();
+    cache.clear();
+    cache = new BloomFilterCache(filterSize * 2);
+
+    cache.mayContain(first, storageGroup + ".s0");
+    cache.mayContain(second, storageGroup + ".s0");
+    // the first one is used again, so the second one is evicted
+    cache.mayContain(first, storageGroup + ".s0");
+    cache.mayContain(third, storageGroup + ".s0");
+    Assert.assertNotNull(first.getResidentBloomFilter());
+    Assert.assertNull(second.getResidentBloomFilter());
+    Assert.assertNotNull(third.getResidentBloomFilter());
+    Assert.assertEquals(2, cache.getResidentNum());
+
+    // removed by another instance of the same file
+    cache.remove(new TsFileResource(first.getTsFile()));
+    Assert.assertNull(first.getResidentBloomFilter());
+    Assert.assertEquals(1, cache.getResidentNum());
+    Assert.assertEquals(filterSize, cache.getUsedMemory());
+    cache.clear();
+  }
+
+  @Test
+  public void testEvict() throws IOException, QueryProcessException, IllegalPathException {
+    // too small to keep any filter resident
+    BloomFilterCache cache = new BloomFilterCache(1);
+    TsFileResource resource = getSeqResource();
+    Assert.assertTrue(cache.mayContain(resource, storageGroup + ".s0"));
+    Assert.assertFalse(cache.mayContain(resource, storageGroup + ".s5"));
+    Assert.assertNull(resource.getResidentBloomFilter());
+    Assert.assertEquals(0, cache.getResidentNum());
+    Assert.assertEquals(0, cache.getUsedMemory());
+    Assert.assertEquals(0, cache.calculateResidentHitRatio(), 0.0001);
+  }
+}
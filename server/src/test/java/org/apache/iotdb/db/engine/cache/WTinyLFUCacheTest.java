@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WTinyLFUCacheTest {
+
+  // each entry takes 1000 bytes with the map entry
+  private static final int ENTRY_SIZE = 1000;
+  private static final long MAX_MEMORY = 1000L * ENTRY_SIZE;
+
+  private WTinyLFUCache<AccountableString, String> cache =
+      new WTinyLFUCache<AccountableString, String>(MAX_MEMORY) {
+        @Override
+        protected long calEntrySize(AccountableString key, String value) {
+          return ENTRY_SIZE - 40;
+        }
+      };
+
+  private AtomicInteger loadNum = new AtomicInteger();
+
+  private String load(AccountableString key) {
+    loadNum.incrementAndGet();
+    return key.getString();
+  }
+
+  @Test
+  public void testBoundedMemory() {
+    for (int i = 0; i < 5000; i++) {
+      cache.put(new AccountableString("s" + i), "v" + i);
+      Assert.assertTrue(cache.getUsedMemory() <= MAX_MEMORY);
+    }
+    Assert.assertEquals(cache.size() * (long) ENTRY_SIZE, cache.getUsedMemory());
+    Assert.assertTrue(cache.size() > 900);
+    Assert.assertEquals(ENTRY_SIZE - 40, cache.getAverageSize());
+
+    AccountableString key = new AccountableString("new");
+    cache.put(key, "v");
+    Assert.assertEquals(ENTRY_SIZE, key.getRamSize());
+    Assert.assertEquals("v", cache.remove(key));
+    Assert.assertNull(cache.get(key));
+
+    cache.clear();
+    Assert.assertTrue(cache.isEmpty());
+    Assert.assertEquals(0, cache.getUsedMemory());
+  }
+
+  @Test
+  public void testScanResistance() throws IOException {
+    int hotNum = 500;
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < hotNum; i++) {
+        cache.get(new AccountableString("hot" + i), this::load);
+      }
+    }
+    Assert.assertEquals(hotNum, loadNum.get());
+
+    // a large scan that reads each key only once
+    for (int i = 0; i < 20000; i++) {
+      cache.get(new AccountableString("scan" + i), this::load);
+    }
+
+    loadNum.set(0);
+    for (int i = 0; i < hotNum; i++) {
+      cache.get(new AccountableString("hot" + i), this::load);
+    }
+    // an LRU cache would have lost all of the hot keys
+    Assert.assertTrue("reloaded " + loadNum.get(), loadNum.get() < hotNum / 10);
+  }
+
+  @Test
+  public void testCoalescedLoading() throws Exception {
+    int threadNum = 8;
+    CountDownLatch loading = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threadNum);
+    AccountableString key = new AccountableString("key");
+    List<Future<String>> futures = new ArrayList<>();
+    for (int i = 0; i < threadNum; i++) {
+      futures.add(executor.submit(() -> cache.get(key, k -> {
+        try {
+          loading.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return load(k);
+      })));
+    }
+    Thread.sleep(100);
+    loading.countDown();
+    for (Future<String> future : futures) {
+      Assert.assertEquals("key", future.get());
+    }
+    executor.shutdown();
+    Assert.assertEquals(1, loadNum.get());
+  }
+
+  @Test
+  public void testLoadNullOrFailure() {
+    AccountableString key = new AccountableString("key");
+    try {
+      Assert.assertNull(cache.get(key, k -> null));
+      Assert.assertTrue(cache.isEmpty());
+      cache.get(key, k -> {
+        throw new IOException("read failure");
+      });
+      Assert.fail();
+    } catch (IOException e) {
+      Assert.assertEquals("read failure", e.getMessage());
+    }
+    Assert.assertTrue(cache.isEmpty());
+  }
+}
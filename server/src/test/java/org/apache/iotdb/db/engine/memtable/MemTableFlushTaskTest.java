@@ -22,14 +22,22 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.conf.adapter.ActiveTimeSeriesCounter;
 import org.apache.iotdb.db.constant.TestConstant;
 import org.apache.iotdb.db.engine.MetadataManagerHelper;
 import org.apache.iotdb.db.engine.flush.MemTableFlushTask;
+import org.apache.iotdb.db.engine.flush.pool.FlushSubTaskPoolManager;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.apache.iotdb.tsfile.write.writer.RestorableTsFileIOWriter;
 import org.junit.After;
 import org.junit.Before;
@@ -84,4 +92,65 @@ public class MemTableFlushTaskTest {
     assertEquals(MemTableTestUtils.dataType0, chunkMetaData.getDataType());
     assertEquals(endTime - startTime + 1, chunkMetaData.getNumOfPoints());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testFlushManySeries()
+      throws ExecutionException, InterruptedException, IOException {
+    int deviceNum = 20;
+    int measurementNum = 50;
+    for (int i = 0; i < deviceNum; i++) {
+      for (int j = 0; j < measurementNum; j++) {
+        MeasurementSchema schema = new MeasurementSchema("s" + j, TSDataType.INT64,
+            TSEncoding.RLE);
+        // out of order, so that each series is sorted by the encoding tasks
+        for (long time = endTime; time >= startTime; time--) {
+          memTable.write("root.sg.d" + i, "s" + j, schema, time, time * j);
+        }
+      }
+    }
+    new MemTableFlushTask(memTable, writer, storageGroup).syncFlushMemTable();
+    writer.makeMetadataVisible();
+
+    // the chunks are written in the order of devices and measurements in the memtable
+    long lastOffset = -1;
+    for (Map.Entry<String, Map<String, IWritableMemChunk>> deviceEntry : memTable.getMemTableMap()
+        .entrySet()) {
+      for (String measurementId : deviceEntry.getValue().keySet()) {
+        List<ChunkMetadata> chunkMetadataList = writer
+            .getVisibleMetadataList(deviceEntry.getKey(), measurementId, TSDataType.INT64);
+        assertEquals(1, chunkMetadataList.size());
+        ChunkMetadata chunkMetaData = chunkMetadataList.get(0);
+        assertEquals(startTime, chunkMetaData.getStartTime());
+        assertEquals(endTime, chunkMetaData.getEndTime());
+        assertEquals(endTime - startTime + 1, chunkMetaData.getNumOfPoints());
+        assertTrue(chunkMetaData.getOffsetOfChunkHeader() > lastOffset);
+        lastOffset = chunkMetaData.getOffsetOfChunkHeader();
+      }
+    }
+  }
+
+  @Test
+  public void testEncodingPermitsFollowConfig()
+      throws ExecutionException, InterruptedException, IOException {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    FlushSubTaskPoolManager poolManager = FlushSubTaskPoolManager.getInstance();
+    int prevEncodingThreadNum = config.getFlushEncodingThreadNum();
+    int encodingThreadNum = prevEncodingThreadNum + 2;
+    try {
+      config.setFlushEncodingThreadNum(encodingThreadNum);
+      poolManager.stop();
+      poolManager.start();
+      assertEquals(encodingThreadNum, poolManager.getEncodingPermits().availablePermits());
+
+      MemTableTestUtils.produceData(memTable, startTime, endTime, MemTableTestUtils.deviceId0,
+          MemTableTestUtils.measurementId0, MemTableTestUtils.dataType0);
+      new MemTableFlushTask(memTable, writer, storageGroup).syncFlushMemTable();
+      // all permits are given back once the flush ends
+      assertEquals(encodingThreadNum, poolManager.getEncodingPermits().availablePermits());
+    } finally {
+      config.setFlushEncodingThreadNum(prevEncodingThreadNum);
+      poolManager.stop();
+      poolManager.start();
+    }
+  }
+}
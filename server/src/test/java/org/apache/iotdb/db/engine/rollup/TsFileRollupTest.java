@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.rollup;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import org.apache.iotdb.db.utils.datastructure.TVList;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.junit.After;
+import org.junit.Test;
+
+public class TsFileRollupTest {
+
+  private final File tsFile = new File("target", "rollup-test.tsfile");
+  private final long[] levels = {10, 100};
+
+  @After
+  public void tearDown() {
+    TsFileRollup.remove(tsFile);
+  }
+
+  @Test
+  public void testParseLevels() {
+    assertArrayEquals(new long[]{60_000, 3_600_000, 86_400_000},
+        RollupLevels.parseLevels("1d, 1m,1h,60s", "ms"));
+    assertArrayEquals(new long[]{60_000_000}, RollupLevels.parseLevels("1m", "us"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseIllegalLevels() {
+    RollupLevels.parseLevels("1minute", "ms");
+  }
+
+  @Test
+  public void testBuildAndMerge() {
+    // points 0..149 with a duplicated timestamp, in two parts split inside a bucket
+    SeriesRollup rollup = SeriesRollup.build(newList(0, 95), TSDataType.INT64, levels);
+    rollup.merge(SeriesRollup.build(newList(95, 150), TSDataType.INT64, levels));
+
+    List<Statistics> buckets = getBuckets(rollup, 0);
+    assertEquals(15, buckets.size());
+    for (int i = 0; i < buckets.size(); i++) {
+      Statistics statistics = buckets.get(i);
+      assertEquals(10, statistics.getCount());
+      assertEquals(i * 10L, statistics.getStartTime());
+      assertEquals(i * 10L + 9, statistics.getEndTime());
+      assertEquals(i * 10L * 2, statistics.getFirstValue());
+      assertEquals((i * 10L + 9) * 2, statistics.getMaxValue());
+    }
+    buckets = getBuckets(rollup, 1);
+    assertEquals(2, buckets.size());
+    assertEquals(100, buckets.get(0).getCount());
+    assertEquals(50, buckets.get(1).getCount());
+    assertEquals(2.0 * (100 + 149) * 50 / 2, buckets.get(1).getSumValue(), 0.0);
+  }
+
+  @Test
+  public void testRamSize() {
+    RollupBuilder builder = new RollupBuilder(levels);
+    builder.add("root.sg.d1", "s1", SeriesRollup.build(newList(0, 95), TSDataType.INT64, levels));
+    long ramSize = builder.getRamSize();
+    assertTrue(ramSize > 0);
+    // the first part has 10 + 1 buckets, the second one only adds 5 + 1
+    builder.add("root.sg.d1", "s1", SeriesRollup.build(newList(95, 150), TSDataType.INT64, levels));
+    assertTrue(builder.getRamSize() > ramSize);
+    assertTrue(builder.getRamSize() < ramSize * 2);
+
+    RollupBuilder other = new RollupBuilder(levels);
+    other.add("root.sg.d2", "s1", SeriesRollup.build(newList(0, 95), TSDataType.INT64, levels));
+    long oldRamSize = builder.getRamSize();
+    builder.addAll(other);
+    assertEquals(oldRamSize + ramSize, builder.getRamSize());
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    RollupBuilder builder = new RollupBuilder(levels);
+    builder.add("root.sg.d1", "s1", SeriesRollup.build(newList(0, 150), TSDataType.INT64, levels));
+    builder.add("root.sg.d2", "s1", SeriesRollup.build(newList(50, 60), TSDataType.INT64, levels));
+    TsFileRollup.write(tsFile, builder);
+
+    SeriesRollup rollup = TsFileRollup.getSeriesRollup(tsFile, "root.sg.d1", "s1");
+    assertArrayEquals(levels, rollup.getLevels());
+    assertEquals(15, getBuckets(rollup, 0).size());
+    assertEquals(2, getBuckets(rollup, 1).size());
+    rollup = TsFileRollup.getSeriesRollup(tsFile, "root.sg.d2", "s1");
+    assertEquals(1, getBuckets(rollup, 0).size());
+    assertEquals(10, getBuckets(rollup, 0).get(0).getCount());
+    assertNull(TsFileRollup.getSeriesRollup(tsFile, "root.sg.d3", "s1"));
+
+    RollupBuilder readBuilder = TsFileRollup.read(tsFile);
+    assertEquals(2, readBuilder.getSeriesRollups().size());
+
+    TsFileRollup.remove(tsFile);
+    assertFalse(TsFileRollup.getRollupFile(tsFile).exists());
+    assertNull(TsFileRollup.getSeriesRollup(tsFile, "root.sg.d1", "s1"));
+    assertNull(TsFileRollup.read(tsFile));
+  }
+
+  private TVList newList(long startTime, long endTime) {
+    TVList tvList = TVList.newList(TSDataType.INT64);
+    for (long time = endTime - 1; time >= startTime; time--) {
+      tvList.putLong(time, time * 2);
+    }
+    tvList.putLong(startTime, startTime * 2);
+    tvList.sort();
+    return tvList;
+  }
+
+  private List<Statistics> getBuckets(SeriesRollup rollup, int level) {
+    List<Statistics> buckets = new ArrayList<>();
+    for (Entry<Long, Statistics> bucket : rollup.getBuckets(level)) {
+      buckets.add(bucket.getValue());
+    }
+    return buckets;
+  }
+}
@@ -25,6 +25,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
@@ -267,6 +270,56 @@ public class StorageGroupProcessorTest {
     }
   }
 
+  @Test
+  public void testConcurrentInsertWithStripedLock() throws Exception {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    boolean defaultValue = config.isEnableStripedInsertLock();
+    config.setEnableStripedInsertLock(true);
+    StorageGroupProcessor stripedProcessor = new DummySGP(systemDir, "root.vehicle.d1");
+    int threadNum = 4;
+    int pointNum = 1000;
+    try {
+      ExecutorService pool = Executors.newFixedThreadPool(threadNum);
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int t = 0; t < threadNum; t++) {
+        String device = "root.vehicle.d1.device" + t;
+        futures.add(pool.submit(() -> {
+          for (int j = 1; j <= pointNum; j++) {
+            TSRecord record = new TSRecord(j, device);
+            record.addTuple(
+                DataPoint.getDataPoint(TSDataType.INT32, measurementId, String.valueOf(j)));
+            stripedProcessor.insert(new InsertRowPlan(record));
+          }
+          return null;
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+      pool.shutdown();
+
+      Assert.assertEquals(1, stripedProcessor.getWorkSequenceTsFileProcessors().size());
+      TsFileProcessor tsFileProcessor = stripedProcessor.getWorkSequenceTsFileProcessors()
+          .iterator().next();
+      for (int t = 0; t < threadNum; t++) {
+        List<TsFileResource> tsfileResourcesForQuery = new ArrayList<>();
+        tsFileProcessor.query("root.vehicle.d1.device" + t, measurementId, TSDataType.INT32,
+            TSEncoding.PLAIN, Collections.emptyMap(), new QueryContext(), tsfileResourcesForQuery);
+        int count = 0;
+        for (ReadOnlyMemChunk memChunk : tsfileResourcesForQuery.get(0).getReadOnlyMemChunk()) {
+          IPointReader iterator = memChunk.getPointReader();
+          while (iterator.hasNextTimeValuePair()) {
+            Assert.assertEquals(++count, iterator.nextTimeValuePair().getTimestamp());
+          }
+        }
+        Assert.assertEquals(pointNum, count);
+      }
+    } finally {
+      stripedProcessor.syncDeleteDataFiles();
+      config.setEnableStripedInsertLock(defaultValue);
+    }
+  }
+
   @Test
   public void testEnableDiscardOutOfOrderDataForInsertRowPlan()
       throws WriteProcessException, QueryProcessException, IllegalPathException, IOException {
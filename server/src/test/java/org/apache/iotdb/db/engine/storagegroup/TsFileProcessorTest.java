@@ -28,6 +28,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.conf.adapter.ActiveTimeSeriesCounter;
 import org.apache.iotdb.db.constant.TestConstant;
 import org.apache.iotdb.db.engine.MetadataManagerHelper;
@@ -294,6 +296,35 @@ public class TsFileProcessorTest {
 
   }
 
+  @Test
+  public void testCloseWhenRollupsAreLarge()
+      throws IOException, WriteProcessException, IllegalPathException {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    String rollupLevels = config.getRollupLevels();
+    long rollupBufferSizeThreshold = config.getRollupBufferSizeThreshold();
+    config.setRollupLevels("10ms");
+    config.setRollupBufferSizeThreshold(1);
+    try {
+      processor = new TsFileProcessor(storageGroup, SystemFileFactory.INSTANCE.getFile(filePath),
+          SysTimeVersionController.INSTANCE, this::closeTsFileProcessor,
+          (tsFileProcessor) -> true, true);
+      for (int i = 1; i <= 100; i++) {
+        TSRecord record = new TSRecord(i, deviceId);
+        record.addTuple(DataPoint.getDataPoint(dataType, measurementId, String.valueOf(i)));
+        processor.insert(new InsertRowPlan(record));
+      }
+      assertFalse(processor.shouldClose());
+
+      // the rollups of the flushed memtable are kept until the file is sealed
+      processor.syncFlush();
+      assertTrue(processor.shouldClose());
+      processor.syncClose();
+    } finally {
+      config.setRollupLevels(rollupLevels);
+      config.setRollupBufferSizeThreshold(rollupBufferSizeThreshold);
+    }
+  }
+
   private void closeTsFileProcessor(TsFileProcessor unsealedTsFileProcessor)
       throws TsFileProcessorException {
     TsFileResource resource = unsealedTsFileProcessor.getTsFileResource();
@@ -26,6 +26,7 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
@@ -851,6 +852,69 @@ public class IoTDBTagIT {
     }
   }
 
+  @Test
+  public void queryWithWhereAndOrTest() throws ClassNotFoundException {
+    String[] sqls = {
+        "create timeseries root.turbine.d0.s0(temperature) with datatype=FLOAT, encoding=RLE " +
+            "tags(unit=f, description='turbine this is a test1')",
+        "create timeseries root.turbine.d0.s1(power) with datatype=FLOAT, encoding=RLE " +
+            "tags(unit=kw, description='turbine this is a test2')",
+        "create timeseries root.turbine.d1.s0(status) with datatype=INT32, encoding=RLE " +
+            "tags(description='turbine this is a test3')",
+        "create timeseries root.ln.d0.s0(temperature) with datatype=FLOAT, encoding=RLE " +
+            "tags(unit=f, description='ln this is a test1')",
+        "create timeseries root.ln.d0.s1(power) with datatype=FLOAT, encoding=RLE " +
+            "tags(unit=w, description='ln this is a test2')",
+    };
+    Class.forName(Config.JDBC_DRIVER_NAME);
+    try (Connection connection = DriverManager
+        .getConnection(Config.IOTDB_URL_PREFIX + "127.0.0.1:6667/", "root", "root");
+        Statement statement = connection.createStatement()) {
+      for (String sql : sqls) {
+        statement.execute(sql);
+      }
+
+      String[] queries = {
+          "show timeseries where unit=f and description contains 'turbine'",
+          "show timeseries where unit=kw or unit=w",
+          "show timeseries root.ln where (unit=f or unit=kw) and description contains 'ln'",
+          "show timeseries where unit=f and (description contains 'test2' or unit=w)",
+      };
+      String[][] expected = {
+          {"root.turbine.d0.s0"},
+          {"root.turbine.d0.s1", "root.ln.d0.s1"},
+          {"root.ln.d0.s0"},
+          {},
+      };
+      for (int i = 0; i < queries.length; i++) {
+        assertTrue(statement.execute(queries[i]));
+        Set<String> res = new HashSet<>();
+        try (ResultSet resultSet = statement.getResultSet()) {
+          while (resultSet.next()) {
+            res.add(resultSet.getString("timeseries"));
+          }
+        }
+        assertEquals(new HashSet<>(Arrays.asList(expected[i])), res);
+      }
+
+      try {
+        statement.execute("show timeseries where unit=f and color=red");
+        fail();
+      } catch (Exception e) {
+        assertTrue(e.getMessage().contains("The key color is not a tag"));
+      }
+      try {
+        statement.execute("show timeseries where unit=f or color=red");
+        fail();
+      } catch (Exception e) {
+        assertTrue(e.getMessage().contains("The key color is not a tag"));
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail();
+    }
+  }
+
   @Test
   public void queryWithWhereOnNoneTagTest() throws ClassNotFoundException {
     String[] sqls = {
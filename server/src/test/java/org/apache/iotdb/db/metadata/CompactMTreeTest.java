@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.mnode.CompactChildrenMap;
+import org.apache.iotdb.db.metadata.mnode.MNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the cases of MTreeTest on the compact MTree.
+ */
+public class CompactMTreeTest extends MTreeTest {
+
+  private boolean enableCompactMTree;
+
+  @Before
+  public void enableCompactMTree() {
+    enableCompactMTree = IoTDBDescriptor.getInstance().getConfig().isEnableCompactMTree();
+    IoTDBDescriptor.getInstance().getConfig().setEnableCompactMTree(true);
+  }
+
+  @After
+  public void restoreCompactMTree() {
+    IoTDBDescriptor.getInstance().getConfig().setEnableCompactMTree(enableCompactMTree);
+  }
+
+  @Test
+  public void testSharedSchema() throws MetadataException {
+    MTree root = new MTree();
+    root.setStorageGroup(new PartialPath("root.sg"));
+    for (int i = 0; i < 20; i++) {
+      root.createTimeseries(new PartialPath("root.sg.d" + i + ".s1"), TSDataType.INT64,
+          TSEncoding.RLE, CompressionType.SNAPPY, Collections.emptyMap(), null);
+    }
+    MNode device = root.getNodeByPath(new PartialPath("root.sg.d0"));
+    assertTrue(device.getChildren() instanceof CompactChildrenMap);
+    assertTrue(root.getNodeByPath(new PartialPath("root.sg")).getChildren()
+        instanceof CompactChildrenMap);
+    MeasurementMNode first = (MeasurementMNode) root.getNodeByPath(
+        new PartialPath("root.sg.d0.s1"));
+    MeasurementMNode last = (MeasurementMNode) root.getNodeByPath(
+        new PartialPath("root.sg.d19.s1"));
+    assertSame(first.getSchema(), last.getSchema());
+    assertEquals("root.sg.d19.s1", last.getFullPath());
+    assertEquals("root.sg.d19", last.getParent().getFullPath());
+
+    // the shared locks are reentrant along the path
+    last.getParent().readLock();
+    last.getParent().readUnlock();
+    root.deleteTimeseriesAndReturnEmptyStorageGroup(new PartialPath("root.sg.d19.s1"));
+    assertEquals(19, root.getAllTimeseriesPath(new PartialPath("root.sg")).size());
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.mnode.MNode;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.metadata.mnode.PagedChildrenMap;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the cases of MTreeTest on the disk-backed MTree, which keeps only a few measurements in
+ * memory.
+ */
+public class DiskMTreeTest extends MTreeTest {
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private boolean enableDiskMTree;
+  private int cachedMeasurementNum;
+
+  @Before
+  public void enableDiskMTree() {
+    enableDiskMTree = config.isEnableDiskMTree();
+    cachedMeasurementNum = config.getDiskMTreeCachedMeasurementNum();
+    config.setEnableDiskMTree(true);
+    config.setDiskMTreeCachedMeasurementNum(2);
+  }
+
+  @After
+  public void restoreDiskMTree() {
+    config.setEnableDiskMTree(enableDiskMTree);
+    config.setDiskMTreeCachedMeasurementNum(cachedMeasurementNum);
+  }
+
+  @Test
+  public void testPageOutAndLoad() throws MetadataException {
+    MTree root = new MTree();
+    root.setStorageGroup(new PartialPath("root.sg"));
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 3; j++) {
+        root.createTimeseries(new PartialPath("root.sg.d" + i + ".s" + j), TSDataType.INT64,
+            TSEncoding.RLE, CompressionType.SNAPPY, Collections.singletonMap("k", "v" + j), null);
+      }
+    }
+    root.createTimeseries(new PartialPath("root.sg.d0.s3"), TSDataType.FLOAT,
+        TSEncoding.GORILLA, CompressionType.UNCOMPRESSED, Collections.emptyMap(), "alias");
+
+    MNode device = root.getNodeByPath(new PartialPath("root.sg.d0"));
+    assertTrue(device.getChildren() instanceof PagedChildrenMap);
+    MeasurementMNode aliased = (MeasurementMNode) root
+        .getNodeByPath(new PartialPath("root.sg.d0.s3"));
+    MeasurementMNode paged = (MeasurementMNode) root
+        .getNodeByPath(new PartialPath("root.sg.d0.s1"));
+    MeasurementSchema schema = paged.getSchema();
+    paged.updateCachedLast(new TimeValuePair(100, new TsPrimitiveType.TsLong(1)), true,
+        Long.MIN_VALUE);
+
+    // touch the schemas of the other devices so that d0 is paged out
+    for (int i = 1; i < 10; i++) {
+      assertEquals(3, root.getAllTimeseriesPath(new PartialPath("root.sg.d" + i)).size());
+      ((MeasurementMNode) root.getNodeByPath(new PartialPath("root.sg.d" + i + ".s0")))
+          .getSchema();
+    }
+
+    // the nodes held outside the MTree are still in it, only their schemas are paged
+    assertEquals(4, device.getChildren().size());
+    assertSame(aliased, root.getNodeByPath(new PartialPath("root.sg.d0.alias")));
+    MeasurementMNode loaded = (MeasurementMNode) root
+        .getNodeByPath(new PartialPath("root.sg.d0.s1"));
+    assertSame(paged, loaded);
+    assertEquals(100, loaded.getCachedLast().getTimestamp());
+    assertEquals(schema, loaded.getSchema());
+    assertEquals(schema.getProps(), loaded.getSchema().getProps());
+    assertEquals(TSDataType.FLOAT, aliased.getSchema().getType());
+    assertEquals("root.sg.d0.s1", loaded.getFullPath());
+
+    root.deleteTimeseriesAndReturnEmptyStorageGroup(new PartialPath("root.sg.d9.s2"));
+    for (int i = 0; i < 9; i++) {
+      root.getNodeByPath(new PartialPath("root.sg.d" + i + ".s0"));
+    }
+    assertEquals(30, root.getAllTimeseriesPath(new PartialPath("root.sg")).size());
+    assertEquals(2, root.getAllTimeseriesPath(new PartialPath("root.sg.d9")).size());
+  }
+
+  @Test
+  public void testInsertIntoPagedDevice() throws MetadataException {
+    MManager manager = IoTDB.metaManager;
+    manager.setStorageGroup(new PartialPath("root.sg"));
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 2; j++) {
+        manager.createTimeseries(new CreateTimeSeriesPlan(
+            new PartialPath("root.sg.d" + i + ".s" + j), TSDataType.INT64, TSEncoding.PLAIN,
+            CompressionType.SNAPPY, null, null, null, null));
+      }
+    }
+
+    // the second insertion resolves the schemas from the DeviceSchemaCache
+    MeasurementMNode[] first = insert("root.sg.d0");
+    MeasurementMNode[] second = insert("root.sg.d0");
+    assertSame(first[1], second[1]);
+
+    // page d0 out, the cached nodes are still those of the MTree
+    insert("root.sg.d1");
+    insert("root.sg.d2");
+    MeasurementMNode[] third = insert("root.sg.d0");
+    assertSame(first[1], third[1]);
+    assertSame(third[1], manager.getNodeByPath(new PartialPath("root.sg.d0.s1")));
+    assertEquals(TSDataType.INT64, third[1].getSchema().getType());
+  }
+
+  private MeasurementMNode[] insert(String deviceId) throws MetadataException {
+    InsertRowPlan plan = new InsertRowPlan(new PartialPath(deviceId), 1, new String[]{"s0", "s1"},
+        new TSDataType[]{TSDataType.INT64, TSDataType.INT64}, new String[]{"1", "2"});
+    plan.setMeasurementMNodes(new MeasurementMNode[2]);
+    IoTDB.metaManager.getSeriesSchemasAndReadLockDevice(plan).readUnlock();
+    return plan.getMeasurementMNodes();
+  }
+}
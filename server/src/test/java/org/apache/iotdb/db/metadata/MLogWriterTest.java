@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.db.writelog.io.SingleFileLogReader;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MLogWriterTest {
+
+  private static final String TMP_SCHEMA_DIR = "target" + File.separator + "mlogWriterTest";
+
+  @Before
+  public void setUp() {
+    EnvironmentUtils.envSetUp();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    EnvironmentUtils.cleanEnv();
+    FileUtils.deleteDirectory(new File(TMP_SCHEMA_DIR));
+  }
+
+  @Test
+  public void testRecover() throws Exception {
+    MManager manager = IoTDB.metaManager;
+    for (int i = 0; i < 4; i++) {
+      manager.setStorageGroup(new PartialPath("root.sg" + i));
+    }
+    // the creations in different storage groups are interleaved and replayed in parallel
+    for (int j = 0; j < 100; j++) {
+      for (int i = 0; i < 4; i++) {
+        manager.createTimeseries(new PartialPath("root.sg" + i + ".d" + j + ".s"),
+            TSDataType.INT64, TSEncoding.RLE, CompressionType.SNAPPY, Collections.emptyMap());
+      }
+    }
+    Map<String, String> tags = new HashMap<>();
+    tags.put("unit", "cm");
+    manager.createTimeseries(new CreateTimeSeriesPlan(new PartialPath("root.sg0.d0.height"),
+        TSDataType.FLOAT, TSEncoding.GORILLA, CompressionType.SNAPPY, null, tags, null, "h"));
+    manager.deleteTimeseries(new PartialPath("root.sg1.d1.s"));
+    manager.setTTL(new PartialPath("root.sg2"), 1000);
+    manager.deleteStorageGroups(Collections.singletonList(new PartialPath("root.sg3")));
+    long offset = ((MeasurementMNode) manager.getNodeByPath(new PartialPath("root.sg0.d0.height")))
+        .getOffset();
+
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    int replayThreadNum = config.getMlogReplayThreadNum();
+    config.setMlogReplayThreadNum(4);
+    MManager recovered = new MManager();
+    recovered.init();
+    try {
+      assertTrue(recovered.isPathExist(new PartialPath("root.sg0.d99.s")));
+      assertTrue(recovered.isPathExist(new PartialPath("root.sg2.d0.s")));
+      assertFalse(recovered.isPathExist(new PartialPath("root.sg1.d1.s")));
+      assertFalse(recovered.isPathExist(new PartialPath("root.sg3")));
+      assertEquals(300, recovered.getAllTimeseriesPath(new PartialPath("root")).size());
+      assertEquals(1000,
+          recovered.getStorageGroupNodeByStorageGroupPath(new PartialPath("root.sg2"))
+              .getDataTTL());
+
+      MeasurementMNode height = (MeasurementMNode) recovered
+          .getNodeByPath(new PartialPath("root.sg0.d0.height"));
+      assertEquals("h", height.getAlias());
+      assertEquals(offset, height.getOffset());
+    } finally {
+      recovered.clear();
+      config.setMlogReplayThreadNum(replayThreadNum);
+    }
+  }
+
+  @Test
+  public void testMigrateTxtLog() throws Exception {
+    List<String> lines = Arrays.asList(
+        "2,root.sg",
+        "0,root.sg.d1.s1,2,2,1,,,",
+        "0,root.sg.d1.s2,3,4,1,max_point_number=3,speed,24",
+        "12,root.sg.d1.s1,48",
+        "13,root.sg.d1.s1,temperature",
+        "10,root.sg,2000",
+        "1,root.sg.d1.s2",
+        "11,root.sg");
+    File schemaDir = new File(TMP_SCHEMA_DIR);
+    assertTrue(schemaDir.mkdirs());
+    File txtLogFile = new File(schemaDir, MetadataConstant.METADATA_TXT_LOG);
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(txtLogFile))) {
+      for (String line : lines) {
+        writer.write(line);
+        writer.newLine();
+      }
+    }
+
+    MLogWriter.migrateTxtLog(TMP_SCHEMA_DIR);
+    assertFalse(txtLogFile.exists());
+    File logFile = new File(schemaDir, MetadataConstant.METADATA_LOG);
+    assertEquals(lines, readLines(logFile));
+
+    // a torn tail is dropped and reported
+    try (FileOutputStream outputStream = new FileOutputStream(logFile, true)) {
+      outputStream.write(new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+    }
+    SingleFileLogReader reader = new SingleFileLogReader(logFile);
+    int num = 0;
+    while (reader.hasNext()) {
+      reader.next();
+      num++;
+    }
+    reader.close();
+    assertEquals(lines.size(), num);
+    assertTrue(reader.isFileCorrupted());
+  }
+
+  @Test
+  public void testUnknownTxtCommand() throws Exception {
+    assertNull(MLogTxtConverter.toPlan("99,root.sg"));
+  }
+
+  private List<String> readLines(File logFile) throws IOException {
+    List<String> lines = new ArrayList<>();
+    SingleFileLogReader reader = new SingleFileLogReader(logFile);
+    try {
+      while (reader.hasNext()) {
+        PhysicalPlan plan = reader.next();
+        lines.add(MLogTxtConverter.toLine(plan));
+      }
+    } finally {
+      reader.close();
+    }
+    return lines;
+  }
+}
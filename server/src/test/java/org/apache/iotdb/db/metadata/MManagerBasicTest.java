@@ -22,6 +22,9 @@ import java.util.stream.Collectors;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.metadata.IllegalPathException;
 import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
 import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
@@ -410,4 +413,77 @@ public class MManagerBasicTest {
       fail(e.getMessage());
     }
   }
+
+  @Test
+  public void testDeviceSchemaCache() throws MetadataException {
+    MManager manager = IoTDB.metaManager;
+    manager.setStorageGroup(new PartialPath("root.laptop"));
+    manager.createTimeseries(new CreateTimeSeriesPlan(new PartialPath("root.laptop.d1.s0"),
+        TSDataType.INT32, TSEncoding.PLAIN, CompressionType.GZIP, null, null, null, "a0"));
+
+    // the first insertion caches the schemas of the device
+    InsertRowPlan plan = newInsertPlan("s0", TSDataType.INT32);
+    manager.getSeriesSchemasAndReadLockDevice(plan).readUnlock();
+    MeasurementMNode s0 = plan.getMeasurementMNodes()[0];
+    assertNotNull(s0);
+
+    // the alias is resolved from the cache
+    plan = newInsertPlan("a0", TSDataType.INT32);
+    manager.getSeriesSchemasAndReadLockDevice(plan).readUnlock();
+    assertSame(s0, plan.getMeasurementMNodes()[0]);
+    assertEquals("s0", plan.getMeasurements()[0]);
+
+    // the type is still checked
+    plan = newInsertPlan("s0", TSDataType.INT64);
+    boolean enablePartialInsert = IoTDBDescriptor.getInstance().getConfig().isEnablePartialInsert();
+    IoTDBDescriptor.getInstance().getConfig().setEnablePartialInsert(false);
+    try {
+      manager.getSeriesSchemasAndReadLockDevice(plan);
+      fail("the data type mismatch is not detected");
+    } catch (MetadataException e) {
+      assertTrue(e.getMessage().contains("DataType mismatch"));
+    } finally {
+      IoTDBDescriptor.getInstance().getConfig().setEnablePartialInsert(enablePartialInsert);
+    }
+
+    // a deleted timeseries is not resolved from the cache
+    manager.deleteTimeseries(new PartialPath("root.laptop.d1.s0"));
+    plan = newInsertPlan("s0", TSDataType.INT64);
+    manager.getSeriesSchemasAndReadLockDevice(plan).readUnlock();
+    assertNotSame(s0, plan.getMeasurementMNodes()[0]);
+    assertEquals(TSDataType.INT64, plan.getMeasurementMNodes()[0].getSchema().getType());
+    assertFalse(manager.isPathExist(new PartialPath("root.laptop.d1.a0")));
+  }
+
+  @Test
+  public void testDeviceUnlockedOnFailedInsertion() throws MetadataException {
+    MManager manager = IoTDB.metaManager;
+    manager.setStorageGroup(new PartialPath("root.laptop"));
+    manager.createTimeseries(new CreateTimeSeriesPlan(new PartialPath("root.laptop.d1.s0"),
+        TSDataType.INT32, TSEncoding.PLAIN, CompressionType.GZIP, null, null, null, null));
+
+    // the device is not cached yet, so the insertion fails in the slow path
+    boolean enablePartialInsert = IoTDBDescriptor.getInstance().getConfig().isEnablePartialInsert();
+    IoTDBDescriptor.getInstance().getConfig().setEnablePartialInsert(false);
+    try {
+      manager.getSeriesSchemasAndReadLockDevice(newInsertPlan("s0", TSDataType.INT64));
+      fail("the data type mismatch is not detected");
+    } catch (MetadataException e) {
+      assertTrue(e.getMessage().contains("DataType mismatch"));
+    } finally {
+      IoTDBDescriptor.getInstance().getConfig().setEnablePartialInsert(enablePartialInsert);
+    }
+
+    // deleting a measurement fails if the device is still read locked
+    manager.deleteTimeseries(new PartialPath("root.laptop.d1.s0"));
+    assertFalse(manager.isPathExist(new PartialPath("root.laptop.d1.s0")));
+  }
+
+  private InsertRowPlan newInsertPlan(String measurement, TSDataType dataType)
+      throws IllegalPathException {
+    InsertRowPlan plan = new InsertRowPlan(new PartialPath("root.laptop.d1"), 1,
+        new String[]{measurement}, new TSDataType[]{dataType}, new String[]{"1"});
+    plan.setMeasurementMNodes(new MeasurementMNode[1]);
+    return plan;
+  }
 }
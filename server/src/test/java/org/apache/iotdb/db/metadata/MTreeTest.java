@@ -433,6 +433,38 @@ public class MTreeTest {
     }
   }
 
+  @Test
+  public void testGetAllTimeseriesPathWithPattern() throws MetadataException {
+    MTree root = new MTree();
+    root.setStorageGroup(new PartialPath("root.sg"));
+    String[] series = {"root.sg.d1.s1", "root.sg.d1.s2", "root.sg.d2.s1", "root.sg.d2.t1",
+        "root.sg.dev.s1", "root.sg.d1.sub.s1"};
+    for (String s : series) {
+      root.createTimeseries(new PartialPath(s), TSDataType.INT32, TSEncoding.RLE,
+          TSFileDescriptor.getInstance().getConfig().getCompressor(), Collections.emptyMap(),
+          null);
+    }
+
+    assertEquals(6, root.getAllTimeseriesPath(new PartialPath("root")).size());
+    assertEquals(6, root.getAllTimeseriesCount(new PartialPath("root.*")));
+    assertEquals(3, root.getAllTimeseriesCount(new PartialPath("root.sg.*.s1")));
+    assertEquals(3, root.getAllTimeseriesCount(new PartialPath("root.sg.d*.s1")));
+    assertEquals(1, root.getAllTimeseriesCount(new PartialPath("root.sg.*v.s1")));
+    assertEquals(5, root.getAllTimeseriesCount(new PartialPath("root.sg.d*.s*")));
+    assertEquals(3, root.getAllTimeseriesCount(new PartialPath("root.sg.d1.*")));
+    assertEquals(1, root.getAllTimeseriesCount(new PartialPath("root.sg.*.t1")));
+    assertEquals(0, root.getAllTimeseriesCount(new PartialPath("root.sg.d3")));
+    // a measurement does not match a longer pattern
+    assertEquals(0, root.getAllTimeseriesCount(new PartialPath("root.sg.d1.s1.x")));
+
+    List<PartialPath> all = root.getAllTimeseriesPath(new PartialPath("root.sg"));
+    List<PartialPath> page = root.getAllTimeseriesPathWithAlias(new PartialPath("root.sg"), 2, 3);
+    assertEquals(all.subList(3, 5), page);
+    assertEquals(all.subList(5, 6),
+        root.getAllTimeseriesPathWithAlias(new PartialPath("root.sg"), 10, 5));
+    assertTrue(root.getAllTimeseriesPathWithAlias(new PartialPath("root.sg"), 10, 6).isEmpty());
+  }
+
   @Test
   public void testAddSubDevice() throws MetadataException {
     MTree root = new MTree();
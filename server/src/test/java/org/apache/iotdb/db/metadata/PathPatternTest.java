@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.junit.Test;
+
+public class PathPatternTest {
+
+  @Test
+  public void testExactAndTail() throws IllegalPathException {
+    PathPattern pattern = PathPattern.compile(new PartialPath("root.sg.d1"));
+    assertEquals(3, pattern.getLength());
+    assertEquals("sg", pattern.getExactName(1));
+    assertTrue(pattern.matches(2, "d1"));
+    assertFalse(pattern.matches(2, "d2"));
+    // the levels after the pattern match everything
+    assertNull(pattern.getExactName(3));
+    assertTrue(pattern.matches(3, "anything"));
+  }
+
+  @Test
+  public void testWildcard() throws IllegalPathException {
+    PathPattern pattern = PathPattern.compile(new PartialPath("root.*.d*.*s.a*b*c.a*b*bc"));
+    assertNull(pattern.getExactName(1));
+    assertTrue(pattern.matches(1, "sg"));
+    assertTrue(pattern.matches(2, "d"));
+    assertTrue(pattern.matches(2, "device"));
+    assertFalse(pattern.matches(2, "ad"));
+    assertTrue(pattern.matches(3, "s"));
+    assertTrue(pattern.matches(3, "sensors"));
+    assertFalse(pattern.matches(3, "sensor"));
+    assertTrue(pattern.matches(4, "abc"));
+    assertTrue(pattern.matches(4, "a1b2c"));
+    assertFalse(pattern.matches(4, "ab"));
+    assertFalse(pattern.matches(4, "acb"));
+    // the middle part cannot overlap the suffix
+    assertTrue(pattern.matches(5, "abbc"));
+    assertFalse(pattern.matches(5, "abc"));
+  }
+
+  @Test
+  public void testIllegal() {
+    try {
+      PathPattern.compile(new PartialPath(new String[]{"sg", "d1"}));
+      fail();
+    } catch (IllegalPathException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.mnode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import org.junit.Test;
+
+public class CompactChildrenMapTest {
+
+  @Test
+  public void testSmallMap() {
+    CompactChildrenMap map = new CompactChildrenMap();
+    MNode parent = new MNode(null, "root");
+    MNode a = new MNode(parent, "a");
+    MNode b = new MNode(parent, "b");
+    assertNull(map.put("b", b));
+    assertNull(map.put("a", a));
+    assertEquals(2, map.size());
+    assertSame(a, map.get("a"));
+    assertTrue(map.containsKey("b"));
+    assertFalse(map.containsKey("c"));
+
+    // insertion order is kept like LinkedHashMap
+    List<String> keys = new ArrayList<>(map.keySet());
+    assertEquals("b", keys.get(0));
+    assertEquals("a", keys.get(1));
+
+    assertSame(b, map.put("b", a));
+    assertSame(a, map.remove("b"));
+    assertNull(map.remove("b"));
+    assertEquals(1, map.size());
+    assertEquals("a", map.keySet().iterator().next());
+  }
+
+  @Test
+  public void testAgainstLinkedHashMap() {
+    CompactChildrenMap map = new CompactChildrenMap();
+    Map<String, MNode> expected = new LinkedHashMap<>();
+    MNode parent = new MNode(null, "root");
+    Random random = new Random(1);
+    for (int i = 0; i < 20000; i++) {
+      String key = "s" + random.nextInt(500);
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        MNode node = new MNode(parent, key);
+        assertEquals(expected.put(key, node), map.put(key, node));
+      }
+    }
+    assertEquals(expected.size(), map.size());
+    assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+    assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+    assertEquals(expected, map);
+  }
+
+  @Test
+  public void testIteratorRemove() {
+    CompactChildrenMap map = new CompactChildrenMap(16);
+    MNode parent = new MNode(null, "root");
+    for (int i = 0; i < 16; i++) {
+      map.put("d" + i, new MNode(parent, "d" + i));
+    }
+    Iterator<Entry<String, MNode>> iterator = map.entrySet().iterator();
+    while (iterator.hasNext()) {
+      if (Integer.parseInt(iterator.next().getKey().substring(1)) % 2 == 0) {
+        iterator.remove();
+      }
+    }
+    assertEquals(8, map.size());
+    assertNull(map.get("d0"));
+    assertEquals("d1", map.get("d1").getName());
+    for (int i = 16; i < 40; i++) {
+      map.put("d" + i, new MNode(parent, "d" + i));
+    }
+    assertEquals(32, map.size());
+    assertEquals("d39", map.get("d39").getName());
+    assertEquals("d1", map.keySet().iterator().next());
+  }
+}
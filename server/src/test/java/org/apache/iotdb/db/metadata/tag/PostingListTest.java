@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.tag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import org.junit.Test;
+
+public class PostingListTest {
+
+  private static PostingList build(TreeSet<Integer> ids) {
+    PostingList list = PostingList.EMPTY;
+    for (int id : ids) {
+      list = list.add(id);
+    }
+    return list;
+  }
+
+  private static List<Integer> toList(PostingList list) {
+    List<Integer> result = new ArrayList<>();
+    list.forEach(result::add);
+    return result;
+  }
+
+  @Test
+  public void testAddAndRemove() {
+    TreeSet<Integer> expected = new TreeSet<>();
+    PostingList list = PostingList.EMPTY;
+    // more than 4096 ids in one container converts it into a bitmap
+    for (int i = 0; i < 10000; i += 2) {
+      list = list.add(i);
+      expected.add(i);
+    }
+    list = list.add(1 << 20);
+    expected.add(1 << 20);
+    assertEquals(expected.size(), list.size());
+    assertEquals(new ArrayList<>(expected), toList(list));
+    assertTrue(list.contains(1 << 20));
+    assertFalse(list.contains(1));
+
+    PostingList removed = list;
+    for (int i = 0; i < 10000; i += 4) {
+      removed = removed.remove(i);
+      expected.remove(i);
+    }
+    assertEquals(new ArrayList<>(expected), toList(removed));
+    // the original list is not changed
+    assertTrue(list.contains(0));
+    assertEquals(5001, list.size());
+
+    assertTrue(PostingList.EMPTY.add(3).remove(3).isEmpty());
+  }
+
+  @Test
+  public void testAndOr() {
+    TreeSet<Integer> evens = new TreeSet<>();
+    TreeSet<Integer> threes = new TreeSet<>();
+    for (int i = 0; i < 200000; i++) {
+      if (i % 2 == 0) {
+        evens.add(i);
+      }
+      if (i % 3 == 0 && i < 30000) {
+        threes.add(i);
+      }
+    }
+    PostingList a = build(evens);
+    PostingList b = build(threes);
+
+    TreeSet<Integer> and = new TreeSet<>(evens);
+    and.retainAll(threes);
+    TreeSet<Integer> or = new TreeSet<>(evens);
+    or.addAll(threes);
+    assertEquals(new ArrayList<>(and), toList(a.and(b)));
+    assertEquals(new ArrayList<>(and), toList(b.and(a)));
+    assertEquals(new ArrayList<>(or), toList(a.or(b)));
+    assertEquals(or.size(), b.or(a).size());
+    assertTrue(a.and(PostingList.EMPTY).isEmpty());
+    assertEquals(a.size(), a.or(PostingList.EMPTY).size());
+  }
+
+  @Test
+  public void testOf() {
+    int[] ids = new int[5000];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = i * 3;
+    }
+    PostingList list = PostingList.of(ids, 4000);
+    assertEquals(4000, list.size());
+    assertTrue(list.contains(3 * 3999));
+    assertFalse(list.contains(3 * 4000));
+  }
+
+  @Test
+  public void testSerialize() throws IOException {
+    TreeSet<Integer> ids = new TreeSet<>();
+    for (int i = 0; i < 100000; i += 7) {
+      ids.add(i);
+    }
+    for (int i = 0; i < 10; i++) {
+      ids.add(1000000 + i);
+    }
+    PostingList list = build(ids);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    list.serialize(new DataOutputStream(out));
+    PostingList read = PostingList
+        .deserialize(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+    assertEquals(toList(list), toList(read));
+  }
+}
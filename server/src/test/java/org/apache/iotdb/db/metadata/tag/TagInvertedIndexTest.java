@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.metadata.tag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.MetadataConstant;
+import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TagInvertedIndexTest {
+
+  private static final String TMP_SCHEMA_DIR = "target" + File.separator + "tagIndexTest";
+
+  private MeasurementMNode[] nodes;
+
+  @Before
+  public void setUp() {
+    new File(TMP_SCHEMA_DIR).mkdirs();
+    int recordSize = IoTDBDescriptor.getInstance().getConfig().getTagAttributeTotalSize();
+    nodes = new MeasurementMNode[10];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = new MeasurementMNode(null, "s" + i, null, TSDataType.INT32, TSEncoding.PLAIN,
+          CompressionType.UNCOMPRESSED, Collections.emptyMap());
+      nodes[i].setOffset((long) i * recordSize);
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(new File(TMP_SCHEMA_DIR));
+  }
+
+  private void addTags(TagInvertedIndex index) throws IOException {
+    for (int i = 0; i < nodes.length; i++) {
+      index.add("unit", i % 2 == 0 ? "cm" : "m", nodes[i]);
+      index.add("description", "sensor" + i, nodes[i]);
+    }
+  }
+
+  private static int[] ids(List<MeasurementMNode> nodes) {
+    return nodes.stream().mapToInt(n -> Integer.parseInt(n.getName().substring(1))).toArray();
+  }
+
+  @Test
+  public void testQuery() throws IOException, MetadataException {
+    TagInvertedIndex index = new TagInvertedIndex(TMP_SCHEMA_DIR);
+    addTags(index);
+    assertEquals(5, index.getMatchedNodes(TagFilter.equal("unit", "cm")).size());
+    assertEquals(10, index.getMatchedNodes(TagFilter.contains("description", "sensor")).size());
+    assertEquals("[0, 1]", Arrays.toString(ids(index.getMatchedNodes(TagFilter.or(
+        TagFilter.equal("description", "sensor0"), TagFilter.equal("description", "sensor1"))))));
+    assertEquals("[4]", Arrays.toString(ids(index.getMatchedNodes(TagFilter.and(
+        TagFilter.equal("unit", "cm"), TagFilter.contains("description", "4"))))));
+    assertTrue(index.getMatchedNodes(TagFilter.and(TagFilter.equal("unit", "cm"),
+        TagFilter.equal("unit", "m"))).isEmpty());
+
+    assertTrue(index.remove("unit", "cm", nodes[0]));
+    assertFalse(index.remove("unit", "cm", nodes[0]));
+    assertEquals(4, index.getMatchedNodes(TagFilter.equal("unit", "cm")).size());
+
+    // a deleted series is not returned even if its tags are left
+    index.unregister(nodes[2]);
+    assertEquals(3, index.getMatchedNodes(TagFilter.equal("unit", "cm")).size());
+
+    try {
+      index.getMatchedNodes(TagFilter.equal("color", "red"));
+      fail();
+    } catch (MetadataException e) {
+      assertEquals("The key color is not a tag.", e.getMessage());
+    }
+    // a key that is not a tag is rejected in a disjunction as well
+    try {
+      index.getMatchedNodes(TagFilter.or(TagFilter.equal("unit", "m"),
+          TagFilter.equal("color", "red")));
+      fail();
+    } catch (MetadataException e) {
+      assertEquals("The key color is not a tag.", e.getMessage());
+    }
+    try {
+      index.getMatchedNodes(TagFilter.or(
+          TagFilter.and(TagFilter.equal("unit", "cm"), TagFilter.equal("color", "red")),
+          TagFilter.equal("description", "sensor3")));
+      fail();
+    } catch (MetadataException e) {
+      assertEquals("The key color is not a tag.", e.getMessage());
+    }
+    try {
+      index.getMatchedNodes(TagFilter.and(TagFilter.equal("unit", "m"),
+          TagFilter.equal("color", "red")));
+      fail();
+    } catch (MetadataException e) {
+      assertEquals("The key color is not a tag.", e.getMessage());
+    }
+    index.clear();
+  }
+
+  @Test
+  public void testRecover() throws IOException, MetadataException {
+    TagInvertedIndex index = new TagInvertedIndex(TMP_SCHEMA_DIR);
+    assertFalse(index.recover());
+    addTags(index);
+    index.snapshot();
+    // changes after the snapshot are in the log
+    index.remove("unit", "cm", nodes[0]);
+    index.add("unit", "mm", nodes[0]);
+    index.force();
+    index.clear();
+
+    index = new TagInvertedIndex(TMP_SCHEMA_DIR);
+    assertTrue(index.recover());
+    // the series are registered again from the MTree after recovery
+    for (MeasurementMNode node : nodes) {
+      index.register(node);
+    }
+    assertEquals(4, index.getMatchedNodes(TagFilter.equal("unit", "cm")).size());
+    assertEquals(1, index.getMatchedNodes(TagFilter.equal("unit", "mm")).size());
+    assertEquals(10, index.getMatchedNodes(TagFilter.contains("description", "sensor")).size());
+    index.clear();
+  }
+
+  @Test
+  public void testRecoverBrokenLog() throws IOException, MetadataException {
+    TagInvertedIndex index = new TagInvertedIndex(TMP_SCHEMA_DIR);
+    index.snapshot();
+    addTags(index);
+    index.clear();
+
+    // lose a part of the last entry
+    File logFile = new File(TMP_SCHEMA_DIR, MetadataConstant.TAG_INDEX_LOG);
+    try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+      file.setLength(file.length() - 3);
+    }
+
+    index = new TagInvertedIndex(TMP_SCHEMA_DIR);
+    assertTrue(index.recover());
+    for (MeasurementMNode node : nodes) {
+      index.register(node);
+    }
+    assertEquals(5, index.getMatchedNodes(TagFilter.equal("unit", "cm")).size());
+    assertEquals(9, index.getMatchedNodes(TagFilter.contains("description", "sensor")).size());
+    index.clear();
+  }
+
+  @Test
+  public void testRebuild() throws IOException, MetadataException {
+    TagInvertedIndex index = new TagInvertedIndex(TMP_SCHEMA_DIR);
+    TagInvertedIndex.Rebuilder rebuilder = index.rebuild();
+    for (int i = 0; i < nodes.length; i++) {
+      rebuilder.add(nodes[i], Collections.singletonMap("unit", i < 3 ? "cm" : "m"));
+    }
+    rebuilder.finish();
+    assertEquals(3, index.getMatchedNodes(TagFilter.equal("unit", "cm")).size());
+    index.clear();
+
+    // the rebuilt index is persisted
+    index = new TagInvertedIndex(TMP_SCHEMA_DIR);
+    assertTrue(index.recover());
+    for (MeasurementMNode node : nodes) {
+      index.register(node);
+    }
+    assertEquals(7, index.getMatchedNodes(TagFilter.equal("unit", "m")).size());
+    index.clear();
+  }
+}
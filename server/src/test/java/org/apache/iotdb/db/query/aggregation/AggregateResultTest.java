@@ -28,6 +28,7 @@ import org.apache.iotdb.db.query.aggregation.impl.AvgAggrResult;
 import org.apache.iotdb.db.query.factory.AggregateResultFactory;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -262,4 +263,62 @@ public class AggregateResultTest {
     Assert.assertEquals(2d, (double)result.getResult(), 0.01);
   }
 
+
+  @Test
+  public void percentileAggrResultTest() throws QueryProcessException, IOException {
+    AggregateResult percentileAggrResult1 = AggregateResultFactory
+        .getAggrResultByName(SQLConstant.PERCENTILE + "(0.9)", TSDataType.DOUBLE);
+    AggregateResult percentileAggrResult2 = AggregateResultFactory
+        .getAggrResultByName(SQLConstant.PERCENTILE + "(0.9)", TSDataType.DOUBLE);
+
+    Statistics statistics1 = Statistics.getStatsByType(TSDataType.DOUBLE, true);
+    Statistics statistics2 = Statistics.getStatsByType(TSDataType.DOUBLE);
+    for (int i = 1; i <= 50; i++) {
+      statistics1.update(i, (double) i);
+      statistics2.update(i + 50L, i + 50d);
+    }
+    Assert.assertTrue(percentileAggrResult1.canUpdateFromStatistics(statistics1));
+    Assert.assertFalse(percentileAggrResult1.canUpdateFromStatistics(statistics2));
+
+    percentileAggrResult1.updateResultFromStatistics(statistics1);
+    BatchData batchData = new BatchData(TSDataType.DOUBLE);
+    for (int i = 51; i <= 100; i++) {
+      batchData.putDouble(i, i);
+    }
+    percentileAggrResult2.updateResultFromPageData(batchData);
+    percentileAggrResult1.merge(percentileAggrResult2);
+    Assert.assertEquals(90d, (double) percentileAggrResult1.getResult(), 1);
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    percentileAggrResult1.serializeTo(outputStream);
+    ByteBuffer byteBuffer = ByteBuffer.wrap(outputStream.toByteArray());
+    AggregateResult result = AggregateResult.deserializeFrom(byteBuffer);
+    Assert.assertEquals(percentileAggrResult1.getResult(), result.getResult());
+  }
+
+  @Test
+  public void approxCountDistinctAggrResultTest() throws QueryProcessException, IOException {
+    AggregateResult distinctAggrResult1 = AggregateResultFactory
+        .getAggrResultByName(SQLConstant.APPROX_COUNT_DISTINCT, TSDataType.INT64);
+    AggregateResult distinctAggrResult2 = AggregateResultFactory
+        .getAggrResultByName(SQLConstant.APPROX_COUNT_DISTINCT, TSDataType.INT64);
+
+    Statistics statistics1 = Statistics.getStatsByType(TSDataType.INT64, true);
+    Statistics statistics2 = Statistics.getStatsByType(TSDataType.INT64, true);
+    for (long i = 0; i < 100; i++) {
+      statistics1.update(i, i % 20);
+      statistics2.update(i + 100, i % 30);
+    }
+    distinctAggrResult1.updateResultFromStatistics(statistics1);
+    distinctAggrResult2.updateResultFromStatistics(statistics2);
+    distinctAggrResult1.merge(distinctAggrResult2);
+    long estimate = (long) distinctAggrResult1.getResult();
+    Assert.assertEquals(30d, estimate, 2);
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    distinctAggrResult1.serializeTo(outputStream);
+    ByteBuffer byteBuffer = ByteBuffer.wrap(outputStream.toByteArray());
+    AggregateResult result = AggregateResult.deserializeFrom(byteBuffer);
+    Assert.assertEquals(estimate, (long) result.getResult());
+  }
 }
\ No newline at end of file
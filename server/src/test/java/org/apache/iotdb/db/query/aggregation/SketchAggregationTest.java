@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.aggregation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import org.apache.iotdb.db.exception.runtime.SQLParserException;
+import org.apache.iotdb.db.qp.Planner;
+import org.apache.iotdb.db.qp.executor.IPlanExecutor;
+import org.apache.iotdb.db.qp.executor.PlanExecutor;
+import org.apache.iotdb.db.qp.physical.crud.QueryPlan;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.statistics.QuantileSketch;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Sketch based aggregations of series with (s1, s3) and without (s2, s4) sketches in their
+ * statistics, holding the same values.
+ */
+public class SketchAggregationTest {
+
+  private static final int POINT_NUM = 3000;
+  private static final int DISTINCT_NUM = 300;
+
+  private IPlanExecutor queryExecutor = new PlanExecutor();
+  private Planner processor = new Planner();
+
+  static {
+    IoTDB.metaManager.init();
+  }
+
+  public SketchAggregationTest() throws Exception {
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    execute("SET STORAGE GROUP TO root.sketch");
+    execute("CREATE TIMESERIES root.sketch.d1.s1 WITH DATATYPE=DOUBLE, ENCODING=GORILLA, "
+        + "sketch=true");
+    execute("CREATE TIMESERIES root.sketch.d1.s2 WITH DATATYPE=DOUBLE, ENCODING=GORILLA");
+    execute("CREATE TIMESERIES root.sketch.d1.s3 WITH DATATYPE=INT64, ENCODING=RLE, "
+        + "sketch=true");
+    execute("CREATE TIMESERIES root.sketch.d1.s4 WITH DATATYPE=INT64, ENCODING=RLE");
+    for (int i = 1; i <= POINT_NUM; i++) {
+      execute(String.format(
+          "insert into root.sketch.d1(timestamp,s1,s2,s3,s4) values(%d,%d.5,%d.5,%d,%d)", i, i,
+          i, i % DISTINCT_NUM, i % DISTINCT_NUM));
+      // the last third stays in the memtable
+      if (i % 1000 == 0 && i < POINT_NUM) {
+        execute("flush");
+      }
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    EnvironmentUtils.cleanEnv();
+  }
+
+  private void execute(String sql) throws Exception {
+    queryExecutor.processNonQuery(processor.parseSQLToPhysicalPlan(sql));
+  }
+
+  private QueryDataSet query(String sql) throws Exception {
+    QueryPlan queryPlan = (QueryPlan) processor.parseSQLToPhysicalPlan(sql);
+    return queryExecutor.processQuery(queryPlan, EnvironmentUtils.TEST_QUERY_CONTEXT);
+  }
+
+  @Test
+  public void testAggregation() throws Exception {
+    // the columns are in the order of the paths
+    QueryDataSet dataSet = query("select percentile(s1, 0.99), percentile(s1), "
+        + "percentile(s2, 0.99), approx_count_distinct(s3), approx_count_distinct(s4) "
+        + "from root.sketch.d1");
+    assertTrue(dataSet.hasNext());
+    List<Field> fields = dataSet.next().getFields();
+    // the sketches merged from the statistics are the same as those built from the points
+    assertEquals(fields.get(2).getDoubleV(), fields.get(0).getDoubleV(), 0);
+    assertEquals(0.99 * POINT_NUM, fields.get(0).getDoubleV(),
+        0.99 * POINT_NUM * QuantileSketch.RELATIVE_ACCURACY + 1);
+    assertEquals(0.5 * POINT_NUM, fields.get(1).getDoubleV(),
+        0.5 * POINT_NUM * QuantileSketch.RELATIVE_ACCURACY + 1);
+    assertEquals(fields.get(4).getLongV(), fields.get(3).getLongV());
+    assertEquals(DISTINCT_NUM, fields.get(3).getLongV(), DISTINCT_NUM * 0.1);
+    assertFalse(dataSet.hasNext());
+  }
+
+  @Test
+  public void testGroupBy() throws Exception {
+    QueryDataSet dataSet = query("select percentile(s1, 0.9), percentile(s2, 0.9) "
+        + "from root.sketch.d1 group by ([1, " + (POINT_NUM + 1) + "), 1000ms)");
+    int intervalNum = 0;
+    while (dataSet.hasNext()) {
+      List<Field> fields = dataSet.next().getFields();
+      assertEquals(fields.get(1).getDoubleV(), fields.get(0).getDoubleV(), 0);
+      double expected = intervalNum * 1000 + 0.9 * 1000;
+      assertEquals(expected, fields.get(0).getDoubleV(),
+          expected * QuantileSketch.RELATIVE_ACCURACY + 1);
+      intervalNum++;
+    }
+    assertEquals(POINT_NUM / 1000, intervalNum);
+  }
+
+  @Test
+  public void testInvalidQuantile() throws Exception {
+    try {
+      processor.parseSQLToPhysicalPlan("select percentile(s1, 1.5) from root.sketch.d1");
+      fail("a quantile out of [0, 1] should be rejected");
+    } catch (SQLParserException e) {
+      assertTrue(e.getMessage().contains("[0, 1]"));
+    }
+  }
+}
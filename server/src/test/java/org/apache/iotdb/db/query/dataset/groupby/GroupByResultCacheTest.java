@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.dataset.groupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.qp.Planner;
+import org.apache.iotdb.db.qp.executor.IPlanExecutor;
+import org.apache.iotdb.db.qp.executor.PlanExecutor;
+import org.apache.iotdb.db.qp.physical.crud.QueryPlan;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.control.QueryResourceManager;
+import org.apache.iotdb.db.service.IoTDB;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GroupByResultCacheTest {
+
+  private static final String QUERY =
+      "select count(s0), sum(s0) from root.vehicle.d0 group by ([0, 120), 10ms)";
+
+  private IPlanExecutor queryExecutor = new PlanExecutor();
+  private Planner processor = new Planner();
+
+  static {
+    IoTDB.metaManager.init();
+  }
+
+  public GroupByResultCacheTest() throws QueryProcessException {
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    execute("SET STORAGE GROUP TO root.vehicle");
+    execute("CREATE TIMESERIES root.vehicle.d0.s0 WITH DATATYPE=INT64, ENCODING=RLE");
+    for (int i = 1; i <= 100; i++) {
+      execute(String.format("insert into root.vehicle.d0(timestamp,s0) values(%d,%d)", i, i));
+    }
+    // the data no later than 100 becomes historical
+    execute("flush");
+    for (int i = 101; i <= 105; i++) {
+      execute(String.format("insert into root.vehicle.d0(timestamp,s0) values(%d,%d)", i, i));
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    EnvironmentUtils.cleanEnv();
+  }
+
+  private void execute(String sql) throws Exception {
+    queryExecutor.processNonQuery(processor.parseSQLToPhysicalPlan(sql));
+  }
+
+  private String[] query() throws Exception {
+    QueryPlan queryPlan = (QueryPlan) processor.parseSQLToPhysicalPlan(QUERY);
+    // a new context, as a context keeps the modifications it has read
+    QueryDataSet dataSet = queryExecutor.processQuery(queryPlan,
+        new QueryContext(QueryResourceManager.getInstance().assignQueryId(true)));
+    String[] rows = new String[12];
+    for (int i = 0; i < rows.length; i++) {
+      assertTrue(dataSet.hasNext());
+      rows[i] = dataSet.next().toString();
+    }
+    assertFalse(dataSet.hasNext());
+    return rows;
+  }
+
+  @Test
+  public void testCachedIntervals() throws Exception {
+    String[] rows = query();
+    assertEquals("0\t9\t45.0", rows[0]);
+    assertEquals("90\t10\t945.0", rows[9]);
+    assertEquals("100\t6\t615.0", rows[10]);
+    assertEquals("110\t0\t0.0", rows[11]);
+    // nothing was cached before
+    assertEquals(0, GroupByResultCache.getInstance().calculateHitRatio(), 0.0001);
+    assertTrue(GroupByResultCache.getInstance().getUsedMemory() > 0);
+
+    // the newest intervals change while the historical ones are served from the cache
+    for (int i = 106; i <= 112; i++) {
+      execute(String.format("insert into root.vehicle.d0(timestamp,s0) values(%d,%d)", i, i));
+    }
+    rows = query();
+    assertEquals("0\t9\t45.0", rows[0]);
+    assertEquals("90\t10\t945.0", rows[9]);
+    assertEquals("100\t10\t1045.0", rows[10]);
+    assertEquals("110\t3\t333.0", rows[11]);
+    assertTrue(GroupByResultCache.getInstance().calculateHitRatio() > 0);
+  }
+
+  @Test
+  public void testInvalidateByInsertion() throws Exception {
+    query();
+    // an out-of-order insertion changes a historical interval
+    execute("insert into root.vehicle.d0(timestamp,s0) values(0,1000)");
+    String[] rows = query();
+    assertEquals("0\t10\t1045.0", rows[0]);
+    assertEquals("10\t10\t145.0", rows[1]);
+  }
+
+  @Test
+  public void testInvalidateByDeletion() throws Exception {
+    query();
+    execute("delete from root.vehicle.d0.s0 where time <= 15");
+    String[] rows = query();
+    assertTrue(rows[0].startsWith("0\t0\t"));
+    assertEquals("10\t4\t70.0", rows[1]);
+    assertEquals("20\t10\t245.0", rows[2]);
+  }
+
+  @Test
+  public void testTimeFilterCutsInterval() throws Exception {
+    query();
+    // the first interval is cut by the time filter, so its cached results are not used
+    QueryPlan queryPlan = (QueryPlan) processor.parseSQLToPhysicalPlan(
+        "select count(s0), sum(s0) from root.vehicle.d0 where time > 5 "
+            + "group by ([0, 120), 10ms)");
+    QueryDataSet dataSet = queryExecutor.processQuery(queryPlan,
+        new QueryContext(QueryResourceManager.getInstance().assignQueryId(true)));
+    assertTrue(dataSet.hasNext());
+    assertEquals("0\t4\t30.0", dataSet.next().toString());
+    assertTrue(dataSet.hasNext());
+    assertEquals("10\t10\t145.0", dataSet.next().toString());
+  }
+}
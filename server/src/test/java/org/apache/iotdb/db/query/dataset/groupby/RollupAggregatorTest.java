@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.dataset.groupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.qp.Planner;
+import org.apache.iotdb.db.qp.executor.PlanExecutor;
+import org.apache.iotdb.db.qp.physical.crud.QueryPlan;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.control.QueryResourceManager;
+import org.apache.iotdb.db.query.filter.TsFileFilter;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RollupAggregatorTest {
+
+  private static final String AGGREGATIONS = "count(*), sum(*), avg(*), min_value(*), "
+      + "max_value(*), first_value(*), last_value(*), min_time(*), max_time(*)";
+  private static final double DELTA = 1e-9;
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private String prevRollupLevels;
+
+  private final PlanExecutor queryExecutor = new PlanExecutor();
+  private final Planner processor = new Planner();
+
+  public RollupAggregatorTest() throws QueryProcessException {
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    prevRollupLevels = config.getRollupLevels();
+    config.setRollupLevels("10ms,20ms");
+
+    List<String> sqls = new ArrayList<>();
+    sqls.add("SET STORAGE GROUP TO root.sg");
+    sqls.add("CREATE TIMESERIES root.sg.d0.s0 WITH DATATYPE=INT64, ENCODING=RLE");
+    sqls.add("CREATE TIMESERIES root.sg.d0.s1 WITH DATATYPE=DOUBLE, ENCODING=GORILLA");
+    sqls.add("CREATE TIMESERIES root.sg.d1.s0 WITH DATATYPE=INT32, ENCODING=RLE");
+    for (int t = 1; t <= 230; t++) {
+      sqls.add("insert into root.sg.d0(timestamp,s0,s1) values(" + t + "," + (t * 7 % 101) + ","
+          + (t * 0.5) + ")");
+      sqls.add("insert into root.sg.d1(timestamp,s0) values(" + t + "," + (t * 3 % 17) + ")");
+      if (t == 100 || t == 200) {
+        // two sealed sequence files with rollups, the rest is left in the working memtable
+        sqls.add("flush");
+      }
+      if (t == 200) {
+        // an unseq file overlapping the first file of d1
+        sqls.add("insert into root.sg.d1(timestamp,s0) values(50,1000)");
+        sqls.add("flush");
+        sqls.add("DELETE FROM root.sg.d0.s1 WHERE time <= 120");
+      }
+    }
+    for (String sql : sqls) {
+      queryExecutor.processNonQuery(processor.parseSQLToPhysicalPlan(sql));
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    config.setRollupLevels(prevRollupLevels);
+    EnvironmentUtils.cleanEnv();
+  }
+
+  @Test
+  public void testSelectLevel() {
+    long[] levels = {10, 20, 60};
+    assertEquals(2, RollupAggregator.selectLevel(levels, 0, 240, 60, 60));
+    assertEquals(1, RollupAggregator.selectLevel(levels, 0, 240, 40, 40));
+    assertEquals(1, RollupAggregator.selectLevel(levels, -20, 240, 60, 20));
+    assertEquals(0, RollupAggregator.selectLevel(levels, 0, 250, 60, 60));
+    assertEquals(-1, RollupAggregator.selectLevel(levels, 5, 245, 60, 60));
+  }
+
+  @Test
+  public void testServedFiles() throws Exception {
+    // both sealed files serve d0.s0
+    assertEquals(2, countServedFiles("root.sg.d0.s0", TSDataType.INT64, 20));
+    // a part of s1 is deleted
+    assertEquals(0, countServedFiles("root.sg.d0.s1", TSDataType.DOUBLE, 20));
+    // an unseq file overlaps the first file of d1
+    assertEquals(1, countServedFiles("root.sg.d1.s0", TSDataType.INT32, 20));
+    // no level divides the interval
+    assertEquals(0, countServedFiles("root.sg.d0.s0", TSDataType.INT64, 25));
+  }
+
+  @Test
+  public void testSameResults() throws Exception {
+    String[] queries = {
+        "select " + AGGREGATIONS + " from root.sg group by ([0, 240), 20ms)",
+        "select " + AGGREGATIONS + " from root.sg group by ([0, 240), 40ms, 60ms)",
+        "select " + AGGREGATIONS + " from root.sg where time >= 40 group by ([0, 240), 20ms)",
+        "select " + AGGREGATIONS + " from root.sg where time > 45 group by ([0, 240), 20ms)",
+        "select " + AGGREGATIONS + " from root.sg group by ([5, 245), 20ms)",
+        "select " + AGGREGATIONS + " from root.sg group by ([0, 240), 20ms) order by time desc",
+        "select count(s0) from root.sg.d0 group by ([0, 300), 100ms)"};
+    for (String query : queries) {
+      List<String> withRollups = execute(query);
+      config.setRollupLevels("");
+      List<String> withoutRollups = execute(query);
+      config.setRollupLevels("10ms,20ms");
+      assertTrue(withRollups.size() > 0);
+      assertEquals(query, withoutRollups.size(), withRollups.size());
+      for (int i = 0; i < withRollups.size(); i++) {
+        assertRowEquals(query, withoutRollups.get(i), withRollups.get(i));
+      }
+    }
+  }
+
+  /**
+   * The averages may differ in the rounding, as the rollups average the buckets.
+   */
+  private void assertRowEquals(String query, String expected, String actual) {
+    String[] expectedFields = expected.split("\t");
+    String[] actualFields = actual.split("\t");
+    assertEquals(query, expectedFields.length, actualFields.length);
+    for (int i = 0; i < expectedFields.length; i++) {
+      if (expectedFields[i].contains(".") && actualFields[i].contains(".")) {
+        assertEquals(query, Double.parseDouble(expectedFields[i]),
+            Double.parseDouble(actualFields[i]), DELTA);
+      } else {
+        assertEquals(query, expectedFields[i], actualFields[i]);
+      }
+    }
+  }
+
+  private int countServedFiles(String path, TSDataType dataType, long interval)
+      throws Exception {
+    long queryId = QueryResourceManager.getInstance().assignQueryId(true);
+    try {
+      QueryContext context = new QueryContext(queryId);
+      PartialPath seriesPath = new PartialPath(path);
+      QueryDataSource queryDataSource = QueryResourceManager.getInstance()
+          .getQueryDataSource(seriesPath, context, null);
+      RollupAggregator aggregator = RollupAggregator.create(seriesPath, dataType, context,
+          queryDataSource, null, 0, 400, interval, interval);
+      if (aggregator == null) {
+        return 0;
+      }
+      TsFileFilter fileFilter = aggregator.getFileFilter(null);
+      int servedFileNum = 0;
+      for (TsFileResource seqResource : queryDataSource.getSeqResources()) {
+        if (fileFilter.fileNotSatisfy(seqResource)) {
+          servedFileNum++;
+        }
+      }
+      return servedFileNum;
+    } finally {
+      QueryResourceManager.getInstance().endQuery(queryId);
+    }
+  }
+
+  private List<String> execute(String sql) throws Exception {
+    QueryPlan queryPlan = (QueryPlan) processor.parseSQLToPhysicalPlan(sql);
+    QueryDataSet dataSet = queryExecutor
+        .processQuery(queryPlan, EnvironmentUtils.TEST_QUERY_CONTEXT);
+    List<String> rows = new ArrayList<>();
+    while (dataSet.hasNext()) {
+      rows.add(dataSet.next().toString());
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.qp.Planner;
+import org.apache.iotdb.db.qp.executor.PlanExecutor;
+import org.apache.iotdb.db.qp.physical.crud.QueryPlan;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelSeriesExecutorTest {
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private int prevParallelism;
+  private long prevMemory;
+
+  private final PlanExecutor queryExecutor = new PlanExecutor();
+  private final Planner processor = new Planner();
+
+  public ParallelSeriesExecutorTest() throws QueryProcessException {
+  }
+
+  @Before
+  public void setUp() {
+    EnvironmentUtils.envSetUp();
+    prevParallelism = config.getMaxQuerySeriesParallelism();
+    prevMemory = config.getParallelSeriesReadMemoryInByte();
+    config.setMaxQuerySeriesParallelism(4);
+    config.setParallelSeriesReadMemoryInByte(Long.MAX_VALUE);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    config.setMaxQuerySeriesParallelism(prevParallelism);
+    config.setParallelSeriesReadMemoryInByte(prevMemory);
+    EnvironmentUtils.cleanEnv();
+  }
+
+  @Test
+  public void testGetParallelism() {
+    assertEquals(4, ParallelSeriesExecutor.getParallelism(100, 1));
+    assertEquals(2, ParallelSeriesExecutor.getParallelism(2, 1));
+    assertEquals(2, ParallelSeriesExecutor.getParallelism(40, 16));
+    assertEquals(1, ParallelSeriesExecutor.getParallelism(10, 16));
+    // the memory allows 3 series being read at the same time
+    config.setParallelSeriesReadMemoryInByte(config.getAvgSeriesPointNumberThreshold() * 16L * 3);
+    assertEquals(3, ParallelSeriesExecutor.getParallelism(100, 1));
+  }
+
+  @Test
+  public void testExecute() throws Exception {
+    int seriesNum = 1000;
+    AtomicIntegerArray runs = new AtomicIntegerArray(seriesNum);
+    ParallelSeriesExecutor.execute(seriesNum, 1, runs::incrementAndGet);
+    for (int i = 0; i < seriesNum; i++) {
+      assertEquals(1, runs.get(i));
+    }
+
+    try {
+      ParallelSeriesExecutor.execute(seriesNum, 1, i -> {
+        if (i == 500) {
+          throw new QueryProcessException("failed " + i);
+        }
+      });
+      fail();
+    } catch (QueryProcessException e) {
+      assertEquals("failed 500", e.getMessage());
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testExecuteWhenPoolIsBusy() throws Exception {
+    // occupy all query threads, so the workers of the execution stay in the queue
+    CountDownLatch release = new CountDownLatch(1);
+    List<Future<?>> blockers = new ArrayList<>();
+    for (int i = 0; i < config.getConcurrentQueryThread(); i++) {
+      blockers.add(QueryTaskPoolManager.getInstance().submit(() -> {
+        release.await();
+        return null;
+      }));
+    }
+    try {
+      int seriesNum = 100;
+      AtomicIntegerArray runs = new AtomicIntegerArray(seriesNum);
+      // the calling thread runs all series and does not wait for the queued workers
+      ParallelSeriesExecutor.execute(seriesNum, 1, runs::incrementAndGet);
+      for (int i = 0; i < seriesNum; i++) {
+        assertEquals(1, runs.get(i));
+      }
+    } finally {
+      release.countDown();
+    }
+    for (Future<?> blocker : blockers) {
+      blocker.get();
+    }
+  }
+
+  @Test
+  public void testParallelAggregation() throws Exception {
+    List<String> sqls = new ArrayList<>();
+    sqls.add("SET STORAGE GROUP TO root.sg");
+    for (int i = 0; i < 40; i++) {
+      sqls.add("CREATE TIMESERIES root.sg.d" + i % 4 + ".s" + i + " WITH DATATYPE=INT64, "
+          + "ENCODING=RLE");
+    }
+    for (int t = 1; t <= 50; t++) {
+      for (int i = 0; i < 40; i++) {
+        sqls.add("insert into root.sg.d" + i % 4 + "(timestamp,s" + i + ") values(" + t + ","
+            + (t * i) + ")");
+      }
+      if (t == 25) {
+        sqls.add("flush");
+      }
+    }
+    for (String sql : sqls) {
+      queryExecutor.processNonQuery(processor.parseSQLToPhysicalPlan(sql));
+    }
+
+    String[] queries = {"select count(*), max_value(*), sum(*) from root.sg",
+        "select count(*), max_value(*) from root.sg group by ([0, 60), 10ms)"};
+    for (String query : queries) {
+      config.setMaxQuerySeriesParallelism(1);
+      List<String> sequential = execute(query);
+      config.setMaxQuerySeriesParallelism(4);
+      List<String> parallel = execute(query);
+      assertTrue(sequential.size() > 0);
+      assertEquals(sequential, parallel);
+    }
+  }
+
+  private List<String> execute(String sql) throws Exception {
+    QueryPlan queryPlan = (QueryPlan) processor.parseSQLToPhysicalPlan(sql);
+    QueryDataSet dataSet = queryExecutor
+        .processQuery(queryPlan, EnvironmentUtils.TEST_QUERY_CONTEXT);
+    List<String> rows = new ArrayList<>();
+    while (dataSet.hasNext()) {
+      rows.add(dataSet.next().toString());
+    }
+    return rows;
+  }
+}
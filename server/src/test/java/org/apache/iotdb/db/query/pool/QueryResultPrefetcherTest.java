@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.query.pool.QueryResultPrefetcher.BlockProducer;
+import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
+import org.apache.iotdb.tsfile.utils.BytesUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryResultPrefetcherTest {
+
+  private static final int BLOCK_NUM = 10;
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private int prevQueryThread;
+  private int prevBlockNum;
+  private long prevMemory;
+
+  private final AtomicInteger producedNum = new AtomicInteger();
+
+  @Before
+  public void setUp() {
+    prevQueryThread = config.getConcurrentQueryThread();
+    prevBlockNum = config.getQueryResultPrefetchBlockNum();
+    prevMemory = config.getQueryResultPrefetchMemoryInByte();
+    // leave a thread for the read tasks
+    config.setConcurrentQueryThread(Math.max(2, prevQueryThread));
+    config.setQueryResultPrefetchBlockNum(3);
+    config.setQueryResultPrefetchMemoryInByte(Long.MAX_VALUE);
+  }
+
+  @After
+  public void tearDown() {
+    config.setConcurrentQueryThread(prevQueryThread);
+    config.setQueryResultPrefetchBlockNum(prevBlockNum);
+    config.setQueryResultPrefetchMemoryInByte(prevMemory);
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    QueryResultPrefetcher prefetcher = new QueryResultPrefetcher(blockProducer(-1));
+    prefetcher.start();
+    waitProducedNum(3);
+    Thread.sleep(50);
+    // the queue is full
+    assertEquals(3, producedNum.get());
+
+    for (int i = 0; i < BLOCK_NUM; i++) {
+      TSQueryDataSet block = prefetcher.next();
+      assertEquals(i, block.time.getLong());
+    }
+    assertFalse(prefetcher.next().time.hasRemaining());
+    assertEquals(BLOCK_NUM + 1, producedNum.get());
+    assertEquals(0, QueryResultPrefetcher.getUsedMemory());
+  }
+
+  @Test
+  public void testMemoryBudget() throws Exception {
+    config.setQueryResultPrefetchMemoryInByte(1);
+    QueryResultPrefetcher prefetcher = new QueryResultPrefetcher(blockProducer(-1));
+    prefetcher.start();
+    waitProducedNum(1);
+    Thread.sleep(50);
+    // the first block uses up the memory
+    assertEquals(1, producedNum.get());
+    assertEquals(Long.BYTES, QueryResultPrefetcher.getUsedMemory());
+
+    for (int i = 0; i < BLOCK_NUM; i++) {
+      assertEquals(i, prefetcher.next().time.getLong());
+    }
+    assertFalse(prefetcher.next().time.hasRemaining());
+    assertEquals(0, QueryResultPrefetcher.getUsedMemory());
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    QueryResultPrefetcher prefetcher = new QueryResultPrefetcher(blockProducer(-1));
+    prefetcher.start();
+    waitProducedNum(3);
+    assertEquals(0, prefetcher.next().time.getLong());
+    prefetcher.cancel();
+    int num = producedNum.get();
+    Thread.sleep(50);
+    assertEquals(num, producedNum.get());
+    assertEquals(0, QueryResultPrefetcher.getUsedMemory());
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    QueryResultPrefetcher prefetcher = new QueryResultPrefetcher(blockProducer(2));
+    prefetcher.start();
+    // the blocks before the failure are still returned
+    assertEquals(0, prefetcher.next().time.getLong());
+    assertEquals(1, prefetcher.next().time.getLong());
+    try {
+      prefetcher.next();
+      fail();
+    } catch (IOException e) {
+      assertEquals("block 2", e.getMessage());
+    }
+  }
+
+  /**
+   * @return a producer of BLOCK_NUM blocks of one row and the last empty block, which fails when
+   * producing failedBlock
+   */
+  private BlockProducer blockProducer(int failedBlock) {
+    return () -> {
+      int blockIndex = producedNum.getAndIncrement();
+      if (blockIndex == failedBlock) {
+        throw new IOException("block " + failedBlock);
+      }
+      ByteBuffer time = blockIndex < BLOCK_NUM ? ByteBuffer.wrap(BytesUtils.longToBytes(blockIndex))
+          : ByteBuffer.allocate(0);
+      return new TSQueryDataSet(time, new ArrayList<>(), new ArrayList<>());
+    };
+  }
+
+  private void waitProducedNum(int num) throws InterruptedException {
+    long startTime = System.currentTimeMillis();
+    while (producedNum.get() < num) {
+      assertTrue(System.currentTimeMillis() - startTime < 10_000);
+      Thread.sleep(10);
+    }
+  }
+}
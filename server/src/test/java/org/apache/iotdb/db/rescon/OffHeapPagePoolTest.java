@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.rescon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OffHeapPagePoolTest {
+
+  private static final int PAGE_SIZE = 1024;
+
+  private final OffHeapPagePool pool = OffHeapPagePool.getInstance();
+
+  @Before
+  public void setUp() {
+    pool.evict();
+  }
+
+  @After
+  public void tearDown() {
+    pool.evict();
+    pool.setMaxBytes(IoTDBDescriptor.getInstance().getConfig().getOffHeapPagePoolMaxBytes());
+  }
+
+  @Test
+  public void testMaxBytes() {
+    long allocatedBytes = pool.getAllocatedBytes();
+    pool.setMaxBytes(allocatedBytes + 2 * PAGE_SIZE);
+    ByteBuffer page1 = pool.getPage(PAGE_SIZE);
+    ByteBuffer page2 = pool.getPage(PAGE_SIZE);
+    assertTrue(page1.isDirect());
+    assertTrue(page2.isDirect());
+    assertEquals(allocatedBytes + 2 * PAGE_SIZE, pool.getAllocatedBytes());
+
+    // beyond the max bytes, pages are allocated on heap and not pooled
+    ByteBuffer page3 = pool.getPage(PAGE_SIZE);
+    assertFalse(page3.isDirect());
+    pool.release(page3);
+    assertEquals(0, pool.getPooledBytes());
+
+    pool.release(page1);
+    assertEquals(PAGE_SIZE, pool.getPooledBytes());
+    assertSame(page1, pool.getPage(PAGE_SIZE));
+    assertEquals(0, pool.getPooledBytes());
+    pool.release(page1);
+    pool.release(page2);
+  }
+
+  @Test
+  public void testEvict() {
+    long allocatedBytes = pool.getAllocatedBytes();
+    pool.release(pool.getPage(PAGE_SIZE));
+    assertEquals(allocatedBytes + PAGE_SIZE, pool.getAllocatedBytes());
+    assertEquals(PAGE_SIZE, pool.getPooledBytes());
+
+    pool.evict();
+    assertEquals(allocatedBytes, pool.getAllocatedBytes());
+    assertEquals(0, pool.getPooledBytes());
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.rescon;
+
+import static org.apache.iotdb.db.rescon.PrimitiveArrayPool.ARRAY_SIZE;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrimitiveArrayPoolTest {
+
+  private PrimitiveArrayPool pool = PrimitiveArrayPool.getInstance();
+
+  @Test
+  public void testGetAndRelease() {
+    for (TSDataType dataType : TSDataType.values()) {
+      Object dataArray = pool.getPrimitiveDataListByType(dataType);
+      Assert.assertEquals(ARRAY_SIZE, Array.getLength(dataArray));
+      pool.release(dataArray);
+
+      long hitCount = pool.getHitCount();
+      Assert.assertSame(dataArray, pool.getPrimitiveDataListByType(dataType));
+      Assert.assertEquals(hitCount + 1, pool.getHitCount());
+      pool.release(dataArray);
+    }
+
+    Binary[] binaries = (Binary[]) pool.getPrimitiveDataListByType(TSDataType.TEXT);
+    binaries[0] = new Binary("test");
+    pool.release(binaries);
+    Assert.assertNull(((Binary[]) pool.getPrimitiveDataListByType(TSDataType.TEXT))[0]);
+  }
+
+  @Test
+  public void testOverflowAndEvict() {
+    List<Object> arrays = new ArrayList<>();
+    long missCount = pool.getMissCount();
+    for (int i = 0; i < 1000; i++) {
+      arrays.add(pool.getPrimitiveDataListByType(TSDataType.INT64));
+    }
+    Assert.assertTrue(pool.getMissCount() > missCount);
+    for (Object array : arrays) {
+      pool.release(array);
+    }
+    // the arrays beyond the magazine of this thread go to the shared depot
+    Assert.assertTrue(pool.getPooledArrayNumber() > 0);
+
+    long evictionCount = pool.getEvictionCount();
+    int pooledArrayNumber = pool.getPooledArrayNumber();
+    pool.evict();
+    Assert.assertEquals(0, pool.getPooledArrayNumber());
+    Assert.assertEquals(evictionCount + pooledArrayNumber, pool.getEvictionCount());
+  }
+
+  @Test
+  public void testEvictMagazineOfIdleThread() throws Exception {
+    pool.evict();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.submit(() -> pool.release(new long[ARRAY_SIZE])).get();
+    // the array stays in the magazine of the idle thread, which is counted as pooled
+    Assert.assertEquals(1, pool.getPooledArrayNumber());
+
+    long evictionCount = pool.getEvictionCount();
+    pool.evict();
+    Assert.assertEquals(0, pool.getPooledArrayNumber());
+    Assert.assertEquals(evictionCount + 1, pool.getEvictionCount());
+    executor.shutdown();
+  }
+
+  @Test
+  public void testConcurrentGetAndRelease() throws Exception {
+    int threadNum = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threadNum);
+    List<Future<List<Object>>> futures = new ArrayList<>();
+    for (int i = 0; i < threadNum; i++) {
+      futures.add(executor.submit(() -> {
+        List<Object> holding = new ArrayList<>();
+        List<Object> result = new ArrayList<>();
+        for (int j = 0; j < 10000; j++) {
+          holding.add(pool.getPrimitiveDataListByType(TSDataType.DOUBLE));
+          if (j % 3 == 2) {
+            // arrays released by one thread may be got by another one
+            pool.release(holding.remove(0));
+          }
+        }
+        result.addAll(holding);
+        return result;
+      }));
+    }
+    // no array is handed out to two holders at the same time
+    Set<Object> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+    int total = 0;
+    for (Future<List<Object>> future : futures) {
+      List<Object> result = future.get();
+      total += result.size();
+      arrays.addAll(result);
+    }
+    executor.shutdown();
+    Assert.assertEquals(total, arrays.size());
+    for (Object array : arrays) {
+      pool.release(array);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.rpc.IoTDBRpcDataSet;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.rpc.TabletCodec;
+import org.apache.iotdb.service.rpc.thrift.TSExecuteStatementReq;
+import org.apache.iotdb.service.rpc.thrift.TSExecuteStatementResp;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletReq;
+import org.apache.iotdb.service.rpc.thrift.TSOpenSessionReq;
+import org.apache.iotdb.service.rpc.thrift.TSOpenSessionResp;
+import org.apache.iotdb.service.rpc.thrift.TSProtocolVersion;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InsertEncodedTabletTest {
+
+  private static final int ROW_NUM = 100;
+
+  private TSServiceImpl serviceImpl;
+  private long sessionId;
+  private TabletCodec codec;
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    serviceImpl = new TSServiceImpl();
+    TSOpenSessionReq req = new TSOpenSessionReq(TSProtocolVersion.IOTDB_SERVICE_PROTOCOL_V3,
+        ZoneId.systemDefault().toString());
+    req.setUsername("root");
+    req.setPassword("root");
+    req.setConfiguration(new TabletCodec(CompressionType.SNAPPY).toConfiguration());
+    TSOpenSessionResp resp = serviceImpl.openSession(req);
+    sessionId = resp.getSessionId();
+    codec = TabletCodec.fromConfiguration(resp.getConfiguration());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    EnvironmentUtils.cleanEnv();
+  }
+
+  @Test
+  public void testInsertEncodedTablet() throws Exception {
+    assertEquals(CompressionType.SNAPPY, codec.getCompressionType());
+    List<MeasurementSchema> schemas = new ArrayList<>();
+    schemas.add(new MeasurementSchema("s1", TSDataType.INT64));
+    schemas.add(new MeasurementSchema("s2", TSDataType.DOUBLE));
+    Tablet tablet = new Tablet("root.sg.d1", schemas, ROW_NUM);
+    for (int row = 0; row < ROW_NUM; row++) {
+      tablet.addTimestamp(row, row + 1L);
+      tablet.addValue("s1", row, row * 2L);
+      tablet.addValue("s2", row, row + 0.5);
+      tablet.rowSize++;
+    }
+
+    TSInsertTabletReq req = new TSInsertTabletReq();
+    req.setSessionId(sessionId);
+    req.setDeviceId(tablet.deviceId);
+    List<String> measurements = new ArrayList<>();
+    List<Integer> types = new ArrayList<>();
+    for (MeasurementSchema schema : schemas) {
+      measurements.add(schema.getMeasurementId());
+      types.add(schema.getType().ordinal());
+    }
+    req.setMeasurements(measurements);
+    req.setTypes(types);
+    req.setSize(tablet.rowSize);
+    req.setTimestamps(codec.encodeTimes(tablet));
+    req.setValues(codec.encodeValues(tablet));
+    assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(),
+        serviceImpl.insertTablet(req).getCode());
+
+    String sql = "select s1, s2 from root.sg.d1";
+    TSExecuteStatementReq queryReq = new TSExecuteStatementReq(sessionId, sql,
+        serviceImpl.requestStatementId(sessionId));
+    queryReq.setFetchSize(ROW_NUM);
+    TSExecuteStatementResp resp = serviceImpl.executeQueryStatement(queryReq);
+    IoTDBRpcDataSet dataSet = new IoTDBRpcDataSet(sql, resp.getColumns(), resp.getDataTypeList(),
+        resp.getColumnNameIndexMap(), resp.isIgnoreTimeStamp(), resp.getQueryId(), serviceImpl,
+        sessionId, resp.getQueryDataSet(), ROW_NUM);
+    int row = 0;
+    while (dataSet.next()) {
+      assertEquals(row + 1L, dataSet.getLong(IoTDBRpcDataSet.TIMESTAMP_STR));
+      assertEquals(row * 2L, dataSet.getLong("root.sg.d1.s1"));
+      assertEquals(row + 0.5, dataSet.getDouble("root.sg.d1.s2"), 0);
+      row++;
+    }
+    dataSet.close();
+    assertEquals(ROW_NUM, row);
+  }
+}
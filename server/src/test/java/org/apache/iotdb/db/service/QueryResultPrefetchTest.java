@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.query.pool.QueryResultPrefetcher;
+import org.apache.iotdb.db.query.pool.QueryTaskPoolManager;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.rpc.IoTDBRpcDataSet;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.TSCloseOperationReq;
+import org.apache.iotdb.service.rpc.thrift.TSExecuteStatementReq;
+import org.apache.iotdb.service.rpc.thrift.TSExecuteStatementResp;
+import org.apache.iotdb.service.rpc.thrift.TSOpenSessionReq;
+import org.apache.iotdb.service.rpc.thrift.TSProtocolVersion;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryResultPrefetchTest {
+
+  private static final int FETCH_SIZE = 64;
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private int prevQueryThread;
+  private boolean prevEnablePrefetch;
+
+  private TSServiceImpl serviceImpl;
+  private long sessionId;
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    prevQueryThread = config.getConcurrentQueryThread();
+    prevEnablePrefetch = config.isEnableQueryResultPrefetch();
+    // prefetching needs at least 2 query threads
+    config.setConcurrentQueryThread(Math.max(2, prevQueryThread));
+    QueryTaskPoolManager.getInstance().stop();
+    QueryTaskPoolManager.getInstance().start();
+
+    serviceImpl = new TSServiceImpl();
+    TSOpenSessionReq req = new TSOpenSessionReq(TSProtocolVersion.IOTDB_SERVICE_PROTOCOL_V3,
+        ZoneId.systemDefault().toString());
+    req.setUsername("root");
+    req.setPassword("root");
+    sessionId = serviceImpl.openSession(req).getSessionId();
+    for (int t = 1; t <= 1000; t++) {
+      execute(String.format("insert into root.sg.d1(timestamp,s1,s2) values(%d,%d,%d.5)", t, t,
+          t));
+      if (t % 300 == 0) {
+        execute("flush");
+      }
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    config.setConcurrentQueryThread(prevQueryThread);
+    config.setEnableQueryResultPrefetch(prevEnablePrefetch);
+    QueryTaskPoolManager.getInstance().stop();
+    QueryTaskPoolManager.getInstance().start();
+    EnvironmentUtils.cleanEnv();
+  }
+
+  @Test
+  public void testFetchPrefetchedResults() throws Exception {
+    String[] sqls = {
+        "select s1, s2 from root.sg.d1",
+        "select s1, s2 from root.sg.d1 where s1 > 100 and s2 < 900",
+        "select s1 from root.sg.d1 where time > 10 order by time desc",
+        "select * from root.sg.d1 align by device",
+    };
+    for (String sql : sqls) {
+      config.setEnableQueryResultPrefetch(false);
+      List<String> expected = query(sql);
+      config.setEnableQueryResultPrefetch(true);
+      assertEquals(sql, expected, query(sql));
+    }
+    assertEquals(0, QueryResultPrefetcher.getUsedMemory());
+  }
+
+  @Test
+  public void testCloseOperation() throws Exception {
+    config.setEnableQueryResultPrefetch(true);
+    long statementId = serviceImpl.requestStatementId(sessionId);
+    TSExecuteStatementResp resp = executeQuery("select s1, s2 from root.sg.d1", statementId);
+    // wait for the prefetched blocks
+    Thread.sleep(100);
+    assertTrue(QueryResultPrefetcher.getUsedMemory() > 0);
+    TSCloseOperationReq req = new TSCloseOperationReq(sessionId);
+    req.setQueryId(resp.getQueryId());
+    assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(),
+        serviceImpl.closeOperation(req).getCode());
+    assertEquals(0, QueryResultPrefetcher.getUsedMemory());
+    // the query can still be executed again
+    assertEquals(1000, query("select s1, s2 from root.sg.d1").size());
+  }
+
+  private List<String> query(String sql) throws Exception {
+    TSExecuteStatementResp resp = executeQuery(sql, serviceImpl.requestStatementId(sessionId));
+    IoTDBRpcDataSet dataSet = new IoTDBRpcDataSet(sql, resp.getColumns(), resp.getDataTypeList(),
+        resp.getColumnNameIndexMap(), resp.isIgnoreTimeStamp(), resp.getQueryId(), serviceImpl,
+        sessionId, resp.getQueryDataSet(), FETCH_SIZE);
+    List<String> rows = new ArrayList<>();
+    while (dataSet.next()) {
+      StringBuilder row = new StringBuilder();
+      for (String column : dataSet.columnNameList) {
+        row.append(dataSet.getValueByName(column)).append(',');
+      }
+      rows.add(row.toString());
+    }
+    dataSet.close();
+    return rows;
+  }
+
+  private TSExecuteStatementResp executeQuery(String sql, long statementId) {
+    TSExecuteStatementReq req = new TSExecuteStatementReq(sessionId, sql, statementId);
+    req.setFetchSize(FETCH_SIZE);
+    TSExecuteStatementResp resp = serviceImpl.executeQueryStatement(req);
+    assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), resp.getStatus().getCode());
+    assertTrue(resp.isSetQueryDataSet());
+    return resp;
+  }
+
+  private void execute(String sql) {
+    TSExecuteStatementReq req = new TSExecuteStatementReq(sessionId, sql,
+        serviceImpl.requestStatementId(sessionId));
+    assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(),
+        serviceImpl.executeStatement(req).getStatus().getCode());
+  }
+}
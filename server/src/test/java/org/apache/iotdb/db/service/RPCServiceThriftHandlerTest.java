@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ServerSocket;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.db.service.thrift.ThriftServiceThread;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.TSCloseSessionReq;
+import org.apache.iotdb.service.rpc.thrift.TSFetchMetadataReq;
+import org.apache.iotdb.service.rpc.thrift.TSIService;
+import org.apache.iotdb.service.rpc.thrift.TSOpenSessionReq;
+import org.apache.iotdb.service.rpc.thrift.TSOpenSessionResp;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TFastFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RPCServiceThriftHandlerTest {
+
+  private static final int CLIENT_NUM = 4;
+
+  private TSServiceImpl serviceImpl;
+  private RPCServiceThriftHandler handler;
+  private ThriftServiceThread serviceThread;
+  private int port;
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.envSetUp();
+    serviceImpl = new TSServiceImpl();
+    handler = new RPCServiceThriftHandler(serviceImpl);
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (serviceThread != null) {
+      serviceThread.close();
+    }
+    EnvironmentUtils.cleanEnv();
+  }
+
+  @Test
+  public void testThreadPoolServer() throws Exception {
+    serviceThread = new ThriftServiceThread(handler.bindSessions(new TSIService.Processor<>(
+        serviceImpl)), "test", "test-client", "127.0.0.1", port, CLIENT_NUM, 60, handler, false);
+    checkClientExit();
+  }
+
+  @Test
+  public void testSelectorServer() throws Exception {
+    // fewer worker threads than clients, so the requests of a client move between the workers
+    serviceThread = new ThriftServiceThread(handler.bindSessions(new TSIService.Processor<>(
+        serviceImpl)), "test", "test-client", "127.0.0.1", port, 1, 2, 60, handler, false);
+    checkClientExit();
+  }
+
+  /**
+   * A client that exits without closing its session only releases its own session, no matter
+   * which thread served its requests.
+   */
+  private void checkClientExit() throws Exception {
+    serviceThread.start();
+    for (int i = 0; i < 100 && !serviceThread.isServing(); i++) {
+      Thread.sleep(50);
+    }
+    assertTrue(serviceThread.isServing());
+
+    List<TTransport> transports = new ArrayList<>();
+    List<TSIService.Client> clients = new ArrayList<>();
+    long[] sessionIds = new long[CLIENT_NUM];
+    for (int i = 0; i < CLIENT_NUM; i++) {
+      TTransport transport = new TFastFramedTransport(new TSocket("127.0.0.1", port));
+      transport.open();
+      transports.add(transport);
+      clients.add(new TSIService.Client(new TBinaryProtocol(transport)));
+    }
+    // interleave the requests of the clients
+    for (int i = 0; i < CLIENT_NUM; i++) {
+      sessionIds[i] = openSession(clients.get(i));
+    }
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < CLIENT_NUM; i++) {
+        assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(),
+            checkSession(clients.get(i), sessionIds[i]));
+      }
+    }
+
+    // client 0 exits without closing its session
+    transports.get(0).close();
+    TSIService.Client survivor = clients.get(CLIENT_NUM - 1);
+    int code = TSStatusCode.SUCCESS_STATUS.getStatusCode();
+    for (int i = 0; i < 100 && code == TSStatusCode.SUCCESS_STATUS.getStatusCode(); i++) {
+      Thread.sleep(50);
+      code = checkSession(survivor, sessionIds[0]);
+    }
+    assertEquals(TSStatusCode.NOT_LOGIN_ERROR.getStatusCode(), code);
+
+    // the sessions of the other clients are still alive
+    for (int i = 1; i < CLIENT_NUM; i++) {
+      assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(),
+          clients.get(i).closeSession(new TSCloseSessionReq(sessionIds[i])).getCode());
+      transports.get(i).close();
+    }
+  }
+
+  private int checkSession(TSIService.Client client, long sessionId) throws TException {
+    return client.fetchMetadata(new TSFetchMetadataReq(sessionId, "METADATA_IN_JSON")).getStatus()
+        .getCode();
+  }
+
+  private long openSession(TSIService.Client client) throws TException {
+    TSOpenSessionReq req = new TSOpenSessionReq();
+    req.setUsername("root");
+    req.setPassword("root");
+    req.setZoneId(ZoneId.systemDefault().toString());
+    TSOpenSessionResp resp = client.openSession(req);
+    assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), resp.getStatus().getCode());
+    return resp.getSessionId();
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.query.dataset.ListDataSet;
+import org.apache.iotdb.rpc.IoTDBRpcDataSet;
+import org.apache.iotdb.rpc.QueryDataSetCodec;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.junit.Test;
+
+public class QueryDataSetCodecTest {
+
+  private static final int ROW_NUM = 1000;
+  private static final String DEVICE = "root.sg.d";
+  private static final String[] MEASUREMENTS = {"s0", "s1", "s2", "s3", "s4", "s5"};
+  private static final List<TSDataType> DATA_TYPES = Arrays.asList(TSDataType.INT32,
+      TSDataType.INT64, TSDataType.FLOAT, TSDataType.DOUBLE, TSDataType.BOOLEAN, TSDataType.TEXT);
+
+  @Test
+  public void testEncodeAndDecode() throws IOException, IllegalPathException {
+    TSQueryDataSet plain = QueryDataSetUtils
+        .convertQueryDataSetByFetchSize(createDataSet(ROW_NUM), ROW_NUM);
+    for (CompressionType compressionType : new CompressionType[]{CompressionType.UNCOMPRESSED,
+        CompressionType.SNAPPY, CompressionType.LZ4}) {
+      QueryDataSetCodec codec = new QueryDataSetCodec(compressionType);
+      TSQueryDataSet encoded = codec.encode(QueryDataSetUtils
+          .convertQueryDataSetByFetchSize(createDataSet(ROW_NUM), ROW_NUM), DATA_TYPES);
+      assertTrue(sizeOf(encoded) < sizeOf(plain));
+
+      TSQueryDataSet decoded = codec.decode(encoded, DATA_TYPES);
+      assertEquals(plain.time, decoded.time);
+      assertEquals(plain.valueList, decoded.valueList);
+      assertEquals(plain.bitmapList, decoded.bitmapList);
+    }
+  }
+
+  @Test
+  public void testEmptyDataSet() throws IOException, IllegalPathException {
+    QueryDataSetCodec codec = new QueryDataSetCodec(CompressionType.SNAPPY);
+    TSQueryDataSet encoded = codec.encode(QueryDataSetUtils
+        .convertQueryDataSetByFetchSize(createDataSet(0), ROW_NUM), DATA_TYPES);
+    // an empty time buffer means that the query has no more results
+    assertFalse(encoded.time.hasRemaining());
+    assertFalse(codec.decode(encoded, DATA_TYPES).time.hasRemaining());
+  }
+
+  @Test
+  public void testNegotiation() {
+    assertEquals(null, QueryDataSetCodec.fromConfiguration(null));
+    QueryDataSetCodec codec = QueryDataSetCodec
+        .fromConfiguration(new QueryDataSetCodec(CompressionType.LZ4).toConfiguration());
+    assertEquals(CompressionType.LZ4, codec.getCompressionType());
+    // compressors that can not compress a byte array are not used
+    codec = QueryDataSetCodec
+        .fromConfiguration(new QueryDataSetCodec(CompressionType.GZIP).toConfiguration());
+    assertEquals(CompressionType.UNCOMPRESSED, codec.getCompressionType());
+  }
+
+  @Test
+  public void testReadEncodedResult()
+      throws IOException, IllegalPathException, StatementExecutionException {
+    QueryDataSetCodec codec = new QueryDataSetCodec(CompressionType.SNAPPY);
+    TSQueryDataSet encoded = codec.encode(QueryDataSetUtils
+        .convertQueryDataSetByFetchSize(createDataSet(ROW_NUM), ROW_NUM), DATA_TYPES);
+    List<String> columnNames = new ArrayList<>();
+    List<String> columnTypes = new ArrayList<>();
+    for (int i = 0; i < MEASUREMENTS.length; i++) {
+      columnNames.add(DEVICE + "." + MEASUREMENTS[i]);
+      columnTypes.add(DATA_TYPES.get(i).name());
+    }
+    IoTDBRpcDataSet rpcDataSet = new IoTDBRpcDataSet("", columnNames, columnTypes, null, false, 0,
+        null, 0, encoded, ROW_NUM, codec);
+
+    int row = 0;
+    while (rpcDataSet.hasCachedResults()) {
+      rpcDataSet.constructOneRow();
+      assertEquals(row * 1000L, rpcDataSet.getLong(IoTDBRpcDataSet.TIMESTAMP_STR));
+      assertEquals(row % 10, rpcDataSet.getInt(columnNames.get(0)));
+      assertEquals(row * 3L, rpcDataSet.getLong(columnNames.get(1)));
+      assertEquals(row * 0.5f, rpcDataSet.getFloat(columnNames.get(2)), 0);
+      if (row % 7 == 0) {
+        assertTrue(rpcDataSet.isNull(columnNames.get(3)));
+      } else {
+        assertEquals(Math.sin(row), rpcDataSet.getDouble(columnNames.get(3)), 0);
+      }
+      assertEquals(row % 3 == 0, rpcDataSet.getBoolean(columnNames.get(4)));
+      assertEquals("v" + row, rpcDataSet.getString(columnNames.get(5)));
+      row++;
+    }
+    assertEquals(ROW_NUM, row);
+  }
+
+  private ListDataSet createDataSet(int rowNum) throws IllegalPathException {
+    List<PartialPath> paths = new ArrayList<>();
+    for (String measurement : MEASUREMENTS) {
+      paths.add(new PartialPath(DEVICE + "." + measurement));
+    }
+    ListDataSet dataSet = new ListDataSet(paths, DATA_TYPES);
+    for (int i = 0; i < rowNum; i++) {
+      RowRecord record = new RowRecord(i * 1000L);
+      record.addField(i % 10, TSDataType.INT32);
+      record.addField(i * 3L, TSDataType.INT64);
+      record.addField(i * 0.5f, TSDataType.FLOAT);
+      if (i % 7 == 0) {
+        record.addField(new Field(null));
+      } else {
+        record.addField(Math.sin(i), TSDataType.DOUBLE);
+      }
+      record.addField(i % 3 == 0, TSDataType.BOOLEAN);
+      record.addField(Binary.valueOf("v" + i), TSDataType.TEXT);
+      dataSet.putRecord(record);
+    }
+    return dataSet;
+  }
+
+  private static int sizeOf(TSQueryDataSet dataSet) {
+    int size = dataSet.time.remaining();
+    for (ByteBuffer buffer : dataSet.valueList) {
+      size += buffer.remaining();
+    }
+    for (ByteBuffer buffer : dataSet.bitmapList) {
+      size += buffer.remaining();
+    }
+    return size;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.rpc.TabletCodec;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.Test;
+
+public class TabletCodecTest {
+
+  private static final int ROW_NUM = 1000;
+  private static final TSDataType[] DATA_TYPES = {TSDataType.INT32, TSDataType.INT64,
+      TSDataType.FLOAT, TSDataType.DOUBLE, TSDataType.BOOLEAN, TSDataType.TEXT};
+
+  @Test
+  public void testEncodeAndDecode() {
+    Tablet tablet = createTablet();
+    for (CompressionType compressionType : new CompressionType[]{CompressionType.UNCOMPRESSED,
+        CompressionType.SNAPPY, CompressionType.LZ4}) {
+      TabletCodec codec = new TabletCodec(compressionType);
+      ByteBuffer times = codec.encodeTimes(tablet);
+      ByteBuffer values = codec.encodeValues(tablet);
+      // the plain format takes 8 bytes for each time
+      assertTrue(times.remaining() < ROW_NUM * Long.BYTES);
+      assertTrue(values.remaining() < plainValueSize(tablet));
+
+      assertArrayEquals(tablet.timestamps, codec.decodeTimes(times, ROW_NUM));
+      Object[] columns = codec.decodeValues(values, DATA_TYPES, ROW_NUM);
+      assertArrayEquals((int[]) tablet.values[0], (int[]) columns[0]);
+      assertArrayEquals((long[]) tablet.values[1], (long[]) columns[1]);
+      assertArrayEquals((float[]) tablet.values[2], (float[]) columns[2], 0);
+      assertArrayEquals((double[]) tablet.values[3], (double[]) columns[3], 0);
+      assertArrayEquals((boolean[]) tablet.values[4], (boolean[]) columns[4]);
+      assertArrayEquals((Binary[]) tablet.values[5], (Binary[]) columns[5]);
+    }
+  }
+
+  @Test
+  public void testEmptyTablet() {
+    Tablet tablet = createTablet();
+    tablet.reset();
+    TabletCodec codec = new TabletCodec(CompressionType.SNAPPY);
+    assertEquals(0, codec.decodeTimes(codec.encodeTimes(tablet), 0).length);
+    Object[] columns = codec.decodeValues(codec.encodeValues(tablet), DATA_TYPES, 0);
+    assertEquals(DATA_TYPES.length, columns.length);
+    assertEquals(0, ((Binary[]) columns[5]).length);
+  }
+
+  @Test
+  public void testNegotiation() {
+    assertNull(TabletCodec.fromConfiguration(null));
+    TabletCodec codec = TabletCodec
+        .fromConfiguration(new TabletCodec(CompressionType.LZ4).toConfiguration());
+    assertEquals(CompressionType.LZ4, codec.getCompressionType());
+    // compressors that can not compress a byte array are not used
+    codec = TabletCodec.fromConfiguration(new TabletCodec(CompressionType.GZIP).toConfiguration());
+    assertEquals(CompressionType.UNCOMPRESSED, codec.getCompressionType());
+  }
+
+  private Tablet createTablet() {
+    List<MeasurementSchema> schemas = new ArrayList<>();
+    for (int i = 0; i < DATA_TYPES.length; i++) {
+      schemas.add(new MeasurementSchema("s" + i, DATA_TYPES[i]));
+    }
+    Tablet tablet = new Tablet("root.sg.d", schemas, ROW_NUM);
+    for (int row = 0; row < ROW_NUM; row++) {
+      tablet.addTimestamp(row, row * 1000L);
+      tablet.addValue("s0", row, row % 10);
+      tablet.addValue("s1", row, row * 3L);
+      tablet.addValue("s2", row, row * 0.5f);
+      tablet.addValue("s3", row, Math.sin(row));
+      tablet.addValue("s4", row, row % 3 == 0);
+      tablet.addValue("s5", row, Binary.valueOf("v" + row));
+      tablet.rowSize++;
+    }
+    return tablet;
+  }
+
+  private static int plainValueSize(Tablet tablet) {
+    int size = tablet.rowSize * (Integer.BYTES + Long.BYTES + Float.BYTES + Double.BYTES + 1);
+    for (Binary value : (Binary[]) tablet.values[5]) {
+      size += Integer.BYTES + value.getLength();
+    }
+    return size;
+  }
+}
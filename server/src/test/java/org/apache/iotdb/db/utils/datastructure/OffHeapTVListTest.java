@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import static org.apache.iotdb.db.rescon.PrimitiveArrayPool.ARRAY_SIZE;
+
+import java.util.Random;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.rescon.OffHeapPagePool;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OffHeapTVListTest {
+
+  private static final TSDataType[] DATA_TYPES = new TSDataType[]{TSDataType.INT64,
+      TSDataType.INT32, TSDataType.FLOAT, TSDataType.DOUBLE, TSDataType.BOOLEAN};
+
+  @Test
+  public void testNewList() {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    boolean enableOffHeapTVList = config.isEnableOffHeapTVList();
+    try {
+      config.setEnableOffHeapTVList(true);
+      for (TSDataType dataType : DATA_TYPES) {
+        TVList list = TVList.newList(dataType);
+        Assert.assertTrue(list instanceof OffHeapTVList);
+        Assert.assertEquals(dataType, ((OffHeapTVList) list).getDataType());
+      }
+      Assert.assertTrue(TVList.newList(TSDataType.TEXT) instanceof BinaryTVList);
+    } finally {
+      config.setEnableOffHeapTVList(enableOffHeapTVList);
+    }
+  }
+
+  @Test
+  public void testPutAndSort() {
+    Random random = new Random(0);
+    for (TSDataType dataType : DATA_TYPES) {
+      TVList heapList = newHeapList(dataType);
+      TVList offHeapList = OffHeapTVList.newList(dataType);
+      for (int i = 0; i < 10 * ARRAY_SIZE + 3; i++) {
+        long time = random.nextInt(1000);
+        long value = random.nextInt(1000);
+        put(heapList, dataType, time, value);
+        put(offHeapList, dataType, time, value);
+      }
+      assertListEquals(heapList, offHeapList);
+      heapList.sort();
+      offHeapList.sort();
+      assertListEquals(heapList, offHeapList);
+      offHeapList.clear();
+    }
+  }
+
+  @Test
+  public void testPutBatch() {
+    Random random = new Random(1);
+    int length = 3 * ARRAY_SIZE + 5;
+    long[] times = new long[length];
+    long[] longs = new long[length];
+    int[] ints = new int[length];
+    float[] floats = new float[length];
+    double[] doubles = new double[length];
+    boolean[] booleans = new boolean[length];
+    for (int i = 0; i < length; i++) {
+      times[i] = length - i;
+      longs[i] = random.nextLong();
+      ints[i] = random.nextInt();
+      floats[i] = random.nextFloat();
+      doubles[i] = random.nextDouble();
+      booleans[i] = random.nextBoolean();
+    }
+    for (TSDataType dataType : DATA_TYPES) {
+      TVList heapList = newHeapList(dataType);
+      TVList offHeapList = OffHeapTVList.newList(dataType);
+      // start from the middle of a page
+      put(heapList, dataType, 0, 1);
+      put(offHeapList, dataType, 0, 1);
+      for (TVList list : new TVList[]{heapList, offHeapList}) {
+        switch (dataType) {
+          case INT64:
+            list.putLongs(times, longs, 1, length - 1);
+            list.putLongs(times, longs);
+            break;
+          case INT32:
+            list.putInts(times, ints, 1, length - 1);
+            list.putInts(times, ints);
+            break;
+          case FLOAT:
+            list.putFloats(times, floats, 1, length - 1);
+            list.putFloats(times, floats);
+            break;
+          case DOUBLE:
+            list.putDoubles(times, doubles, 1, length - 1);
+            list.putDoubles(times, doubles);
+            break;
+          default:
+            list.putBooleans(times, booleans, 1, length - 1);
+            list.putBooleans(times, booleans);
+            break;
+        }
+      }
+      assertListEquals(heapList, offHeapList);
+      heapList.sort();
+      offHeapList.sort();
+      assertListEquals(heapList, offHeapList);
+
+      // the clone is on heap and keeps the data after the list is cleared
+      TVList cloneList = offHeapList.clone();
+      Assert.assertFalse(cloneList instanceof OffHeapTVList);
+      offHeapList.clear();
+      assertListEquals(heapList, cloneList);
+    }
+  }
+
+  @Test
+  public void testDeleteAndRelease() {
+    for (TSDataType dataType : DATA_TYPES) {
+      TVList heapList = newHeapList(dataType);
+      TVList offHeapList = OffHeapTVList.newList(dataType);
+      for (int i = 0; i < 4 * ARRAY_SIZE; i++) {
+        put(heapList, dataType, i, i);
+        put(offHeapList, dataType, i, i);
+      }
+      Assert.assertEquals(heapList.delete(ARRAY_SIZE, 4 * ARRAY_SIZE),
+          offHeapList.delete(ARRAY_SIZE, 4 * ARRAY_SIZE));
+      assertListEquals(heapList, offHeapList);
+
+      long pooledBytes = OffHeapPagePool.getInstance().getPooledBytes();
+      offHeapList.clear();
+      Assert.assertEquals(0, offHeapList.size());
+      Assert.assertTrue(OffHeapPagePool.getInstance().getPooledBytes() > pooledBytes);
+    }
+  }
+
+  private static TVList newHeapList(TSDataType dataType) {
+    switch (dataType) {
+      case INT64:
+        return new LongTVList();
+      case INT32:
+        return new IntTVList();
+      case FLOAT:
+        return new FloatTVList();
+      case DOUBLE:
+        return new DoubleTVList();
+      default:
+        return new BooleanTVList();
+    }
+  }
+
+  private static void put(TVList list, TSDataType dataType, long time, long value) {
+    switch (dataType) {
+      case INT64:
+        list.putLong(time, value);
+        break;
+      case INT32:
+        list.putInt(time, (int) value);
+        break;
+      case FLOAT:
+        list.putFloat(time, value / 3.0f);
+        break;
+      case DOUBLE:
+        list.putDouble(time, value / 3.0);
+        break;
+      default:
+        list.putBoolean(time, value % 2 == 0);
+        break;
+    }
+  }
+
+  private static void assertListEquals(TVList expected, TVList actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(expected.getTime(i), actual.getTime(i));
+      Assert.assertEquals(expected.getTimeValuePair(i), actual.getTimeValuePair(i));
+    }
+  }
+}
@@ -43,6 +43,7 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
 
 @Ignore
 public class PerformanceTest {
@@ -118,6 +119,60 @@ public class PerformanceTest {
     config.setForceWalPeriodInMs(oldForceCycle);
   }
 
+  @Test
+  public void groupCommitTest() throws InterruptedException {
+    // this test insert 100000 logs with force_wal_period_in_ms = 0 from several threads, with and
+    // without group commit, and report elapsed time
+    if (skip) {
+      return;
+    }
+    int[] threadNums = new int[]{1, 4, 16, 64};
+    int logNum = 100000;
+    int oldBatchSize = config.getFlushWalThreshold();
+    long oldForceCycle = config.getForceWalPeriodInMs();
+    boolean oldGroupCommit = config.isEnableWalGroupCommit();
+    config.setForceWalPeriodInMs(0);
+    for (boolean groupCommit : new boolean[]{false, true}) {
+      config.setEnableWalGroupCommit(groupCommit);
+      for (int threadNum : threadNums) {
+        // write one log at a time so that every write is forced without group commit
+        config.setFlushWalThreshold(1);
+        WriteLogNode logNode = new ExclusiveWriteLogNode("root.testLogNode");
+        CountDownLatch latch = new CountDownLatch(threadNum);
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < threadNum; i++) {
+          new Thread(() -> {
+            try {
+              for (int j = 0; j < logNum / threadNum; j++) {
+                logNode.write(new InsertRowPlan(new PartialPath("root.testLogNode"), j,
+                    new String[]{"s1", "s2", "s3", "s4"},
+                    new TSDataType[]{TSDataType.DOUBLE, TSDataType.INT64, TSDataType.TEXT,
+                        TSDataType.BOOLEAN},
+                    new String[]{"1.0", "15", "str", "false"}));
+              }
+            } catch (IOException | IllegalPathException e) {
+              e.printStackTrace();
+            } finally {
+              latch.countDown();
+            }
+          }).start();
+        }
+        latch.await();
+        System.out.println(
+            logNum + " logs use " + (System.currentTimeMillis() - time) + " ms with " + threadNum
+                + " threads, group commit: " + groupCommit);
+        try {
+          logNode.delete();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+    config.setFlushWalThreshold(oldBatchSize);
+    config.setForceWalPeriodInMs(oldForceCycle);
+    config.setEnableWalGroupCommit(oldGroupCommit);
+  }
+
   @Test
   public void recoverTest()
       throws IOException, MetadataException, WriteProcessException {
@@ -25,7 +25,11 @@ import static junit.framework.TestCase.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.metadata.IllegalPathException;
@@ -237,4 +241,96 @@ public class WriteLogNodeTest {
 
     logNode.delete();
   }
+
+  @Test
+  public void testGroupCommit() throws Exception {
+    // this test writes logs from several threads with group commit enabled, every write should be
+    // in the log file once it returns, then reads all logs back after a log file switch
+    boolean enableWalGroupCommit = config.isEnableWalGroupCommit();
+    int walBufferSize = config.getWalBufferSize();
+    config.setEnableWalGroupCommit(true);
+    // small buffers so that the appending buffer is also swapped out when it is full
+    config.setWalBufferSize(16 * 1024);
+    String identifier = "root.logTestDevice.groupCommit";
+    WriteLogNode logNode = new ExclusiveWriteLogNode(identifier);
+    File walFile = new File(
+        config.getWalDir() + File.separator + identifier + File.separator + "wal1");
+    int threadNum = 4;
+    int logNumPerThread = 1000;
+    ExecutorService pool = Executors.newFixedThreadPool(threadNum);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < threadNum; i++) {
+        int threadId = i;
+        futures.add(pool.submit(() -> {
+          for (int j = 0; j < logNumPerThread; j++) {
+            long fileLength = walFile.length();
+            logNode.write(new InsertRowPlan(new PartialPath(identifier), j,
+                new String[]{"s" + threadId}, new TSDataType[]{TSDataType.INT64},
+                new String[]{String.valueOf(j)}));
+            assertTrue(walFile.length() > fileLength);
+          }
+          return null;
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+
+      logNode.notifyStartFlush();
+      logNode.write(new DeletePlan(Long.MIN_VALUE, 50, new PartialPath(identifier + ".s0")));
+      logNode.close();
+
+      int[] logNums = new int[threadNum];
+      ILogReader reader = logNode.getLogReader();
+      for (int i = 0; i < threadNum * logNumPerThread; i++) {
+        InsertRowPlan plan = (InsertRowPlan) reader.next();
+        int threadId = Integer.parseInt(plan.getMeasurements()[0].substring(1));
+        // logs of the same thread are in order
+        assertEquals(logNums[threadId]++, plan.getTime());
+      }
+      assertTrue(reader.next() instanceof DeletePlan);
+      assertFalse(reader.hasNext());
+      reader.close();
+    } finally {
+      pool.shutdownNow();
+      logNode.delete();
+      config.setEnableWalGroupCommit(enableWalGroupCommit);
+      config.setWalBufferSize(walBufferSize);
+    }
+  }
+
+  @Test
+  public void testGroupCommitLargeLog() throws Exception {
+    // a log larger than half of wal_buffer_size fits with group commit as it does without
+    boolean enableWalGroupCommit = config.isEnableWalGroupCommit();
+    int walBufferSize = config.getWalBufferSize();
+    config.setEnableWalGroupCommit(true);
+    config.setWalBufferSize(16 * 1024);
+    String identifier = "root.logTestDevice.groupCommitLargeLog";
+    WriteLogNode logNode = new ExclusiveWriteLogNode(identifier);
+    try {
+      char[] chars = new char[config.getWalBufferSize() * 3 / 4];
+      Arrays.fill(chars, 'a');
+      String value = new String(chars);
+      for (int i = 0; i < 3; i++) {
+        logNode.write(new InsertRowPlan(new PartialPath(identifier), i, new String[]{"s0"},
+            new TSDataType[]{TSDataType.TEXT}, new String[]{value}));
+      }
+      logNode.close();
+
+      ILogReader reader = logNode.getLogReader();
+      for (int i = 0; i < 3; i++) {
+        InsertRowPlan plan = (InsertRowPlan) reader.next();
+        assertEquals(i, plan.getTime());
+        assertEquals(value, plan.getValues()[0].toString());
+      }
+      assertFalse(reader.hasNext());
+      reader.close();
+    } finally {
+      logNode.delete();
+      config.setEnableWalGroupCommit(enableWalGroupCommit);
+      config.setWalBufferSize(walBufferSize);
+    }
+  }
 }
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.writelog.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+
+public class CRC32CChecksumTest {
+
+  @Test
+  public void testKnownValue() {
+    CRC32CChecksum checksum = new CRC32CChecksum();
+    byte[] bytes = "123456789".getBytes(StandardCharsets.US_ASCII);
+    checksum.update(bytes, 0, bytes.length);
+    assertEquals(0xE3069283L, checksum.getValue());
+
+    checksum.reset();
+    for (byte b : bytes) {
+      checksum.update(b);
+    }
+    assertEquals(0xE3069283L, checksum.getValue());
+  }
+
+  @Test
+  public void testBuffers() {
+    byte[] bytes = new byte[1027];
+    new Random(1).nextBytes(bytes);
+    CRC32CChecksum checksum = new CRC32CChecksum();
+    for (int offset = 0; offset < 9; offset++) {
+      checksum.reset();
+      for (int i = offset; i < bytes.length; i++) {
+        checksum.update(bytes[i]);
+      }
+      long expected = checksum.getValue();
+
+      checksum.reset();
+      ByteBuffer heapBuffer = ByteBuffer.wrap(bytes);
+      heapBuffer.position(offset);
+      checksum.update(heapBuffer.slice());
+      assertEquals(expected, checksum.getValue());
+
+      checksum.reset();
+      ByteBuffer directBuffer = ByteBuffer.allocateDirect(bytes.length);
+      directBuffer.put(bytes);
+      directBuffer.position(offset);
+      checksum.update(directBuffer);
+      assertEquals(expected, checksum.getValue());
+      assertEquals(directBuffer.limit(), directBuffer.position());
+    }
+  }
+}
@@ -20,12 +20,18 @@
 package org.apache.iotdb.db.writelog.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.metadata.IllegalPathException;
 import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.db.qp.physical.PhysicalPlan;
@@ -83,4 +89,67 @@ public class LogWriterReaderTest {
       new File(filePath).delete();
     }
   }
+
+  @Test
+  public void testPreallocatedWriteAndRead() throws IOException {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    String crashedFilePath = filePath + ".crashed";
+    long walSegmentSize = config.getWalSegmentSize();
+    config.setWalSegmentSize(1024);
+    try {
+      PreallocatedLogWriter writer = new PreallocatedLogWriter(filePath);
+      writer.write(logsBuffer);
+      logsBuffer.position(logsBuffer.limit());
+      writer.force();
+      // the file is preallocated in segments
+      assertEquals(1024, new File(filePath).length());
+      // keep the file with its zero tail as if the writer crashed before it is closed
+      Files.copy(new File(filePath).toPath(), new File(crashedFilePath).toPath());
+      writer.close();
+      new File(filePath).delete();
+      new File(crashedFilePath).renameTo(new File(filePath));
+
+      // a new writer continues after the logs of the crashed writer
+      writer = new PreallocatedLogWriter(filePath);
+      writer.write(logsBuffer);
+      writer.close();
+      int recordSize = PreallocatedLogWriter.RECORD_HEADER_SIZE + logsBuffer.limit();
+      // the unused tail is released
+      assertEquals(PreallocatedLogWriter.MAGIC_SIZE + 2 * recordSize, new File(filePath).length());
+
+      SingleFileLogReader reader = new SingleFileLogReader(new File(filePath));
+      List<PhysicalPlan> res = new ArrayList<>();
+      while (reader.hasNext()) {
+        res.add(reader.next());
+      }
+      reader.close();
+      assertFalse(reader.isFileCorrupted());
+      assertEquals(2 * plans.size(), res.size());
+      for (int i = 0; i < res.size(); i++) {
+        assertEquals(plans.get(i % plans.size()), res.get(i));
+      }
+
+      // break the second log batch
+      try (RandomAccessFile file = new RandomAccessFile(filePath, "rw")) {
+        long pos = PreallocatedLogWriter.MAGIC_SIZE + recordSize
+            + PreallocatedLogWriter.RECORD_HEADER_SIZE;
+        file.seek(pos);
+        int b = file.read();
+        file.seek(pos);
+        file.write(b + 1);
+      }
+      reader = new SingleFileLogReader(new File(filePath));
+      res.clear();
+      while (reader.hasNext()) {
+        res.add(reader.next());
+      }
+      reader.close();
+      assertTrue(reader.isFileCorrupted());
+      assertEquals(plans, res);
+    } finally {
+      config.setWalSegmentSize(walSegmentSize);
+      new File(filePath).delete();
+      new File(crashedFilePath).delete();
+    }
+  }
 }
@@ -70,13 +70,24 @@ public class IoTDBRpcDataSet {
   public byte[] time; // used to cache the current time value
   public byte[] currentBitmap; // used to cache the current bitmap for every column
   public static final int FLAG = 0x80; // used to do `and` operation with bitmap to judge whether the value is null
+  // decodes the fetched data sets, null if the session transfers the results in the plain format
+  public QueryDataSetCodec resultCodec;
 
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   public IoTDBRpcDataSet(String sql, List<String> columnNameList, List<String> columnTypeList,
       Map<String, Integer> columnNameIndex, boolean ignoreTimeStamp,
       long queryId, TSIService.Iface client, long sessionId, TSQueryDataSet queryDataSet,
       int fetchSize) {
+    this(sql, columnNameList, columnTypeList, columnNameIndex, ignoreTimeStamp, queryId, client,
+        sessionId, queryDataSet, fetchSize, null);
+  }
+
+  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  public IoTDBRpcDataSet(String sql, List<String> columnNameList, List<String> columnTypeList,
+      Map<String, Integer> columnNameIndex, boolean ignoreTimeStamp,
+      long queryId, TSIService.Iface client, long sessionId, TSQueryDataSet queryDataSet,
+      int fetchSize, QueryDataSetCodec resultCodec) {
     this.sessionId = sessionId;
+    this.resultCodec = resultCodec;
     this.ignoreTimeStamp = ignoreTimeStamp;
     this.sql = sql;
     this.queryId = queryId;
@@ -156,7 +167,14 @@ public class IoTDBRpcDataSet {
                   .format("Data type %s is not supported.", columnTypeDeduplicatedList.get(i)));
       }
     }
-    this.tsQueryDataSet = queryDataSet;
+    this.tsQueryDataSet = decode(queryDataSet);
+  }
+
+  private TSQueryDataSet decode(TSQueryDataSet queryDataSet) {
+    if (resultCodec == null || queryDataSet == null) {
+      return queryDataSet;
+    }
+    return resultCodec.decode(queryDataSet, columnTypeDeduplicatedList);
   }
 
   public void close() throws StatementExecutionException, TException {
@@ -205,7 +223,7 @@ public class IoTDBRpcDataSet {
       if (!resp.hasResultSet) {
         emptyResultSet = true;
       } else {
-        tsQueryDataSet = resp.getQueryDataSet();
+        tsQueryDataSet = decode(resp.getQueryDataSet());
       }
       return resp.hasResultSet;
     } catch (TException e) {
@@ -426,6 +444,6 @@ public class IoTDBRpcDataSet {
   }
 
   public void setTsQueryDataSet(TSQueryDataSet tsQueryDataSet) {
-    this.tsQueryDataSet = tsQueryDataSet;
+    this.tsQueryDataSet = decode(tsQueryDataSet);
   }
 }
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.rpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
+import org.apache.iotdb.tsfile.encoding.encoder.Encoder;
+import org.apache.iotdb.tsfile.encoding.encoder.TSEncodingBuilder;
+import org.apache.iotdb.tsfile.exception.encoding.TsFileDecodingException;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+
+/**
+ * Encodes the columns of a TSQueryDataSet before it is sent, and decodes them back into the plain
+ * layout that IoTDBRpcDataSet reads. The time column is encoded by TS_2DIFF, the INT32, INT64 and
+ * BOOLEAN columns by RLE and the FLOAT and DOUBLE columns by GORILLA, which are all lossless,
+ * while the TEXT columns stay plain. Every buffer, including the bitmaps, is then compressed by
+ * the negotiated compressor, if any, and prefixed with its uncompressed size.
+ *
+ * <p>A client asks for the format by putting {@link #RESULT_FORMAT} and {@link
+ * #RESULT_COMPRESSOR} into the configuration of its TSOpenSessionReq, and uses the format only if
+ * the server returns them in the configuration of the TSOpenSessionResp. So a new client still
+ * reads plain results from an old server, and an old client from a new server.
+ */
+public class QueryDataSetCodec {
+
+  public static final String RESULT_FORMAT = "query_result_format";
+  public static final String RESULT_COMPRESSOR = "query_result_compressor";
+  public static final String ENCODED_FORMAT = "ENCODED";
+
+  private final CompressionType compressionType;
+
+  /**
+   * @param compressionType UNCOMPRESSED, SNAPPY or LZ4, others are replaced by UNCOMPRESSED
+   */
+  public QueryDataSetCodec(CompressionType compressionType) {
+    this.compressionType = isSupported(compressionType) ? compressionType
+        : CompressionType.UNCOMPRESSED;
+  }
+
+  public CompressionType getCompressionType() {
+    return compressionType;
+  }
+
+  static boolean isSupported(CompressionType compressionType) {
+    return compressionType == CompressionType.UNCOMPRESSED
+        || compressionType == CompressionType.SNAPPY || compressionType == CompressionType.LZ4;
+  }
+
+  /**
+   * @return the codec asked for or agreed on in the configuration of a TSOpenSessionReq or a
+   * TSOpenSessionResp, or null if the results are transferred in the plain format
+   */
+  public static QueryDataSetCodec fromConfiguration(Map<String, String> configuration) {
+    if (configuration == null || !ENCODED_FORMAT.equals(configuration.get(RESULT_FORMAT))) {
+      return null;
+    }
+    CompressionType compressionType = CompressionType.UNCOMPRESSED;
+    String compressor = configuration.get(RESULT_COMPRESSOR);
+    if (compressor != null) {
+      try {
+        compressionType = CompressionType.valueOf(compressor);
+      } catch (IllegalArgumentException e) {
+        // an unknown compressor is replaced by UNCOMPRESSED, which the server tells the client
+      }
+    }
+    return new QueryDataSetCodec(compressionType);
+  }
+
+  public Map<String, String> toConfiguration() {
+    Map<String, String> configuration = new HashMap<>();
+    configuration.put(RESULT_FORMAT, ENCODED_FORMAT);
+    configuration.put(RESULT_COMPRESSOR, compressionType.name());
+    return configuration;
+  }
+
+  /**
+   * @param dataSet   a data set in the plain layout
+   * @param dataTypes the data types of the value columns
+   */
+  public TSQueryDataSet encode(TSQueryDataSet dataSet, List<TSDataType> dataTypes)
+      throws IOException {
+    ICompressor compressor = ICompressor.getCompressor(compressionType);
+    TSQueryDataSet encoded = new TSQueryDataSet();
+    encoded.setTime(compress(compressionType, compressor, encodeTimes(dataSet.time)));
+
+    List<ByteBuffer> valueList = new ArrayList<>(dataTypes.size());
+    List<ByteBuffer> bitmapList = new ArrayList<>(dataTypes.size());
+    for (int i = 0; i < dataTypes.size(); i++) {
+      valueList.add(compress(compressionType, compressor,
+          encodeValues(dataSet.valueList.get(i), dataTypes.get(i))));
+      bitmapList.add(compress(compressionType, compressor, toBytes(dataSet.bitmapList.get(i))));
+    }
+    encoded.setValueList(valueList);
+    encoded.setBitmapList(bitmapList);
+    return encoded;
+  }
+
+  /**
+   * @param dataSet   a data set returned by {@link #encode(TSQueryDataSet, List)}
+   * @param dataTypes the data types of the value columns
+   * @return the data set in the plain layout
+   */
+  public TSQueryDataSet decode(TSQueryDataSet dataSet, List<TSDataType> dataTypes) {
+    try {
+      IUnCompressor unCompressor = IUnCompressor.getUnCompressor(compressionType);
+      TSQueryDataSet decoded = new TSQueryDataSet();
+      decoded.setTime(decodeTimes(uncompress(compressionType, unCompressor, dataSet.time)));
+
+      List<ByteBuffer> valueList = new ArrayList<>(dataTypes.size());
+      List<ByteBuffer> bitmapList = new ArrayList<>(dataTypes.size());
+      for (int i = 0; i < dataTypes.size(); i++) {
+        valueList.add(decodeValues(
+            uncompress(compressionType, unCompressor, dataSet.valueList.get(i)), dataTypes.get(i)));
+        bitmapList.add(uncompress(compressionType, unCompressor, dataSet.bitmapList.get(i)));
+      }
+      decoded.setValueList(valueList);
+      decoded.setBitmapList(bitmapList);
+      return decoded;
+    } catch (IOException e) {
+      throw new TsFileDecodingException("Cannot decode the query result", e);
+    }
+  }
+
+  private static byte[] encodeTimes(ByteBuffer times) throws IOException {
+    ByteBuffer buffer = times.duplicate();
+    if (!buffer.hasRemaining()) {
+      return new byte[0];
+    }
+    Encoder encoder = TSEncodingBuilder.getEncodingBuilder(TSEncoding.TS_2DIFF)
+        .getEncoder(TSDataType.INT64);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(buffer.remaining() / 4);
+    while (buffer.hasRemaining()) {
+      encoder.encode(buffer.getLong(), out);
+    }
+    encoder.flush(out);
+    return out.toByteArray();
+  }
+
+  private static ByteBuffer decodeTimes(ByteBuffer encoded) throws IOException {
+    if (!encoded.hasRemaining()) {
+      return encoded;
+    }
+    Decoder decoder = Decoder.getDecoderByType(TSEncoding.TS_2DIFF, TSDataType.INT64);
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(
+        encoded.remaining() * 4);
+    DataOutputStream out = new DataOutputStream(byteArrayOutputStream);
+    while (decoder.hasNext(encoded)) {
+      out.writeLong(decoder.readLong(encoded));
+    }
+    return ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
+  }
+
+  static TSEncoding getEncoding(TSDataType dataType) {
+    switch (dataType) {
+      case BOOLEAN:
+      case INT32:
+      case INT64:
+        return TSEncoding.RLE;
+      case FLOAT:
+      case DOUBLE:
+        return TSEncoding.GORILLA;
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", dataType));
+    }
+  }
+
+  private static byte[] encodeValues(ByteBuffer values, TSDataType dataType) throws IOException {
+    ByteBuffer buffer = values.duplicate();
+    if (dataType == TSDataType.TEXT || !buffer.hasRemaining()) {
+      return toBytes(buffer);
+    }
+    Encoder encoder = TSEncodingBuilder.getEncodingBuilder(getEncoding(dataType))
+        .getEncoder(dataType);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(buffer.remaining() / 2);
+    while (buffer.hasRemaining()) {
+      switch (dataType) {
+        case BOOLEAN:
+          encoder.encode(buffer.get() != 0, out);
+          break;
+        case INT32:
+          encoder.encode(buffer.getInt(), out);
+          break;
+        case INT64:
+          encoder.encode(buffer.getLong(), out);
+          break;
+        case FLOAT:
+          encoder.encode(buffer.getFloat(), out);
+          break;
+        case DOUBLE:
+          encoder.encode(buffer.getDouble(), out);
+          break;
+        default:
+          throw new UnSupportedDataTypeException(
+              String.format("Data type %s is not supported.", dataType));
+      }
+    }
+    encoder.flush(out);
+    return out.toByteArray();
+  }
+
+  private static ByteBuffer decodeValues(ByteBuffer encoded, TSDataType dataType)
+      throws IOException {
+    if (dataType == TSDataType.TEXT || !encoded.hasRemaining()) {
+      return encoded;
+    }
+    Decoder decoder = Decoder.getDecoderByType(getEncoding(dataType), dataType);
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(
+        encoded.remaining() * 2);
+    DataOutputStream out = new DataOutputStream(byteArrayOutputStream);
+    while (decoder.hasNext(encoded)) {
+      switch (dataType) {
+        case BOOLEAN:
+          out.writeBoolean(decoder.readBoolean(encoded));
+          break;
+        case INT32:
+          out.writeInt(decoder.readInt(encoded));
+          break;
+        case INT64:
+          out.writeLong(decoder.readLong(encoded));
+          break;
+        case FLOAT:
+          out.writeFloat(decoder.readFloat(encoded));
+          break;
+        case DOUBLE:
+          out.writeDouble(decoder.readDouble(encoded));
+          break;
+        default:
+          throw new UnSupportedDataTypeException(
+              String.format("Data type %s is not supported.", dataType));
+      }
+    }
+    return ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
+  }
+
+  /**
+   * @return the data compressed and prefixed with its size, or the data itself if it is empty or
+   * not compressed
+   */
+  static ByteBuffer compress(CompressionType compressionType, ICompressor compressor, byte[] data)
+      throws IOException {
+    // an empty time buffer tells the client that there are no more results
+    if (compressionType == CompressionType.UNCOMPRESSED || data.length == 0) {
+      return ByteBuffer.wrap(data);
+    }
+    byte[] compressed = compressor.compress(data);
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + compressed.length);
+    buffer.putInt(data.length);
+    buffer.put(compressed);
+    buffer.flip();
+    return buffer;
+  }
+
+  static ByteBuffer uncompress(CompressionType compressionType, IUnCompressor unCompressor,
+      ByteBuffer buffer) throws IOException {
+    if (compressionType == CompressionType.UNCOMPRESSED || !buffer.hasRemaining()) {
+      return buffer;
+    }
+    ByteBuffer compressed = buffer.duplicate();
+    byte[] uncompressed = new byte[compressed.getInt()];
+    byte[] data = toBytes(compressed);
+    unCompressor.uncompress(data, 0, data.length, uncompressed, 0);
+    return ByteBuffer.wrap(uncompressed);
+  }
+
+  static byte[] toBytes(ByteBuffer buffer) {
+    ByteBuffer duplicate = buffer.duplicate();
+    byte[] bytes = new byte[duplicate.remaining()];
+    duplicate.get(bytes);
+    return bytes;
+  }
+}
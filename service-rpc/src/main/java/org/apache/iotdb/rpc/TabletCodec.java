@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.rpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
+import org.apache.iotdb.tsfile.encoding.encoder.Encoder;
+import org.apache.iotdb.tsfile.encoding.encoder.TSEncodingBuilder;
+import org.apache.iotdb.tsfile.exception.encoding.TsFileDecodingException;
+import org.apache.iotdb.tsfile.exception.encoding.TsFileEncodingException;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+/**
+ * Encodes the times and the values of a Tablet before they are sent by insertTablet(s), and
+ * decodes them on the server straight into the column arrays of an InsertTabletPlan. The times
+ * are encoded by TS_2DIFF, the INT32, INT64 and BOOLEAN columns by RLE and the FLOAT and DOUBLE
+ * columns by GORILLA, while the TEXT columns stay plain. Each column in the value buffer is
+ * prefixed with its encoded size. The time buffer and the value buffer are then compressed by the
+ * negotiated compressor, if any, and prefixed with their uncompressed sizes.
+ *
+ * <p>Like {@link QueryDataSetCodec}, a client asks for the format by putting {@link
+ * #TABLET_FORMAT} and {@link #TABLET_COMPRESSOR} into the configuration of its TSOpenSessionReq,
+ * and encodes its tablets only if the server returns them in the configuration of the
+ * TSOpenSessionResp.
+ */
+public class TabletCodec {
+
+  public static final String TABLET_FORMAT = "insert_tablet_format";
+  public static final String TABLET_COMPRESSOR = "insert_tablet_compressor";
+
+  private final CompressionType compressionType;
+
+  /**
+   * @param compressionType UNCOMPRESSED, SNAPPY or LZ4, others are replaced by UNCOMPRESSED
+   */
+  public TabletCodec(CompressionType compressionType) {
+    this.compressionType = QueryDataSetCodec.isSupported(compressionType) ? compressionType
+        : CompressionType.UNCOMPRESSED;
+  }
+
+  public CompressionType getCompressionType() {
+    return compressionType;
+  }
+
+  /**
+   * @return the codec asked for or agreed on in the configuration of a TSOpenSessionReq or a
+   * TSOpenSessionResp, or null if the tablets are sent in the plain format
+   */
+  public static TabletCodec fromConfiguration(Map<String, String> configuration) {
+    if (configuration == null
+        || !QueryDataSetCodec.ENCODED_FORMAT.equals(configuration.get(TABLET_FORMAT))) {
+      return null;
+    }
+    CompressionType compressionType = CompressionType.UNCOMPRESSED;
+    String compressor = configuration.get(TABLET_COMPRESSOR);
+    if (compressor != null) {
+      try {
+        compressionType = CompressionType.valueOf(compressor);
+      } catch (IllegalArgumentException e) {
+        // an unknown compressor is replaced by UNCOMPRESSED, which the server tells the client
+      }
+    }
+    return new TabletCodec(compressionType);
+  }
+
+  public Map<String, String> toConfiguration() {
+    Map<String, String> configuration = new HashMap<>();
+    configuration.put(TABLET_FORMAT, QueryDataSetCodec.ENCODED_FORMAT);
+    configuration.put(TABLET_COMPRESSOR, compressionType.name());
+    return configuration;
+  }
+
+  public ByteBuffer encodeTimes(Tablet tablet) {
+    try {
+      Encoder encoder = TSEncodingBuilder.getEncodingBuilder(TSEncoding.TS_2DIFF)
+          .getEncoder(TSDataType.INT64);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(tablet.rowSize);
+      for (int i = 0; i < tablet.rowSize; i++) {
+        encoder.encode(tablet.timestamps[i], out);
+      }
+      encoder.flush(out);
+      return QueryDataSetCodec
+          .compress(compressionType, ICompressor.getCompressor(compressionType),
+              out.toByteArray());
+    } catch (IOException e) {
+      throw new TsFileEncodingException("Cannot encode the times of the tablet", e);
+    }
+  }
+
+  public ByteBuffer encodeValues(Tablet tablet) {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(tablet.rowSize);
+      ByteArrayOutputStream columnOut = new ByteArrayOutputStream(tablet.rowSize);
+      List<MeasurementSchema> schemas = tablet.getSchemas();
+      for (int i = 0; i < schemas.size(); i++) {
+        columnOut.reset();
+        encodeColumn(tablet.values[i], schemas.get(i).getType(), tablet.rowSize, columnOut);
+        ReadWriteIOUtils.write(columnOut.size(), out);
+        columnOut.writeTo(out);
+      }
+      return QueryDataSetCodec
+          .compress(compressionType, ICompressor.getCompressor(compressionType),
+              out.toByteArray());
+    } catch (IOException e) {
+      throw new TsFileEncodingException("Cannot encode the values of the tablet", e);
+    }
+  }
+
+  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  private static void encodeColumn(Object column, TSDataType dataType, int size,
+      ByteArrayOutputStream out) throws IOException {
+    if (dataType == TSDataType.TEXT) {
+      Binary[] binaryValues = (Binary[]) column;
+      for (int i = 0; i < size; i++) {
+        ReadWriteIOUtils.write(binaryValues[i].getLength(), out);
+        out.write(binaryValues[i].getValues());
+      }
+      return;
+    }
+    Encoder encoder = TSEncodingBuilder
+        .getEncodingBuilder(QueryDataSetCodec.getEncoding(dataType)).getEncoder(dataType);
+    switch (dataType) {
+      case BOOLEAN:
+        boolean[] boolValues = (boolean[]) column;
+        for (int i = 0; i < size; i++) {
+          encoder.encode(boolValues[i], out);
+        }
+        break;
+      case INT32:
+        int[] intValues = (int[]) column;
+        for (int i = 0; i < size; i++) {
+          encoder.encode(intValues[i], out);
+        }
+        break;
+      case INT64:
+        long[] longValues = (long[]) column;
+        for (int i = 0; i < size; i++) {
+          encoder.encode(longValues[i], out);
+        }
+        break;
+      case FLOAT:
+        float[] floatValues = (float[]) column;
+        for (int i = 0; i < size; i++) {
+          encoder.encode(floatValues[i], out);
+        }
+        break;
+      case DOUBLE:
+        double[] doubleValues = (double[]) column;
+        for (int i = 0; i < size; i++) {
+          encoder.encode(doubleValues[i], out);
+        }
+        break;
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", dataType));
+    }
+    encoder.flush(out);
+  }
+
+  /**
+   * @param buffer the times encoded by {@link #encodeTimes(Tablet)}
+   * @param size   the number of rows
+   */
+  public long[] decodeTimes(ByteBuffer buffer, int size) {
+    try {
+      ByteBuffer encoded = QueryDataSetCodec.uncompress(compressionType,
+          IUnCompressor.getUnCompressor(compressionType), buffer);
+      Decoder decoder = Decoder.getDecoderByType(TSEncoding.TS_2DIFF, TSDataType.INT64);
+      long[] times = new long[size];
+      for (int i = 0; i < size; i++) {
+        times[i] = decoder.readLong(encoded);
+      }
+      return times;
+    } catch (IOException e) {
+      throw new TsFileDecodingException("Cannot decode the times of the tablet", e);
+    }
+  }
+
+  /**
+   * @param buffer the values encoded by {@link #encodeValues(Tablet)}
+   * @param types  the data types of the columns
+   * @param size   the number of rows
+   * @return the columns, each is an array of the data type
+   */
+  public Object[] decodeValues(ByteBuffer buffer, TSDataType[] types, int size) {
+    try {
+      ByteBuffer encoded = QueryDataSetCodec.uncompress(compressionType,
+          IUnCompressor.getUnCompressor(compressionType), buffer);
+      Object[] columns = new Object[types.length];
+      for (int i = 0; i < types.length; i++) {
+        int columnSize = encoded.getInt();
+        ByteBuffer column = encoded.slice();
+        column.limit(columnSize);
+        encoded.position(encoded.position() + columnSize);
+        columns[i] = decodeColumn(column, types[i], size);
+      }
+      return columns;
+    } catch (IOException e) {
+      throw new TsFileDecodingException("Cannot decode the values of the tablet", e);
+    }
+  }
+
+  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  private static Object decodeColumn(ByteBuffer column, TSDataType dataType, int size) {
+    if (dataType == TSDataType.TEXT) {
+      Binary[] binaryValues = new Binary[size];
+      for (int i = 0; i < size; i++) {
+        binaryValues[i] = new Binary(ReadWriteIOUtils.readBytes(column, column.getInt()));
+      }
+      return binaryValues;
+    }
+    Decoder decoder = Decoder.getDecoderByType(QueryDataSetCodec.getEncoding(dataType), dataType);
+    switch (dataType) {
+      case BOOLEAN:
+        boolean[] boolValues = new boolean[size];
+        for (int i = 0; i < size; i++) {
+          boolValues[i] = decoder.readBoolean(column);
+        }
+        return boolValues;
+      case INT32:
+        int[] intValues = new int[size];
+        for (int i = 0; i < size; i++) {
+          intValues[i] = decoder.readInt(column);
+        }
+        return intValues;
+      case INT64:
+        long[] longValues = new long[size];
+        for (int i = 0; i < size; i++) {
+          longValues[i] = decoder.readLong(column);
+        }
+        return longValues;
+      case FLOAT:
+        float[] floatValues = new float[size];
+        for (int i = 0; i < size; i++) {
+          floatValues[i] = decoder.readFloat(column);
+        }
+        return floatValues;
+      case DOUBLE:
+        double[] doubleValues = new double[size];
+        for (int i = 0; i < size; i++) {
+          doubleValues[i] = decoder.readDouble(column);
+        }
+        return doubleValues;
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", dataType));
+    }
+  }
+}
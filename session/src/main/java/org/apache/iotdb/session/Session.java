@@ -23,12 +23,15 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.iotdb.rpc.BatchExecutionException;
 import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.QueryDataSetCodec;
 import org.apache.iotdb.rpc.RpcUtils;
 import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.rpc.TabletCodec;
 import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordsReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertTabletReq;
@@ -83,6 +86,14 @@ public class Session {
   private ZoneId zoneId;
   private long statementId;
   private int fetchSize;
+  // the compressor of the encoded query results to ask for, null for plain results
+  private CompressionType resultCompressionType;
+  // the codec agreed on with the server, null if the query results are plain
+  private QueryDataSetCodec resultCodec;
+  // the compressor of the encoded tablets to ask for, null for plain tablets
+  private CompressionType tabletCompressionType;
+  // the codec agreed on with the server, null if the tablets are sent plain
+  private TabletCodec tabletCodec;
 
   public Session(String host, int rpcPort) {
     this(host, rpcPort, Config.DEFAULT_USER, Config.DEFAULT_PASSWORD);
@@ -108,6 +119,30 @@ public class Session {
     this.fetchSize = fetchSize;
   }
 
+  /**
+   * Asks the server to send query results with each column encoded (TS_2DIFF for the times, RLE or
+   * GORILLA for the values) and then compressed, which saves most of the network traffic of large
+   * queries. It takes effect when the session is opened; a server that does not support it still
+   * sends plain results.
+   *
+   * @param compressionType UNCOMPRESSED, SNAPPY or LZ4
+   */
+  public synchronized void enableQueryResultEncoding(CompressionType compressionType) {
+    this.resultCompressionType = compressionType;
+  }
+
+  /**
+   * Sends the tablets of insertTablet(s) with the times encoded by TS_2DIFF and the values by RLE or
+   * GORILLA, and then compressed, which saves most of the network traffic of regular data. It takes
+   * effect when the session is opened; to a server that does not support it, the tablets are still
+   * sent plain.
+   *
+   * @param compressionType UNCOMPRESSED, SNAPPY or LZ4
+   */
+  public synchronized void enableInsertTabletEncoding(CompressionType compressionType) {
+    this.tabletCompressionType = compressionType;
+  }
+
   public synchronized void open() throws IoTDBConnectionException {
     open(false, Config.DEFAULT_TIMEOUT_MS);
   }
@@ -141,6 +176,16 @@ public class Session {
     TSOpenSessionReq openReq = new TSOpenSessionReq();
     openReq.setUsername(username);
     openReq.setPassword(password);
+    Map<String, String> configuration = new HashMap<>();
+    if (resultCompressionType != null) {
+      configuration.putAll(new QueryDataSetCodec(resultCompressionType).toConfiguration());
+    }
+    if (tabletCompressionType != null) {
+      configuration.putAll(new TabletCodec(tabletCompressionType).toConfiguration());
+    }
+    if (!configuration.isEmpty()) {
+      openReq.setConfiguration(configuration);
+    }
 
     try {
       TSOpenSessionResp openResp = client.openSession(openReq);
@@ -158,6 +203,8 @@ public class Session {
       }
 
       sessionId = openResp.getSessionId();
+      resultCodec = QueryDataSetCodec.fromConfiguration(openResp.getConfiguration());
+      tabletCodec = TabletCodec.fromConfiguration(openResp.getConfiguration());
 
       statementId = client.requestStatementId(sessionId);
 
@@ -260,12 +307,22 @@ public class Session {
       request.addToMeasurements(measurementSchema.getMeasurementId());
       request.addToTypes(measurementSchema.getType().ordinal());
     }
-    request.setTimestamps(SessionUtils.getTimeBuffer(tablet));
-    request.setValues(SessionUtils.getValueBuffer(tablet));
+    request.setTimestamps(getTimeBuffer(tablet));
+    request.setValues(getValueBuffer(tablet));
     request.setSize(tablet.rowSize);
     return request;
   }
 
+  private ByteBuffer getTimeBuffer(Tablet tablet) {
+    return tabletCodec != null ? tabletCodec.encodeTimes(tablet)
+        : SessionUtils.getTimeBuffer(tablet);
+  }
+
+  private ByteBuffer getValueBuffer(Tablet tablet) {
+    return tabletCodec != null ? tabletCodec.encodeValues(tablet)
+        : SessionUtils.getValueBuffer(tablet);
+  }
+
   /**
    * insert the data of several deivces. Given a deivce, for each timestamp, the number of
    * measurements is the same.
@@ -320,8 +377,8 @@ public class Session {
       }
       request.addToMeasurementsList(measurements);
       request.addToTypesList(dataTypes);
-      request.addToTimestampsList(SessionUtils.getTimeBuffer(tablet));
-      request.addToValuesList(SessionUtils.getValueBuffer(tablet));
+      request.addToTimestampsList(getTimeBuffer(tablet));
+      request.addToValuesList(getValueBuffer(tablet));
       request.addToSizeList(tablet.rowSize);
     }
     return request;
@@ -911,7 +968,7 @@ public class Session {
     return new SessionDataSet(sql, execResp.getColumns(), execResp.getDataTypeList(),
         execResp.columnNameIndexMap,
         execResp.getQueryId(), client, sessionId, execResp.queryDataSet,
-        execResp.isIgnoreTimeStamp());
+        execResp.isIgnoreTimeStamp(), resultCodec);
   }
 
   /**
@@ -957,7 +1014,7 @@ public class Session {
     return new SessionDataSet("", execResp.getColumns(), execResp.getDataTypeList(),
         execResp.columnNameIndexMap,
         execResp.getQueryId(), client, sessionId, execResp.queryDataSet,
-        execResp.isIgnoreTimeStamp());
+        execResp.isIgnoreTimeStamp(), resultCodec);
   }
 
   /**
@@ -0,0 +1,435 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session.pool;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.iotdb.rpc.BatchExecutionException;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * AsyncTabletWriter lets many threads write rows one by one, and sends the rows to the server in
+ * batches of Tablets with SessionPool.insertTablets().
+ * <p>
+ * The rows of the same device and measurements are accumulated into one Tablet. The pending rows
+ * are sent when there are batchSize of them, or lingerMs after the first of them was written. At
+ * most maxInFlightBatches batches are sent at the same time, each on a session of the pool, so the
+ * pool should have as many sessions. When all of them are in flight, write() blocks until one of
+ * them finishes.
+ * <p>
+ * write() returns a future of the status of the row. It is SUCCESS_STATUS if the row is inserted,
+ * the error of the row if the server fails to insert it, and the future completes exceptionally if
+ * the whole batch fails, e.g., the connection is broken.
+ * <p>
+ * Remember to call close() to send the pending rows, which does not close the SessionPool.
+ */
+public class AsyncTabletWriter {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsyncTabletWriter.class);
+
+  @FunctionalInterface
+  interface TabletsSender {
+
+    void send(Map<String, Tablet> tablets)
+        throws IoTDBConnectionException, StatementExecutionException;
+  }
+
+  private final TabletsSender sender;
+  private final int batchSize;
+  private final long lingerMs;
+  private final int maxInFlightBatches;
+  private final Semaphore inFlightBatches;
+  private final ExecutorService sendPool;
+  private final ScheduledThreadPoolExecutor lingerTimer;
+
+  // the fields below are guarded by this
+  private Map<TabletKey, List<PendingRow>> pendingTablets = new LinkedHashMap<>();
+  private int pendingRowNum = 0;
+  // increased when the pending rows are taken to be sent
+  private long batchIndex = 0;
+  // the batches taken from pendingTablets but not submitted to the send pool yet
+  private int unsubmittedBatchNum = 0;
+  private boolean closed = false;
+
+  /**
+   * @param batchSize          send the pending rows when there are so many of them
+   * @param lingerMs           send the pending rows at most so long after the first of them was
+   *                           written
+   * @param maxInFlightBatches how many batches can be sent at the same time
+   */
+  public AsyncTabletWriter(SessionPool pool, int batchSize, long lingerMs,
+      int maxInFlightBatches) {
+    this(tablets -> pool.insertTablets(tablets, true), batchSize, lingerMs, maxInFlightBatches);
+  }
+
+  AsyncTabletWriter(TabletsSender sender, int batchSize, long lingerMs, int maxInFlightBatches) {
+    if (batchSize <= 0 || lingerMs < 0 || maxInFlightBatches <= 0) {
+      throw new IllegalArgumentException(String.format(
+          "Illegal batchSize %d, lingerMs %d or maxInFlightBatches %d", batchSize, lingerMs,
+          maxInFlightBatches));
+    }
+    this.sender = sender;
+    this.batchSize = batchSize;
+    this.lingerMs = lingerMs;
+    this.maxInFlightBatches = maxInFlightBatches;
+    this.inFlightBatches = new Semaphore(maxInFlightBatches);
+    this.sendPool = Executors
+        .newFixedThreadPool(maxInFlightBatches, daemonThreadFactory("AsyncTabletWriter-send"));
+    this.lingerTimer = new ScheduledThreadPoolExecutor(1,
+        daemonThreadFactory("AsyncTabletWriter-linger"));
+    // shutdown() drops the scheduled sends, the pending rows are sent by close()
+    this.lingerTimer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+  }
+
+  /**
+   * Write a row, which is sent to the server later with the other rows.
+   *
+   * @param values the values of the measurements, a TEXT value can be a String or a Binary
+   * @return the future of the status of the row
+   * @throws IllegalArgumentException if the sizes do not match, or a value is null or not of the
+   *                                  Java type of its TSDataType
+   */
+  public CompletableFuture<TSStatus> write(String deviceId, long time, List<String> measurements,
+      List<TSDataType> types, List<Object> values) {
+    if (measurements.size() != types.size() || measurements.size() != values.size()) {
+      throw new IllegalArgumentException(
+          "The sizes of measurements, types and values of a row should be the same");
+    }
+    for (int i = 0; i < values.size(); i++) {
+      checkValueType(measurements.get(i), types.get(i), values.get(i));
+    }
+    PendingRow row = new PendingRow(time, new ArrayList<>(values));
+    Map<TabletKey, List<PendingRow>> batch = null;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("The AsyncTabletWriter is closed");
+      }
+      pendingTablets
+          .computeIfAbsent(new TabletKey(deviceId, measurements, types), k -> new ArrayList<>())
+          .add(row);
+      pendingRowNum++;
+      if (pendingRowNum >= batchSize) {
+        batch = takePendingRows();
+      } else if (pendingRowNum == 1) {
+        long index = batchIndex;
+        lingerTimer.schedule(() -> sendLingeredRows(index), lingerMs, TimeUnit.MILLISECONDS);
+      }
+    }
+    if (batch != null) {
+      send(batch);
+    }
+    return row.status;
+  }
+
+  /**
+   * Send the pending rows and wait until all the batches in flight finish.
+   */
+  public void flush() throws InterruptedException {
+    Map<TabletKey, List<PendingRow>> batch;
+    synchronized (this) {
+      batch = takePendingRows();
+    }
+    if (!batch.isEmpty()) {
+      send(batch);
+    }
+    inFlightBatches.acquire(maxInFlightBatches);
+    inFlightBatches.release(maxInFlightBatches);
+  }
+
+  /**
+   * Send the pending rows, wait for them and release the threads of the writer. The SessionPool
+   * is not closed.
+   */
+  public void close() throws InterruptedException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    try {
+      // stop the timer first, so no lingered batch is sent after the send pool is shut down, but
+      // let the running send finish instead of interrupting it and failing its rows
+      lingerTimer.shutdown();
+      lingerTimer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      // the batches taken by write() before closed was set must be submitted before the send
+      // pool is shut down, and no batch is taken after it
+      synchronized (this) {
+        while (unsubmittedBatchNum > 0) {
+          wait();
+        }
+      }
+      flush();
+    } finally {
+      lingerTimer.shutdownNow();
+      sendPool.shutdown();
+    }
+    sendPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+  }
+
+  private static void checkValueType(String measurement, TSDataType type, Object value) {
+    boolean matched;
+    switch (type) {
+      case BOOLEAN:
+        matched = value instanceof Boolean;
+        break;
+      case INT32:
+        matched = value instanceof Integer;
+        break;
+      case INT64:
+        matched = value instanceof Long;
+        break;
+      case FLOAT:
+        matched = value instanceof Float;
+        break;
+      case DOUBLE:
+        matched = value instanceof Double;
+        break;
+      case TEXT:
+        matched = value instanceof Binary || value instanceof String;
+        break;
+      default:
+        throw new IllegalArgumentException(
+            String.format("Unsupported data type %s of %s", type, measurement));
+    }
+    if (!matched) {
+      throw new IllegalArgumentException(String.format("The value %s of %s is not a %s", value,
+          measurement, type));
+    }
+  }
+
+  private Map<TabletKey, List<PendingRow>> takePendingRows() {
+    Map<TabletKey, List<PendingRow>> batch = pendingTablets;
+    pendingTablets = new LinkedHashMap<>();
+    pendingRowNum = 0;
+    batchIndex++;
+    if (!batch.isEmpty()) {
+      // it is sent by the caller
+      unsubmittedBatchNum++;
+    }
+    return batch;
+  }
+
+  private void sendLingeredRows(long index) {
+    Map<TabletKey, List<PendingRow>> batch;
+    synchronized (this) {
+      // the rows have been sent as a full batch
+      if (index != batchIndex || pendingRowNum == 0) {
+        return;
+      }
+      batch = takePendingRows();
+    }
+    send(batch);
+  }
+
+  /**
+   * Send the batch taken by takePendingRows() on the send pool, blocking the caller while
+   * maxInFlightBatches batches are in flight.
+   */
+  private void send(Map<TabletKey, List<PendingRow>> batch) {
+    try {
+      submit(batch);
+    } finally {
+      synchronized (this) {
+        unsubmittedBatchNum--;
+        notifyAll();
+      }
+    }
+  }
+
+  private void submit(Map<TabletKey, List<PendingRow>> batch) {
+    try {
+      inFlightBatches.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failRows(batch, e);
+      return;
+    }
+    try {
+      sendPool.submit(() -> {
+        try {
+          sendBatch(batch);
+        } finally {
+          inFlightBatches.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      inFlightBatches.release();
+      failRows(batch, e);
+    }
+  }
+
+  private void sendBatch(Map<TabletKey, List<PendingRow>> batch) {
+    Map<String, Tablet> tablets = new LinkedHashMap<>();
+    List<List<PendingRow>> rowsOfTablets = new ArrayList<>(batch.size());
+    for (Entry<TabletKey, List<PendingRow>> entry : batch.entrySet()) {
+      List<PendingRow> rows = entry.getValue();
+      // sort the rows before sending, so the statuses of the rows in the tablet match them
+      rows.sort(Comparator.comparingLong(row -> row.time));
+      // the keys are not used by the server, and a device may have several tablets
+      tablets.put(Integer.toString(tablets.size()), entry.getKey().toTablet(rows));
+      rowsOfTablets.add(rows);
+    }
+
+    try {
+      sender.send(tablets);
+      for (List<PendingRow> rows : rowsOfTablets) {
+        for (PendingRow row : rows) {
+          row.status.complete(RpcUtils.SUCCESS_STATUS);
+        }
+      }
+    } catch (BatchExecutionException e) {
+      List<TSStatus> tabletStatuses = e.getStatusList();
+      if (tabletStatuses == null || tabletStatuses.size() != rowsOfTablets.size()) {
+        failRows(batch, e);
+        return;
+      }
+      for (int i = 0; i < rowsOfTablets.size(); i++) {
+        completeRows(rowsOfTablets.get(i), tabletStatuses.get(i));
+      }
+    } catch (IoTDBConnectionException | StatementExecutionException | RuntimeException e) {
+      logger.error("Cannot send a batch of {} tablets", tablets.size(), e);
+      failRows(batch, e);
+    }
+  }
+
+  /**
+   * Complete the rows of a tablet with its status, which has a sub status for each row if only
+   * some rows fail.
+   */
+  private static void completeRows(List<PendingRow> rows, TSStatus tabletStatus) {
+    List<TSStatus> rowStatuses = null;
+    if (tabletStatus.getCode() == TSStatusCode.MULTIPLE_ERROR.getStatusCode()
+        && tabletStatus.isSetSubStatus() && tabletStatus.getSubStatus().size() == rows.size()) {
+      rowStatuses = tabletStatus.getSubStatus();
+    }
+    for (int i = 0; i < rows.size(); i++) {
+      rows.get(i).status.complete(rowStatuses != null ? rowStatuses.get(i) : tabletStatus);
+    }
+  }
+
+  private static void failRows(Map<TabletKey, List<PendingRow>> batch, Exception e) {
+    for (List<PendingRow> rows : batch.values()) {
+      for (PendingRow row : rows) {
+        row.status.completeExceptionally(e);
+      }
+    }
+  }
+
+  private static ThreadFactory daemonThreadFactory(String name) {
+    AtomicInteger threadIndex = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + threadIndex.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static class PendingRow {
+
+    private final long time;
+    private final List<Object> values;
+    private final CompletableFuture<TSStatus> status = new CompletableFuture<>();
+
+    private PendingRow(long time, List<Object> values) {
+      this.time = time;
+      this.values = values;
+    }
+  }
+
+  /**
+   * The rows of a device with the same measurements and types are put into one tablet.
+   */
+  private static class TabletKey {
+
+    private final String deviceId;
+    private final List<String> measurements;
+    private final List<TSDataType> types;
+
+    private TabletKey(String deviceId, List<String> measurements, List<TSDataType> types) {
+      this.deviceId = deviceId;
+      // the caller may reuse the lists after write()
+      this.measurements = new ArrayList<>(measurements);
+      this.types = new ArrayList<>(types);
+    }
+
+    private Tablet toTablet(List<PendingRow> rows) {
+      List<MeasurementSchema> schemas = new ArrayList<>(measurements.size());
+      for (int i = 0; i < measurements.size(); i++) {
+        schemas.add(new MeasurementSchema(measurements.get(i), types.get(i)));
+      }
+      Tablet tablet = new Tablet(deviceId, schemas, rows.size());
+      for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+        PendingRow row = rows.get(rowIndex);
+        tablet.addTimestamp(rowIndex, row.time);
+        for (int i = 0; i < measurements.size(); i++) {
+          Object value = row.values.get(i);
+          if (value instanceof String) {
+            value = Binary.valueOf((String) value);
+          }
+          tablet.addValue(measurements.get(i), rowIndex, value);
+        }
+      }
+      tablet.rowSize = rows.size();
+      return tablet;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      TabletKey that = (TabletKey) o;
+      return deviceId.equals(that.deviceId) && measurements.equals(that.measurements)
+          && types.equals(that.types);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(deviceId, measurements, types);
+    }
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.iotdb.rpc.BatchExecutionException;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.junit.Test;
+
+public class AsyncTabletWriterTest {
+
+  private static final List<String> MEASUREMENTS = Arrays.asList("s1", "s2");
+  private static final List<TSDataType> TYPES = Arrays.asList(TSDataType.INT64, TSDataType.TEXT);
+
+  private final List<Tablet> sentTablets = Collections.synchronizedList(new ArrayList<>());
+
+  @Test
+  public void testBatchBySize() throws Exception {
+    AsyncTabletWriter writer = new AsyncTabletWriter(
+        tablets -> sentTablets.addAll(tablets.values()), 10, TimeUnit.HOURS.toMillis(1), 2);
+    List<CompletableFuture<TSStatus>> futures = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      // in descending order
+      futures.add(write(writer, "root.sg.d" + i % 2, 100 - i));
+    }
+    // the last 5 rows are pending
+    for (int i = 0; i < 20; i++) {
+      assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(),
+          futures.get(i).get(10, TimeUnit.SECONDS).getCode());
+    }
+    assertFalse(futures.get(20).isDone());
+
+    writer.close();
+    for (CompletableFuture<TSStatus> future : futures) {
+      assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(), future.get().getCode());
+    }
+    // 2 devices in each of the 3 batches
+    assertEquals(6, sentTablets.size());
+    int rowNum = 0;
+    for (Tablet tablet : sentTablets) {
+      for (int i = 1; i < tablet.rowSize; i++) {
+        assertTrue(tablet.timestamps[i - 1] < tablet.timestamps[i]);
+      }
+      rowNum += tablet.rowSize;
+    }
+    assertEquals(25, rowNum);
+  }
+
+  @Test
+  public void testBatchByLinger() throws Exception {
+    AsyncTabletWriter writer = new AsyncTabletWriter(
+        tablets -> sentTablets.addAll(tablets.values()), 1000, 50, 2);
+    CompletableFuture<TSStatus> future = write(writer, "root.sg.d1", 1);
+    assertEquals(TSStatusCode.SUCCESS_STATUS.getStatusCode(),
+        future.get(10, TimeUnit.SECONDS).getCode());
+    assertEquals(1, sentTablets.size());
+    writer.close();
+  }
+
+  @Test
+  public void testRowStatus() throws Exception {
+    TSStatus outOfTTL = RpcUtils.getStatus(TSStatusCode.OUT_OF_TTL_ERROR);
+    TSStatus d1Status = RpcUtils.getStatus(Arrays.asList(RpcUtils.SUCCESS_STATUS, outOfTTL));
+    TSStatus d2Status = RpcUtils.getStatus(TSStatusCode.PATH_NOT_EXIST_ERROR);
+    AsyncTabletWriter writer = new AsyncTabletWriter(tablets -> {
+      throw new BatchExecutionException(Arrays.asList(d1Status, d2Status));
+    }, 3, TimeUnit.HOURS.toMillis(1), 1);
+
+    CompletableFuture<TSStatus> d1Time2 = write(writer, "root.sg.d1", 2);
+    CompletableFuture<TSStatus> d2Time1 = write(writer, "root.sg.d2", 1);
+    CompletableFuture<TSStatus> d1Time1 = write(writer, "root.sg.d1", 1);
+    writer.close();
+
+    // the rows of a tablet are sorted by time
+    assertEquals(RpcUtils.SUCCESS_STATUS, d1Time1.get());
+    assertEquals(outOfTTL, d1Time2.get());
+    assertEquals(d2Status, d2Time1.get());
+  }
+
+  @Test
+  public void testConnectionFailure() throws Exception {
+    AsyncTabletWriter writer = new AsyncTabletWriter(tablets -> {
+      throw new IoTDBConnectionException("broken");
+    }, 1, TimeUnit.HOURS.toMillis(1), 1);
+    CompletableFuture<TSStatus> future = write(writer, "root.sg.d1", 1);
+    writer.close();
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IoTDBConnectionException);
+    }
+  }
+
+  @Test
+  public void testBackpressure() throws Exception {
+    CountDownLatch blocked = new CountDownLatch(1);
+    AsyncTabletWriter writer = new AsyncTabletWriter(tablets -> {
+      try {
+        blocked.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, 1, TimeUnit.HOURS.toMillis(1), 1);
+    // the only batch in flight is blocked
+    CompletableFuture<TSStatus> first = write(writer, "root.sg.d1", 1);
+
+    CountDownLatch written = new CountDownLatch(1);
+    Thread thread = new Thread(() -> {
+      write(writer, "root.sg.d1", 2);
+      written.countDown();
+    });
+    thread.start();
+    assertFalse(written.await(100, TimeUnit.MILLISECONDS));
+    assertFalse(first.isDone());
+
+    blocked.countDown();
+    assertTrue(written.await(10, TimeUnit.SECONDS));
+    writer.close();
+    assertEquals(RpcUtils.SUCCESS_STATUS, first.get());
+  }
+
+  @Test
+  public void testWrongValueType() throws Exception {
+    AsyncTabletWriter writer = new AsyncTabletWriter(
+        tablets -> sentTablets.addAll(tablets.values()), 2, TimeUnit.HOURS.toMillis(1), 1);
+    CompletableFuture<TSStatus> future = write(writer, "root.sg.d1", 1);
+    try {
+      // an Integer for an INT64 column
+      writer.write("root.sg.d1", 2, MEASUREMENTS, TYPES, Arrays.asList(2, "v2"));
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    writer.close();
+    // the other rows of the batch are not affected
+    assertEquals(RpcUtils.SUCCESS_STATUS, future.get());
+    assertEquals(1, sentTablets.get(0).rowSize);
+  }
+
+  @Test
+  public void testCloseWhileLingering() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      AsyncTabletWriter writer = new AsyncTabletWriter(
+          tablets -> sentTablets.addAll(tablets.values()), 1000, i % 3, 1);
+      CompletableFuture<TSStatus> future = write(writer, "root.sg.d1", 1);
+      writer.close();
+      assertEquals(RpcUtils.SUCCESS_STATUS, future.get());
+    }
+    assertEquals(100, sentTablets.size());
+  }
+
+  @Test
+  public void testWriteWhileClosing() throws Exception {
+    for (int round = 0; round < 20; round++) {
+      AsyncTabletWriter writer = new AsyncTabletWriter(tablets -> {
+        sentTablets.addAll(tablets.values());
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+      }, 1, TimeUnit.HOURS.toMillis(1), 2);
+      List<CompletableFuture<TSStatus>> futures = Collections
+          .synchronizedList(new ArrayList<>());
+      List<Thread> threads = new ArrayList<>();
+      CountDownLatch started = new CountDownLatch(4);
+      for (int i = 0; i < 4; i++) {
+        String deviceId = "root.sg.d" + i;
+        Thread thread = new Thread(() -> {
+          started.countDown();
+          try {
+            for (long time = 0; ; time++) {
+              futures.add(write(writer, deviceId, time));
+            }
+          } catch (IllegalStateException e) {
+            // closed
+          }
+        });
+        thread.start();
+        threads.add(thread);
+      }
+      started.await();
+      Thread.sleep(5);
+      writer.close();
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      // every row accepted by write() is sent
+      for (CompletableFuture<TSStatus> future : futures) {
+        assertEquals(RpcUtils.SUCCESS_STATUS, future.get(10, TimeUnit.SECONDS));
+      }
+    }
+  }
+
+  @Test
+  public void testCallerReusesLists() throws Exception {
+    AsyncTabletWriter writer = new AsyncTabletWriter(
+        tablets -> sentTablets.addAll(tablets.values()), 2, TimeUnit.HOURS.toMillis(1), 1);
+    List<String> measurements = new ArrayList<>(MEASUREMENTS);
+    List<TSDataType> types = new ArrayList<>(TYPES);
+    List<Object> values = new ArrayList<>(Arrays.asList(1L, "v1"));
+    writer.write("root.sg.d1", 1, measurements, types, values);
+    measurements.set(1, "s3");
+    types.set(1, TSDataType.INT32);
+    values.set(1, 3);
+    writer.write("root.sg.d1", 2, measurements, types, values);
+    writer.close();
+
+    assertEquals(2, sentTablets.size());
+    Tablet first = sentTablets.get(0);
+    assertEquals("s2", first.getSchemas().get(1).getMeasurementId());
+    assertEquals(TSDataType.TEXT, first.getSchemas().get(1).getType());
+    assertEquals(1, first.rowSize);
+  }
+
+  private CompletableFuture<TSStatus> write(AsyncTabletWriter writer, String deviceId, long time) {
+    return writer.write(deviceId, time, MEASUREMENTS, TYPES, Arrays.asList(time, "v" + time));
+  }
+}
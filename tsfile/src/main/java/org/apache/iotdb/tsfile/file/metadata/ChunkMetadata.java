@@ -253,7 +253,7 @@ public class ChunkMetadata implements Accountable {
 
   public long calculateRamSize() {
     return CHUNK_METADATA_FIXED_RAM_SIZE + RamUsageEstimator.sizeOf(measurementUid) + statistics
-        .calculateRamSize();
+        .calculateRamSize() + statistics.calculateSketchesRamSize();
   }
 
   public void setRamSize(long size) {
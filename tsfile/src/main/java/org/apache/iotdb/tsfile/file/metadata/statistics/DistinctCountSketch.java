@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.file.metadata.statistics;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct values, with a standard error of about
+ * 1.04 / sqrt(REGISTER_NUM) (3.25%). Two sketches are merged by keeping the maximum of each
+ * register, so the sketch of a chunk or a file is the same as if all its points had been added
+ * to one sketch.
+ *
+ * <p>The registers are serialized sparsely when few of them are set, which is the common case
+ * for pages of slowly changing values.
+ */
+public class DistinctCountSketch {
+
+  private static final int PRECISION = 10;
+  private static final int REGISTER_NUM = 1 << PRECISION;
+  private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_NUM);
+
+  private static final byte SPARSE = 0;
+  private static final byte DENSE = 1;
+  /**
+   * bytes of a sparse register: a short index and a byte value
+   */
+  private static final int SPARSE_REGISTER_SIZE = 3;
+
+  private final byte[] registers;
+
+  public DistinctCountSketch() {
+    this(new byte[REGISTER_NUM]);
+  }
+
+  private DistinctCountSketch(byte[] registers) {
+    this.registers = registers;
+  }
+
+  public void update(boolean value) {
+    updateHash(hash(value ? 1 : 0));
+  }
+
+  public void update(int value) {
+    updateHash(hash(value));
+  }
+
+  public void update(long value) {
+    updateHash(hash(value));
+  }
+
+  public void update(float value) {
+    // +0.0 and -0.0 are the same value
+    updateHash(hash(Float.floatToIntBits(value == 0 ? 0 : value)));
+  }
+
+  public void update(double value) {
+    updateHash(hash(Double.doubleToLongBits(value == 0 ? 0 : value)));
+  }
+
+  public void update(Binary value) {
+    // FNV-1a, then mixed like the other types
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : value.getValues()) {
+      hash ^= b & 0xFF;
+      hash *= 0x100000001b3L;
+    }
+    updateHash(hash(hash));
+  }
+
+  private void updateHash(long hash) {
+    int index = (int) (hash >>> (Long.SIZE - PRECISION));
+    // position of the first 1 bit in the remaining bits, the sentinel bounds it by 64 - PRECISION
+    byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1)))
+        + 1);
+    if (rank > registers[index]) {
+      registers[index] = rank;
+    }
+  }
+
+  /**
+   * the finalizer of SplitMix64, a bijection spreading every input bit over the whole output
+   */
+  private static long hash(long value) {
+    long z = value + 0x9e3779b97f4a7c15L;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  public void merge(DistinctCountSketch another) {
+    for (int i = 0; i < REGISTER_NUM; i++) {
+      if (another.registers[i] > registers[i]) {
+        registers[i] = another.registers[i];
+      }
+    }
+  }
+
+  public DistinctCountSketch copy() {
+    return new DistinctCountSketch(Arrays.copyOf(registers, REGISTER_NUM));
+  }
+
+  /**
+   * @return the estimated number of distinct values
+   */
+  public long getEstimate() {
+    double sum = 0;
+    int zeroRegisters = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeroRegisters++;
+      }
+    }
+    double estimate = ALPHA * REGISTER_NUM * REGISTER_NUM / sum;
+    if (estimate <= 2.5 * REGISTER_NUM && zeroRegisters > 0) {
+      // linear counting is more accurate for small cardinalities
+      estimate = REGISTER_NUM * Math.log((double) REGISTER_NUM / zeroRegisters);
+    }
+    return Math.round(estimate);
+  }
+
+  private int countSetRegisters() {
+    int setRegisters = 0;
+    for (byte register : registers) {
+      if (register != 0) {
+        setRegisters++;
+      }
+    }
+    return setRegisters;
+  }
+
+  private static boolean isSparse(int setRegisters) {
+    return Short.BYTES + setRegisters * SPARSE_REGISTER_SIZE < REGISTER_NUM;
+  }
+
+  public int getSerializedSize() {
+    int setRegisters = countSetRegisters();
+    return Byte.BYTES + (isSparse(setRegisters) ? Short.BYTES + setRegisters * SPARSE_REGISTER_SIZE
+        : REGISTER_NUM);
+  }
+
+  public int serialize(OutputStream outputStream) throws IOException {
+    int setRegisters = countSetRegisters();
+    if (!isSparse(setRegisters)) {
+      outputStream.write(DENSE);
+      outputStream.write(registers);
+      return Byte.BYTES + REGISTER_NUM;
+    }
+    outputStream.write(SPARSE);
+    int byteLen = Byte.BYTES + ReadWriteIOUtils.write((short) setRegisters, outputStream);
+    for (int i = 0; i < REGISTER_NUM; i++) {
+      if (registers[i] != 0) {
+        byteLen += ReadWriteIOUtils.write((short) i, outputStream);
+        outputStream.write(registers[i]);
+        byteLen += Byte.BYTES;
+      }
+    }
+    return byteLen;
+  }
+
+  public static DistinctCountSketch deserialize(InputStream inputStream) throws IOException {
+    if (readByte(inputStream) == DENSE) {
+      return new DistinctCountSketch(ReadWriteIOUtils.readBytes(inputStream, REGISTER_NUM));
+    }
+    byte[] registers = new byte[REGISTER_NUM];
+    int setRegisters = ReadWriteIOUtils.readShort(inputStream);
+    for (int i = 0; i < setRegisters; i++) {
+      short index = ReadWriteIOUtils.readShort(inputStream);
+      registers[index] = readByte(inputStream);
+    }
+    return new DistinctCountSketch(registers);
+  }
+
+  private static byte readByte(InputStream inputStream) throws IOException {
+    int b = inputStream.read();
+    if (b < 0) {
+      throw new EOFException("Unexpected end of a distinct count sketch");
+    }
+    return (byte) b;
+  }
+
+  public static DistinctCountSketch deserialize(ByteBuffer buffer) {
+    byte[] registers = new byte[REGISTER_NUM];
+    if (buffer.get() == DENSE) {
+      buffer.get(registers);
+    } else {
+      int setRegisters = buffer.getShort();
+      for (int i = 0; i < setRegisters; i++) {
+        short index = buffer.getShort();
+        registers[index] = buffer.get();
+      }
+    }
+    return new DistinctCountSketch(registers);
+  }
+
+  public long calculateRamSize() {
+    return 16 + 16 + REGISTER_NUM;
+  }
+}
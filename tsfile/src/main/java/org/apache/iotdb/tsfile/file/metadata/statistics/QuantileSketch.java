@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.file.metadata.statistics;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A mergeable quantile sketch with a bounded relative error. Values are counted in logarithmic
+ * bins whose bounds grow by GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY), so the
+ * value returned for any quantile is within RELATIVE_ACCURACY of a value of that rank. Two
+ * sketches are merged by adding their bins, which is exact, so page sketches can be merged into
+ * chunk and file sketches without any loss.
+ *
+ * <p>Each sign keeps at most MAX_BINS contiguous bins. When the values of one sign span more
+ * than that, the lowest bins are collapsed into one so that the upper quantiles, which are the
+ * interesting ones for latencies, keep their accuracy.
+ */
+public class QuantileSketch {
+
+  public static final double RELATIVE_ACCURACY = 0.01;
+
+  private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+  private static final double LOG_GAMMA = Math.log(GAMMA);
+  /**
+   * values whose absolute value is below this are counted as zeros
+   */
+  private static final double MIN_INDEXABLE_VALUE = 1e-9;
+  private static final int MAX_BINS = 2048;
+
+  private final BinStore positiveBins;
+  private final BinStore negativeBins;
+  private long zeroCount;
+  private long count;
+
+  public QuantileSketch() {
+    this(new BinStore(), new BinStore(), 0);
+  }
+
+  private QuantileSketch(BinStore positiveBins, BinStore negativeBins, long zeroCount) {
+    this.positiveBins = positiveBins;
+    this.negativeBins = negativeBins;
+    this.zeroCount = zeroCount;
+    this.count = zeroCount + positiveBins.total + negativeBins.total;
+  }
+
+  /**
+   * NaN and infinite values are ignored.
+   */
+  public void update(double value) {
+    if (value > MIN_INDEXABLE_VALUE) {
+      if (value == Double.POSITIVE_INFINITY) {
+        return;
+      }
+      positiveBins.add(index(value), 1);
+    } else if (value < -MIN_INDEXABLE_VALUE) {
+      if (value == Double.NEGATIVE_INFINITY) {
+        return;
+      }
+      negativeBins.add(index(-value), 1);
+    } else if (value == value) {
+      zeroCount++;
+    } else {
+      return;
+    }
+    count++;
+  }
+
+  public void merge(QuantileSketch another) {
+    positiveBins.merge(another.positiveBins);
+    negativeBins.merge(another.negativeBins);
+    zeroCount += another.zeroCount;
+    count += another.count;
+  }
+
+  public QuantileSketch copy() {
+    return new QuantileSketch(positiveBins.copy(), negativeBins.copy(), zeroCount);
+  }
+
+  /**
+   * @return number of values counted by this sketch
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @param quantile in [0, 1]
+   * @return the estimated value of the given quantile, or NaN if the sketch is empty
+   */
+  public double getQuantile(double quantile) {
+    if (count == 0) {
+      return Double.NaN;
+    }
+    long rank = (long) (quantile * (count - 1));
+    // negative values come first, the largest magnitude being the smallest value
+    if (rank < negativeBins.total) {
+      long remaining = negativeBins.total - 1 - rank;
+      return -value(negativeBins.indexOfRank(remaining));
+    }
+    rank -= negativeBins.total;
+    if (rank < zeroCount) {
+      return 0;
+    }
+    rank -= zeroCount;
+    return value(positiveBins.indexOfRank(rank));
+  }
+
+  private static int index(double value) {
+    return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+  }
+
+  /**
+   * @return the value of bin index, which is within RELATIVE_ACCURACY of every value in the bin
+   */
+  private static double value(int index) {
+    return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+  }
+
+  public int getSerializedSize() {
+    return varLongSize(zeroCount) + positiveBins.getSerializedSize()
+        + negativeBins.getSerializedSize();
+  }
+
+  public int serialize(OutputStream outputStream) throws IOException {
+    int byteLen = writeVarLong(zeroCount, outputStream);
+    byteLen += positiveBins.serialize(outputStream);
+    byteLen += negativeBins.serialize(outputStream);
+    return byteLen;
+  }
+
+  public static QuantileSketch deserialize(InputStream inputStream) throws IOException {
+    return deserialize(() -> {
+      int b = inputStream.read();
+      if (b < 0) {
+        throw new EOFException("Unexpected end of a quantile sketch");
+      }
+      return b;
+    });
+  }
+
+  public static QuantileSketch deserialize(ByteBuffer buffer) {
+    try {
+      return deserialize(() -> buffer.get() & 0xFF);
+    } catch (IOException e) {
+      // reading a ByteBuffer never throws IOException
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static QuantileSketch deserialize(ByteSource source) throws IOException {
+    long zeroCount = readVarLong(source);
+    BinStore positiveBins = BinStore.deserialize(source);
+    BinStore negativeBins = BinStore.deserialize(source);
+    return new QuantileSketch(positiveBins, negativeBins, zeroCount);
+  }
+
+  public long calculateRamSize() {
+    return 48 + positiveBins.calculateRamSize() + negativeBins.calculateRamSize();
+  }
+
+  /**
+   * Counts of the contiguous bins [minIndex, maxIndex], stored in an array starting at bin
+   * offset that may have room on both sides.
+   */
+  private static class BinStore {
+
+    private static final int INITIAL_LENGTH = 32;
+
+    private long[] counts = new long[0];
+    private int offset;
+    private int minIndex;
+    private int maxIndex;
+    private long total;
+
+    void add(int index, long binCount) {
+      if (total == 0) {
+        if (counts.length == 0) {
+          counts = new long[INITIAL_LENGTH];
+        }
+        offset = index - counts.length / 2;
+        minIndex = index;
+        maxIndex = index;
+      } else if (index < minIndex || index > maxIndex) {
+        index = extendRange(index);
+      }
+      counts[index - offset] += binCount;
+      total += binCount;
+    }
+
+    /**
+     * Make the store cover index, collapsing the lowest bins if there would be too many.
+     *
+     * @return the bin the index should be counted in
+     */
+    private int extendRange(int index) {
+      int newMinIndex = Math.min(minIndex, index);
+      int newMaxIndex = Math.max(maxIndex, index);
+      boolean collapse = (long) newMaxIndex - newMinIndex + 1 > MAX_BINS;
+      if (collapse) {
+        newMinIndex = newMaxIndex - MAX_BINS + 1;
+      }
+      if (collapse || newMinIndex < offset || newMaxIndex >= offset + counts.length) {
+        int range = newMaxIndex - newMinIndex + 1;
+        int length = Math.min(MAX_BINS, Math.max(counts.length, range) * 2);
+        length = Math.max(length, range);
+        int newOffset = newMinIndex - (length - range) / 2;
+        long[] newCounts = new long[length];
+        for (int i = minIndex; i <= maxIndex; i++) {
+          newCounts[Math.max(i, newMinIndex) - newOffset] += counts[i - offset];
+        }
+        counts = newCounts;
+        offset = newOffset;
+      }
+      minIndex = newMinIndex;
+      maxIndex = newMaxIndex;
+      return Math.max(index, newMinIndex);
+    }
+
+    void merge(BinStore another) {
+      if (another.total == 0) {
+        return;
+      }
+      // extend to the upper bound first so that a collapse happens at most once
+      for (int i = another.maxIndex; i >= another.minIndex; i--) {
+        long binCount = another.counts[i - another.offset];
+        if (binCount != 0) {
+          add(i, binCount);
+        }
+      }
+    }
+
+    BinStore copy() {
+      BinStore copy = new BinStore();
+      copy.counts = Arrays.copyOf(counts, counts.length);
+      copy.offset = offset;
+      copy.minIndex = minIndex;
+      copy.maxIndex = maxIndex;
+      copy.total = total;
+      return copy;
+    }
+
+    /**
+     * @param rank in [0, total)
+     * @return index of the bin holding the value of the given rank in ascending order
+     */
+    int indexOfRank(long rank) {
+      long cumulative = 0;
+      for (int i = minIndex; i < maxIndex; i++) {
+        cumulative += counts[i - offset];
+        if (cumulative > rank) {
+          return i;
+        }
+      }
+      return maxIndex;
+    }
+
+    int getSerializedSize() {
+      if (total == 0) {
+        return 1;
+      }
+      int size = varLongSize(maxIndex - minIndex + 1L) + varLongSize(zigzag(minIndex));
+      for (int i = minIndex; i <= maxIndex; i++) {
+        size += varLongSize(counts[i - offset]);
+      }
+      return size;
+    }
+
+    int serialize(OutputStream outputStream) throws IOException {
+      if (total == 0) {
+        return writeVarLong(0, outputStream);
+      }
+      int byteLen = writeVarLong(maxIndex - minIndex + 1L, outputStream);
+      byteLen += writeVarLong(zigzag(minIndex), outputStream);
+      for (int i = minIndex; i <= maxIndex; i++) {
+        byteLen += writeVarLong(counts[i - offset], outputStream);
+      }
+      return byteLen;
+    }
+
+    static BinStore deserialize(ByteSource source) throws IOException {
+      BinStore store = new BinStore();
+      int binNum = (int) readVarLong(source);
+      if (binNum == 0) {
+        return store;
+      }
+      long encodedMinIndex = readVarLong(source);
+      store.minIndex = (int) ((encodedMinIndex >>> 1) ^ -(encodedMinIndex & 1));
+      store.maxIndex = store.minIndex + binNum - 1;
+      store.offset = store.minIndex;
+      store.counts = new long[binNum];
+      for (int i = 0; i < binNum; i++) {
+        store.counts[i] = readVarLong(source);
+        store.total += store.counts[i];
+      }
+      return store;
+    }
+
+    long calculateRamSize() {
+      return 40 + 16 + 8L * counts.length;
+    }
+  }
+
+  private static long zigzag(int value) {
+    return ((long) value << 1) ^ (value >> 31);
+  }
+
+  private static int varLongSize(long value) {
+    int size = 1;
+    while ((value & ~0x7FL) != 0) {
+      value >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  private static int writeVarLong(long value, OutputStream outputStream) throws IOException {
+    int size = 1;
+    while ((value & ~0x7FL) != 0) {
+      outputStream.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+      size++;
+    }
+    outputStream.write((int) value);
+    return size;
+  }
+
+  private static long readVarLong(ByteSource source) throws IOException {
+    long value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = source.read();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  @FunctionalInterface
+  private interface ByteSource {
+
+    /**
+     * @return the next byte as an unsigned value
+     */
+    int read() throws IOException;
+  }
+}
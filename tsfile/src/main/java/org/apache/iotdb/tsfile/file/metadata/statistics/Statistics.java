@@ -55,6 +55,14 @@ public abstract class Statistics<T> {
   private long startTime = Long.MAX_VALUE;
   private long endTime = Long.MIN_VALUE;
 
+  /**
+   * Optional sketches of the values, only maintained for the series enabling them (see {@link
+   * org.apache.iotdb.tsfile.write.schema.MeasurementSchema#isSketchEnabled()}). When present they
+   * cover every point of this statistics. The quantile sketch is null for non-numeric types.
+   */
+  private DistinctCountSketch distinctCountSketch;
+  private QuantileSketch quantileSketch;
+
   /**
    * static method providing statistic instance for respective data type.
    *
@@ -80,22 +88,53 @@ public abstract class Statistics<T> {
     }
   }
 
+  /**
+   * @param withSketches whether the statistics also maintain the sketches of the values
+   */
+  public static Statistics getStatsByType(TSDataType type, boolean withSketches) {
+    Statistics statistics = getStatsByType(type);
+    if (withSketches) {
+      statistics.distinctCountSketch = new DistinctCountSketch();
+      if (type != TSDataType.BOOLEAN && type != TSDataType.TEXT) {
+        statistics.quantileSketch = new QuantileSketch();
+      }
+    }
+    return statistics;
+  }
+
   public abstract TSDataType getType();
 
   public int getSerializedSize() {
     return 24 // count, startTime, endTime
-        + getStatsSize();
+        + getStatsSize()
+        + getSketchesSize();
+  }
+
+  private int getSketchesSize() {
+    if (!hasSketches()) {
+      return 0;
+    }
+    return distinctCountSketch.getSerializedSize()
+        + (quantileSketch != null ? quantileSketch.getSerializedSize() : 0);
   }
 
   public abstract int getStatsSize();
 
   public int serialize(OutputStream outputStream) throws IOException {
     int byteLen = 0;
-    byteLen += ReadWriteIOUtils.write(count, outputStream);
+    // a negative count marks statistics followed by sketches, so that the statistics of series
+    // without sketches are serialized exactly as before
+    byteLen += ReadWriteIOUtils.write(hasSketches() ? -count - 1 : count, outputStream);
     byteLen += ReadWriteIOUtils.write(startTime, outputStream);
     byteLen += ReadWriteIOUtils.write(endTime, outputStream);
     // value statistics of different data type
     byteLen += serializeStats(outputStream);
+    if (hasSketches()) {
+      byteLen += distinctCountSketch.serialize(outputStream);
+      if (quantileSketch != null) {
+        byteLen += quantileSketch.serialize(outputStream);
+      }
+    }
     return byteLen;
   }
 
@@ -153,6 +192,7 @@ public abstract class Statistics<T> {
       if (stats.endTime > this.endTime) {
         this.endTime = stats.endTime;
       }
+      mergeSketches(stats);
       // must be sure no overlap between two statistics
       this.count += stats.count;
       mergeStatisticsValue(stats);
@@ -166,6 +206,29 @@ public abstract class Statistics<T> {
     }
   }
 
+  /**
+   * The sketches are kept only if both sides cover all their points, an empty statistics takes
+   * those of the first one merged into it.
+   */
+  private void mergeSketches(Statistics stats) {
+    if (stats.count == 0) {
+      return;
+    }
+    if (count == 0) {
+      distinctCountSketch =
+          stats.distinctCountSketch != null ? stats.distinctCountSketch.copy() : null;
+      quantileSketch = stats.quantileSketch != null ? stats.quantileSketch.copy() : null;
+    } else if (hasSketches() && stats.hasSketches()) {
+      distinctCountSketch.merge(stats.distinctCountSketch);
+      if (quantileSketch != null) {
+        quantileSketch.merge(stats.quantileSketch);
+      }
+    } else {
+      distinctCountSketch = null;
+      quantileSketch = null;
+    }
+  }
+
   public void update(long time, boolean value) {
     if (time < this.startTime) {
       startTime = time;
@@ -175,6 +238,9 @@ public abstract class Statistics<T> {
     }
     count++;
     updateStats(value);
+    if (hasSketches()) {
+      updateSketches(value);
+    }
   }
 
   public void update(long time, int value) {
@@ -186,6 +252,9 @@ public abstract class Statistics<T> {
     }
     count++;
     updateStats(value);
+    if (hasSketches()) {
+      updateSketches(value);
+    }
   }
 
   public void update(long time, long value) {
@@ -197,6 +266,9 @@ public abstract class Statistics<T> {
     }
     count++;
     updateStats(value);
+    if (hasSketches()) {
+      updateSketches(value);
+    }
   }
 
   public void update(long time, float value) {
@@ -208,6 +280,9 @@ public abstract class Statistics<T> {
     }
     count++;
     updateStats(value);
+    if (hasSketches()) {
+      updateSketches(value);
+    }
   }
 
   public void update(long time, double value) {
@@ -219,6 +294,9 @@ public abstract class Statistics<T> {
     }
     count++;
     updateStats(value);
+    if (hasSketches()) {
+      updateSketches(value);
+    }
   }
 
   public void update(long time, Binary value) {
@@ -230,6 +308,9 @@ public abstract class Statistics<T> {
     }
     count++;
     updateStats(value);
+    if (hasSketches()) {
+      updateSketches(value);
+    }
   }
 
   public void update(long[] time, boolean[] values, int batchSize) {
@@ -241,6 +322,11 @@ public abstract class Statistics<T> {
     }
     count += batchSize;
     updateStats(values, batchSize);
+    if (hasSketches()) {
+      for (int i = 0; i < batchSize; i++) {
+        updateSketches(values[i]);
+      }
+    }
   }
 
   public void update(long[] time, int[] values, int batchSize) {
@@ -252,6 +338,11 @@ public abstract class Statistics<T> {
     }
     count += batchSize;
     updateStats(values, batchSize);
+    if (hasSketches()) {
+      for (int i = 0; i < batchSize; i++) {
+        updateSketches(values[i]);
+      }
+    }
   }
 
   public void update(long[] time, long[] values, int batchSize) {
@@ -263,6 +354,11 @@ public abstract class Statistics<T> {
     }
     count += batchSize;
     updateStats(values, batchSize);
+    if (hasSketches()) {
+      for (int i = 0; i < batchSize; i++) {
+        updateSketches(values[i]);
+      }
+    }
   }
 
   public void update(long[] time, float[] values, int batchSize) {
@@ -274,6 +370,11 @@ public abstract class Statistics<T> {
     }
     count += batchSize;
     updateStats(values, batchSize);
+    if (hasSketches()) {
+      for (int i = 0; i < batchSize; i++) {
+        updateSketches(values[i]);
+      }
+    }
   }
 
   public void update(long[] time, double[] values, int batchSize) {
@@ -285,6 +386,11 @@ public abstract class Statistics<T> {
     }
     count += batchSize;
     updateStats(values, batchSize);
+    if (hasSketches()) {
+      for (int i = 0; i < batchSize; i++) {
+        updateSketches(values[i]);
+      }
+    }
   }
 
   public void update(long[] time, Binary[] values, int batchSize) {
@@ -296,10 +402,70 @@ public abstract class Statistics<T> {
     }
     count += batchSize;
     updateStats(values, batchSize);
+    if (hasSketches()) {
+      for (int i = 0; i < batchSize; i++) {
+        updateSketches(values[i]);
+      }
+    }
+  }
+
+  private void updateSketches(boolean value) {
+    distinctCountSketch.update(value);
+  }
+
+  private void updateSketches(int value) {
+    distinctCountSketch.update(value);
+    quantileSketch.update(value);
+  }
+
+  private void updateSketches(long value) {
+    distinctCountSketch.update(value);
+    quantileSketch.update(value);
+  }
+
+  private void updateSketches(float value) {
+    distinctCountSketch.update(value);
+    quantileSketch.update(value);
+  }
+
+  private void updateSketches(double value) {
+    distinctCountSketch.update(value);
+    quantileSketch.update(value);
+  }
+
+  private void updateSketches(Binary value) {
+    distinctCountSketch.update(value);
   }
 
   protected abstract void mergeStatisticsValue(Statistics stats);
 
+  public boolean hasSketches() {
+    return distinctCountSketch != null;
+  }
+
+  /**
+   * @return the distinct count sketch of the values, null if the series does not enable sketches
+   */
+  public DistinctCountSketch getDistinctCountSketch() {
+    return distinctCountSketch;
+  }
+
+  /**
+   * @return the quantile sketch of the values, null if the series does not enable sketches or is
+   * not numeric
+   */
+  public QuantileSketch getQuantileSketch() {
+    return quantileSketch;
+  }
+
+  public long calculateSketchesRamSize() {
+    if (!hasSketches()) {
+      return 0;
+    }
+    return distinctCountSketch.calculateRamSize()
+        + (quantileSketch != null ? quantileSketch.calculateRamSize() : 0);
+  }
+
   public boolean isEmpty() {
     return isEmpty;
   }
@@ -369,21 +535,35 @@ public abstract class Statistics<T> {
 
   public static Statistics deserialize(InputStream inputStream, TSDataType dataType)
       throws IOException {
+    long count = ReadWriteIOUtils.readLong(inputStream);
     Statistics statistics = getStatsByType(dataType);
-    statistics.setCount(ReadWriteIOUtils.readLong(inputStream));
+    statistics.setCount(count < 0 ? -count - 1 : count);
     statistics.setStartTime(ReadWriteIOUtils.readLong(inputStream));
     statistics.setEndTime(ReadWriteIOUtils.readLong(inputStream));
     statistics.deserialize(inputStream);
+    if (count < 0) {
+      statistics.distinctCountSketch = DistinctCountSketch.deserialize(inputStream);
+      if (dataType != TSDataType.BOOLEAN && dataType != TSDataType.TEXT) {
+        statistics.quantileSketch = QuantileSketch.deserialize(inputStream);
+      }
+    }
     statistics.isEmpty = false;
     return statistics;
   }
 
   public static Statistics deserialize(ByteBuffer buffer, TSDataType dataType) {
+    long count = ReadWriteIOUtils.readLong(buffer);
     Statistics statistics = getStatsByType(dataType);
-    statistics.setCount(ReadWriteIOUtils.readLong(buffer));
+    statistics.setCount(count < 0 ? -count - 1 : count);
     statistics.setStartTime(ReadWriteIOUtils.readLong(buffer));
     statistics.setEndTime(ReadWriteIOUtils.readLong(buffer));
     statistics.deserialize(buffer);
+    if (count < 0) {
+      statistics.distinctCountSketch = DistinctCountSketch.deserialize(buffer);
+      if (dataType != TSDataType.BOOLEAN && dataType != TSDataType.TEXT) {
+        statistics.quantileSketch = QuantileSketch.deserialize(buffer);
+      }
+    }
     statistics.isEmpty = false;
     return statistics;
   }
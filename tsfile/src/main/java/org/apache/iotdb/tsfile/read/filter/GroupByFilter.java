@@ -53,6 +53,35 @@ public class GroupByFilter implements Filter, Serializable {
 
   @Override
   public boolean satisfy(long time, Object value) {
+    return satisfyTime(time);
+  }
+
+  @Override
+  public boolean satisfyInt(long time, int value) {
+    return satisfyTime(time);
+  }
+
+  @Override
+  public boolean satisfyLong(long time, long value) {
+    return satisfyTime(time);
+  }
+
+  @Override
+  public boolean satisfyFloat(long time, float value) {
+    return satisfyTime(time);
+  }
+
+  @Override
+  public boolean satisfyDouble(long time, double value) {
+    return satisfyTime(time);
+  }
+
+  @Override
+  public boolean satisfyBoolean(long time, boolean value) {
+    return satisfyTime(time);
+  }
+
+  private boolean satisfyTime(long time) {
     if (time < startTime || time > endTime)
       return false;
     else
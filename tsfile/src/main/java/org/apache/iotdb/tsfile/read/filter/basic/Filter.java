@@ -22,6 +22,7 @@ import java.io.DataOutputStream;
 import java.nio.ByteBuffer;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.read.filter.factory.FilterSerializeId;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
 
 /**
  * Filter is a top level filter abstraction.
@@ -47,6 +48,62 @@ public interface Filter {
    */
   boolean satisfy(long time, Object value);
 
+  /**
+   * The same as satisfy(time, value) for an INT32 value, without boxing it if the filter supports.
+   */
+  default boolean satisfyInt(long time, int value) {
+    return satisfy(time, value);
+  }
+
+  /**
+   * The same as satisfy(time, value) for an INT64 value, without boxing it if the filter supports.
+   */
+  default boolean satisfyLong(long time, long value) {
+    return satisfy(time, value);
+  }
+
+  /**
+   * The same as satisfy(time, value) for a FLOAT value, without boxing it if the filter supports.
+   */
+  default boolean satisfyFloat(long time, float value) {
+    return satisfy(time, value);
+  }
+
+  /**
+   * The same as satisfy(time, value) for a DOUBLE value, without boxing it if the filter supports.
+   */
+  default boolean satisfyDouble(long time, double value) {
+    return satisfy(time, value);
+  }
+
+  /**
+   * The same as satisfy(time, value) for a BOOLEAN value, without boxing it if the filter
+   * supports.
+   */
+  default boolean satisfyBoolean(long time, boolean value) {
+    return satisfy(time, value);
+  }
+
+  /**
+   * To examine whether the single point is satisfied with the filter, without boxing its value.
+   */
+  default boolean satisfyPrimitive(long time, TsPrimitiveType value) {
+    switch (value.getDataType()) {
+      case INT32:
+        return satisfyInt(time, value.getInt());
+      case INT64:
+        return satisfyLong(time, value.getLong());
+      case FLOAT:
+        return satisfyFloat(time, value.getFloat());
+      case DOUBLE:
+        return satisfyDouble(time, value.getDouble());
+      case BOOLEAN:
+        return satisfyBoolean(time, value.getBoolean());
+      default:
+        return satisfy(time, value.getValue());
+    }
+  }
+
   /**
    * To examine whether the min time and max time are satisfied with the filter.
    *
@@ -58,6 +58,68 @@ public abstract class UnaryFilter<T extends Comparable<T>> implements Filter, Se
     return filterType;
   }
 
+  /**
+   * @param comparison the result of comparing the value of this filter with the time or value of
+   * a point, like value.compareTo(v) in satisfy(time, v)
+   * @return whether the point satisfies this filter
+   */
+  protected abstract boolean satisfyComparison(int comparison);
+
+  @Override
+  public boolean satisfyInt(long time, int value) {
+    if (filterType == FilterType.TIME_FILTER) {
+      return satisfyComparison(Long.compare((Long) this.value, time));
+    }
+    if (this.value instanceof Integer) {
+      return satisfyComparison(Integer.compare((Integer) this.value, value));
+    }
+    return satisfy(time, value);
+  }
+
+  @Override
+  public boolean satisfyLong(long time, long value) {
+    if (filterType == FilterType.TIME_FILTER) {
+      return satisfyComparison(Long.compare((Long) this.value, time));
+    }
+    if (this.value instanceof Long) {
+      return satisfyComparison(Long.compare((Long) this.value, value));
+    }
+    return satisfy(time, value);
+  }
+
+  @Override
+  public boolean satisfyFloat(long time, float value) {
+    if (filterType == FilterType.TIME_FILTER) {
+      return satisfyComparison(Long.compare((Long) this.value, time));
+    }
+    if (this.value instanceof Float) {
+      return satisfyComparison(Float.compare((Float) this.value, value));
+    }
+    return satisfy(time, value);
+  }
+
+  @Override
+  public boolean satisfyDouble(long time, double value) {
+    if (filterType == FilterType.TIME_FILTER) {
+      return satisfyComparison(Long.compare((Long) this.value, time));
+    }
+    if (this.value instanceof Double) {
+      return satisfyComparison(Double.compare((Double) this.value, value));
+    }
+    return satisfy(time, value);
+  }
+
+  @Override
+  public boolean satisfyBoolean(long time, boolean value) {
+    if (filterType == FilterType.TIME_FILTER) {
+      return satisfyComparison(Long.compare((Long) this.value, time));
+    }
+    if (this.value instanceof Boolean) {
+      return satisfyComparison(Boolean.compare((Boolean) this.value, value));
+    }
+    return satisfy(time, value);
+  }
+
   @Override
   public abstract String toString();
 
@@ -22,6 +22,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -47,6 +48,17 @@ public class In<T extends Comparable<T>> implements Filter {
 
   private FilterType filterType;
 
+  /**
+   * the class of the values if they are all Integer, Long, Float, Double or Boolean, null otherwise
+   */
+  private transient Class<?> primitiveClass;
+
+  /**
+   * the sorted values as longs (floats and doubles by their bits, booleans as 0 and 1), so that a
+   * primitive value can be searched without boxing it
+   */
+  private transient long[] primitiveValues;
+
   public In() {
   }
 
@@ -54,6 +66,54 @@ public class In<T extends Comparable<T>> implements Filter {
     this.values = values;
     this.filterType = filterType;
     this.not = not;
+    initPrimitiveValues();
+  }
+
+  private void initPrimitiveValues() {
+    primitiveClass = null;
+    primitiveValues = null;
+    Class<?> valueClass = null;
+    for (T value : values) {
+      if (valueClass == null) {
+        valueClass = value.getClass();
+      } else if (valueClass != value.getClass()) {
+        return;
+      }
+    }
+    if (valueClass != Integer.class && valueClass != Long.class && valueClass != Float.class
+        && valueClass != Double.class && valueClass != Boolean.class) {
+      return;
+    }
+    long[] sortedValues = new long[values.size()];
+    int i = 0;
+    for (T value : values) {
+      sortedValues[i++] = toLong(value);
+    }
+    Arrays.sort(sortedValues);
+    primitiveValues = sortedValues;
+    primitiveClass = valueClass;
+  }
+
+  private static long toLong(Object value) {
+    if (value instanceof Float) {
+      return Float.floatToIntBits((Float) value);
+    } else if (value instanceof Double) {
+      return Double.doubleToLongBits((Double) value);
+    } else if (value instanceof Boolean) {
+      return ((Boolean) value) ? 1 : 0;
+    }
+    return ((Number) value).longValue();
+  }
+
+  /**
+   * @return whether the value of a point satisfies this filter, or null if the values of this
+   * filter are not of the class, which should be checked by satisfy(time, value)
+   */
+  private Boolean searchPrimitive(Class<?> valueClass, long value) {
+    if (primitiveClass != valueClass) {
+      return null;
+    }
+    return (Arrays.binarySearch(primitiveValues, value) >= 0) != not;
   }
 
   @Override
@@ -67,6 +127,41 @@ public class In<T extends Comparable<T>> implements Filter {
     return this.values.contains(v) != not;
   }
 
+  @Override
+  public boolean satisfyInt(long time, int value) {
+    Boolean satisfied = filterType == FilterType.TIME_FILTER
+        ? searchPrimitive(Long.class, time) : searchPrimitive(Integer.class, value);
+    return satisfied != null ? satisfied : satisfy(time, value);
+  }
+
+  @Override
+  public boolean satisfyLong(long time, long value) {
+    Boolean satisfied = filterType == FilterType.TIME_FILTER
+        ? searchPrimitive(Long.class, time) : searchPrimitive(Long.class, value);
+    return satisfied != null ? satisfied : satisfy(time, value);
+  }
+
+  @Override
+  public boolean satisfyFloat(long time, float value) {
+    Boolean satisfied = filterType == FilterType.TIME_FILTER
+        ? searchPrimitive(Long.class, time) : searchPrimitive(Float.class, Float.floatToIntBits(value));
+    return satisfied != null ? satisfied : satisfy(time, value);
+  }
+
+  @Override
+  public boolean satisfyDouble(long time, double value) {
+    Boolean satisfied = filterType == FilterType.TIME_FILTER
+        ? searchPrimitive(Long.class, time) : searchPrimitive(Double.class, Double.doubleToLongBits(value));
+    return satisfied != null ? satisfied : satisfy(time, value);
+  }
+
+  @Override
+  public boolean satisfyBoolean(long time, boolean value) {
+    Boolean satisfied = filterType == FilterType.TIME_FILTER
+        ? searchPrimitive(Long.class, time) : searchPrimitive(Boolean.class, value ? 1 : 0);
+    return satisfied != null ? satisfied : satisfy(time, value);
+  }
+
   @Override
   public boolean satisfyStartEndTime(long startTime, long endTime) {
     return true;
@@ -105,6 +200,7 @@ public class In<T extends Comparable<T>> implements Filter {
     for (int i = 0; i < buffer.get(); i++) {
       values.add((T) ReadWriteIOUtils.readObject(buffer));
     }
+    initPrimitiveValues();
   }
 
   @Override
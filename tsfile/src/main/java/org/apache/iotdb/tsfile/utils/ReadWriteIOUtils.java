@@ -150,6 +150,15 @@ public class ReadWriteIOUtils {
     return length;
   }
 
+  public static int write(Map<String, String> map, ByteBuffer buffer) {
+    int length = write(map.size(), buffer);
+    for (Entry<String, String> entry : map.entrySet()) {
+      length += write(entry.getKey(), buffer);
+      length += write(entry.getValue(), buffer);
+    }
+    return length;
+  }
+
 
 
   /**
@@ -66,7 +66,8 @@ public class PageWriter {
 
   public PageWriter(MeasurementSchema measurementSchema) {
     this(measurementSchema.getTimeEncoder(), measurementSchema.getValueEncoder());
-    this.statistics = Statistics.getStatsByType(measurementSchema.getType());
+    this.statistics = Statistics
+        .getStatsByType(measurementSchema.getType(), measurementSchema.isSketchEnabled());
     this.compressor = ICompressor.getCompressor(measurementSchema.getCompressor());
   }
 
@@ -286,7 +287,8 @@ public class PageWriter {
   public void reset(MeasurementSchema measurementSchema) {
     timeOut.reset();
     valueOut.reset();
-    statistics = Statistics.getStatsByType(measurementSchema.getType());
+    statistics = Statistics
+        .getStatsByType(measurementSchema.getType(), measurementSchema.isSketchEnabled());
   }
 
   public void setTimeEncoder(Encoder encoder) {
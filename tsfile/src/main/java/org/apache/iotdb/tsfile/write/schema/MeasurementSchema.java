@@ -44,6 +44,11 @@ import org.apache.iotdb.tsfile.utils.StringContainer;
  */
 public class MeasurementSchema implements Comparable<MeasurementSchema>, Serializable {
 
+  /**
+   * the property enabling the sketches in the page and chunk statistics, e.g. "sketch=true"
+   */
+  public static final String SKETCH = "sketch";
+
   private String measurementId;
   private byte type;
   private byte encoding;
@@ -202,6 +207,13 @@ public class MeasurementSchema implements Comparable<MeasurementSchema>, Seriali
     return CompressionType.byteToEnum(compressor);
   }
 
+  /**
+   * @return whether the statistics of this measurement also maintain the sketches of the values
+   */
+  public boolean isSketchEnabled() {
+    return props != null && Boolean.parseBoolean(props.get(SKETCH));
+  }
+
   /**
    * function for serializing data to output stream.
    */
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.file.metadata.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.junit.Test;
+
+public class SketchStatisticsTest {
+
+  @Test
+  public void testQuantile() {
+    Statistics<?> statistics = Statistics.getStatsByType(TSDataType.DOUBLE, true);
+    int pointNum = 100000;
+    for (int i = 1; i <= pointNum; i++) {
+      statistics.update(i, (double) i);
+    }
+    QuantileSketch sketch = statistics.getQuantileSketch();
+    assertEquals(pointNum, sketch.getCount());
+    for (double quantile : new double[]{0, 0.5, 0.9, 0.99, 1}) {
+      double expected = 1 + quantile * (pointNum - 1);
+      assertEquals(expected, sketch.getQuantile(quantile),
+          expected * QuantileSketch.RELATIVE_ACCURACY + 1);
+    }
+  }
+
+  @Test
+  public void testQuantileWithNegativesAndZeros() {
+    QuantileSketch sketch = new QuantileSketch();
+    for (int i = -100; i <= 100; i++) {
+      sketch.update(i);
+    }
+    sketch.update(0);
+    sketch.update(Double.NaN);
+    assertEquals(202, sketch.getCount());
+    assertEquals(-100, sketch.getQuantile(0), 1);
+    assertEquals(0, sketch.getQuantile(0.5), 0);
+    assertEquals(100, sketch.getQuantile(1), 1);
+    assertTrue(Double.isNaN(new QuantileSketch().getQuantile(0.5)));
+  }
+
+  @Test
+  public void testQuantileCollapse() {
+    QuantileSketch sketch = new QuantileSketch();
+    // values spanning far more bins than a sketch keeps
+    for (int i = -300; i <= 300; i++) {
+      sketch.update(Math.pow(10, i));
+    }
+    assertEquals(601, sketch.getCount());
+    assertEquals(1e300, sketch.getQuantile(1), 1e300 * QuantileSketch.RELATIVE_ACCURACY);
+    assertEquals(1e290, sketch.getQuantile(590.0 / 600),
+        1e290 * QuantileSketch.RELATIVE_ACCURACY);
+    // the lowest values are collapsed into the lowest kept bin
+    assertTrue(sketch.getQuantile(0.5) > 1e250);
+  }
+
+  @Test
+  public void testDistinctCount() {
+    Statistics<?> statistics = Statistics.getStatsByType(TSDataType.INT64, true);
+    int distinctNum = 20000;
+    for (int i = 0; i < distinctNum * 3; i++) {
+      statistics.update(i, (long) (i % distinctNum));
+    }
+    assertEquals(distinctNum, statistics.getDistinctCountSketch().getEstimate(),
+        distinctNum * 0.1);
+
+    Statistics<?> textStatistics = Statistics.getStatsByType(TSDataType.TEXT, true);
+    for (int i = 0; i < 100; i++) {
+      textStatistics.update(i, new Binary("v" + i % 10));
+    }
+    assertEquals(10, textStatistics.getDistinctCountSketch().getEstimate());
+    assertNull(textStatistics.getQuantileSketch());
+  }
+
+  @Test
+  public void testMergeAndSerialize() throws IOException {
+    // an empty chunk statistics without sketches takes those of its pages
+    Statistics<?> chunkStatistics = Statistics.getStatsByType(TSDataType.INT32);
+    for (int page = 0; page < 10; page++) {
+      Statistics<?> pageStatistics = Statistics.getStatsByType(TSDataType.INT32, true);
+      for (int i = page * 100; i < page * 100 + 100; i++) {
+        pageStatistics.update(i, i % 500);
+      }
+      chunkStatistics.mergeStatistics(pageStatistics);
+    }
+    assertTrue(chunkStatistics.hasSketches());
+    assertEquals(1000, chunkStatistics.getQuantileSketch().getCount());
+    assertEquals(500, chunkStatistics.getDistinctCountSketch().getEstimate(), 25);
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    int size = chunkStatistics.serialize(outputStream);
+    assertEquals(chunkStatistics.getSerializedSize(), size);
+    assertEquals(size, outputStream.size());
+
+    Statistics<?> fromStream = Statistics
+        .deserialize(new ByteArrayInputStream(outputStream.toByteArray()), TSDataType.INT32);
+    ByteBuffer buffer = ByteBuffer.wrap(outputStream.toByteArray());
+    Statistics<?> fromBuffer = Statistics.deserialize(buffer, TSDataType.INT32);
+    assertFalse(buffer.hasRemaining());
+    for (Statistics<?> deserialized : new Statistics<?>[]{fromStream, fromBuffer}) {
+      assertEquals(1000, deserialized.getCount());
+      assertEquals(chunkStatistics.getSumValue(), deserialized.getSumValue(), 0);
+      assertEquals(chunkStatistics.getDistinctCountSketch().getEstimate(),
+          deserialized.getDistinctCountSketch().getEstimate());
+      for (double quantile : new double[]{0, 0.5, 0.99}) {
+        assertEquals(chunkStatistics.getQuantileSketch().getQuantile(quantile),
+            deserialized.getQuantileSketch().getQuantile(quantile), 0);
+      }
+    }
+
+    // statistics missing a sketch of some of its points drops them
+    Statistics<?> plainStatistics = Statistics.getStatsByType(TSDataType.INT32);
+    plainStatistics.update(2000, 1);
+    chunkStatistics.mergeStatistics(plainStatistics);
+    assertFalse(chunkStatistics.hasSketches());
+    assertNull(chunkStatistics.getQuantileSketch());
+  }
+
+  @Test
+  public void testSerializeWithoutSketches() throws IOException {
+    Statistics<?> statistics = Statistics.getStatsByType(TSDataType.INT64);
+    statistics.update(1, 10L);
+    statistics.update(2, 20L);
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    assertEquals(24 + statistics.getStatsSize(), statistics.serialize(outputStream));
+    Statistics<?> deserialized = Statistics
+        .deserialize(ByteBuffer.wrap(outputStream.toByteArray()), TSDataType.INT64);
+    assertEquals(2, deserialized.getCount());
+    assertFalse(deserialized.hasSketches());
+  }
+}
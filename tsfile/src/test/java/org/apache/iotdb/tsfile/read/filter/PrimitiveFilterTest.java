@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.read.filter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The primitive satisfy methods must agree with satisfy(time, Object).
+ */
+public class PrimitiveFilterTest {
+
+  private static final long[] TIMES = new long[]{-1, 0, 99, 100, 101, Long.MAX_VALUE};
+
+  @Test
+  public void testTimeFilter() {
+    List<Filter> filters = Arrays.asList(TimeFilter.eq(100L), TimeFilter.notEq(100L),
+        TimeFilter.gt(100L), TimeFilter.gtEq(100L), TimeFilter.lt(100L), TimeFilter.ltEq(100L),
+        TimeFilter.in(new HashSet<>(Arrays.asList(0L, 100L)), false),
+        TimeFilter.in(new HashSet<>(Arrays.asList(0L, 100L)), true),
+        TimeFilter.not(TimeFilter.gt(99L)), new GroupByFilter(10, 20, 0, 1000),
+        FilterFactory.and(TimeFilter.gt(0L), ValueFilter.lt(5)),
+        FilterFactory.or(TimeFilter.gt(100L), ValueFilter.lt(5)));
+    for (Filter filter : filters) {
+      for (long time : TIMES) {
+        for (int value : new int[]{0, 5, 10}) {
+          Assert.assertEquals(filter.toString(), filter.satisfy(time, value),
+              filter.satisfyInt(time, value));
+          Assert.assertEquals(filter.toString(), filter.satisfy(time, value),
+              filter.satisfyPrimitive(time, new TsPrimitiveType.TsInt(value)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testValueFilter() {
+    int[] ints = new int[]{Integer.MIN_VALUE, -1, 0, 1, 2, Integer.MAX_VALUE};
+    long[] longs = new long[]{Long.MIN_VALUE, -1, 0, 1, 2, Long.MAX_VALUE};
+    float[] floats = new float[]{Float.NEGATIVE_INFINITY, -1, -0.0f, 0.0f, 1, Float.NaN};
+    double[] doubles = new double[]{Double.NEGATIVE_INFINITY, -1, -0.0, 0.0, 1, Double.NaN};
+    boolean[] booleans = new boolean[]{false, true};
+
+    for (int value : ints) {
+      for (Filter filter : filters(value, 1)) {
+        for (int v : ints) {
+          Assert.assertEquals(filter.toString(), filter.satisfy(1, v), filter.satisfyInt(1, v));
+        }
+      }
+    }
+    for (long value : longs) {
+      for (Filter filter : filters(value, 1L)) {
+        for (long v : longs) {
+          Assert.assertEquals(filter.toString(), filter.satisfy(1, v), filter.satisfyLong(1, v));
+        }
+      }
+    }
+    for (float value : floats) {
+      for (Filter filter : filters(value, 1.0f)) {
+        for (float v : floats) {
+          Assert.assertEquals(filter.toString(), filter.satisfy(1, v), filter.satisfyFloat(1, v));
+        }
+      }
+    }
+    for (double value : doubles) {
+      for (Filter filter : filters(value, 1.0)) {
+        for (double v : doubles) {
+          Assert.assertEquals(filter.toString(), filter.satisfy(1, v), filter.satisfyDouble(1, v));
+        }
+      }
+    }
+    for (Filter filter : filters(false, true)) {
+      for (boolean v : booleans) {
+        Assert.assertEquals(filter.toString(), filter.satisfy(1, v), filter.satisfyBoolean(1, v));
+      }
+    }
+  }
+
+  @Test
+  public void testMismatchedType() {
+    // a filter of another type falls back to satisfy(time, Object)
+    Filter filter = ValueFilter.eq(1L);
+    Assert.assertFalse(filter.satisfyInt(1, 1));
+    filter = ValueFilter.in(new HashSet<>(Arrays.asList(1L, 2L)), false);
+    Assert.assertFalse(filter.satisfyDouble(1, 1.0));
+  }
+
+  private static <T extends Comparable<T>> List<Filter> filters(T value, T other) {
+    return Arrays.asList(ValueFilter.eq(value), ValueFilter.notEq(value), ValueFilter.gt(value),
+        ValueFilter.gtEq(value), ValueFilter.lt(value), ValueFilter.ltEq(value),
+        ValueFilter.in(new HashSet<>(Arrays.asList(value, other)), false),
+        ValueFilter.in(new HashSet<>(Arrays.asList(value, other)), true),
+        ValueFilter.not(ValueFilter.gt(value)),
+        FilterFactory.and(ValueFilter.gtEq(value), ValueFilter.ltEq(other)),
+        FilterFactory.or(ValueFilter.lt(value), ValueFilter.gt(other)));
+  }
+}